@@ -44,22 +44,28 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.Nonnull;
 
 import org.openflexo.connie.type.TypeUtils;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
 import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
 import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelEntityLibrary;
 import org.openflexo.pamela.model.ModelProperty;
@@ -70,8 +76,11 @@ import org.openflexo.pamela.patterns.ExecutionMonitor;
 import org.openflexo.pamela.patterns.PatternDefinition;
 import org.openflexo.pamela.patterns.PatternInstance;
 import org.openflexo.pamela.patterns.PatternLibrary;
+import org.openflexo.pamela.xml.XMLDeserializationPlan;
 import org.openflexo.toolbox.StringUtils;
 
+import javassist.util.proxy.ProxyObject;
+
 /**
  * A {@link PamelaMetaModel} represents a PAMELA meta-model dynamically infered from the exploration of compiled code<br>
  * 
@@ -82,14 +91,23 @@ import org.openflexo.toolbox.StringUtils;
  */
 public class PamelaMetaModel {
 
+	public static final ExecutionMonitor[] NO_EXECUTION_MONITOR = new ExecutionMonitor[0];
+
+	private static final Logger logger = Logger.getLogger(PamelaMetaModel.class.getPackage().getName());
+
 	private Map<Class, ModelEntity> modelEntities;
 	private Map<String, ModelEntity<?>> modelEntitiesByXmlTag;
 	private final Map<ModelEntity<?>, Map<String, ModelPropertyXMLTag<?>>> modelPropertiesByXmlTag;
 	private final Class<?> baseClass;
 	private final Set<ExecutionMonitor> executionMonitors;
+	// Snapshot of executionMonitors, replaced on each registration, so that iterating monitors does not require any lock
+	private volatile ExecutionMonitorsSnapshot executionMonitorsSnapshot = new ExecutionMonitorsSnapshot(NO_EXECUTION_MONITOR);
+	private volatile boolean hasExecutionMonitors = false;
 	private List<AbstractPatternFactory<?>> patternFactories = new ArrayList<>();
 	private Map<Object, Set<PatternInstance<?>>> patternInstances = new HashMap<>();
 	private Map<PatternDefinition, Set<PatternInstance<?>>> registeredPatternInstances = new HashMap<>();
+	// Lazily instantiated
+	private XMLDeserializationPlan xmlDeserializationPlan;
 
 	PamelaMetaModel(@Nonnull Class<?> baseClass, boolean isFinalModel) throws ModelDefinitionException {
 		this.baseClass = baseClass;
@@ -100,7 +118,7 @@ public class PamelaMetaModel {
 		appendEntity(modelEntity, new HashSet<>());
 		modelEntities = Collections.unmodifiableMap(modelEntities);
 		modelEntitiesByXmlTag = Collections.unmodifiableMap(modelEntitiesByXmlTag);
-		executionMonitors = new HashSet<>();
+		executionMonitors = new LinkedHashSet<>();
 		if (isFinalModel) {
 			for (ModelEntity entity : modelEntities.values()) {
 				entity.finalizeImport();
@@ -132,7 +150,7 @@ public class PamelaMetaModel {
 		}
 		modelEntities = Collections.unmodifiableMap(modelEntities);
 		modelEntitiesByXmlTag = Collections.unmodifiableMap(modelEntitiesByXmlTag);
-		executionMonitors = new HashSet<>();
+		executionMonitors = new LinkedHashSet<>();
 		for (ModelEntity entity : modelEntities.values()) {
 			entity.finalizeImport();
 		}
@@ -209,6 +227,18 @@ public class PamelaMetaModel {
 		return modelEntities.get(implementedInterface);
 	}
 
+	/**
+	 * Return the plan used to deserialize XML documents conform to this meta-model, shared by all deserializations
+	 * 
+	 * @return
+	 */
+	public synchronized XMLDeserializationPlan getXMLDeserializationPlan() {
+		if (xmlDeserializationPlan == null) {
+			xmlDeserializationPlan = new XMLDeserializationPlan(this);
+		}
+		return xmlDeserializationPlan;
+	}
+
 	/**
 	 * Return the appropriate {@link ModelPropertyXMLTag} matching searched XML Tag, supplied as parameter (xmlTag).<br>
 	 * Note that required parameters include the entity which gives the context where such XML tag is to be looked-up, and the
@@ -316,16 +346,82 @@ public class PamelaMetaModel {
 
 	// Patterns
 
-	public void addExecutionMonitor(ExecutionMonitor m) {
-		this.executionMonitors.add(m);
+	public synchronized void addExecutionMonitor(ExecutionMonitor m) {
+		if (this.executionMonitors.add(m)) {
+			updateExecutionMonitorsSnapshot();
+		}
 	}
 
 	public Set<ExecutionMonitor> getExecutionMonitors() {
-		return this.executionMonitors;
+		return Collections.unmodifiableSet(this.executionMonitors);
+	}
+
+	public synchronized boolean removeExecutionMonitor(ExecutionMonitor m) {
+		if (this.executionMonitors.remove(m)) {
+			updateExecutionMonitorsSnapshot();
+			return true;
+		}
+		return false;
+	}
+
+	private void updateExecutionMonitorsSnapshot() {
+		// A new snapshot comes with its own empty cache: a reader still using previous snapshot only fills previous cache
+		ExecutionMonitor[] monitors = executionMonitors.toArray(new ExecutionMonitor[executionMonitors.size()]);
+		executionMonitorsSnapshot = new ExecutionMonitorsSnapshot(monitors);
+		hasExecutionMonitors = !executionMonitors.isEmpty();
+	}
+
+	/**
+	 * Immutable set of registered {@link ExecutionMonitor}, with the monitors interested in a given method of a given entity, computed on
+	 * demand
+	 */
+	private static class ExecutionMonitorsSnapshot {
+		private final ExecutionMonitor[] monitors;
+		private final Map<ModelEntity<?>, Map<Method, ExecutionMonitor[]>> monitorsForMethods = new ConcurrentHashMap<>();
+
+		private ExecutionMonitorsSnapshot(ExecutionMonitor[] monitors) {
+			this.monitors = monitors;
+		}
 	}
 
-	public boolean removeExecutionMonitor(ExecutionMonitor m) {
-		return this.executionMonitors.remove(m);
+	/**
+	 * Return a flag indicating if at least one {@link ExecutionMonitor} is registered in this meta-model
+	 * 
+	 * @return
+	 */
+	public boolean hasExecutionMonitors() {
+		return hasExecutionMonitors;
+	}
+
+	/**
+	 * Return the {@link ExecutionMonitor} to notify for an invocation of supplied method on an instance of supplied entity, as declared
+	 * by {@link ExecutionMonitor#isMonitoring(ModelEntity, Method)}<br>
+	 * Returned array is shared and should not be modified
+	 * 
+	 * @param entity
+	 * @param method
+	 * @return
+	 */
+	public ExecutionMonitor[] getExecutionMonitors(ModelEntity<?> entity, Method method) {
+		if (!hasExecutionMonitors) {
+			return NO_EXECUTION_MONITOR;
+		}
+		ExecutionMonitorsSnapshot snapshot = executionMonitorsSnapshot;
+		Map<Method, ExecutionMonitor[]> monitorsForEntity = snapshot.monitorsForMethods.computeIfAbsent(entity,
+				e -> new ConcurrentHashMap<>());
+		ExecutionMonitor[] returned = monitorsForEntity.get(method);
+		if (returned == null) {
+			List<ExecutionMonitor> monitors = new ArrayList<>();
+			for (ExecutionMonitor monitor : snapshot.monitors) {
+				if (monitor.isMonitoring(entity, method)) {
+					monitors.add(monitor);
+				}
+			}
+			returned = monitors.isEmpty() ? NO_EXECUTION_MONITOR : monitors.toArray(new ExecutionMonitor[monitors.size()]);
+			// Result is only cached in the snapshot it was computed from
+			monitorsForEntity.put(method, returned);
+		}
+		return returned;
 	}
 
 	/**
@@ -364,8 +460,10 @@ public class PamelaMetaModel {
 			}
 		}
 
-		for (Class<? extends AbstractPatternFactory<?>> f : factories) {
-			System.out.println("Registered pattern : " + f);
+		if (logger.isLoggable(Level.FINE)) {
+			for (Class<? extends AbstractPatternFactory<?>> f : factories) {
+				logger.fine("Registered pattern : " + f);
+			}
 		}
 
 		for (Class<? extends AbstractPatternFactory<?>> factoryClass : factories) {
@@ -380,6 +478,7 @@ public class PamelaMetaModel {
 				// System.out.println("patternDefinitions= " + patternFactory.getPatternDefinitions());
 				for (PatternDefinition patternDefinition : patternFactory.getPatternDefinitions().values()) {
 					patternDefinition.finalizeDefinition();
+					patternDefinition.resolveMethodHooks((Collection) modelEntities.values());
 				}
 			} catch (InstantiationException e) {
 				// TODO Auto-generated catch block
@@ -442,7 +541,9 @@ public class PamelaMetaModel {
 			s = new HashSet<>();
 			registeredPatternInstances.put(definition, s);
 		}
-		System.out.println("Registering " + patternInstance);
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Registering " + patternInstance);
+		}
 		s.add(patternInstance);
 	}
 
@@ -452,11 +553,21 @@ public class PamelaMetaModel {
 			s = new HashSet<>();
 			patternInstances.put(stakeHolder, s);
 		}
-		System.out.println("Registering " + stakeHolder + " as " + role + " for pattern instance " + patternInstance);
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Registering " + stakeHolder + " as " + role + " for pattern instance " + patternInstance);
+		}
 		s.add(patternInstance);
+		// Compiled accessors of this object must now dispatch to pattern hooks
+		if (stakeHolder instanceof ProxyObject && ((ProxyObject) stakeHolder).getHandler() instanceof ProxyMethodHandler) {
+			((ProxyMethodHandler<?>) ((ProxyObject) stakeHolder).getHandler()).setPatternStakeHolder();
+		}
 	}
 
 	public Set<PatternInstance<?>> getPatternInstances(Object stakeholder) {
+		if (patternInstances.isEmpty()) {
+			// Fast path: avoid computing stakeholder hashCode when no pattern is instantiated
+			return null;
+		}
 		return patternInstances.get(stakeholder);
 	}
 
@@ -100,4 +100,18 @@ public @interface Finder {
 	 * @return
 	 */
 	boolean iterateFirstRecurseThen() default true;
+
+	/**
+	 * Whether this finder should be backed by a hash index keyed by the value of attribute().<br>
+	 *
+	 * The index is built on first invocation, then maintained through adder/remover/setter of the collection and through the
+	 * PropertyChange notifications fired by the contained objects when attribute() changes. When contained objects do not provide
+	 * property change support, or when searched value cannot be hashed consistently with finder semantics (another PAMELA object or a
+	 * list), the finder falls back on a linear scan.<br>
+	 * Note that a multi-valued indexed finder returns matching objects in the order they were indexed, which may differ from collection
+	 * order after some reindexing.
+	 *
+	 * @return
+	 */
+	boolean indexed() default false;
 }
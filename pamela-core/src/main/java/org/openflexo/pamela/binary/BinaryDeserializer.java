@@ -0,0 +1,332 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.binary;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openflexo.pamela.exceptions.InvalidDataException;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.RestrictiveDeserializationException;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+import org.openflexo.pamela.xml.TransformedObjectInfo;
+import org.xml.sax.SAXException;
+
+/**
+ * Deserializer reading PAMELA objects from compact binary format (see {@link BinaryFormat}), as a stream<br>
+ * 
+ * Objects go through the same deserialization life-cycle as with XML: deserialization initializers are called when objects are created,
+ * and deserialization finalizers once the whole document has been read.
+ */
+public class BinaryDeserializer {
+
+	private final PamelaModelFactory factory;
+	private final DeserializationPolicy policy;
+
+	private DataInputStream in;
+	// Objects in the order they were described
+	private List<Object> objects;
+	private List<TransformedObjectInfo> infos;
+	private List<EntityDefinition> entities;
+	private List<String> symbols;
+	// Classes of enum and converted values, by name
+	private Map<String, Class<?>> classes;
+
+	private static class EntityDefinition {
+		private final ModelEntity<Object> entity;
+		// Properties in serialization order, null when property is not known by the entity
+		private final ModelProperty<Object>[] properties;
+		private final boolean[] multiple;
+
+		private EntityDefinition(ModelEntity<Object> entity, ModelProperty<Object>[] properties, boolean[] multiple) {
+			this.entity = entity;
+			this.properties = properties;
+			this.multiple = multiple;
+		}
+	}
+
+	public BinaryDeserializer(PamelaModelFactory factory) {
+		this(factory, DeserializationPolicy.PERMISSIVE);
+	}
+
+	public BinaryDeserializer(PamelaModelFactory factory, DeserializationPolicy policy) {
+		this.factory = factory;
+		this.policy = policy;
+	}
+
+	public Object deserializeDocument(InputStream is) throws Exception {
+		objects = new ArrayList<>();
+		infos = new ArrayList<>();
+		entities = new ArrayList<>();
+		symbols = new ArrayList<>();
+		classes = new HashMap<>();
+		in = new DataInputStream(is instanceof BufferedInputStream ? is : new BufferedInputStream(is));
+		try {
+			for (byte b : BinaryFormat.MAGIC) {
+				if (in.readByte() != b) {
+					throw new InvalidDataException("Not a PAMELA binary document");
+				}
+			}
+			int version = BinaryFormat.readVarInt(in);
+			if (version != BinaryFormat.VERSION) {
+				throw new InvalidDataException("Unsupported PAMELA binary format version " + version);
+			}
+
+			Object returned = readValue(null);
+
+			// Close deserializing mode
+			for (TransformedObjectInfo info : infos) {
+				info.finalizeDeserialization();
+			}
+			return returned;
+		} catch (SAXException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			else
+				throw new InvalidDataException(e.getMessage());
+		} finally {
+			in = null;
+			objects = null;
+			infos = null;
+			entities = null;
+			symbols = null;
+			classes = null;
+		}
+	}
+
+	/**
+	 * Read a value
+	 * 
+	 * @param property
+	 *            the property for which value is read (gives expected type), null when value is to be ignored
+	 */
+	private Object readValue(ModelProperty<Object> property) throws Exception {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+			case BinaryFormat.NULL:
+				return null;
+			case BinaryFormat.OBJECT:
+				return readObject();
+			case BinaryFormat.REFERENCE:
+				int index = BinaryFormat.readVarInt(in);
+				if (index >= objects.size()) {
+					throw new InvalidDataException("Unresolved reference to object " + index);
+				}
+				return objects.get(index);
+			case BinaryFormat.STRING:
+				return BinaryFormat.readString(in);
+			case BinaryFormat.INTEGER:
+				return BinaryFormat.readSignedVarInt(in);
+			case BinaryFormat.LONG:
+				return BinaryFormat.readSignedVarLong(in);
+			case BinaryFormat.TRUE:
+				return Boolean.TRUE;
+			case BinaryFormat.FALSE:
+				return Boolean.FALSE;
+			case BinaryFormat.DOUBLE:
+				return in.readDouble();
+			case BinaryFormat.FLOAT:
+				return in.readFloat();
+			case BinaryFormat.SHORT:
+				return (short) BinaryFormat.readSignedVarInt(in);
+			case BinaryFormat.BYTE:
+				return in.readByte();
+			case BinaryFormat.CHARACTER:
+				return (char) BinaryFormat.readVarInt(in);
+			case BinaryFormat.DATE:
+				return new Date(BinaryFormat.readSignedVarLong(in));
+			case BinaryFormat.ENUM:
+				if (property == null) {
+					readSymbol();
+					readSymbol();
+					return null;
+				}
+				Class<?> enumClass = readClass();
+				String name = readSymbol();
+				if (!enumClass.isEnum()) {
+					throw new InvalidDataException("Not an enum type " + enumClass.getName());
+				}
+				try {
+					return Enum.valueOf((Class<Enum>) enumClass, name);
+				} catch (IllegalArgumentException e) {
+					throw new InvalidDataException("No constant " + name + " in enum " + enumClass.getName());
+				}
+			case BinaryFormat.CONVERTED:
+				if (property == null) {
+					readSymbol();
+					BinaryFormat.readString(in);
+					return null;
+				}
+				Class<?> type = readClass();
+				String string = BinaryFormat.readString(in);
+				Object returned = factory.getStringEncoder().fromString(type, string);
+				if (returned == null) {
+					throw new InvalidDataException("Cannot decode " + string + " as a " + type.getName());
+				}
+				return returned;
+			default:
+				throw new InvalidDataException("Unexpected tag " + tag);
+		}
+	}
+
+	private Object readObject() throws Exception {
+		EntityDefinition definition = readEntity();
+		Object returned = factory._newInstance(definition.entity.getImplementedInterface(), policy == DeserializationPolicy.EXTENSIVE);
+		objects.add(returned);
+
+		TransformedObjectInfo info = new TransformedObjectInfo(factory, null, null, definition.entity);
+		info.setObject(returned);
+		info.initializeDeserialization();
+		infos.add(info);
+
+		ProxyMethodHandler<Object> handler = (ProxyMethodHandler<Object>) factory.getHandler(returned);
+		int propertyIndex;
+		while ((propertyIndex = BinaryFormat.readVarInt(in)) != BinaryFormat.END_OF_OBJECT) {
+			if (propertyIndex > definition.properties.length) {
+				throw new InvalidDataException("Unexpected property index " + propertyIndex + " for " + definition.entity);
+			}
+			ModelProperty<Object> property = definition.properties[propertyIndex - 1];
+			if (definition.multiple[propertyIndex - 1]) {
+				int size = BinaryFormat.readVarInt(in);
+				for (int i = 0; i < size; i++) {
+					Object value = readValue(property);
+					if (property != null && value != null) {
+						handler.invokeAdderForDeserialization(property, value);
+					}
+				}
+			}
+			else {
+				Object value = readValue(property);
+				if (property != null) {
+					handler.invokeSetterForDeserialization(property, value);
+				}
+			}
+		}
+		return returned;
+	}
+
+	private EntityDefinition readEntity() throws IOException, InvalidDataException, ModelDefinitionException {
+		int index = BinaryFormat.readVarInt(in);
+		if (index > 0) {
+			if (index > entities.size()) {
+				throw new InvalidDataException("Unresolved reference to entity " + index);
+			}
+			return entities.get(index - 1);
+		}
+		String className = readSymbol();
+		Class<Object> implementedInterface;
+		try {
+			implementedInterface = (Class<Object>) Class.forName(className);
+		} catch (ClassNotFoundException e) {
+			throw new InvalidDataException("Class not found " + e.getMessage());
+		}
+		ModelEntity<Object> entity = factory.getModelContext().getModelEntity(implementedInterface);
+		if (entity == null) {
+			switch (policy) {
+				case EXTENSIVE:
+					factory.importClass(implementedInterface);
+					entity = factory.getExtendedContext().getModelEntity(implementedInterface);
+					break;
+				case RESTRICTIVE:
+					throw new RestrictiveDeserializationException("Entity " + className + " is not part of this model context");
+				default:
+					throw new InvalidDataException("Entity " + className + " is not part of this model context");
+			}
+		}
+
+		int size = BinaryFormat.readVarInt(in);
+		ModelProperty<Object>[] properties = new ModelProperty[size];
+		boolean[] multiple = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			String propertyIdentifier = readSymbol();
+			multiple[i] = in.readBoolean();
+			properties[i] = (ModelProperty<Object>) entity.getModelProperty(propertyIdentifier);
+			if (properties[i] == null && policy == DeserializationPolicy.RESTRICTIVE) {
+				throw new RestrictiveDeserializationException("No property named " + propertyIdentifier + " in " + entity);
+			}
+		}
+		EntityDefinition returned = new EntityDefinition(entity, properties, multiple);
+		entities.add(returned);
+		return returned;
+	}
+
+	/**
+	 * Read the name of a class, as a symbol, and return this class
+	 */
+	private Class<?> readClass() throws IOException, InvalidDataException {
+		String className = readSymbol();
+		Class<?> returned = classes.get(className);
+		if (returned == null) {
+			try {
+				returned = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new InvalidDataException("Class not found " + e.getMessage());
+			}
+			classes.put(className, returned);
+		}
+		return returned;
+	}
+
+	/**
+	 * Read a symbol, either defined here or referenced by index
+	 */
+	private String readSymbol() throws IOException, InvalidDataException {
+		int index = BinaryFormat.readVarInt(in);
+		if (index == 0) {
+			String returned = BinaryFormat.readString(in);
+			symbols.add(returned);
+			return returned;
+		}
+		if (index > symbols.size()) {
+			throw new InvalidDataException("Unresolved reference to symbol " + index);
+		}
+		return symbols.get(index - 1);
+	}
+}
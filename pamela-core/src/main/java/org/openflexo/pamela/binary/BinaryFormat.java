@@ -0,0 +1,174 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and primitive encodings of PAMELA binary format<br>
+ * 
+ * A document starts with {@link #MAGIC} and {@link #VERSION}, followed by the root value. Each value starts with a tag byte. Entities,
+ * their serialized properties and class names are defined in the stream at first use and then referenced by index (symbol table built
+ * incrementally, so that the format can be written and read as a stream). Objects are identified by the order in which they are
+ * described, and referenced with this index. Enum and converted values are preceded by the name of their class, so that they can be
+ * decoded whatever the declared type of the property. Integers are encoded as variable-length integers (zigzag-encoded when signed).
+ */
+public class BinaryFormat {
+
+	/**
+	 * Magic number starting a PAMELA binary document
+	 */
+	public static final byte[] MAGIC = { 'P', 'M', 'L', 'B' };
+	public static final int VERSION = 2;
+
+	static final int NULL = 0;
+	static final int OBJECT = 1;
+	static final int REFERENCE = 2;
+	static final int STRING = 3;
+	static final int INTEGER = 4;
+	static final int LONG = 5;
+	static final int TRUE = 6;
+	static final int FALSE = 7;
+	static final int DOUBLE = 8;
+	static final int FLOAT = 9;
+	static final int SHORT = 10;
+	static final int BYTE = 11;
+	static final int CHARACTER = 12;
+	static final int DATE = 13;
+	static final int ENUM = 14;
+	static final int CONVERTED = 15;
+
+	// Marks end of properties of an object
+	static final int END_OF_OBJECT = 0;
+
+	/**
+	 * Return boolean indicating if supplied stream, which must support mark/reset, starts with a PAMELA binary document
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static boolean isBinaryDocument(InputStream in) throws IOException {
+		in.mark(MAGIC.length);
+		try {
+			for (byte b : MAGIC) {
+				if (in.read() != b) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			in.reset();
+		}
+	}
+
+	static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static void writeSignedVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	static void writeSignedVarLong(DataOutputStream out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	static int readSignedVarInt(DataInputStream in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static long readSignedVarLong(DataInputStream in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,348 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.openflexo.pamela.annotations.Getter.Cardinality;
+import org.openflexo.pamela.exceptions.InvalidDataException;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.exceptions.RestrictiveSerializationException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Serializer writing PAMELA objects in compact binary format (see {@link BinaryFormat}), as a stream<br>
+ * 
+ * Serialized properties are the ones serialized in XML (declaring an XML attribute or an XML element), and values equal to property
+ * default value are not written. Strings, primitives, dates and enums are natively encoded, other values are encoded using the
+ * {@link org.openflexo.pamela.factory.StringEncoder} of the factory. Each object is described at its first occurrence and referenced by
+ * its index elsewhere.
+ */
+public class BinarySerializer {
+
+	private static final Logger logger = Logger.getLogger(BinarySerializer.class.getPackage().getName());
+
+	private final PamelaModelFactory pamelaModelFactory;
+	private final SerializationPolicy policy;
+
+	private DataOutputStream out;
+	private boolean resetModifiedStatus;
+	// Index of already described objects
+	private Map<Object, Integer> objectIndexes;
+	// Definitions of entities already written
+	private Map<ModelEntity<?>, EntityDefinition> entities;
+	// Index of symbols already written
+	private Map<String, Integer> symbols;
+
+	private static class EntityDefinition {
+		private final int index;
+		private final List<ModelProperty<?>> properties;
+
+		private EntityDefinition(int index, List<ModelProperty<?>> properties) {
+			this.index = index;
+			this.properties = properties;
+		}
+	}
+
+	public BinarySerializer(PamelaModelFactory pamelaModelFactory) {
+		this(pamelaModelFactory, SerializationPolicy.PERMISSIVE);
+	}
+
+	public BinarySerializer(PamelaModelFactory pamelaModelFactory, SerializationPolicy policy) {
+		this.pamelaModelFactory = pamelaModelFactory;
+		this.policy = policy;
+	}
+
+	public void serializeDocument(Object object, OutputStream os, boolean resetModifiedStatus)
+			throws IOException, ModelDefinitionException {
+		this.resetModifiedStatus = resetModifiedStatus;
+		objectIndexes = new IdentityHashMap<>();
+		entities = new HashMap<>();
+		symbols = new HashMap<>();
+		out = new DataOutputStream(new BufferedOutputStream(os));
+		try {
+			out.write(BinaryFormat.MAGIC);
+			BinaryFormat.writeVarInt(out, BinaryFormat.VERSION);
+			writeValue(object);
+			out.flush();
+		} finally {
+			out = null;
+			objectIndexes = null;
+			entities = null;
+			symbols = null;
+		}
+	}
+
+	private void writeValue(Object value) throws IOException, ModelDefinitionException {
+		if (value == null) {
+			out.writeByte(BinaryFormat.NULL);
+			return;
+		}
+		ProxyMethodHandler<?> handler = pamelaModelFactory.getHandler(value);
+		if (handler != null) {
+			writeObject(handler);
+		}
+		else if (value instanceof String) {
+			out.writeByte(BinaryFormat.STRING);
+			BinaryFormat.writeString(out, (String) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(BinaryFormat.INTEGER);
+			BinaryFormat.writeSignedVarInt(out, (Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(BinaryFormat.LONG);
+			BinaryFormat.writeSignedVarLong(out, (Long) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte((Boolean) value ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(BinaryFormat.DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte(BinaryFormat.FLOAT);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte(BinaryFormat.SHORT);
+			BinaryFormat.writeSignedVarInt(out, (Short) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(BinaryFormat.BYTE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte(BinaryFormat.CHARACTER);
+			BinaryFormat.writeVarInt(out, (Character) value);
+		}
+		else if (value.getClass() == Date.class) {
+			out.writeByte(BinaryFormat.DATE);
+			BinaryFormat.writeSignedVarLong(out, ((Date) value).getTime());
+		}
+		else if (value instanceof Enum) {
+			out.writeByte(BinaryFormat.ENUM);
+			writeSymbol(((Enum<?>) value).getDeclaringClass().getName());
+			writeSymbol(((Enum<?>) value).name());
+		}
+		else {
+			writeConvertedValue(value, value.getClass());
+		}
+	}
+
+	/**
+	 * Write a value encoded with the {@link org.openflexo.pamela.factory.StringEncoder} of the factory, preceded by the type used to decode
+	 * it
+	 */
+	private void writeConvertedValue(Object value, Class<?> type) throws IOException {
+		String string;
+		try {
+			string = pamelaModelFactory.getStringEncoder().toString(value);
+		} catch (InvalidDataException e) {
+			throw new ModelExecutionException("Cannot serialize " + value, e);
+		}
+		out.writeByte(BinaryFormat.CONVERTED);
+		writeSymbol(type.getName());
+		BinaryFormat.writeString(out, string);
+	}
+
+	private <I> void writeObject(ProxyMethodHandler<I> handler) throws IOException, ModelDefinitionException {
+		Object object = handler.getObject();
+		Integer index = objectIndexes.get(object);
+		if (index != null) {
+			out.writeByte(BinaryFormat.REFERENCE);
+			BinaryFormat.writeVarInt(out, index);
+			return;
+		}
+
+		ModelEntity<? super I> modelEntity = getSerializedEntity(handler);
+		if (modelEntity.getXMLElement() == null && pamelaModelFactory.getStringEncoder().isConvertable(modelEntity.getImplementedInterface())) {
+			// Object is serialized as a string, as in XML
+			writeConvertedValue(object, modelEntity.getImplementedInterface());
+			return;
+		}
+
+		out.writeByte(BinaryFormat.OBJECT);
+		EntityDefinition definition = writeEntity(modelEntity);
+		objectIndexes.put(object, objectIndexes.size());
+
+		try {
+			handler.setSerializing(true, resetModifiedStatus);
+			for (int i = 0; i < definition.properties.size(); i++) {
+				ModelProperty<? super I> p = (ModelProperty<? super I>) definition.properties.get(i);
+				Object value = handler.invokeGetter(p);
+				if (value == null) {
+					continue;
+				}
+				switch (p.getCardinality()) {
+					case SINGLE:
+						if (p.getXMLAttribute() != null && isDefaultValue(p, value)) {
+							// This is the default value, no need to serialize this
+							continue;
+						}
+						BinaryFormat.writeVarInt(out, i + 1);
+						writeValue(value);
+						break;
+					case LIST:
+						List<?> values = new ArrayList<>((List<?>) value);
+						values.removeIf(v -> v == null);
+						if (!values.isEmpty()) {
+							BinaryFormat.writeVarInt(out, i + 1);
+							BinaryFormat.writeVarInt(out, values.size());
+							for (Object v : values) {
+								writeValue(v);
+							}
+						}
+						break;
+					default:
+						break;
+				}
+			}
+			BinaryFormat.writeVarInt(out, BinaryFormat.END_OF_OBJECT);
+		} finally {
+			handler.setSerializing(false, resetModifiedStatus);
+		}
+	}
+
+	private boolean isDefaultValue(ModelProperty<?> p, Object value) {
+		try {
+			return value.equals(p.getDefaultValue(pamelaModelFactory));
+		} catch (InvalidDataException e) {
+			logger.warning("Cannot decode default value of " + p + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Return entity under which object managed by supplied handler is serialized, according to serialization policy (same rules as in
+	 * XML)
+	 */
+	private <I> ModelEntity<? super I> getSerializedEntity(ProxyMethodHandler<I> handler) throws ModelDefinitionException {
+		ModelEntity<I> modelEntity = handler.getModelEntity();
+		Class<I> implementedInterface = modelEntity.getImplementedInterface();
+		if (pamelaModelFactory.getModelContext().getModelEntity(implementedInterface) != null) {
+			return modelEntity;
+		}
+		switch (policy) {
+			case EXTENSIVE:
+				// Entity name is serialized anyway, and will be imported while deserializing
+				return modelEntity;
+			case PERMISSIVE:
+				List<ModelEntity<?>> upperEntities = pamelaModelFactory.getModelContext().getUpperEntities(handler.getObject());
+				if (upperEntities.size() == 0) {
+					throw new ModelDefinitionException("Cannot serialize object of type: " + implementedInterface.getName()
+							+ ". No model entity could be found in the model mapping");
+				}
+				else if (upperEntities.size() > 1) {
+					throw new ModelDefinitionException("Ambiguous entity for object " + implementedInterface.getName()
+							+ ". More than one entities are known in this model mapping.");
+				}
+				return (ModelEntity<? super I>) upperEntities.get(0);
+			default:
+				throw new RestrictiveSerializationException(
+						"Entity of type " + implementedInterface.getName() + " cannot be serialized in this model context");
+		}
+	}
+
+	/**
+	 * Write reference to supplied entity, defining it at first use: class name, then identifier and cardinality of each serialized
+	 * property
+	 */
+	private <I> EntityDefinition writeEntity(ModelEntity<I> modelEntity) throws IOException, ModelDefinitionException {
+		EntityDefinition definition = entities.get(modelEntity);
+		if (definition != null) {
+			BinaryFormat.writeVarInt(out, definition.index + 1);
+			return definition;
+		}
+		List<ModelProperty<?>> properties = new ArrayList<>();
+		// Attributes first, then elements, as in XML
+		for (ModelProperty<? super I> p : modelEntity.getPropertyIterable()) {
+			if (p.getXMLAttribute() != null) {
+				properties.add(p);
+			}
+		}
+		for (ModelProperty<? super I> p : modelEntity.getPropertyIterable()) {
+			if (p.getXMLAttribute() == null && p.getXMLElement() != null) {
+				properties.add(p);
+			}
+		}
+		definition = new EntityDefinition(entities.size(), properties);
+		entities.put(modelEntity, definition);
+
+		BinaryFormat.writeVarInt(out, 0);
+		writeSymbol(modelEntity.getImplementedInterface().getName());
+		BinaryFormat.writeVarInt(out, properties.size());
+		for (ModelProperty<?> p : properties) {
+			writeSymbol(p.getPropertyIdentifier());
+			out.writeBoolean(p.getCardinality() == Cardinality.LIST);
+		}
+		return definition;
+	}
+
+	/**
+	 * Write supplied symbol, as an index when already written
+	 */
+	private void writeSymbol(String symbol) throws IOException {
+		Integer index = symbols.get(symbol);
+		if (index != null) {
+			BinaryFormat.writeVarInt(out, index + 1);
+		}
+		else {
+			BinaryFormat.writeVarInt(out, 0);
+			BinaryFormat.writeString(out, symbol);
+			symbols.put(symbol, symbols.size());
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.openflexo.pamela.DeletableProxyObject;
+import org.openflexo.pamela.model.property.DefaultMultiplePropertyImplementation;
+
+/**
+ * Deletion of a set of objects performed as a single operation (see {@link PamelaModelFactory#deleteAll(Collection, Object...)})<br>
+ * 
+ * Embedded objects closure is computed once for the whole set. While the deletion is in progress:
+ * <ul>
+ * <li>property changes of objects being deleted are not notified: only their deletion is</li>
+ * <li>removals of objects being deleted from lists are deferred, and applied in a single pass on each list at the end of the
+ * deletion; reading such a list meanwhile does not apply the removals</li>
+ * <li>property changes of surviving objects are queued in a {@link NotificationBatch} of the editing context, if any, so that a list
+ * losing many elements is notified once</li>
+ * </ul>
+ */
+public class BulkDeletion {
+
+	private static final ThreadLocal<BulkDeletion> BULK_DELETION_IN_PROGRESS = new ThreadLocal<>();
+
+	private final PamelaModelFactory factory;
+	private final List<DeletableProxyObject> objects;
+	private final Object[] context;
+	private final Set<Object> scheduledForDeletion = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<DefaultMultiplePropertyImplementation<?, ?>> pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	BulkDeletion(PamelaModelFactory factory, Collection<?> objects, Object... context) {
+		this.factory = factory;
+		this.objects = new ArrayList<>();
+		for (Object o : objects) {
+			if (o instanceof DeletableProxyObject && factory.isProxyObject(o) && !((DeletableProxyObject) o).isDeleted()
+					&& scheduledForDeletion.add(o)) {
+				this.objects.add((DeletableProxyObject) o);
+			}
+		}
+		this.context = context;
+	}
+
+	/**
+	 * Return the bulk deletion currently performed in this thread, if any
+	 * 
+	 * @return
+	 */
+	public static BulkDeletion getBulkDeletionInProgress() {
+		return BULK_DELETION_IN_PROGRESS.get();
+	}
+
+	public PamelaModelFactory getModelFactory() {
+		return factory;
+	}
+
+	/**
+	 * Return the objects explicitly deleted by this operation
+	 * 
+	 * @return
+	 */
+	public List<DeletableProxyObject> getObjects() {
+		return objects;
+	}
+
+	/**
+	 * Return boolean indicating if supplied object will be deleted by this operation, either explicitly or because it is embedded in a
+	 * deleted object
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public boolean isScheduledForDeletion(Object object) {
+		return scheduledForDeletion.contains(object);
+	}
+
+	/**
+	 * Register a list property implementation with deferred removals, to be applied at the end of the deletion<br>
+	 * An implementation registered many times is applied only once
+	 * 
+	 * @param propertyImplementation
+	 */
+	public void registerPendingRemovals(DefaultMultiplePropertyImplementation<?, ?> propertyImplementation) {
+		pendingRemovals.add(propertyImplementation);
+	}
+
+	/**
+	 * Perform the deletion
+	 * 
+	 * @return the number of objects deleted, including embedded objects
+	 */
+	int perform() {
+		if (objects.isEmpty()) {
+			return 0;
+		}
+
+		EmbeddingClosure closure = new EmbeddingClosure(factory, EmbeddingType.DELETION, context);
+		closure.addAllToContext(objects);
+		List<Object> embeddedObjects = closure.getEmbeddedObjects(objects);
+		closure.addAllToContext(embeddedObjects);
+		for (Object o : embeddedObjects) {
+			if (o instanceof DeletableProxyObject && !((DeletableProxyObject) o).isDeleted()) {
+				scheduledForDeletion.add(o);
+			}
+		}
+
+		// Changes of surviving objects are coalesced: a list losing many elements is notified once
+		NotificationBatch notificationBatch = null;
+		if (factory.getEditingContext() instanceof EditingContextImpl) {
+			notificationBatch = ((EditingContextImpl) factory.getEditingContext()).beginNotificationBatch();
+		}
+
+		BulkDeletion enclosingBulkDeletion = BULK_DELETION_IN_PROGRESS.get();
+		BULK_DELETION_IN_PROGRESS.set(this);
+		Object[] deletionContext = closure.beginDeletion();
+		try {
+			for (DeletableProxyObject o : objects) {
+				o.delete(deletionContext);
+			}
+		} finally {
+			closure.endDeletion();
+			for (DefaultMultiplePropertyImplementation<?, ?> propertyImplementation : pendingRemovals) {
+				propertyImplementation.applyPendingRemovals();
+			}
+			pendingRemovals.clear();
+			if (enclosingBulkDeletion != null) {
+				BULK_DELETION_IN_PROGRESS.set(enclosingBulkDeletion);
+			}
+			else {
+				BULK_DELETION_IN_PROGRESS.remove();
+			}
+			if (notificationBatch != null) {
+				notificationBatch.close();
+			}
+		}
+
+		int deleted = 0;
+		for (Object o : scheduledForDeletion) {
+			if (((DeletableProxyObject) o).isDeleted()) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+}
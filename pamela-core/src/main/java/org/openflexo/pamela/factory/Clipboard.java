@@ -84,7 +84,15 @@ public class Clipboard {
 						"Object has no handler in supplied PamelaModelFactory, object=" + object + " pamelaModelFactory=" + pamelaModelFactory);
 			}
 
-			contents = pamelaModelFactory.getHandler(object).cloneObject(objects);
+			if (pamelaModelFactory.isCopyOnWriteClipboard()) {
+				contents = pamelaModelFactory.copyOnWriteClone(object, objects);
+			}
+			else {
+				contents = pamelaModelFactory.getHandler(object).cloneObject(objects);
+			}
+		}
+		else if (pamelaModelFactory.isCopyOnWriteClipboard()) {
+			contents = pamelaModelFactory.copyOnWriteClones(objects);
 		}
 		else {
 			contents = pamelaModelFactory.getHandler(objects[0]).cloneObjects(objects);
@@ -214,7 +222,12 @@ public class Clipboard {
 		if (isSingleObject) {
 			lastReferenceContents = new Object[1];
 			lastReferenceContents[0] = contents;
-			contents = pamelaModelFactory.getHandler(contents).cloneObject(contents);
+			if (pamelaModelFactory.isCopyOnWriteClipboard()) {
+				contents = pamelaModelFactory.copyOnWriteClone(contents, contents);
+			}
+			else {
+				contents = pamelaModelFactory.getHandler(contents).cloneObject(contents);
+			}
 		}
 		else {
 			List<?> contentsList = (List<?>) contents;
@@ -222,7 +235,12 @@ public class Clipboard {
 			for (int i = 0; i < contentsList.size(); i++) {
 				lastReferenceContents[i] = contentsList.get(i);
 			}
-			contents = pamelaModelFactory.getHandler(contentsList.get(0)).cloneObjects(contentsList.toArray());
+			if (pamelaModelFactory.isCopyOnWriteClipboard()) {
+				contents = pamelaModelFactory.copyOnWriteClones(contentsList.toArray());
+			}
+			else {
+				contents = pamelaModelFactory.getHandler(contentsList.get(0)).cloneObjects(contentsList.toArray());
+			}
 		}
 	}
 
@@ -0,0 +1,631 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import org.openflexo.connie.DataBinding;
+import org.openflexo.connie.binding.javareflect.InvalidKeyValuePropertyException;
+import org.openflexo.connie.exception.NullReferenceException;
+import org.openflexo.connie.exception.TypeMismatchException;
+import org.openflexo.connie.java.util.JavaBindingEvaluator;
+import org.openflexo.pamela.CloneableProxyObject;
+import org.openflexo.pamela.annotations.CloningStrategy;
+import org.openflexo.pamela.annotations.CloningStrategy.StrategyType;
+import org.openflexo.pamela.exceptions.InvalidDataException;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.CloningPlan.CloningStep;
+
+/**
+ * Engine performing the cloning of a graph of objects, according to {@link CloningStrategy} annotations<br>
+ * 
+ * Cloning is performed in three phases:
+ * <ul>
+ * <li>The graph of objects to clone is explored from the objects being cloned, following properties declared with
+ * {@link StrategyType#CLONE} strategy. Values required to build the clones are read during this exploration. When
+ * {@link #isParallelCloning()} is set, independent embedded subtrees are explored concurrently in {@link #getCloningPool()}.</li>
+ * <li>Clones are then instantiated and their values set, on calling thread</li>
+ * <li>Finally, references are resolved: values referencing cloned objects are replaced by their clones, on calling thread</li>
+ * </ul>
+ * Cloned objects are tracked by identity, and each object is cloned following the {@link CloningPlan} of its entity.<br>
+ * Instantiation and wiring of the clones are always performed on calling thread, since they trigger inverse properties management,
+ * notifications and undo edits.
+ */
+public class CloningEngine {
+
+	private static final Logger logger = Logger.getLogger(CloningEngine.class.getPackage().getName());
+
+	// Maximal number of tasks waiting in the queue of current worker before it stops forking new tasks
+	private static final int MAX_SURPLUS_QUEUED_TASKS = 3;
+
+	// Value returned when a value could not be computed
+	static final Object UNDEFINED_VALUE = new Object();
+
+	private static boolean parallelCloning = false;
+	private static ForkJoinPool cloningPool;
+
+	/**
+	 * Return flag indicating if the graph of objects to clone is explored in parallel
+	 * 
+	 * @return
+	 */
+	public static boolean isParallelCloning() {
+		return parallelCloning;
+	}
+
+	/**
+	 * Sets flag indicating if the graph of objects to clone is explored in parallel<br>
+	 * Note that in this case, cloned objects are concurrently accessed (read-only): they should not be modified by another thread during
+	 * the cloning, and their getters should not have side effects.
+	 * 
+	 * @param parallelCloning
+	 */
+	public static void setParallelCloning(boolean parallelCloning) {
+		CloningEngine.parallelCloning = parallelCloning;
+	}
+
+	/**
+	 * Return the pool used to explore the graph of objects to clone in parallel (common pool when not explicitely set)
+	 * 
+	 * @return
+	 */
+	public static ForkJoinPool getCloningPool() {
+		if (cloningPool == null) {
+			return ForkJoinPool.commonPool();
+		}
+		return cloningPool;
+	}
+
+	public static void setCloningPool(ForkJoinPool cloningPool) {
+		CloningEngine.cloningPool = cloningPool;
+	}
+
+	private final PamelaModelFactory factory;
+	private final EmbeddingClosure contextClosure;
+	private final boolean parallel;
+
+	// Objects to clone, in the order they were supplied
+	private final List<ClonedObject<?>> rootObjects = new ArrayList<>();
+	// All objects to clone, indexed by identity
+	private final Map<Object, ClonedObject<?>> clonedObjects = new IdentityHashMap<>();
+	// Objects claimed during parallel exploration
+	private ConcurrentHashMap<IdentityKey, ClonedObject<?>> claimedObjects;
+
+	/**
+	 * Build a new engine
+	 * 
+	 * @param factory
+	 *            factory used to instantiate clones
+	 * @param contextClosure
+	 *            closure of the context: values of properties with {@link StrategyType#CLONE} strategy of the cloned objects which are
+	 *            outside this closure are neither cloned nor referenced. When null, all required objects are cloned
+	 */
+	public CloningEngine(PamelaModelFactory factory, EmbeddingClosure contextClosure) {
+		this.factory = factory;
+		this.contextClosure = contextClosure;
+		this.parallel = isParallelCloning();
+	}
+
+	public PamelaModelFactory getModelFactory() {
+		return factory;
+	}
+
+	public EmbeddingClosure getContextClosure() {
+		return contextClosure;
+	}
+
+	/**
+	 * Clone supplied objects, and return their clones, in the same order
+	 * 
+	 * @param objects
+	 * @return
+	 * @throws ModelDefinitionException
+	 * @throws CloneNotSupportedException
+	 *             when one of supplied object is not implementing CloneableProxyObject interface
+	 */
+	public List<Object> cloneObjects(Object... objects) throws ModelDefinitionException, CloneNotSupportedException {
+		for (Object o : objects) {
+			if (!(o instanceof CloneableProxyObject)) {
+				throw new CloneNotSupportedException();
+			}
+			ClonedObject<?> rootObject = clonedObjects.get(o);
+			if (rootObject == null) {
+				rootObject = makeClonedObject(o, true);
+				clonedObjects.put(o, rootObject);
+			}
+			rootObjects.add(rootObject);
+		}
+
+		explore();
+
+		List<ClonedObject<?>> allObjects = new ArrayList<>(clonedObjects.size());
+		List<ProxyMethodHandler<?>> handlersBeingCloned = new ArrayList<>();
+		try {
+			instantiateClones(allObjects, handlersBeingCloned);
+			for (ClonedObject<?> clonedObject : allObjects) {
+				finalizeClone(clonedObject);
+			}
+		} finally {
+			for (ProxyMethodHandler<?> handler : handlersBeingCloned) {
+				handler.setBeingCloned(false);
+			}
+		}
+
+		List<Object> returned = new ArrayList<>(rootObjects.size());
+		for (ClonedObject<?> rootObject : rootObjects) {
+			returned.add(rootObject.clone);
+		}
+		return returned;
+	}
+
+	/**
+	 * Return the clone of supplied object, once cloning has been performed
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public Object getClone(Object object) {
+		ClonedObject<?> clonedObject = clonedObjects.get(object);
+		return clonedObject != null ? clonedObject.clone : null;
+	}
+
+	/**
+	 * Return the number of objects cloned by this engine
+	 * 
+	 * @return
+	 */
+	public int getClonedObjectsCount() {
+		return clonedObjects.size();
+	}
+
+	private <I> ClonedObject<I> makeClonedObject(I object, boolean root) throws ModelDefinitionException {
+		ProxyMethodHandler<I> handler = factory.getHandler(object);
+		return new ClonedObject<>(handler, handler.getModelEntity().getCloningPlan(), root);
+	}
+
+	/**
+	 * Explore the graph of objects to clone, from the root objects
+	 * 
+	 * @throws ModelDefinitionException
+	 */
+	private void explore() throws ModelDefinitionException {
+		if (parallel && rootObjects.size() > 0) {
+			if (contextClosure != null) {
+				contextClosure.resolveDerivedContext();
+			}
+			claimedObjects = new ConcurrentHashMap<>();
+			for (Map.Entry<Object, ClonedObject<?>> e : clonedObjects.entrySet()) {
+				claimedObjects.put(new IdentityKey(e.getKey()), e.getValue());
+			}
+			try {
+				getCloningPool().invoke(new ExploreTask(null, new ArrayList<>(clonedObjects.values())));
+			} catch (ModelExecutionException e) {
+				// Exception might have been rethrown by the pool
+				for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+					if (cause instanceof ModelDefinitionException) {
+						throw (ModelDefinitionException) cause;
+					}
+				}
+				throw e;
+			}
+			for (ClonedObject<?> clonedObject : claimedObjects.values()) {
+				clonedObjects.put(clonedObject.handler.getObject(), clonedObject);
+			}
+			claimedObjects = null;
+		}
+		else {
+			Deque<ClonedObject<?>> toExplore = new ArrayDeque<>(clonedObjects.values());
+			while (!toExplore.isEmpty()) {
+				ClonedObject<?> current = toExplore.pop();
+				explore(current);
+				toExplore.addAll(current.embeddedObjects);
+			}
+		}
+	}
+
+	/**
+	 * Read values of supplied object required to build its clone, and register objects to clone with it
+	 */
+	private <I> void explore(ClonedObject<I> clonedObject) throws ModelDefinitionException {
+		ProxyMethodHandler<I> handler = clonedObject.handler;
+		List<CloningStep<I>> steps = clonedObject.plan.getSteps();
+		Object[] values = new Object[steps.size()];
+		for (int i = 0; i < values.length; i++) {
+			CloningStep<I> step = steps.get(i);
+			if (step.getStrategy() != StrategyType.CLONE && step.getStrategy() != StrategyType.REFERENCE) {
+				continue;
+			}
+			switch (step.getCardinality()) {
+				case SINGLE:
+					Object singleValue = handler.invokeGetter(step.getProperty());
+					values[i] = singleValue;
+					if (step.isCloningModelEntities() && singleValue instanceof CloneableProxyObject) {
+						embed(clonedObject, singleValue);
+					}
+					break;
+				case LIST:
+					List<?> listValue = (List<?>) handler.invokeGetter(step.getProperty());
+					if (listValue != null) {
+						Object[] valuesToClone = listValue.toArray();
+						values[i] = valuesToClone;
+						if (step.isCloningModelEntities()) {
+							for (Object value : valuesToClone) {
+								if (value instanceof CloneableProxyObject) {
+									embed(clonedObject, value);
+								}
+							}
+						}
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		clonedObject.values = values;
+	}
+
+	/**
+	 * Register supplied value as embedded in supplied cloned object, when it is part of the context and not yet cloned<br>
+	 * Note that context only restricts values of the root objects
+	 */
+	private void embed(ClonedObject<?> clonedObject, Object value) throws ModelDefinitionException {
+		if (clonedObject.root && !isPartOfContext(value)) {
+			// Outside of context
+			return;
+		}
+		if (claimedObjects != null) {
+			IdentityKey key = new IdentityKey(value);
+			if (!claimedObjects.containsKey(key)) {
+				ClonedObject<?> embeddedObject = makeClonedObject(value, false);
+				if (claimedObjects.putIfAbsent(key, embeddedObject) == null) {
+					clonedObject.embeddedObjects.add(embeddedObject);
+				}
+			}
+		}
+		else if (!clonedObjects.containsKey(value)) {
+			ClonedObject<?> embeddedObject = makeClonedObject(value, false);
+			clonedObjects.put(value, embeddedObject);
+			clonedObject.embeddedObjects.add(embeddedObject);
+		}
+	}
+
+	private boolean isPartOfContext(Object value) {
+		if (contextClosure == null) {
+			return true;
+		}
+		return contextClosure.isPartOfContext(value);
+	}
+
+	/**
+	 * Instantiate the clones and set their values, following each object with the objects embedded in it
+	 */
+	private void instantiateClones(List<ClonedObject<?>> allObjects, List<ProxyMethodHandler<?>> handlersBeingCloned) {
+		Deque<ClonedObject<?>> toInstantiate = new ArrayDeque<>();
+		for (int i = rootObjects.size() - 1; i >= 0; i--) {
+			toInstantiate.push(rootObjects.get(i));
+		}
+		while (!toInstantiate.isEmpty()) {
+			ClonedObject<?> current = toInstantiate.pop();
+			if (current.clone != null) {
+				// Supplied twice as root object
+				continue;
+			}
+			if (!current.handler.isBeingCloned()) {
+				current.handler.setBeingCloned(true);
+				handlersBeingCloned.add(current.handler);
+			}
+			instantiateClone(current);
+			allObjects.add(current);
+			for (int i = current.embeddedObjects.size() - 1; i >= 0; i--) {
+				toInstantiate.push(current.embeddedObjects.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Instantiate the clone of supplied object and set values which do not involve cloned objects
+	 */
+	private <I> void instantiateClone(ClonedObject<I> clonedObject) {
+		I clone = factory.newInstance(clonedObject.plan.getModelEntity().getImplementedInterface(), true);
+		ProxyMethodHandler<I> cloneHandler = factory.getHandler(clone);
+		clonedObject.clone = clone;
+		cloneHandler.createdByCloning = true;
+		cloneHandler.initialized = true;
+		try {
+			List<CloningStep<I>> steps = clonedObject.plan.getSteps();
+			for (int i = 0; i < steps.size(); i++) {
+				CloningStep<I> step = steps.get(i);
+				Object value = clonedObject.values[i];
+				switch (step.getCardinality()) {
+					case SINGLE:
+						switch (step.getStrategy()) {
+							case CLONE:
+								if (step.isModelEntityType() && value instanceof CloneableProxyObject) {
+									// Will be set while finalizing
+								}
+								else if (value instanceof DataBinding) {
+									cloneHandler.invokeSetter(step.getProperty(), ((DataBinding<?>) value).clone());
+								}
+								else {
+									cloneHandler.invokeSetter(step.getProperty(), value);
+								}
+								break;
+							case REFERENCE:
+								cloneHandler.invokeSetter(step.getProperty(), value);
+								break;
+							case CUSTOM_CLONE:
+								// We have here to invoke custom code (encoded in getStrategyTypeFactory())
+								evaluateStrategyTypeFactory(step, clonedObject.handler.getObject(), cloneHandler);
+								break;
+							default:
+								break;
+						}
+						break;
+					case LIST:
+						if (step.getStrategy() == StrategyType.REFERENCE && value != null) {
+							for (Object referenceValue : (Object[]) value) {
+								cloneHandler.invokeAdder(step.getProperty(), referenceValue);
+							}
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			cloneHandler.createdByCloning = false;
+		}
+		// Values are no more required
+		clonedObject.values = null;
+	}
+
+	/**
+	 * Resolve values of the clone of supplied object referencing cloned objects
+	 */
+	private <I> void finalizeClone(ClonedObject<I> clonedObject) {
+		ProxyMethodHandler<I> handler = clonedObject.handler;
+		@SuppressWarnings("unchecked")
+		I clone = (I) clonedObject.clone;
+		ProxyMethodHandler<I> cloneHandler = factory.getHandler(clone);
+		cloneHandler.createdByCloning = true;
+		try {
+			for (CloningStep<I> step : clonedObject.plan.getSteps()) {
+				if (step.getStrategy() == StrategyType.IGNORE) {
+					continue;
+				}
+				switch (step.getCardinality()) {
+					case SINGLE:
+						Object singleValue = handler.invokeGetter(step.getProperty());
+						switch (step.getStrategy()) {
+							case CLONE:
+								if (factory.getStringEncoder().isConvertable(step.getProperty().getType())) {
+									cloneHandler.invokeSetter(step.getProperty(), convert(step, singleValue));
+								}
+								else if (step.isModelEntityType() && singleValue instanceof CloneableProxyObject) {
+									Object clonedValue = isPartOfContext(singleValue) ? getClone(singleValue) : null;
+									cloneHandler.invokeSetter(step.getProperty(), clonedValue);
+								}
+								break;
+							case REFERENCE:
+								Object referenceValue = singleValue != null ? getClone(singleValue) : null;
+								cloneHandler.invokeSetter(step.getProperty(), referenceValue != null ? referenceValue : singleValue);
+								break;
+							case FACTORY:
+								// We have here to invoke custom code (encoded in getStrategyTypeFactory())
+								evaluateStrategyTypeFactory(step, clone, cloneHandler);
+								break;
+							default:
+								break;
+						}
+						break;
+					case LIST:
+						if (step.getStrategy() != StrategyType.CLONE && step.getStrategy() != StrategyType.REFERENCE) {
+							// FACTORY not implemented for multiple properties
+							break;
+						}
+						List<?> values = (List<?>) handler.invokeGetter(step.getProperty());
+						if (values != null) {
+							for (Object value : values.toArray()) {
+								if (step.getStrategy() == StrategyType.REFERENCE) {
+									Object referenceValue = value != null ? getClone(value) : null;
+									cloneHandler.invokeAdder(step.getProperty(), referenceValue != null ? referenceValue : value);
+								}
+								else if (factory.getStringEncoder().isConvertable(step.getProperty().getType())) {
+									cloneHandler.invokeAdder(step.getProperty(), convert(step, value));
+								}
+								else if (step.isModelEntityType() && value instanceof CloneableProxyObject) {
+									Object clonedValue = isPartOfContext(value) ? getClone(value) : null;
+									if (clonedValue != null) {
+										cloneHandler.invokeAdder(step.getProperty(), clonedValue);
+									}
+								}
+							}
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			cloneHandler.createdByCloning = false;
+		}
+	}
+
+	private Object convert(CloningStep<?> step, Object value) {
+		return convert(factory, step, value);
+	}
+
+	/**
+	 * Return a copy of supplied value of a property whose type is convertable by the {@link StringEncoder} of supplied factory
+	 */
+	static Object convert(PamelaModelFactory factory, CloningStep<?> step, Object value) {
+		try {
+			String clonedValueAsString = factory.getStringEncoder().toString(value);
+			return factory.getStringEncoder().fromString(step.getProperty().getType(), clonedValueAsString);
+		} catch (InvalidDataException e) {
+			throw new ModelExecutionException(e);
+		}
+	}
+
+	private static <I> void evaluateStrategyTypeFactory(CloningStep<I> step, Object evaluatedObject, ProxyMethodHandler<I> cloneHandler) {
+		Object computedValue = evaluateStrategyTypeFactory(step, evaluatedObject);
+		if (computedValue != UNDEFINED_VALUE) {
+			cloneHandler.invokeSetter(step.getProperty(), computedValue);
+		}
+	}
+
+	/**
+	 * Evaluate the factory declared for a property with {@link StrategyType#FACTORY} or {@link StrategyType#CUSTOM_CLONE} strategy on
+	 * supplied object
+	 * 
+	 * @return computed value, or {@link #UNDEFINED_VALUE} when evaluation failed
+	 */
+	static Object evaluateStrategyTypeFactory(CloningStep<?> step, Object evaluatedObject) {
+		try {
+			return JavaBindingEvaluator.evaluateBinding(step.getProperty().getStrategyTypeFactory(), evaluatedObject);
+		} catch (InvalidKeyValuePropertyException e) {
+			e.printStackTrace();
+		} catch (TypeMismatchException e) {
+			e.printStackTrace();
+		} catch (NullReferenceException e) {
+			e.printStackTrace();
+		} catch (ReflectiveOperationException e) {
+			e.printStackTrace();
+		}
+		return UNDEFINED_VALUE;
+	}
+
+	/**
+	 * An object to clone, together with the values read to build its clone and the objects to clone with it
+	 *
+	 * @param <I>
+	 */
+	private static class ClonedObject<I> {
+		private final ProxyMethodHandler<I> handler;
+		private final CloningPlan<I> plan;
+		// Objects supplied for cloning are the only ones whose values are restricted to the context
+		private final boolean root;
+		// Values read during exploration, stored at index of related step
+		private Object[] values;
+		// Objects to clone, first reached from this object
+		private final List<ClonedObject<?>> embeddedObjects = new ArrayList<>();
+		private Object clone;
+
+		private ClonedObject(ProxyMethodHandler<I> handler, CloningPlan<I> plan, boolean root) {
+			this.handler = handler;
+			this.plan = plan;
+			this.root = root;
+		}
+	}
+
+	/**
+	 * Key used to track objects by identity in a concurrent map
+	 */
+	private static class IdentityKey {
+		private final Object object;
+
+		private IdentityKey(Object object) {
+			this.object = object;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).object == object;
+		}
+	}
+
+	/**
+	 * Task exploring subtrees of the graph of objects to clone<br>
+	 * Objects embedded in explored object are explored by the same task, unless they may be handled by another worker, in which case a
+	 * new task is forked. No task waits for another one, so that the depth of the explored graph does not matter.
+	 */
+	@SuppressWarnings("serial")
+	private class ExploreTask extends CountedCompleter<Void> {
+
+		private final List<ClonedObject<?>> objectsToExplore;
+
+		private ExploreTask(CountedCompleter<?> parent, List<ClonedObject<?>> objectsToExplore) {
+			super(parent);
+			this.objectsToExplore = objectsToExplore;
+		}
+
+		@Override
+		public void compute() {
+			Deque<ClonedObject<?>> toExplore = new ArrayDeque<>(objectsToExplore);
+			try {
+				while (!toExplore.isEmpty()) {
+					ClonedObject<?> current = toExplore.pop();
+					explore(current);
+					List<ClonedObject<?>> embeddedObjects = current.embeddedObjects;
+					for (int i = embeddedObjects.size() - 1; i >= 0; i--) {
+						ClonedObject<?> embeddedObject = embeddedObjects.get(i);
+						if (i > 0 && getSurplusQueuedTaskCount() < MAX_SURPLUS_QUEUED_TASKS) {
+							addToPendingCount(1);
+							List<ClonedObject<?>> forked = new ArrayList<>(1);
+							forked.add(embeddedObject);
+							new ExploreTask(this, forked).fork();
+						}
+						else {
+							toExplore.push(embeddedObject);
+						}
+					}
+				}
+			} catch (ModelDefinitionException e) {
+				logger.warning("Unexpected exception while exploring objects to clone: " + e);
+				throw new ModelExecutionException(e);
+			}
+			tryComplete();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openflexo.pamela.annotations.CloningStrategy;
+import org.openflexo.pamela.annotations.CloningStrategy.StrategyType;
+import org.openflexo.pamela.annotations.Getter.Cardinality;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Cloning plan computed once per {@link ModelEntity}, used by {@link CloningEngine} to clone instances of this entity<br>
+ *
+ * The plan stores the properties of the entity in the order required by {@link CloningStrategy#cloneAfterProperty()}, together with
+ * their pre-resolved cardinality and {@link StrategyType}, so that cloning an object does not require to sort and inspect the properties
+ * of its entity again.
+ *
+ * @param <I>
+ *            type of entity this plan is computed for
+ */
+public class CloningPlan<I> {
+
+	/**
+	 * Pre-resolved cloning information for a given {@link ModelProperty}
+	 *
+	 * @param <I>
+	 *            type of entity
+	 */
+	public static class CloningStep<I> {
+
+		private final ModelProperty<? super I> property;
+		private final Cardinality cardinality;
+		private final StrategyType strategy;
+		private final boolean modelEntityType;
+
+		private CloningStep(ModelProperty<? super I> property) {
+			this.property = property;
+			this.cardinality = property.getCardinality();
+			this.strategy = property.getCloningStrategy();
+			this.modelEntityType = ModelEntity.isModelEntity(property.getType());
+		}
+
+		public ModelProperty<? super I> getProperty() {
+			return property;
+		}
+
+		public Cardinality getCardinality() {
+			return cardinality;
+		}
+
+		public StrategyType getStrategy() {
+			return strategy;
+		}
+
+		/**
+		 * Return a flag indicating if the type of the property is a {@link ModelEntity}
+		 * 
+		 * @return
+		 */
+		public boolean isModelEntityType() {
+			return modelEntityType;
+		}
+
+		/**
+		 * Return a flag indicating if values of this property are cloned with the object being cloned (and might be themselves cloned)
+		 * 
+		 * @return
+		 */
+		public boolean isCloningModelEntities() {
+			return modelEntityType && strategy == StrategyType.CLONE;
+		}
+
+		@Override
+		public String toString() {
+			return "CloningStep[" + property.getPropertyIdentifier() + "," + cardinality + "," + strategy + "]";
+		}
+	}
+
+	private final ModelEntity<I> modelEntity;
+	private final List<CloningStep<I>> steps;
+	// Steps stored at index given by ModelEntity.getPropertyIndex()
+	private final CloningStep<I>[] stepsByPropertyIndex;
+
+	@SuppressWarnings("unchecked")
+	public CloningPlan(ModelEntity<I> modelEntity) throws ModelDefinitionException {
+		this.modelEntity = modelEntity;
+		List<CloningStep<I>> computedSteps = new ArrayList<>();
+		stepsByPropertyIndex = new CloningStep[modelEntity.getPropertiesSize()];
+		Iterator<ModelProperty<? super I>> properties = modelEntity.getPropertiesOrderedForCloning();
+		while (properties.hasNext()) {
+			CloningStep<I> step = new CloningStep<>(properties.next());
+			computedSteps.add(step);
+			int index = modelEntity.getPropertyIndex(step.getProperty().getPropertyIdentifier());
+			if (index > -1) {
+				stepsByPropertyIndex[index] = step;
+			}
+		}
+		this.steps = Collections.unmodifiableList(computedSteps);
+	}
+
+	public ModelEntity<I> getModelEntity() {
+		return modelEntity;
+	}
+
+	/**
+	 * Return the ordered list of steps to perform to clone an instance of this entity
+	 * 
+	 * @return
+	 */
+	public List<CloningStep<I>> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Return the step related to the property stored at supplied index (see {@link ModelEntity#getPropertyIndex(String)})
+	 * 
+	 * @param propertyIndex
+	 * @return
+	 */
+	public CloningStep<I> getStep(int propertyIndex) {
+		return stepsByPropertyIndex[propertyIndex];
+	}
+
+	@Override
+	public String toString() {
+		return "CloningPlan[" + modelEntity.getImplementedInterface().getSimpleName() + "," + steps + "]";
+	}
+}
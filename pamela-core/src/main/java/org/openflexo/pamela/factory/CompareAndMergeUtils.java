@@ -40,17 +40,25 @@
 package org.openflexo.pamela.factory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import org.openflexo.connie.type.TypeUtils;
 import org.openflexo.pamela.AccessibleProxyObject;
+import org.openflexo.pamela.annotations.Getter.Cardinality;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.MethodDispatchTable.AccessMode;
+import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelProperty;
 import org.openflexo.toolbox.StringUtils;
 
@@ -65,6 +73,65 @@ import com.google.common.collect.HashBiMap;
  */
 public class CompareAndMergeUtils {
 
+	/**
+	 * Maximal distance for two objects to be matched
+	 */
+	private static final double MATCHING_THRESHOLD = 0.7;
+
+	/**
+	 * Maximal number of pairs for which distance is computed while matching residual objects of a given entity. Above this number, each
+	 * object is only compared with objects located around same relative position in opposite list
+	 */
+	public static int MAX_EXHAUSTIVE_MATCHING_PAIRS = 250000;
+
+	private static boolean parallelMatching = false;
+
+	/**
+	 * Return flag indicating if distances required to match two lists of objects are computed in parallel
+	 * 
+	 * @return
+	 */
+	public static boolean isParallelMatching() {
+		return parallelMatching;
+	}
+
+	/**
+	 * Sets flag indicating if distances required to match two lists of objects are computed in parallel<br>
+	 * Note that in this case, compared objects are concurrently accessed (read-only): since handlers are not thread-safe by themselves,
+	 * matching is only performed in parallel when each of compared objects is either frozen (see
+	 * {@link PamelaModelFactory#freeze(Object, Object...)}) or managed by a same {@link ConcurrentEditingContext}, otherwise it is
+	 * performed sequentially. With a {@link ConcurrentEditingContext}, matching threads read on behalf of the calling thread, which holds
+	 * read (or write) access during the whole matching
+	 * 
+	 * @param parallelMatching
+	 */
+	public static void setParallelMatching(boolean parallelMatching) {
+		CompareAndMergeUtils.parallelMatching = parallelMatching;
+	}
+
+	/**
+	 * Build the context of a matching between supplied objects: matching is only performed in parallel when both objects may be read
+	 * concurrently, that is when each of them is either frozen, or managed by a same {@link ConcurrentEditingContext}
+	 */
+	private static MatchingContext makeMatchingContext(ProxyMethodHandler<?> source, Object obj) {
+		if (!parallelMatching) {
+			return new MatchingContext(false, null);
+		}
+		ProxyMethodHandler<?> oppositeHandler = source.getModelFactory().getHandler(obj);
+		ConcurrentEditingContext concurrentEditingContext = null;
+		for (ProxyMethodHandler<?> handler : Arrays.asList(source, oppositeHandler)) {
+			if (handler != null && !handler.isFrozen()) {
+				if (!(handler.getEditingContext() instanceof ConcurrentEditingContext)
+						|| (concurrentEditingContext != null && handler.getEditingContext() != concurrentEditingContext)) {
+					// Handlers are not thread-safe
+					return new MatchingContext(false, null);
+				}
+				concurrentEditingContext = (ConcurrentEditingContext) handler.getEditingContext();
+			}
+		}
+		return new MatchingContext(true, concurrentEditingContext);
+	}
+
 	/**
 	 * Called to update source object while comparing it to opposite object, (which must be of right type!), examining each property
 	 * values.<br>
@@ -80,7 +147,7 @@ public class CompareAndMergeUtils {
 	 */
 	public static <I> boolean updateWith(ProxyMethodHandler<I> source, I obj) {
 		BiMap<Object, Object> mappedObjects = HashBiMap.create();
-		boolean returned = updateWith(source, obj, mappedObjects);
+		boolean returned = updateWith(source, obj, mappedObjects, makeMatchingContext(source, obj));
 		// At the end of processing, perform a new pass to set external references
 		updateReferences(source,mappedObjects);
 		return returned;
@@ -99,9 +166,12 @@ public class CompareAndMergeUtils {
 	 *            object to update with, which must be of same type
 	 * @param mappedObjects
 	 *            bi-directional map storing mapped objects
+	 * @param context
+	 *            context of the whole update, storing computed distances
 	 * @return boolean indicating if update was successfull
 	 */
-	private static <I> boolean updateWith(ProxyMethodHandler<I> source, I obj, BiMap<Object, Object> mappedObjects) {
+	private static <I> boolean updateWith(ProxyMethodHandler<I> source, I obj, BiMap<Object, Object> mappedObjects,
+			MatchingContext context) {
 
 		if (DEBUG)
 			System.out.println(">>>>>>> updateWith() between " + source.getObject() + " and " + obj);
@@ -180,7 +250,7 @@ public class CompareAndMergeUtils {
 										}
 										else {
 											if (!updateWith(source.getModelFactory().getHandler(singleValue), oppositeValue,
-													mappedObjects)) {
+													mappedObjects, context)) {
 												// updateWith() failed: we have to invoke setter
 												source.invokeSetter(p, oppositeValue);
 											}
@@ -198,7 +268,7 @@ public class CompareAndMergeUtils {
 						Map<Object, Integer> reindex = new LinkedHashMap<>();
 						List<Object> values = new ArrayList<>((List<Object>) source.invokeGetter(p));// invokeGetterForListCardinality(p);
 						List<Object> oppositeValues = new ArrayList<>((List<Object>) oppositeObjectHandler.invokeGetter(p)); // invokeGetterForListCardinality(p);
-						ListMatching matching = match(source, values, oppositeValues);
+						ListMatching matching = match(source, values, oppositeValues, context);
 						if (DEBUG) {
 							System.out.println(
 									"Property " + p.getPropertyIdentifier() + " values=" + values + " oppositeValues=" + oppositeValues);
@@ -214,7 +284,7 @@ public class CompareAndMergeUtils {
 									// System.out.println("Cycle detected, abort");
 								}
 								else {
-									updateWith(source.getModelFactory().getHandler(o1), o2, mappedObjects/*, outsideReferences*/);
+									updateWith(source.getModelFactory().getHandler(o1), o2, mappedObjects/*, outsideReferences*/, context);
 								}
 							}
 							// Store desired index
@@ -260,6 +330,9 @@ public class CompareAndMergeUtils {
 
 		}
 		
+		// This object was modified, previously computed distances involving it are no longer relevant
+		context.invalidate(source.getObject());
+
 		if (DEBUG) {
 			System.out.println("<<<<<<< DONE updateWith " + source.getObject() + " with " + obj);
 			System.out.println("Mapped objects:");
@@ -373,8 +446,8 @@ public class CompareAndMergeUtils {
 	 * @param l2
 	 * @return
 	 */
-	private static ListMatching match(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2) {
-		ListMatching returned = bruteForceMatch(source, l1, l2, new HashMap<>());
+	private static ListMatching match(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2, MatchingContext context) {
+		ListMatching returned = scalableMatch(source, l1, l2, new HashMap<>(), context);
 		// System.out.println("MATCHING :\n" + returned);
 		return returned;
 	}
@@ -386,104 +459,141 @@ public class CompareAndMergeUtils {
 	 * @param l2
 	 * @return
 	 */
-	private static ListMatching match(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2, Map<Object, Object> visitedObjects) {
+	private static ListMatching match(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2, Map<Object, Object> visitedObjects,
+			MatchingContext context) {
 
-		ListMatching returned = bruteForceMatch(source, l1, l2, new HashMap<>(visitedObjects));
+		ListMatching returned = scalableMatch(source, l1, l2, visitedObjects, context);
 		// System.out.println("MATCHING :\n" + returned);
 		return returned;
 	}
 
 	/**
-	 * A functional algorithm, but not really optimal
+	 * Match two lists of objects, in three steps:
+	 * <ul>
+	 * <li>objects already mapped (or identical) are paired</li>
+	 * <li>objects sharing a key (the values of their non-entity single properties) which is unique in both lists are paired when their
+	 * distance is zero</li>
+	 * <li>remaining objects are matched by increasing distance, only comparing objects of same entity (when there are too many
+	 * candidate pairs, an object is only compared with objects located around same relative position in opposite list)</li>
+	 * </ul>
+	 * Each distance is computed once, in parallel if required, and memoized in supplied context.<br>
+	 * This gives the result of iteratively retrieving best match between remaining objects, at a quadratic (instead of cubic) cost in the
+	 * worst case, and a linear one when lists mostly contain same objects
 	 * 
 	 * @param l1
 	 * @param l2
 	 * @return
 	 */
-	private static ListMatching bruteForceMatch(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2,
-			Map<Object, Object> mappedObjects) {
+	private static ListMatching scalableMatch(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2,
+			Map<Object, Object> mappedObjects, MatchingContext context) {
 		ListMatching returned = new ListMatching();
 
-		List<Object> list1 = new ArrayList<>(l1);
-		List<Object> list2 = new ArrayList<>(l2);
-
-		while (list1.size() > 0 && list2.size() > 0) {
-			Matched matched = getBestMatch(source, list1, list2, mappedObjects);
-			if (matched == null) {
-				break;
-			}
-			Object o1 = list1.get(matched.idx1);
-			Object o2 = list2.get(matched.idx2);
-			matched.idx1 = l1.indexOf(list1.get(matched.idx1));
-			matched.idx2 = l2.indexOf(list2.get(matched.idx2));
-			// System.out.println(
-			// "Matched " + getModelFactory().stringRepresentation(o1) + " and " + getModelFactory().stringRepresentation(o2));
-			returned.matchedList.add(matched);
-			list1.remove(o1);
-			list2.remove(o2);
-		}
-
-		if (list1.size() > 0) {
-			// Removed
-			for (int i = 0; i < list1.size(); i++) {
-				returned.removed.add(new Removed(l1.indexOf(list1.get(i))));
-			}
-		}
-
-		if (list2.size() > 0) {
-			// Added
-			for (int i = list2.size() - 1; i >= 0; i--) {
-				// We replaced following iteration with this reverse iteration to keep order of second list
-				// for (int i = 0; i < list2.size(); i++) {
-				int insertionIndex = -1;
-				int originalIndex = l2.indexOf(list2.get(i));
-				int current = originalIndex - 1;
-				while (insertionIndex == -1 && current >= 0) {
-					Matched m = returned.getMatchedForList2Index(current);
-					if (m != null) {
-						insertionIndex = m.idx1 + 1;
-					}
-					current--;
+		// Index of matched object in l2 for each object of l1 (and reciprocally), -1 when not matched
+		int[] matched1 = new int[l1.size()];
+		int[] matched2 = new int[l2.size()];
+		Arrays.fill(matched1, -1);
+		Arrays.fill(matched2, -1);
+
+		// First, pair objects already mapped, or identical
+		Map<Object, Integer> indexes2 = new IdentityHashMap<>();
+		for (int j = l2.size() - 1; j >= 0; j--) {
+			if (l2.get(j) instanceof AccessibleProxyObject) {
+				indexes2.put(l2.get(j), j);
+			}
+		}
+		for (int i = 0; i < l1.size(); i++) {
+			Object o1 = l1.get(i);
+			if (o1 instanceof AccessibleProxyObject) {
+				Object mapped = mappedObjects.get(o1);
+				Integer j = indexes2.get(mapped != null ? mapped : o1);
+				if (j != null && matched2[j] == -1) {
+					pair(returned, matched1, matched2, i, j);
 				}
-				if (insertionIndex == -1) {
-					insertionIndex = 0;
+			}
+		}
+
+		// Then pair objects sharing a unique key
+		Map<List<Object>, Integer> keys1 = computeUniqueKeys(source, l1, matched1);
+		if (!keys1.isEmpty()) {
+			Map<List<Object>, Integer> keys2 = computeUniqueKeys(source, l2, matched2);
+			Map<Object, Object> visitedObjects = new HashMap<>(mappedObjects);
+			for (Map.Entry<List<Object>, Integer> entry : keys1.entrySet()) {
+				Integer j = keys2.get(entry.getKey());
+				if (j != null) {
+					int i = entry.getValue();
+					if (getMemoizedDistanceBetweenValues(source, l1.get(i), l2.get(j), visitedObjects, context) == 0.0) {
+						pair(returned, matched1, matched2, i, j);
+					}
 				}
-				returned.added.add(new Added(l2.indexOf(list2.get(i)), insertionIndex));
+			}
+		}
+
+		// Finally match the residue, entity per entity
+		Map<ModelEntity<?>, List<Integer>> residue1 = computeResidue(source, l1, matched1);
+		Map<ModelEntity<?>, List<Integer>> residue2 = computeResidue(source, l2, matched2);
+		List<Candidate> candidates = new ArrayList<>();
+		for (Map.Entry<ModelEntity<?>, List<Integer>> entry : residue1.entrySet()) {
+			List<Integer> rows = entry.getValue();
+			List<Integer> columns = residue2.get(entry.getKey());
+			if (columns != null) {
+				candidates.addAll(computeCandidates(source, l1, l2, rows, columns, mappedObjects, context));
+			}
+		}
+		Collections.sort(candidates);
+		for (Candidate c : candidates) {
+			if (matched1[c.idx1] == -1 && matched2[c.idx2] == -1) {
+				pair(returned, matched1, matched2, c.idx1, c.idx2);
+			}
+		}
+
+		for (int i = 0; i < l1.size(); i++) {
+			if (matched1[i] == -1) {
+				returned.removed.add(new Removed(i));
+			}
+		}
+
+		// For each index of l2, index in l1 of last object matched before this index, -1 if none
+		int[] previousMatched = new int[l2.size()];
+		int last = -1;
+		for (int j = 0; j < l2.size(); j++) {
+			previousMatched[j] = last;
+			if (matched2[j] != -1) {
+				last = matched2[j];
+			}
+		}
+		// We iterate in reverse order to keep order of second list
+		for (int j = l2.size() - 1; j >= 0; j--) {
+			if (matched2[j] == -1) {
+				returned.added.add(new Added(j, previousMatched[j] + 1));
 			}
 		}
 
 		return returned;
 	}
 
+	private static void pair(ListMatching matching, int[] matched1, int[] matched2, int i, int j) {
+		matched1[i] = j;
+		matched2[j] = i;
+		matching.matchedList.add(new Matched(i, j));
+	}
+
 	/**
-	 * Retrieve best match between the two lists.<br>
-	 * Best match is represented by a couple of objects (one in each list) of exactely same type, whose distance is the minimal found.<br>
-	 * A minimal distance is required as a threshold (here 0.7)
-	 * 
-	 * @param l1
-	 * @param l2
-	 * @return
+	 * Compute keys of objects of supplied list not matched yet, and return those which are unique in the list, associated to the index
+	 * of the object
 	 */
-	private static Matched getBestMatch(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2, Map<Object, Object> mappedObject) {
-		Matched returned = null;
-		double bestDistance = 0.7; // Double.POSITIVE_INFINITY;
-		int m1 = 0, m2 = 0;
-		for (int i = 0; i < l1.size(); i++) {
-			Object o1 = l1.get(i);
-			for (int j = 0; j < l2.size(); j++) {
-				Object o2 = l2.get(j);
-				if (o1 instanceof AccessibleProxyObject && o2 instanceof AccessibleProxyObject) {
-					ProxyMethodHandler<?> h1 = source.getModelFactory().getHandler(o1);
-					ProxyMethodHandler<?> h2 = source.getModelFactory().getHandler(o1);
-					if (h1.getModelEntity() == h2.getModelEntity()) {
-						// Matching is possible only for exact same type
-						double d = getDistanceBetweenValues(source, o1, o2, mappedObject);
-						if (d < bestDistance) {
-							returned = new Matched(i, j);
-							bestDistance = d;
-							m1 = i;
-							m2 = j;
-						}
+	private static Map<List<Object>, Integer> computeUniqueKeys(ProxyMethodHandler<?> source, List<Object> list, int[] matched) {
+		Map<List<Object>, Integer> returned = new LinkedHashMap<>();
+		Set<List<Object>> duplicatedKeys = new HashSet<>();
+		for (int i = 0; i < list.size(); i++) {
+			if (matched[i] == -1 && list.get(i) instanceof AccessibleProxyObject) {
+				List<Object> key = computeKey(source.getModelFactory().getHandler(list.get(i)));
+				if (key != null && !duplicatedKeys.contains(key)) {
+					if (returned.containsKey(key)) {
+						returned.remove(key);
+						duplicatedKeys.add(key);
+					}
+					else {
+						returned.put(key, i);
 					}
 				}
 			}
@@ -491,6 +601,82 @@ public class CompareAndMergeUtils {
 		return returned;
 	}
 
+	/**
+	 * Compute key of the object managed by supplied handler: its entity and the values of its serializable single properties not
+	 * referencing another entity
+	 */
+	private static <I> List<Object> computeKey(ProxyMethodHandler<I> handler) {
+		if (handler == null) {
+			return null;
+		}
+		List<Object> returned = new ArrayList<>();
+		returned.add(handler.getModelEntity());
+		Iterator<ModelProperty<? super I>> properties;
+		try {
+			properties = handler.getModelEntity().getProperties();
+		} catch (ModelDefinitionException e) {
+			return null;
+		}
+		while (properties.hasNext()) {
+			ModelProperty<? super I> p = properties.next();
+			if (p.isSerializable() && p.getAccessedEntity() == null && p.getCardinality() == Cardinality.SINGLE) {
+				returned.add(handler.invokeGetter(p));
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Return indexes of objects of supplied list not matched yet, grouped by entity
+	 */
+	private static Map<ModelEntity<?>, List<Integer>> computeResidue(ProxyMethodHandler<?> source, List<Object> list, int[] matched) {
+		Map<ModelEntity<?>, List<Integer>> returned = new LinkedHashMap<>();
+		for (int i = 0; i < list.size(); i++) {
+			if (matched[i] == -1 && list.get(i) instanceof AccessibleProxyObject) {
+				ProxyMethodHandler<?> handler = source.getModelFactory().getHandler(list.get(i));
+				if (handler != null) {
+					returned.computeIfAbsent(handler.getModelEntity(), e -> new ArrayList<>()).add(i);
+				}
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Compute distances between objects of l1 at supplied rows and objects of l2 at supplied columns, and return pairs whose distance is
+	 * below matching threshold
+	 */
+	private static List<Candidate> computeCandidates(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2, List<Integer> rows,
+			List<Integer> columns, Map<Object, Object> mappedObjects, MatchingContext context) {
+		// Half-width of the band of columns examined for each row
+		int band = columns.size();
+		if ((long) rows.size() * columns.size() > MAX_EXHAUSTIVE_MATCHING_PAIRS) {
+			band = Math.max(1, MAX_EXHAUSTIVE_MATCHING_PAIRS / rows.size() / 2);
+		}
+		final int halfWidth = band;
+		List<Candidate>[] candidatesByRow = new List[rows.size()];
+		context.forEachRow(rows.size(), r -> {
+			List<Candidate> rowCandidates = new ArrayList<>();
+			int i = rows.get(r);
+			// Each row is computed with its own copy of mapped objects, so that result doesn't depend on evaluation order
+			Map<Object, Object> visitedObjects = new HashMap<>(mappedObjects);
+			int center = (int) ((long) r * columns.size() / rows.size());
+			for (int c = Math.max(0, center - halfWidth); c < Math.min(columns.size(), center + halfWidth + 1); c++) {
+				int j = columns.get(c);
+				double d = getMemoizedDistanceBetweenValues(source, l1.get(i), l2.get(j), visitedObjects, context);
+				if (d < MATCHING_THRESHOLD) {
+					rowCandidates.add(new Candidate(i, j, d));
+				}
+			}
+			candidatesByRow[r] = rowCandidates;
+		});
+		List<Candidate> returned = new ArrayList<>();
+		for (List<Candidate> rowCandidates : candidatesByRow) {
+			returned.addAll(rowCandidates);
+		}
+		return returned;
+	}
+
 	/**
 	 * Stupid implementation, do not use it in production
 	 * 
@@ -522,7 +708,21 @@ public class CompareAndMergeUtils {
 		return returned;
 	}
 
-	private static double getDistanceBetweenValues(ProxyMethodHandler<?> source, Object v1, Object v2, Map<Object, Object> visitedObjects) {
+	/**
+	 * Return distance between two values, retrieving it from supplied context when already computed
+	 */
+	private static double getMemoizedDistanceBetweenValues(ProxyMethodHandler<?> source, Object v1, Object v2,
+			Map<Object, Object> visitedObjects, MatchingContext context) {
+		Double returned = context.getDistance(v1, v2);
+		if (returned == null) {
+			returned = getDistanceBetweenValues(source, v1, v2, visitedObjects, context);
+			context.putDistance(v1, v2, returned);
+		}
+		return returned;
+	}
+
+	private static double getDistanceBetweenValues(ProxyMethodHandler<?> source, Object v1, Object v2, Map<Object, Object> visitedObjects,
+			MatchingContext context) {
 		if (v1 == null) {
 			return (v2 == null ? 0.0 : 1.0);
 		}
@@ -543,7 +743,7 @@ public class CompareAndMergeUtils {
 		if (v1 instanceof AccessibleProxyObject && v2 instanceof AccessibleProxyObject) {
 			ProxyMethodHandler<?> handler = source.getModelFactory().getHandler(v1);
 			// System.out.println("Distance between " + handler.getObject() + " and " + v2 + " visited=" + visitedObjects);
-			return getDistance(handler, v2, visitedObjects);
+			return getDistance(handler, v2, visitedObjects, context);
 		}
 		return 1.0;
 	}
@@ -571,7 +771,7 @@ public class CompareAndMergeUtils {
 	 * @return
 	 */
 	public static <I> double getDistance(ProxyMethodHandler<I> source, Object obj) {
-		return getDistance(source, obj, new HashMap<>());
+		return getDistance(source, obj, new HashMap<>(), makeMatchingContext(source, obj));
 	}
 
 	/**
@@ -581,7 +781,7 @@ public class CompareAndMergeUtils {
 	 * @param object
 	 * @return
 	 */
-	private static <I> double getDistance(ProxyMethodHandler<I> source, Object obj, Map visitedObjects) {
+	private static <I> double getDistance(ProxyMethodHandler<I> source, Object obj, Map visitedObjects, MatchingContext context) {
 		if (source.getObject() == obj) {
 			return 0.0;
 		}
@@ -635,7 +835,8 @@ public class CompareAndMergeUtils {
 						else if (singleValue != null || oppositeValue != null) {
 							totalPonderation += propertyPonderation;
 							if (!isEqual(singleValue, oppositeValue)) {
-								double valueDistance = getDistanceBetweenValues(source, singleValue, oppositeValue, visitedObjects);
+								double valueDistance = getDistanceBetweenValues(source, singleValue, oppositeValue, visitedObjects,
+										context);
 								distance = distance + valueDistance * propertyPonderation;
 								// System.out.println("Property " + p.getPropertyIdentifier() + " distance=" + valueDistance + "
 								// ponderation="
@@ -673,7 +874,8 @@ public class CompareAndMergeUtils {
 							if ((values != null && values.size() > 0) || (oppositeValues != null && oppositeValues.size() > 0)) {
 								totalPonderation += propertyPonderation;
 								if (!isEqual(values, oppositeValues)) {
-									double valueDistance = getDistanceBetweenListValues(source, values, oppositeValues, visitedObjects);
+									double valueDistance = getDistanceBetweenListValues(source, values, oppositeValues, visitedObjects,
+											context);
 									distance = distance + valueDistance * propertyPonderation;
 									// System.out.println("Property " + p.getPropertyIdentifier() + " distance=" + valueDistance + "
 									// ponderation="
@@ -715,7 +917,7 @@ public class CompareAndMergeUtils {
 	}
 
 	private static double getDistanceBetweenListValues(ProxyMethodHandler<?> source, List<Object> l1, List<Object> l2,
-			Map<Object, Object> visitedObjects) {
+			Map<Object, Object> visitedObjects, MatchingContext context) {
 		if (l1 == null) {
 			return (l2 == null ? 0.0 : 1.0);
 		}
@@ -730,7 +932,7 @@ public class CompareAndMergeUtils {
 		}
 		// System.out.println("On matche " + l1 + " et " + l2 + " visited:" + visitedObjects);
 		// ListMatching matching = match(source, l1, l2);
-		ListMatching matching = match(source, l1, l2, visitedObjects);
+		ListMatching matching = match(source, l1, l2, visitedObjects, context);
 		// System.out.println("Matching=" + matching);
 		double total = matching.added.size() + matching.removed.size() + matching.matchedList.size();
 		double score = matching.added.size() + matching.removed.size();
@@ -741,7 +943,7 @@ public class CompareAndMergeUtils {
 				// Cycle detected, don't go further
 			}
 			else {
-				score += getDistanceBetweenValues(source, o1, o2, visitedObjects);
+				score += getDistanceBetweenValues(source, o1, o2, visitedObjects, context);
 			}
 		}
 		return score / total;
@@ -752,6 +954,81 @@ public class CompareAndMergeUtils {
 
 	}
 
+	/**
+	 * Stores distances computed during a compare or merge operation, for each couple of objects
+	 */
+	static class MatchingContext {
+		final boolean parallel;
+		// Context whose objects are read by matching threads, null when compared objects are frozen
+		private final ConcurrentEditingContext concurrentEditingContext;
+		private final Map<Object, Map<Object, Double>> distances = new IdentityHashMap<>();
+
+		MatchingContext(boolean parallel, ConcurrentEditingContext concurrentEditingContext) {
+			this.parallel = parallel;
+			this.concurrentEditingContext = concurrentEditingContext;
+		}
+
+		/**
+		 * Perform supplied action for each row, in parallel if required<br>
+		 * Rows are then computed on behalf of current thread, which holds (at least) read access until all rows are computed
+		 */
+		void forEachRow(int rowsCount, IntConsumer action) {
+			if (!parallel || rowsCount < 2) {
+				IntStream.range(0, rowsCount).forEach(action);
+				return;
+			}
+			if (concurrentEditingContext == null) {
+				IntStream.range(0, rowsCount).parallel().forEach(action);
+				return;
+			}
+			AccessMode acquired = concurrentEditingContext.acquire(AccessMode.READ);
+			try {
+				IntStream.range(0, rowsCount).parallel().forEach(concurrentEditingContext.readOnBehalfOfCurrentThread(action));
+			} finally {
+				concurrentEditingContext.release(acquired);
+			}
+		}
+
+		synchronized Double getDistance(Object o1, Object o2) {
+			Map<Object, Double> map = distances.get(o1);
+			return map != null ? map.get(o2) : null;
+		}
+
+		synchronized void putDistance(Object o1, Object o2, Double distance) {
+			distances.computeIfAbsent(o1, o -> new IdentityHashMap<>()).put(o2, distance);
+		}
+
+		synchronized void invalidate(Object o1) {
+			distances.remove(o1);
+		}
+	}
+
+	/**
+	 * A couple of objects which may be matched
+	 */
+	static class Candidate implements Comparable<Candidate> {
+		final int idx1;
+		final int idx2;
+		final double distance;
+
+		Candidate(int idx1, int idx2, double distance) {
+			this.idx1 = idx1;
+			this.idx2 = idx2;
+			this.distance = distance;
+		}
+
+		@Override
+		public int compareTo(Candidate o) {
+			if (distance != o.distance) {
+				return Double.compare(distance, o.distance);
+			}
+			if (idx1 != o.idx1) {
+				return Integer.compare(idx1, o.idx1);
+			}
+			return Integer.compare(idx2, o.idx2);
+		}
+	}
+
 	static class Matched {
 		int idx1 = -1;
 		int idx2 = -1;
@@ -0,0 +1,203 @@
+/**
+ *
+ * Copyright (c) 2014, Openflexo
+ *
+ * This file is part of Pamela-core, a component of the software infrastructure
+ * developed at Openflexo.
+ *
+ *
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either
+ * version 1.1 of the License, or any later version ), which is available at
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ *
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ *
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or
+ *          combining it with software containing parts covered by the terms
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. *
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.openflexo.org/license.html for details.
+ *
+ *
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ *
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openflexo.pamela.annotations.Getter.Cardinality;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.MethodDispatchTable.Operation;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.NotFoundException;
+
+/**
+ * Generates "compiled" base classes for {@link ModelEntity}, used when {@link PamelaModelFactory#isCompiledEntities()} is set<br>
+ * 
+ * A compiled class extends the implementing class of the entity, and provides concrete bodies for getters and setters of single
+ * properties. Those bodies directly call {@link ProxyMethodHandler#invokeCompiledGetter(int)} and
+ * {@link ProxyMethodHandler#invokeCompiledSetter(int, Object)}, with the index of the method in the {@link MethodDispatchTable} hard-coded
+ * in the bytecode. This avoids the reflective {@link Method} lookup and the boxing of arguments in an Object[] performed by generic
+ * javassist proxy dispatching.<br>
+ * 
+ * Values are still stored in the {@link ProxyMethodHandler}, so that PropertyChange notification, undo edits and inverse properties
+ * management are preserved. Entities having delegate implementations and methods involved in JML specifications are never compiled, and
+ * compiled accessors fallback on generic dispatching as soon as the instance is involved in a pattern instance, or has execution monitors
+ * or assertion checking enabled.
+ */
+public class CompiledEntityGenerator {
+
+	private static final Logger logger = Logger.getLogger(CompiledEntityGenerator.class.getPackage().getName());
+
+	private static final String COMPILED_CLASS_SUFFIX = "_Compiled";
+
+	private static final String HANDLER = "((" + ProxyMethodHandler.class.getName() + ") ((javassist.util.proxy.ProxyObject) this).getHandler())";
+
+	// All generated classes, used to prevent the proxy factory to intercept compiled methods
+	private static final Set<Class<?>> compiledClasses = ConcurrentHashMap.newKeySet();
+
+	// Used to get unique class names when a ModelEntity is rebuilt
+	private static final AtomicInteger classCounter = new AtomicInteger();
+
+	/**
+	 * Return boolean indicating if supplied class was generated by this generator
+	 * 
+	 * @param aClass
+	 * @return
+	 */
+	public static boolean isCompiledClass(Class<?> aClass) {
+		return compiledClasses.contains(aClass);
+	}
+
+	/**
+	 * Return boolean indicating if supplied method is implemented by a compiled accessor (and then should not be handled by the proxy)
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public static boolean isCompiledMethod(Method method) {
+		return isCompiledClass(method.getDeclaringClass()) && !Modifier.isAbstract(method.getModifiers());
+	}
+
+	/**
+	 * Generate compiled class for entity managed by supplied dispatch table, on top of supplied implementing class
+	 * 
+	 * @param dispatchTable
+	 * @param implementingClass
+	 * @return the generated class, or null if no compiled accessor could be generated
+	 */
+	static <I> Class<?> generateCompiledClass(MethodDispatchTable<I> dispatchTable, Class<?> implementingClass) {
+
+		ModelEntity<I> modelEntity = dispatchTable.getModelEntity();
+		Class<I> implementedInterface = modelEntity.getImplementedInterface();
+
+		// Delegate implementations require generic dispatching for all methods: such entities are never compiled, so that compiled
+		// accessors do not have to check for them at each call
+		if (!dispatchTable.getDelegateImplementationTable().isEmpty()) {
+			return null;
+		}
+
+		ClassPool pool = ClassPool.getDefault();
+		CtClass ctClass = pool.makeClass(implementedInterface.getPackageName() + "." + implementingClass.getSimpleName() + "_"
+				+ implementedInterface.getSimpleName() + COMPILED_CLASS_SUFFIX + classCounter.incrementAndGet());
+
+		try {
+			ctClass.setSuperclass(pool.get(implementingClass.getName()));
+			ctClass.addInterface(pool.get(implementedInterface.getName()));
+			ctClass.setModifiers(javassist.Modifier.PUBLIC | javassist.Modifier.ABSTRACT);
+
+			int compiledMethods = 0;
+			for (ModelProperty<? super I> property : modelEntity.getPropertyIterable()) {
+				if (property.getCardinality() != Cardinality.SINGLE) {
+					continue;
+				}
+				Method getter = property.getGetterMethod();
+				if (isCompilable(getter, Operation.GETTER, dispatchTable, implementingClass)) {
+					int index = dispatchTable.registerCompiledMethod(getter);
+					CtMethod ctMethod = new CtMethod(toCtClass(pool, getter.getReturnType()), getter.getName(), new CtClass[0], ctClass);
+					ctMethod.setBody("{ return ($r) " + HANDLER + ".invokeCompiledGetter(" + index + "); }");
+					ctClass.addMethod(ctMethod);
+					compiledMethods++;
+				}
+				Method setter = property.getSetterMethod();
+				if (isCompilable(setter, Operation.SETTER, dispatchTable, implementingClass) && setter.getReturnType() == Void.TYPE) {
+					int index = dispatchTable.registerCompiledMethod(setter);
+					CtMethod ctMethod = new CtMethod(CtClass.voidType, setter.getName(),
+							new CtClass[] { toCtClass(pool, setter.getParameterTypes()[0]) }, ctClass);
+					ctMethod.setBody("{ " + HANDLER + ".invokeCompiledSetter(" + index + ", ($w) $1); }");
+					ctClass.addMethod(ctMethod);
+					compiledMethods++;
+				}
+			}
+
+			if (compiledMethods == 0) {
+				ctClass.detach();
+				return null;
+			}
+
+			Class<?> returned = ctClass.toClass(implementedInterface);
+			compiledClasses.add(returned);
+			return returned;
+
+		} catch (CannotCompileException | NotFoundException | ModelDefinitionException e) {
+			logger.log(Level.WARNING, "Could not generate compiled class for " + modelEntity + ", using regular proxy instead", e);
+			ctClass.detach();
+			return null;
+		}
+	}
+
+	private static <I> boolean isCompilable(Method method, Operation expectedOperation, MethodDispatchTable<I> dispatchTable,
+			Class<?> implementingClass) throws ModelDefinitionException {
+		if (method == null) {
+			return false;
+		}
+		if (dispatchTable.getDispatchedMethod(method).getOperation() != expectedOperation) {
+			return false;
+		}
+		if (dispatchTable.getModelEntity().getJMLMethodDefinition(method) != null) {
+			return false;
+		}
+		// Do not override a concrete implementation provided by implementing class
+		try {
+			Method implementedMethod = implementingClass.getMethod(method.getName(), method.getParameterTypes());
+			return Modifier.isAbstract(implementedMethod.getModifiers());
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	private static CtClass toCtClass(ClassPool pool, Class<?> type) throws NotFoundException {
+		if (type.isArray()) {
+			return pool.get(toCtClass(pool, type.getComponentType()).getName() + "[]");
+		}
+		return pool.get(type.getName());
+	}
+
+}
@@ -0,0 +1,508 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.MethodDispatchTable.AccessMode;
+import org.openflexo.pamela.undo.AtomicEdit;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * An {@link EditingContext} allowing the objects it manages to be accessed concurrently by many readers and some writers<br>
+ * 
+ * Concurrency model is the following:
+ * <ul>
+ * <li>The whole object graph managed by this context is guarded by a single read/write lock, striped so that readers running on different
+ * cores do not contend: each reader locks one stripe, chosen from its thread, while a writer locks all stripes.</li>
+ * <li>Each method invoked on a PAMELA object takes the lock required by its kind (see {@link MethodDispatchTable.AccessMode}): getters,
+ * finders, and comparisons read, setters, adders, removers, deletion and cloning write. Single accesses are therefore consistent, and an
+ * implicit write is an atomic one-operation transaction.</li>
+ * <li>Reads spanning several accesses (including iteration on values of LIST properties, which are returned as live lists) should be
+ * performed in {@link #executeRead(Supplier)}, so that they observe a single state of the graph.</li>
+ * <li>Writes spanning several accesses should be performed in a {@link Transaction} (see {@link #beginTransaction(String)} and
+ * {@link #executeWrite(String, Supplier)}): the write lock is held until the transaction ends, so that readers observe either none or all
+ * of its changes. When an {@link UndoManager} is declared, a transaction is recorded as a single {@link CompoundEdit}, apart from the edits
+ * recorded by other threads, and rolling back the transaction undoes its changes.</li>
+ * <li>The {@link UndoManager} created by this context undoes and redoes edits under the write lock.</li>
+ * <li>A thread performing a write may read, but a thread performing a read may not write (locks cannot be upgraded): a
+ * {@link ModelExecutionException} is thrown in this case.</li>
+ * </ul>
+ * 
+ * Operations accessing the graph through the {@link PamelaModelFactory} or the {@link ProxyMethodHandler} API (serialization, bulk
+ * deletion, journal replay...) are not guarded, and should be performed in {@link #executeRead(Supplier)} or in a transaction.<br>
+ * Objects whose content is loaded lazily (see {@link ProxyMethodHandler#getLazyContent()}) should be fully loaded in a transaction before
+ * being shared with concurrent readers, as loading a value may update inverse properties of other objects.
+ */
+public class ConcurrentEditingContext extends EditingContextImpl {
+
+	private static final Logger logger = Logger.getLogger(ConcurrentEditingContext.class.getPackage().getName());
+
+	private final ReentrantReadWriteLock[] stripes;
+	private final int stripeMask;
+
+	// Outermost transaction in progress, only accessed by the thread holding the write lock
+	private Transaction currentTransaction;
+
+	// Threads reading on behalf of a thread holding a lock (see readOnBehalfOfCurrentThread())
+	private final ThreadLocal<Boolean> delegatedReader = new ThreadLocal<>();
+	private final AtomicInteger delegatedReads = new AtomicInteger();
+
+	/**
+	 * Build a new context with one lock stripe per available processor
+	 */
+	public ConcurrentEditingContext() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Build a new context with supplied number of lock stripes, rounded up to a power of two
+	 * 
+	 * @param stripesCount
+	 */
+	public ConcurrentEditingContext(int stripesCount) {
+		int size = 1;
+		while (size < stripesCount) {
+			size <<= 1;
+		}
+		stripes = new ReentrantReadWriteLock[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+		stripeMask = size - 1;
+	}
+
+	public int getStripesCount() {
+		return stripes.length;
+	}
+
+	private ReentrantReadWriteLock getReadStripe() {
+		return stripes[(int) Thread.currentThread().getId() & stripeMask];
+	}
+
+	/**
+	 * Return flag indicating if current thread holds the write lock (it is then allowed to read and write)
+	 * 
+	 * @return
+	 */
+	public boolean isWriteLockedByCurrentThread() {
+		return stripes[0].isWriteLockedByCurrentThread();
+	}
+
+	/**
+	 * Return flag indicating if current thread holds a read lock
+	 * 
+	 * @return
+	 */
+	public boolean isReadLockedByCurrentThread() {
+		return getReadStripe().getReadHoldCount() > 0;
+	}
+
+	/**
+	 * Acquire the lock required to perform supplied kind of access, and return the lock which was actually acquired (NONE when no lock was
+	 * required, or when current thread already holds the write lock)
+	 * 
+	 * @param accessMode
+	 * @return
+	 */
+	AccessMode acquire(AccessMode accessMode) {
+		if (accessMode == AccessMode.NONE || isWriteLockedByCurrentThread()) {
+			return AccessMode.NONE;
+		}
+		if (delegatedReads.get() > 0 && delegatedReader.get() != null) {
+			if (accessMode == AccessMode.WRITE) {
+				throw new ModelExecutionException("Cannot modify objects while reading them on behalf of another thread");
+			}
+			return AccessMode.NONE;
+		}
+		if (accessMode == AccessMode.READ) {
+			getReadStripe().readLock().lock();
+		}
+		else {
+			lockWrite();
+		}
+		return accessMode;
+	}
+
+	/**
+	 * Release a lock acquired with {@link #acquire(AccessMode)}
+	 * 
+	 * @param acquiredMode
+	 */
+	void release(AccessMode acquiredMode) {
+		if (acquiredMode == AccessMode.READ) {
+			getReadStripe().readLock().unlock();
+		}
+		else if (acquiredMode == AccessMode.WRITE) {
+			unlockWrite();
+		}
+	}
+
+	private void lockWrite() {
+		if (isReadLockedByCurrentThread() && !isWriteLockedByCurrentThread()) {
+			throw new ModelExecutionException(
+					"Cannot modify objects while reading them: write access should be performed in a transaction");
+		}
+		for (ReentrantReadWriteLock stripe : stripes) {
+			stripe.writeLock().lock();
+		}
+	}
+
+	private void unlockWrite() {
+		for (int i = stripes.length - 1; i >= 0; i--) {
+			stripes[i].writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Execute supplied reader while holding a read lock: all reads observe a single state of the graph
+	 * 
+	 * @param reader
+	 * @return value computed by reader
+	 */
+	public <T> T executeRead(Supplier<T> reader) {
+		AccessMode acquired = acquire(AccessMode.READ);
+		try {
+			return reader.get();
+		} finally {
+			release(acquired);
+		}
+	}
+
+	/**
+	 * Return a task performing supplied reads on behalf of current thread: the task may be run by other threads (typically a parallel
+	 * stream), whose reads acquire no lock since current thread holds read access until all tasks completed<br>
+	 * Current thread should be waiting for the completion of the tasks, which must not modify objects.
+	 * 
+	 * @param reader
+	 * @return
+	 */
+	IntConsumer readOnBehalfOfCurrentThread(IntConsumer reader) {
+		if (!isWriteLockedByCurrentThread() && !isReadLockedByCurrentThread() && delegatedReader.get() == null) {
+			throw new ModelExecutionException("Reads may only be delegated by a thread holding a lock");
+		}
+		return value -> {
+			Boolean previous = delegatedReader.get();
+			delegatedReader.set(Boolean.TRUE);
+			delegatedReads.incrementAndGet();
+			try {
+				reader.accept(value);
+			} finally {
+				delegatedReads.decrementAndGet();
+				if (previous == null) {
+					delegatedReader.remove();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Execute supplied writer in a transaction, which is committed when writer completes normally, and rolled back otherwise
+	 * 
+	 * @param presentationName
+	 *            name of the transaction, used as the name of the undoable edit
+	 * @param writer
+	 * @return value computed by writer
+	 */
+	public <T> T executeWrite(String presentationName, Supplier<T> writer) {
+		try (Transaction transaction = beginTransaction(presentationName)) {
+			T returned = writer.get();
+			transaction.commit();
+			return returned;
+		}
+	}
+
+	/**
+	 * Start a new transaction, acquiring the write lock until the transaction is committed or rolled back<br>
+	 * When a transaction is already in progress in current thread, returned transaction is nested in it: its changes are published when
+	 * the outermost transaction is committed, and rolling it back causes the outermost transaction to be rolled back.
+	 * 
+	 * @param presentationName
+	 * @return
+	 */
+	public Transaction beginTransaction(String presentationName) {
+		lockWrite();
+		try {
+			Transaction returned = new Transaction(presentationName, currentTransaction);
+			if (currentTransaction == null) {
+				currentTransaction = returned;
+			}
+			return returned;
+		} catch (RuntimeException e) {
+			unlockWrite();
+			throw e;
+		}
+	}
+
+	/**
+	 * Undo last edit of the {@link UndoManager}, if any, while holding the write lock: no transaction may record an edit between the check
+	 * and the undo
+	 * 
+	 * @return true if an edit was undone
+	 */
+	public boolean undo() {
+		lockWrite();
+		try {
+			UndoManager undoManager = getUndoManager();
+			if (undoManager != null && undoManager.canUndo()) {
+				undoManager.undo();
+				return true;
+			}
+			return false;
+		} finally {
+			unlockWrite();
+		}
+	}
+
+	/**
+	 * Redo last undone edit of the {@link UndoManager}, if any, while holding the write lock
+	 * 
+	 * @return true if an edit was redone
+	 */
+	public boolean redo() {
+		lockWrite();
+		try {
+			UndoManager undoManager = getUndoManager();
+			if (undoManager != null && undoManager.canRedo()) {
+				undoManager.redo();
+				return true;
+			}
+			return false;
+		} finally {
+			unlockWrite();
+		}
+	}
+
+	/**
+	 * Instantiate an {@link UndoManager} applying edits under the write lock, and recording the changes of each transaction in its own
+	 * {@link CompoundEdit}
+	 */
+	@Override
+	protected UndoManager makeUndoManager() {
+		return new TransactionalUndoManager();
+	}
+
+	/**
+	 * Return outermost transaction in progress in current thread, if any
+	 * 
+	 * @return
+	 */
+	public Transaction getCurrentTransaction() {
+		return isWriteLockedByCurrentThread() ? currentTransaction : null;
+	}
+
+	/**
+	 * A sequence of changes published atomically to the readers of a {@link ConcurrentEditingContext}<br>
+	 * A transaction must be committed or rolled back by the thread which started it. Closing a transaction which was not committed rolls it
+	 * back.
+	 */
+	public class Transaction implements AutoCloseable {
+
+		private final String presentationName;
+		private final Transaction outerTransaction;
+		private final CompoundEdit edit;
+		private boolean completed = false;
+		private boolean rollbackOnly = false;
+
+		private Transaction(String presentationName, Transaction outerTransaction) {
+			this.presentationName = presentationName;
+			this.outerTransaction = outerTransaction;
+			UndoManager undoManager = getUndoManager();
+			if (outerTransaction == null && undoManager != null && undoManager.isEnabled()) {
+				edit = undoManager.startSeparateRecording(presentationName);
+			}
+			else {
+				edit = null;
+			}
+		}
+
+		public String getPresentationName() {
+			return presentationName;
+		}
+
+		public boolean isNested() {
+			return outerTransaction != null;
+		}
+
+		public boolean isCompleted() {
+			return completed;
+		}
+
+		/**
+		 * Commit this transaction: its changes become visible to readers, unless it is nested
+		 * 
+		 * @throws ModelExecutionException
+		 *             if a nested transaction was rolled back: this transaction is then rolled back
+		 */
+		public void commit() {
+			checkNotCompleted();
+			if (rollbackOnly) {
+				rollback();
+				throw new ModelExecutionException("Transaction " + presentationName + " was rolled back by a nested transaction");
+			}
+			complete(false);
+		}
+
+		/**
+		 * Roll back this transaction<br>
+		 * Changes are undone when an {@link UndoManager} is declared for the {@link ConcurrentEditingContext}, otherwise they remain (and
+		 * become visible to readers)
+		 */
+		public void rollback() {
+			checkNotCompleted();
+			complete(true);
+		}
+
+		@Override
+		public void close() {
+			if (!completed) {
+				rollback();
+			}
+		}
+
+		private void checkNotCompleted() {
+			if (completed) {
+				throw new ModelExecutionException("Transaction " + presentationName + " is already completed");
+			}
+			if (!isWriteLockedByCurrentThread()) {
+				throw new ModelExecutionException(
+						"Transaction " + presentationName + " should be completed by the thread which started it");
+			}
+		}
+
+		private void complete(boolean rollback) {
+			completed = true;
+			try {
+				if (outerTransaction != null) {
+					if (rollback) {
+						outerTransaction.rollbackOnly = true;
+					}
+				}
+				else {
+					currentTransaction = null;
+					UndoManager undoManager = getUndoManager();
+					if (edit != null && undoManager != null) {
+						if (rollback) {
+							undoManager.rollback(edit);
+						}
+						else {
+							undoManager.stopSeparateRecording(edit);
+						}
+					}
+					else if (rollback) {
+						logger.warning("Cannot roll back changes of transaction " + presentationName + " without an UndoManager");
+					}
+				}
+			} finally {
+				unlockWrite();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Transaction[" + presentationName + (isNested() ? ",nested" : "") + (completed ? ",completed" : "") + "]";
+		}
+	}
+
+	/**
+	 * An {@link UndoManager} whose edits are undone and redone under the write lock of this context<br>
+	 * The write lock is always acquired before the monitor of the {@link UndoManager}, which is taken when recording an edit: a thread
+	 * undoing an edit never holds the monitor while waiting for the write lock of a transaction.
+	 */
+	private class TransactionalUndoManager extends UndoManager {
+
+		@Override
+		public void undo() throws CannotUndoException {
+			lockWrite();
+			try {
+				super.undo();
+			} finally {
+				unlockWrite();
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			lockWrite();
+			try {
+				super.redo();
+			} finally {
+				unlockWrite();
+			}
+		}
+
+		@Override
+		public void undoOrRedo() throws CannotRedoException, CannotUndoException {
+			lockWrite();
+			try {
+				super.undoOrRedo();
+			} finally {
+				unlockWrite();
+			}
+		}
+
+		@Override
+		public void rollback(CompoundEdit edit) {
+			lockWrite();
+			try {
+				super.rollback(edit);
+			} finally {
+				unlockWrite();
+			}
+		}
+
+		@Override
+		protected CompoundEdit getSeparateRecording(AtomicEdit<?> edit) {
+			// Only the thread holding the write lock modifies objects while a transaction is in progress
+			if (currentTransaction != null && isWriteLockedByCurrentThread()) {
+				return currentTransaction.edit;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,484 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openflexo.connie.DataBinding;
+import org.openflexo.pamela.CloneableProxyObject;
+import org.openflexo.pamela.annotations.CloningStrategy;
+import org.openflexo.pamela.annotations.CloningStrategy.StrategyType;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.CloningPlan.CloningStep;
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Copy-on-write cloning of some objects, according to {@link CloningStrategy} annotations<br>
+ * 
+ * Clones are instantiated empty, and initially share all their values with their originals: the value of a property of a clone is
+ * materialized (computed from the value of the original, as {@link CloningEngine} would do) only when this property is first accessed,
+ * either on the clone (see {@link LazyContent}), or when the original is about to be modified. In the same way, objects embedded in cloned
+ * objects are cloned only when the property embedding them is materialized. Memory used by clones therefore grows with the part of the
+ * graph which is actually accessed.<br>
+ * 
+ * Cloned objects are tracked by identity, so that a given object is cloned only once, and that references to objects of the cloned graph
+ * are resolved to their clones. Originals of the cloned graph are marked when cloning (their {@link ProxyMethodHandler} references this
+ * cloning, until all clones are materialized): checking whether a modified object is shared with some clones, or whether a reference
+ * targets the cloned graph, is then performed in constant time, on the object itself.<br>
+ * Materialization of a clone neither triggers notifications nor undo edits. Clones created during materialization are not registered in
+ * the {@link org.openflexo.pamela.undo.UndoManager}.
+ */
+public class CopyOnWriteCloning {
+
+	private final PamelaModelFactory factory;
+	private final EmbeddingClosure contextClosure;
+
+	// Objects supplied for cloning, whose values are restricted to the context
+	private final Set<Object> rootObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final List<Object> clones = new ArrayList<>();
+	// Clones, indexed by their originals
+	private final Map<Object, Object> clonedObjects = new IdentityHashMap<>();
+	// Contents of created clones, in creation order
+	private final List<CopyOnWriteContent<?>> contents = new ArrayList<>();
+	// Number of originals of the cloned graph
+	private int clonedGraphSize = 0;
+	private boolean markingClonedGraph = false;
+	// Number of clones whose values are all materialized
+	private int materializedObjects = 0;
+
+	/**
+	 * Build a new copy-on-write cloning of supplied objects
+	 * 
+	 * @param factory
+	 *            factory used to instantiate clones
+	 * @param contextClosure
+	 *            closure of the context: values of properties with {@link StrategyType#CLONE} strategy of supplied objects which are
+	 *            outside this closure are neither cloned nor referenced. When null, all required objects are cloned
+	 * @param objects
+	 *            objects to clone
+	 * @throws CloneNotSupportedException
+	 *             when one of supplied object is not implementing CloneableProxyObject interface
+	 */
+	CopyOnWriteCloning(PamelaModelFactory factory, EmbeddingClosure contextClosure, Object... objects) throws CloneNotSupportedException {
+		this.factory = factory;
+		this.contextClosure = contextClosure;
+		for (Object o : objects) {
+			if (!(o instanceof CloneableProxyObject)) {
+				throw new CloneNotSupportedException();
+			}
+			rootObjects.add(o);
+		}
+		for (Object o : objects) {
+			Object clone = clonedObjects.get(o);
+			clones.add(clone != null ? clone : makeClone(o, true));
+		}
+		markClonedGraph();
+	}
+
+	public PamelaModelFactory getModelFactory() {
+		return factory;
+	}
+
+	/**
+	 * Return the clones of supplied objects, in the same order
+	 * 
+	 * @return
+	 */
+	public List<Object> getClones() {
+		return Collections.unmodifiableList(clones);
+	}
+
+	/**
+	 * Return the clone of supplied object, if this object was already cloned
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public Object getClone(Object object) {
+		return clonedObjects.get(object);
+	}
+
+	/**
+	 * Return a flag indicating if supplied clone still shares some values with its original
+	 * 
+	 * @param clone
+	 * @return
+	 */
+	public boolean isSharingValues(Object clone) {
+		ProxyMethodHandler<?> handler = factory.getHandler(clone);
+		return handler != null && getCopyOnWriteContent(handler) != null;
+	}
+
+	/**
+	 * Materialize all values of all objects of the cloned graph, which then no more depend on their originals
+	 */
+	public void materializeAll() {
+		// Materializing a clone creates the clones of the objects it embeds, which are appended to the contents
+		for (int i = 0; i < contents.size(); i++) {
+			CopyOnWriteContent<?> content = contents.get(i);
+			if (getCopyOnWriteContent(content.cloneHandler) != null) {
+				content.materializeAll();
+			}
+		}
+	}
+
+	/**
+	 * Return a flag indicating if all objects of the cloned graph have been cloned and materialized: those clones no more depend on their
+	 * originals
+	 * 
+	 * @return
+	 */
+	boolean isCompleted() {
+		return materializedObjects == clonedGraphSize;
+	}
+
+	/**
+	 * Called before supplied property of supplied object of the cloned graph is modified (all properties when null): related values are
+	 * materialized in its clone
+	 * 
+	 * @param object
+	 * @param property
+	 */
+	void beforeWrite(Object object, ModelProperty<?> property) {
+		if (markingClonedGraph) {
+			// Objects are being loaded while exploring the cloned graph
+			return;
+		}
+		CopyOnWriteContent<?> content = getCopyOnWriteContent(factory.getHandler(cloneOf(object)));
+		if (content != null) {
+			if (property != null) {
+				content.load(null, property);
+			}
+			else {
+				content.materializeAll();
+			}
+		}
+	}
+
+	private CopyOnWriteContent<?> getCopyOnWriteContent(ProxyMethodHandler<?> cloneHandler) {
+		LazyContent content = cloneHandler.getLazyContent();
+		if (content instanceof CopyOnWriteContent && ((CopyOnWriteContent<?>) content).getCloning() == this) {
+			return (CopyOnWriteContent<?>) content;
+		}
+		return null;
+	}
+
+	/**
+	 * Mark originals of the cloned graph: supplied objects and objects reachable from them through properties with
+	 * {@link StrategyType#CLONE} strategy<br>
+	 * Their modifications are then notified to this cloning by their handler
+	 */
+	private void markClonedGraph() {
+		Deque<Object> toExplore = new ArrayDeque<>();
+		for (Object o : rootObjects) {
+			if (factory.getHandler(o).addCopyOnWriteCloning(this)) {
+				clonedGraphSize++;
+				toExplore.push(o);
+			}
+		}
+		markingClonedGraph = true;
+		try {
+			while (!toExplore.isEmpty()) {
+				Object current = toExplore.pop();
+				for (Object embedded : getClonedValues(current)) {
+					if (factory.getHandler(embedded).addCopyOnWriteCloning(this)) {
+						clonedGraphSize++;
+						toExplore.push(embedded);
+					}
+				}
+			}
+		} finally {
+			markingClonedGraph = false;
+		}
+	}
+
+	/**
+	 * Return a flag indicating if supplied object belongs to the cloned graph
+	 */
+	private boolean isPartOfClonedGraph(Object object) {
+		ProxyMethodHandler<?> handler = factory.getHandler(object);
+		return handler != null && handler.isSharingValuesWith(this);
+	}
+
+	/**
+	 * Return values of supplied original which are cloned with it
+	 */
+	private <I> List<Object> getClonedValues(I original) {
+		ProxyMethodHandler<I> handler = factory.getHandler(original);
+		List<Object> returned = new ArrayList<>();
+		for (CloningStep<I> step : getCloningPlan(handler).getSteps()) {
+			if (!step.isCloningModelEntities()) {
+				continue;
+			}
+			Object value = handler.invokeGetter(step.getProperty());
+			switch (step.getCardinality()) {
+				case SINGLE:
+					if (value instanceof CloneableProxyObject && isCloned(original, value)) {
+						returned.add(value);
+					}
+					break;
+				case LIST:
+					if (value != null) {
+						for (Object o : (List<?>) value) {
+							if (o instanceof CloneableProxyObject && isCloned(original, o)) {
+								returned.add(o);
+							}
+						}
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Return a flag indicating if supplied value of a property with {@link StrategyType#CLONE} strategy of supplied original is cloned<br>
+	 * Note that context only restricts values of supplied objects
+	 */
+	private boolean isCloned(Object original, Object value) {
+		return contextClosure == null || !rootObjects.contains(original) || contextClosure.isPartOfContext(value);
+	}
+
+	private static <I> CloningPlan<I> getCloningPlan(ProxyMethodHandler<I> handler) {
+		try {
+			return handler.getModelEntity().getCloningPlan();
+		} catch (ModelDefinitionException e) {
+			throw new ModelExecutionException(e);
+		}
+	}
+
+	/**
+	 * Return the clone of supplied original, which is created if required
+	 */
+	private Object cloneOf(Object original) {
+		Object returned = clonedObjects.get(original);
+		if (returned == null) {
+			returned = makeClone(original, false);
+		}
+		return returned;
+	}
+
+	private <I> I makeClone(I original, boolean root) {
+		ProxyMethodHandler<I> sourceHandler = factory.getHandler(original);
+		CloningPlan<I> plan = getCloningPlan(sourceHandler);
+		I clone = root ? factory.newInstance(plan.getModelEntity().getImplementedInterface(), true)
+				: factory.newUntrackedInstance(plan.getModelEntity().getImplementedInterface());
+		ProxyMethodHandler<I> cloneHandler = factory.getHandler(clone);
+		cloneHandler.initialized = true;
+		CopyOnWriteContent<I> content = new CopyOnWriteContent<>(sourceHandler, cloneHandler, plan);
+		cloneHandler.setLazyContent(content);
+		contents.add(content);
+		clonedObjects.put(original, clone);
+		return clone;
+	}
+
+	/**
+	 * Return value of clone for supplied value of a property with {@link StrategyType#REFERENCE} strategy: the clone of referenced object
+	 * when it belongs to the cloned graph, the referenced object otherwise
+	 */
+	private Object resolveReference(Object value) {
+		if (value == null) {
+			return null;
+		}
+		Object returned = clonedObjects.get(value);
+		if (returned != null) {
+			return returned;
+		}
+		if (value instanceof CloneableProxyObject && isPartOfClonedGraph(value)) {
+			return cloneOf(value);
+		}
+		return value;
+	}
+
+	/**
+	 * Values of a clone which are still shared with its original
+	 *
+	 * @param <I>
+	 */
+	private class CopyOnWriteContent<I> implements LazyContent {
+
+		private final ProxyMethodHandler<I> sourceHandler;
+		private final ProxyMethodHandler<I> cloneHandler;
+		private final CloningPlan<I> plan;
+		// Stored at index given by ModelEntity.getPropertyIndex()
+		private final boolean[] materialized;
+		private int remainingProperties;
+
+		private CopyOnWriteContent(ProxyMethodHandler<I> sourceHandler, ProxyMethodHandler<I> cloneHandler, CloningPlan<I> plan) {
+			this.sourceHandler = sourceHandler;
+			this.cloneHandler = cloneHandler;
+			this.plan = plan;
+			materialized = new boolean[plan.getModelEntity().getPropertiesSize()];
+			remainingProperties = materialized.length;
+		}
+
+		private CopyOnWriteCloning getCloning() {
+			return CopyOnWriteCloning.this;
+		}
+
+		@Override
+		public void load(ProxyMethodHandler<?> handler, ModelProperty<?> property) {
+			int index = plan.getModelEntity().getPropertyIndex(property.getPropertyIdentifier());
+			if (index > -1) {
+				materialize(index);
+			}
+		}
+
+		private void materializeAll() {
+			for (int i = 0; i < materialized.length; i++) {
+				materialize(i);
+			}
+		}
+
+		private void materialize(int index) {
+			if (materialized[index]) {
+				return;
+			}
+			// Marked first, since installing the value accesses the property again
+			materialized[index] = true;
+			remainingProperties--;
+			try {
+				CloningStep<I> step = plan.getStep(index);
+				if (step != null) {
+					ModelProperty<?> cloneAfterProperty = step.getProperty().getCloneAfterProperty();
+					if (cloneAfterProperty != null) {
+						int afterIndex = plan.getModelEntity().getPropertyIndex(cloneAfterProperty.getPropertyIdentifier());
+						if (afterIndex > -1) {
+							materialize(afterIndex);
+						}
+					}
+					materialize(step);
+				}
+			} catch (ModelDefinitionException e) {
+				throw new ModelExecutionException(e);
+			} finally {
+				if (remainingProperties == 0 && cloneHandler.getLazyContent() == this) {
+					cloneHandler.setLazyContent(null);
+					materializedObjects++;
+					if (isCompleted()) {
+						contents.clear();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Compute value of the clone for supplied step from the value of the original, as {@link CloningEngine} would do, and install it
+		 */
+		private void materialize(CloningStep<I> step) throws ModelDefinitionException {
+			ModelProperty<? super I> property = step.getProperty();
+			boolean isRoot = rootObjects.contains(sourceHandler.getObject());
+			switch (step.getCardinality()) {
+				case SINGLE:
+					switch (step.getStrategy()) {
+						case CLONE:
+							Object singleValue = sourceHandler.invokeGetter(property);
+							if (factory.getStringEncoder().isConvertable(property.getType())) {
+								cloneHandler.initializePropertyValue(property, CloningEngine.convert(factory, step, singleValue));
+							}
+							else if (step.isModelEntityType() && singleValue instanceof CloneableProxyObject) {
+								cloneHandler.initializePropertyValue(property,
+										!isRoot || isCloned(sourceHandler.getObject(), singleValue) ? cloneOf(singleValue) : null);
+							}
+							else if (singleValue instanceof DataBinding) {
+								cloneHandler.initializePropertyValue(property, ((DataBinding<?>) singleValue).clone());
+							}
+							else {
+								cloneHandler.initializePropertyValue(property, singleValue);
+							}
+							break;
+						case REFERENCE:
+							cloneHandler.initializePropertyValue(property, resolveReference(sourceHandler.invokeGetter(property)));
+							break;
+						case CUSTOM_CLONE:
+							initializeComputedValue(step, sourceHandler.getObject());
+							break;
+						case FACTORY:
+							initializeComputedValue(step, cloneHandler.getObject());
+							break;
+						default:
+							break;
+					}
+					break;
+				case LIST:
+					if (step.getStrategy() != StrategyType.CLONE && step.getStrategy() != StrategyType.REFERENCE) {
+						break;
+					}
+					List<?> values = (List<?>) sourceHandler.invokeGetter(property);
+					if (values == null) {
+						break;
+					}
+					List<Object> clonedValues = new ArrayList<>(values.size());
+					for (Object value : values) {
+						if (step.getStrategy() == StrategyType.REFERENCE) {
+							clonedValues.add(resolveReference(value));
+						}
+						else if (factory.getStringEncoder().isConvertable(property.getType())) {
+							clonedValues.add(CloningEngine.convert(factory, step, value));
+						}
+						else if (step.isModelEntityType() && value instanceof CloneableProxyObject
+								&& (!isRoot || isCloned(sourceHandler.getObject(), value))) {
+							clonedValues.add(cloneOf(value));
+						}
+					}
+					cloneHandler.initializePropertyValue(property, clonedValues);
+					break;
+				default:
+					break;
+			}
+		}
+
+		private void initializeComputedValue(CloningStep<I> step, Object evaluatedObject) throws ModelDefinitionException {
+			Object computedValue = CloningEngine.evaluateStrategyTypeFactory(step, evaluatedObject);
+			if (computedValue != CloningEngine.UNDEFINED_VALUE) {
+				cloneHandler.initializePropertyValue(step.getProperty(), computedValue);
+			}
+		}
+	}
+}
@@ -40,9 +40,11 @@ package org.openflexo.pamela.factory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Set;
 
 import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.DelegateImplementationTable.MethodSignature;
 import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelProperty;
 import org.openflexo.pamela.undo.AddCommand;
@@ -68,7 +70,8 @@ public class DelegateImplementation<I> extends ProxyFactory implements MethodHan
 
 	private final I delegateObject;
 	private final Class<I> delegateImplementationClass;
-	private final Set<Method> implementedMethods;
+	// Implemented methods, stored by signature
+	private final Map<MethodSignature, Method> implementedMethods;
 	private final ProxyMethodHandler<I> masterMethodHandler;
 
 	/**
@@ -86,6 +89,26 @@ public class DelegateImplementation<I> extends ProxyFactory implements MethodHan
 	public DelegateImplementation(ProxyMethodHandler<I> masterMethodHandler, Class<I> delegateImplementationClass,
 			Set<Method> implementedMethods) throws IllegalArgumentException, NoSuchMethodException, InstantiationException,
 			IllegalAccessException, InvocationTargetException {
+		this(masterMethodHandler, delegateImplementationClass, DelegateImplementationTable.indexBySignature(implementedMethods));
+	}
+
+	/**
+	 * Build a new {@link DelegateImplementation} for supplied master {@link ProxyMethodHandler}, using implemented methods resolved by a
+	 * {@link DelegateImplementationTable}
+	 * 
+	 * @param masterMethodHandler
+	 * @param delegateImplementationClass
+	 * @param implementedMethods
+	 *            implemented methods stored by signature
+	 * @throws IllegalArgumentException
+	 * @throws NoSuchMethodException
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 */
+	public DelegateImplementation(ProxyMethodHandler<I> masterMethodHandler, Class<I> delegateImplementationClass,
+			Map<MethodSignature, Method> implementedMethods) throws IllegalArgumentException, NoSuchMethodException,
+			InstantiationException, IllegalAccessException, InvocationTargetException {
 		this.masterMethodHandler = masterMethodHandler;
 		this.delegateImplementationClass = delegateImplementationClass;
 		setSuperclass(delegateImplementationClass);
@@ -104,14 +127,8 @@ public class DelegateImplementation<I> extends ProxyFactory implements MethodHan
 	 * @param method
 	 * @return
 	 */
-	// TODO: perf issues: optimize this !!!
 	public boolean handleMethod(Method method) {
-		for (Method m : implementedMethods) {
-			if (PamelaUtils.methodIsEquivalentTo(m, method)) {
-				return true;
-			}
-		}
-		return false;
+		return implementedMethods.containsKey(new MethodSignature(method));
 	}
 
 	/**
@@ -121,12 +138,7 @@ public class DelegateImplementation<I> extends ProxyFactory implements MethodHan
 	 * @return
 	 */
 	public Method localImplementationFor(Method method) {
-		for (Method m : implementedMethods) {
-			if (PamelaUtils.methodIsEquivalentTo(m, method)) {
-				return m;
-			}
-		}
-		return null;
+		return implementedMethods.get(new MethodSignature(method));
 	}
 
 	/**
@@ -170,12 +182,12 @@ public class DelegateImplementation<I> extends ProxyFactory implements MethodHan
 		// We should check if this delegated implementation has a real implementation of supplied method
 		// AND that method to execute is not the one of delegateImplementationClass
 
-		if (handleMethod(method) && (method.getDeclaringClass() != delegateImplementationClass)) {
+		Method localImplementation = method.getDeclaringClass() != delegateImplementationClass ? localImplementationFor(method) : null;
+		if (localImplementation != null) {
 			// (The answer is yes)
 			// System.out.println("We have a special impl for " + method + " in " + delegateImplementationClass);
 			try {
-				// Now, we must find which method in delegated implementation really implements supplied method
-				Method localImplementation = localImplementationFor(method);
+				// localImplementation is the method in delegated implementation which really implements supplied method
 				// System.out.println("Using local implementation " + localImplementation + " in " +
 				// localImplementation.getDeclaringClass());
 				// We just have now to call that method
@@ -0,0 +1,187 @@
+/**
+ *
+ * Copyright (c) 2014, Openflexo
+ *
+ * This file is part of Pamela-core, a component of the software infrastructure
+ * developed at Openflexo.
+ *
+ *
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either
+ * version 1.1 of the License, or any later version ), which is available at
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ *
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ *
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or
+ *          combining it with software containing parts covered by the terms
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. *
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.openflexo.org/license.html for details.
+ *
+ *
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ *
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openflexo.pamela.model.ModelEntity;
+
+/**
+ * Resolution of partial delegate implementations (see {@link DelegateImplementation}) computed once per {@link ModelEntity}<br>
+ * 
+ * Delegate implementation classes declared by the entity and its super entities are indexed in the order in which they are looked up by
+ * {@link ProxyMethodHandler}. Each implemented method is stored under its signature (name and erased parameter types), so that finding the
+ * delegate handling a method, and the local implementation of this method, cost a single map lookup.<br>
+ * This table is shared by all instances of the entity, which only instantiate delegates they actually use.
+ *
+ * @param <I>
+ *            type of entity this table is computed for
+ */
+public class DelegateImplementationTable<I> {
+
+	/**
+	 * Signature of a method, used as key to identify equivalent methods (see {@link PamelaUtils#methodIsEquivalentTo(Method, Method)})
+	 */
+	public static final class MethodSignature {
+
+		private final String name;
+		private final Class<?>[] parameterTypes;
+		private final int hashCode;
+
+		public MethodSignature(Method method) {
+			name = method.getName();
+			parameterTypes = method.getParameterTypes();
+			hashCode = 31 * name.hashCode() + Arrays.hashCode(parameterTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof MethodSignature)) {
+				return false;
+			}
+			MethodSignature other = (MethodSignature) obj;
+			return hashCode == other.hashCode && name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+		}
+
+		@Override
+		public String toString() {
+			return name + Arrays.toString(parameterTypes);
+		}
+	}
+
+	private final List<Class<?>> delegateImplementationClasses = new ArrayList<>();
+	private final List<Map<MethodSignature, Method>> localImplementations = new ArrayList<>();
+	private final Map<MethodSignature, Integer> delegateIndexes = new HashMap<>();
+
+	public DelegateImplementationTable(ModelEntity<I> modelEntity) {
+		Map<Class<?>, Set<Method>> implementations = new LinkedHashMap<>();
+		collectDelegateImplementations(modelEntity, implementations);
+		for (Map.Entry<Class<?>, Set<Method>> entry : implementations.entrySet()) {
+			int index = delegateImplementationClasses.size();
+			delegateImplementationClasses.add(entry.getKey());
+			localImplementations.add(Collections.unmodifiableMap(indexBySignature(entry.getValue())));
+			for (Method m : entry.getValue()) {
+				// First delegate providing an implementation wins
+				delegateIndexes.putIfAbsent(new MethodSignature(m), index);
+			}
+		}
+	}
+
+	/**
+	 * Collect delegate implementations of supplied entity, then of its super entities (same order as the one used to look up delegates
+	 * before this table existed)
+	 */
+	private static void collectDelegateImplementations(ModelEntity<?> entity, Map<Class<?>, Set<Method>> implementations) {
+		for (Map.Entry<? extends Class<?>, Set<Method>> entry : entity.getDelegateImplementations().entrySet()) {
+			if (!implementations.containsKey(entry.getKey())) {
+				implementations.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (entity.getDirectSuperEntities() != null) {
+			for (ModelEntity<?> superEntity : entity.getDirectSuperEntities()) {
+				collectDelegateImplementations(superEntity, implementations);
+			}
+		}
+	}
+
+	static Map<MethodSignature, Method> indexBySignature(Set<Method> implementedMethods) {
+		Map<MethodSignature, Method> returned = new HashMap<>();
+		for (Method m : implementedMethods) {
+			returned.putIfAbsent(new MethodSignature(m), m);
+		}
+		return returned;
+	}
+
+	/**
+	 * Return a flag indicating if no delegate implementation is declared for this entity
+	 * 
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return delegateImplementationClasses.isEmpty();
+	}
+
+	public int size() {
+		return delegateImplementationClasses.size();
+	}
+
+	public Class<?> getDelegateImplementationClass(int index) {
+		return delegateImplementationClasses.get(index);
+	}
+
+	/**
+	 * Return methods implemented by delegate implementation at supplied index, stored by signature
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public Map<MethodSignature, Method> getLocalImplementations(int index) {
+		return localImplementations.get(index);
+	}
+
+	/**
+	 * Return index of the delegate implementation providing an implementation for supplied method, -1 if none
+	 * 
+	 * @param method
+	 * @return
+	 */
+	public int getDelegateIndex(Method method) {
+		if (delegateIndexes.isEmpty()) {
+			return -1;
+		}
+		Integer returned = delegateIndexes.get(new MethodSignature(method));
+		return returned != null ? returned : -1;
+	}
+}
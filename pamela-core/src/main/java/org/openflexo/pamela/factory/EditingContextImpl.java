@@ -38,6 +38,9 @@
 
 package org.openflexo.pamela.factory;
 
+import java.util.concurrent.Executor;
+
+import org.openflexo.pamela.journal.ChangeJournal;
 import org.openflexo.pamela.undo.UndoManager;
 
 /**
@@ -50,6 +53,7 @@ public class EditingContextImpl implements EditingContext {
 
 	// private final Set<Object> objects = new HashSet<Object>();
 	private UndoManager undoManager;
+	private ChangeJournal changeJournal;
 
 	public EditingContextImpl() {
 	}
@@ -90,15 +94,86 @@ public class EditingContextImpl implements EditingContext {
 	}
 
 	/**
-	 * Creates and register an UndoManager tracking edits on this PamelaModelFactory
+	 * Creates and register an UndoManager tracking edits on this PamelaModelFactory<br>
+	 * Previous UndoManager, if any, is closed
 	 * 
 	 * @return
 	 */
 	public UndoManager createUndoManager() {
-		undoManager = new UndoManager();
+		if (undoManager != null) {
+			undoManager.close();
+		}
+		undoManager = makeUndoManager();
+		undoManager.setChangeJournal(changeJournal);
 		return undoManager;
 	}
 
+	/**
+	 * Instantiate the {@link UndoManager} registered by {@link #createUndoManager()}
+	 * 
+	 * @return
+	 */
+	protected UndoManager makeUndoManager() {
+		return new UndoManager();
+	}
+
+	/**
+	 * Return {@link ChangeJournal} recording the changes performed in this {@link EditingContext}, if any
+	 * 
+	 * @return
+	 */
+	public ChangeJournal getChangeJournal() {
+		return changeJournal;
+	}
+
+	/**
+	 * Sets {@link ChangeJournal} recording the changes performed in this {@link EditingContext}<br>
+	 * Changes are tracked through the {@link UndoManager}, which is created when required
+	 * 
+	 * @param changeJournal
+	 */
+	public void setChangeJournal(ChangeJournal changeJournal) {
+		this.changeJournal = changeJournal;
+		if (undoManager == null && changeJournal != null) {
+			createUndoManager();
+		}
+		if (undoManager != null) {
+			undoManager.setChangeJournal(changeJournal);
+		}
+	}
+
+	/**
+	 * Open a {@link NotificationBatch} in current thread: until the batch is closed, property change notifications raised by the objects of
+	 * this context are queued and coalesced, and then delivered in current thread when the batch is closed
+	 * 
+	 * @return
+	 */
+	public NotificationBatch beginNotificationBatch() {
+		return beginNotificationBatch(null);
+	}
+
+	/**
+	 * Open a {@link NotificationBatch} in current thread: until the batch is closed, property change notifications raised by the objects of
+	 * this context are queued and coalesced, and then delivered by supplied executor when the batch is closed<br>
+	 * When a batch is already in progress for this context, the new batch is joined to it, and supplied executor is ignored
+	 * 
+	 * @param deliveryExecutor
+	 *            executor delivering the notifications, null to deliver them in current thread
+	 * @return
+	 */
+	public NotificationBatch beginNotificationBatch(Executor deliveryExecutor) {
+		return new NotificationBatch(this, deliveryExecutor);
+	}
+
+	/**
+	 * Return the {@link NotificationBatch} in progress for this context in current thread, if any
+	 * 
+	 * @return
+	 */
+	public NotificationBatch getNotificationBatchInProgress() {
+		return NotificationBatch.getNotificationBatchInProgress(this);
+	}
+
 	/**
 	 * Return UndoManager associated with this {@link EditingContext} when any.
 	 * 
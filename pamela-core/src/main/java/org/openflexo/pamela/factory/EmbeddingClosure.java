@@ -0,0 +1,591 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Computes closures of embedded objects, as declared by @Embedded and @ComplexEmbedded annotations, for a given {@link EmbeddingType}.<br>
+ * 
+ * An {@link EmbeddingClosure} is built for a context, which is the set of objects considered to be handled together (deleted or cloned
+ * together). This context is used to resolve conditional embeddings (closure or deletion conditions): a conditionally embedded object is
+ * part of the closure only if all required objects are in the closure, in the context, or embedded in an object of the context.<br>
+ * 
+ * Objects are compared using identity. Object graph is traversed using an explicit worklist, so that computation is linear in the number
+ * of traversed objects and does not depend on the depth of the graph.
+ */
+public class EmbeddingClosure {
+
+	/**
+	 * Closures of deletions currently performed in this thread, used to share context between the nested deletions of embedded objects
+	 */
+	private static final ThreadLocal<EmbeddingClosure> DELETION_IN_PROGRESS = new ThreadLocal<>();
+
+	private final PamelaModelFactory factory;
+	private final EmbeddingType embeddingType;
+	private final Set<Object> context;
+	private Set<Object> derivedContext;
+	private Object[] deletionContext;
+	private EmbeddingClosure enclosingDeletion;
+
+	public EmbeddingClosure(PamelaModelFactory factory, EmbeddingType embeddingType, Object... context) {
+		this.factory = factory;
+		this.embeddingType = embeddingType;
+		this.context = Collections.newSetFromMap(new IdentityHashMap<>());
+		if (context != null) {
+			for (Object o : context) {
+				if (o != null) {
+					this.context.add(o);
+				}
+			}
+		}
+	}
+
+	public PamelaModelFactory getModelFactory() {
+		return factory;
+	}
+
+	public EmbeddingType getEmbeddingType() {
+		return embeddingType;
+	}
+
+	/**
+	 * Return objects of the context, in no particular order
+	 * 
+	 * @return
+	 */
+	public Object[] getContext() {
+		return context.toArray();
+	}
+
+	/**
+	 * Add supplied object to the context
+	 * 
+	 * @param object
+	 * @return true if object was not already in the context
+	 */
+	public boolean addToContext(Object object) {
+		if (object != null && context.add(object)) {
+			derivedContext = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add supplied objects to the context
+	 * 
+	 * @param objects
+	 */
+	public void addAllToContext(Collection<?> objects) {
+		for (Object o : objects) {
+			addToContext(o);
+		}
+	}
+
+	/**
+	 * Return boolean indicating if supplied object is in the context or embedded in one of the objects of the context
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public boolean isPartOfContext(Object object) {
+		return context.contains(object) || getDerivedContext().contains(object);
+	}
+
+	/**
+	 * Return the list of objects embedded in supplied root object, in depth-first order.<br>
+	 * Returned list answers {@link List#contains(Object)} and {@link List#remove(Object)} in constant time, using identity.
+	 * 
+	 * @param root
+	 * @return
+	 */
+	public List<Object> getEmbeddedObjects(Object root) {
+		if (!factory.isProxyObject(root)) {
+			return Collections.emptyList();
+		}
+		Traversal traversal = new Traversal(false);
+		traversal.explore(root, null, true);
+		return traversal.resolve();
+	}
+
+	/**
+	 * Return the list of objects embedded in any of supplied root objects, in depth-first order.<br>
+	 * Returned list answers {@link List#contains(Object)} and {@link List#remove(Object)} in constant time, using identity.
+	 * 
+	 * @param roots
+	 * @return
+	 */
+	public List<Object> getEmbeddedObjects(Collection<?> roots) {
+		Traversal traversal = new Traversal(false);
+		for (Object root : roots) {
+			if (factory.isProxyObject(root)) {
+				traversal.explore(root, null, true);
+			}
+		}
+		return traversal.resolve();
+	}
+
+	/**
+	 * Return the list of objects directly embedded in supplied object (the values of its embedding properties), without considering
+	 * objects they embed themselves.<br>
+	 * Returned list answers {@link List#contains(Object)} and {@link List#remove(Object)} in constant time, using identity.
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public List<Object> getDirectlyEmbeddedObjects(Object object) {
+		if (!factory.isProxyObject(object)) {
+			return Collections.emptyList();
+		}
+		Traversal traversal = new Traversal(false);
+		traversal.explore(object, null, false);
+		return traversal.resolve();
+	}
+
+	/**
+	 * Return boolean indicating if child object is embedded in parent object
+	 * 
+	 * @param parent
+	 * @param child
+	 * @return
+	 */
+	public boolean isEmbeddedIn(Object parent, Object child) {
+		if (child == null || !factory.isProxyObject(parent)) {
+			return false;
+		}
+		Traversal traversal = new Traversal(false);
+		if (traversal.explore(parent, child, true)) {
+			return true;
+		}
+		return traversal.resolve().contains(child);
+	}
+
+	/**
+	 * Compute now objects embedded in objects of the context, so that {@link #isPartOfContext(Object)} may then be called concurrently, as
+	 * long as context does not change
+	 */
+	void resolveDerivedContext() {
+		getDerivedContext();
+	}
+
+	/**
+	 * Objects embedded in objects of the context, computed on demand, and only once while context does not change
+	 */
+	private Set<Object> getDerivedContext() {
+		if (derivedContext == null) {
+			Traversal traversal = new Traversal(true);
+			for (Object o : context) {
+				if (factory.isProxyObject(o)) {
+					traversal.explore(o, null, true);
+				}
+			}
+			derivedContext = Collections.newSetFromMap(new IdentityHashMap<>());
+			derivedContext.addAll(traversal.resolve());
+		}
+		return derivedContext;
+	}
+
+	/**
+	 * Return the closure of the deletion in progress in this thread, when supplied context is the one this deletion is propagating
+	 */
+	static EmbeddingClosure getDeletionInProgress(Object[] context) {
+		EmbeddingClosure current = DELETION_IN_PROGRESS.get();
+		if (current != null && context != null && current.deletionContext == context) {
+			return current;
+		}
+		return null;
+	}
+
+	/**
+	 * Register this closure as the closure of the deletion in progress in this thread, and return the context to propagate to nested
+	 * deletions
+	 */
+	Object[] beginDeletion() {
+		deletionContext = getContext();
+		enclosingDeletion = DELETION_IN_PROGRESS.get();
+		DELETION_IN_PROGRESS.set(this);
+		return deletionContext;
+	}
+
+	void endDeletion() {
+		if (enclosingDeletion != null) {
+			DELETION_IN_PROGRESS.set(enclosingDeletion);
+		}
+		else {
+			DELETION_IN_PROGRESS.remove();
+		}
+		enclosingDeletion = null;
+		deletionContext = null;
+	}
+
+	private boolean isUnconditionallyEmbedded(ModelProperty<?> p) {
+		switch (embeddingType) {
+			case CLOSURE:
+				return p.getEmbedded() != null && p.getEmbedded().closureConditions().length == 0
+						|| p.getComplexEmbedded() != null && p.getComplexEmbedded().closureConditions().length == 0;
+			case DELETION:
+				return p.getEmbedded() != null && p.getEmbedded().deletionConditions().length == 0
+						|| p.getComplexEmbedded() != null && p.getComplexEmbedded().deletionConditions().length == 0;
+			default:
+				return false;
+		}
+	}
+
+	private List<Object> getRequiredPresence(ModelProperty<?> p, Object child) throws ModelDefinitionException {
+		String[] conditions = embeddingType == EmbeddingType.CLOSURE ? p.getEmbedded().closureConditions()
+				: p.getEmbedded().deletionConditions();
+		List<Object> requiredPresence = new ArrayList<>(conditions.length);
+		ProxyMethodHandler<Object> childHandler = factory.getHandler(child);
+		ModelEntity<Object> childEntity = childHandler.getModelEntity();
+		for (String c : conditions) {
+			Object requiredObject = childHandler.invokeGetter(childEntity.getModelProperty(c));
+			if (requiredObject != null) {
+				requiredPresence.add(requiredObject);
+			}
+		}
+		return requiredPresence;
+	}
+
+	/**
+	 * An object embedded only if some other objects are also present
+	 */
+	private static class ConditionalPresence {
+		private final Object object;
+		private final List<Object> requiredPresence;
+
+		private ConditionalPresence(Object object, List<Object> requiredPresence) {
+			this.object = object;
+			this.requiredPresence = requiredPresence;
+		}
+	}
+
+	/**
+	 * Traverse embedding properties of an object, one value at a time
+	 */
+	private static class Frame {
+		private final ProxyMethodHandler<Object> handler;
+		private final Iterator<ModelProperty<? super Object>> properties;
+		private ModelProperty<? super Object> property;
+		private Iterator<?> values;
+		private Object singleValue;
+		private boolean hasSingleValue;
+
+		private Frame(ProxyMethodHandler<Object> handler) {
+			this.handler = handler;
+			this.properties = handler.getModelEntity().getProperties();
+		}
+
+		/**
+		 * Move to next value of an embedding property
+		 * 
+		 * @return false when all properties were traversed
+		 */
+		private boolean next() {
+			while (true) {
+				if (hasSingleValue) {
+					hasSingleValue = false;
+					return true;
+				}
+				if (values != null) {
+					if (values.hasNext()) {
+						singleValue = values.next();
+						return true;
+					}
+					values = null;
+				}
+				if (!properties.hasNext()) {
+					return false;
+				}
+				property = properties.next();
+				if (property.getEmbedded() == null && property.getComplexEmbedded() == null) {
+					// this property is not embedded
+					continue;
+				}
+				switch (property.getCardinality()) {
+					case SINGLE:
+						singleValue = handler.invokeGetter(property);
+						hasSingleValue = true;
+						break;
+					case LIST:
+						List<?> list = (List<?>) handler.invokeGetter(property);
+						if (list != null) {
+							values = list.iterator();
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A traversal of the object graph, collecting embedded objects and conditional presences in depth-first order
+	 */
+	private class Traversal {
+		private final boolean resolveWithContextOnly;
+		private final Set<Object> present = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final List<Object> entries = new ArrayList<>();
+
+		private Traversal(boolean resolveWithContextOnly) {
+			this.resolveWithContextOnly = resolveWithContextOnly;
+		}
+
+		/**
+		 * Explore embedded objects of supplied root, and objects they embed when transitive is set
+		 * 
+		 * @return true if searched object was found unconditionally embedded
+		 */
+		private boolean explore(Object root, Object searched, boolean transitive) {
+			Deque<Frame> worklist = new ArrayDeque<>();
+			worklist.push(new Frame(factory.getHandler(root)));
+			try {
+				while (!worklist.isEmpty()) {
+					Frame frame = worklist.peek();
+					if (!frame.next()) {
+						worklist.pop();
+						continue;
+					}
+					Object child = frame.singleValue;
+					if (!factory.isProxyObject(child)) {
+						continue;
+					}
+					ModelProperty<?> p = frame.property;
+					if (isUnconditionallyEmbedded(p)) {
+						if (append(child, transitive ? worklist : null) && child == searched) {
+							return true;
+						}
+					}
+					else if (p.getEmbedded() != null) {
+						List<Object> requiredPresence = getRequiredPresence(p, child);
+						if (requiredPresence.size() > 0) {
+							entries.add(new ConditionalPresence(child, requiredPresence));
+						}
+						else if (append(child, transitive ? worklist : null) && child == searched) {
+							return true;
+						}
+					}
+				}
+			} catch (ModelDefinitionException e) {
+				throw new ModelExecutionException(e);
+			}
+			return false;
+		}
+
+		private boolean append(Object child, Deque<Frame> worklist) {
+			if (present.add(child)) {
+				entries.add(child);
+				if (worklist != null) {
+					worklist.push(new Frame(factory.getHandler(child)));
+				}
+				return true;
+			}
+			return false;
+		}
+
+		private boolean isPresent(Object object) {
+			if (present.contains(object) || context.contains(object)) {
+				return true;
+			}
+			return !resolveWithContextOnly && getDerivedContext().contains(object);
+		}
+
+		/**
+		 * Replace conditional presences by their object when all required objects are present, discard them otherwise
+		 */
+		private EmbeddedObjectList resolve() {
+			EmbeddedObjectList returned = new EmbeddedObjectList(entries.size());
+			for (Object o : entries) {
+				if (o instanceof ConditionalPresence) {
+					ConditionalPresence conditionalPresence = (ConditionalPresence) o;
+					boolean allOthersArePresent = true;
+					for (Object other : conditionalPresence.requiredPresence) {
+						if (!isPresent(other)) {
+							allOthersArePresent = false;
+							break;
+						}
+					}
+					if (allOthersArePresent && present.add(conditionalPresence.object)) {
+						// Closure is fine and object is not already present, add object
+						returned.add(conditionalPresence.object);
+					}
+				}
+				else {
+					returned.add(o);
+				}
+			}
+			return returned;
+		}
+	}
+
+	/**
+	 * A list of distinct objects, compared by identity, supporting constant time {@link #contains(Object)} and {@link #remove(Object)}
+	 */
+	private static class EmbeddedObjectList extends AbstractList<Object> {
+		private final List<Object> elements;
+		private final IdentityHashMap<Object, Integer> indexes;
+		private int removed = 0;
+
+		private EmbeddedObjectList(int initialCapacity) {
+			elements = new ArrayList<>(initialCapacity);
+			indexes = new IdentityHashMap<>(initialCapacity);
+		}
+
+		@Override
+		public boolean add(Object object) {
+			if (object == null || indexes.containsKey(object)) {
+				return false;
+			}
+			indexes.put(object, elements.size());
+			elements.add(object);
+			modCount++;
+			return true;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			return indexes.containsKey(object);
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			Integer index = indexes.remove(object);
+			if (index == null) {
+				return false;
+			}
+			// Leave a hole, compacted on next indexed access
+			elements.set(index, null);
+			removed++;
+			modCount++;
+			return true;
+		}
+
+		@Override
+		public int size() {
+			return indexes.size();
+		}
+
+		@Override
+		public Object get(int index) {
+			compact();
+			return elements.get(index);
+		}
+
+		@Override
+		public Object remove(int index) {
+			Object returned = get(index);
+			remove(returned);
+			return returned;
+		}
+
+		@Override
+		public void clear() {
+			elements.clear();
+			indexes.clear();
+			removed = 0;
+			modCount++;
+		}
+
+		private void compact() {
+			if (removed > 0) {
+				int i = 0;
+				for (int j = 0; j < elements.size(); j++) {
+					Object o = elements.get(j);
+					if (o != null) {
+						elements.set(i, o);
+						indexes.put(o, i);
+						i++;
+					}
+				}
+				elements.subList(i, elements.size()).clear();
+				removed = 0;
+			}
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			return new Iterator<Object>() {
+				private final int expectedModCount = modCount;
+				private int cursor = skipHoles(0);
+
+				private int skipHoles(int index) {
+					while (index < elements.size() && elements.get(index) == null) {
+						index++;
+					}
+					return index;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return cursor < elements.size();
+				}
+
+				@Override
+				public Object next() {
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					if (cursor >= elements.size()) {
+						throw new NoSuchElementException();
+					}
+					Object returned = elements.get(cursor);
+					cursor = skipHoles(cursor + 1);
+					return returned;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ *
+ * Copyright (c) 2014, Openflexo
+ *
+ * This file is part of Pamela-core, a component of the software infrastructure
+ * developed at Openflexo.
+ *
+ *
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either
+ * version 1.1 of the License, or any later version ), which is available at
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ *
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ *
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or
+ *          combining it with software containing parts covered by the terms
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. *
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.openflexo.org/license.html for details.
+ *
+ *
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ *
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.openflexo.pamela.AccessibleProxyObject;
+import org.openflexo.pamela.annotations.Finder;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.toolbox.HasPropertyChangeSupport;
+
+/**
+ * Hash index backing a {@link Finder} declared with indexed=true<br>
+ * 
+ * One instance is maintained by a {@link ProxyMethodHandler} for each indexed finder invoked on it. Index maps the value of
+ * {@link Finder#attribute()} to the objects of {@link Finder#collection()} having this value.<br>
+ * Index is kept up to date by the handler (adder, remover, setter of the collection) and by listening to property changes of indexed
+ * objects for the searched attribute. When some inconsistency is detected (collection size differs from indexed size, or a notification
+ * refers to an unknown key), index is simply invalidated and rebuilt at next lookup.
+ */
+class FinderIndex implements PropertyChangeListener {
+
+	private static final Logger logger = Logger.getLogger(FinderIndex.class.getPackage().getName());
+
+	private final Finder finder;
+	private final PamelaModelFactory modelFactory;
+
+	private final Map<Object, List<Object>> index = new HashMap<>();
+	private int size = 0;
+	private boolean valid = false;
+	private boolean supported = true;
+
+	FinderIndex(Finder finder, PamelaModelFactory modelFactory) {
+		this.finder = finder;
+		this.modelFactory = modelFactory;
+	}
+
+	public Finder getFinder() {
+		return finder;
+	}
+
+	/**
+	 * Return a flag indicating if this index may be used to look up supplied value
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public boolean isUsableFor(Object value) {
+		// Equality of PAMELA objects and lists is not consistent with hashCode()
+		return supported && !(value instanceof AccessibleProxyObject) && !(value instanceof List);
+	}
+
+	/**
+	 * Return all objects of supplied collection whose attribute matches supplied value, rebuilding index when required<br>
+	 * Return null if index cannot be used for supplied collection: caller should then perform a linear scan
+	 * 
+	 * @param collection
+	 * @param value
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	public List<Object> lookup(Collection<?> collection, Object value) throws ModelDefinitionException {
+		if (!valid || size != collection.size()) {
+			rebuild(collection);
+		}
+		if (!supported) {
+			return null;
+		}
+		List<Object> returned = index.get(value);
+		return returned != null ? returned : Collections.emptyList();
+	}
+
+	/**
+	 * Called by handler after supplied object was added to indexed collection
+	 * 
+	 * @param object
+	 * @throws ModelDefinitionException
+	 */
+	public void objectAdded(Object object) throws ModelDefinitionException {
+		if (valid) {
+			index(object);
+		}
+	}
+
+	/**
+	 * Called by handler after supplied object was removed from indexed collection
+	 * 
+	 * @param object
+	 * @throws ModelDefinitionException
+	 */
+	public void objectRemoved(Object object) throws ModelDefinitionException {
+		if (valid) {
+			if (unindex(object, getAttributeValue(object))) {
+				stopListening(object);
+			}
+			else {
+				invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Called when indexed collection was replaced: index will be rebuilt at next lookup
+	 */
+	public void invalidate() {
+		if (valid) {
+			for (List<Object> objects : index.values()) {
+				for (Object o : objects) {
+					stopListening(o);
+				}
+			}
+			index.clear();
+			size = 0;
+			valid = false;
+		}
+	}
+
+	@Override
+	public void propertyChange(PropertyChangeEvent evt) {
+		if (!valid) {
+			return;
+		}
+		Object source = evt.getSource();
+		if (unindex(source, evt.getOldValue())) {
+			List<Object> objects = index.get(evt.getNewValue());
+			if (objects == null) {
+				objects = new ArrayList<>(1);
+				index.put(evt.getNewValue(), objects);
+			}
+			objects.add(source);
+			size++;
+		}
+		else {
+			// Notification source is not the indexed object, or old value is unknown
+			invalidate();
+		}
+	}
+
+	private void rebuild(Collection<?> collection) throws ModelDefinitionException {
+		invalidate();
+		valid = true;
+		// Prevent ConcurrentModificationException
+		for (Object o : new ArrayList<>(collection)) {
+			index(o);
+			if (!supported) {
+				return;
+			}
+		}
+	}
+
+	private void index(Object object) throws ModelDefinitionException {
+		if (!(object instanceof HasPropertyChangeSupport) || ((HasPropertyChangeSupport) object).getPropertyChangeSupport() == null) {
+			// We would not be notified of attribute changes: give up indexing for good
+			logger.warning("Finder " + finder.collection() + " by attribute " + finder.attribute() + " cannot be indexed since "
+					+ object + " does not provide property change support. Falling back on linear scan.");
+			invalidate();
+			supported = false;
+			return;
+		}
+		Object key = getAttributeValue(object);
+		List<Object> objects = index.get(key);
+		if (objects == null) {
+			objects = new ArrayList<>(1);
+			index.put(key, objects);
+		}
+		objects.add(object);
+		size++;
+		((HasPropertyChangeSupport) object).getPropertyChangeSupport().addPropertyChangeListener(finder.attribute(), this);
+	}
+
+	private boolean unindex(Object object, Object key) {
+		List<Object> objects = index.get(key);
+		if (objects == null) {
+			return false;
+		}
+		for (int i = 0; i < objects.size(); i++) {
+			if (objects.get(i) == object) {
+				objects.remove(i);
+				if (objects.isEmpty()) {
+					index.remove(key);
+				}
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void stopListening(Object object) {
+		if (object instanceof HasPropertyChangeSupport && ((HasPropertyChangeSupport) object).getPropertyChangeSupport() != null) {
+			((HasPropertyChangeSupport) object).getPropertyChangeSupport().removePropertyChangeListener(finder.attribute(), this);
+		}
+	}
+
+	private Object getAttributeValue(Object object) throws ModelDefinitionException {
+		ProxyMethodHandler<?> handler = modelFactory.getHandler(object);
+		if (handler == null) {
+			throw new ModelDefinitionException(
+					"Found object of type " + object.getClass().getName() + " but is not an instanceof ProxyObject:\n" + object);
+		}
+		return handler.invokeGetter(finder.attribute());
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+package org.openflexo.pamela.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+
+/**
+ * A read-only snapshot of a graph of PAMELA objects: an object and the objects it embeds (see {@link EmbeddingType#CLOSURE})<br>
+ * 
+ * While the graph is frozen (see {@link PamelaModelFactory#freeze(Object, Object...)}):
+ * <ul>
+ * <li>getters of its objects return the values read when the graph was frozen, without dispatching (execution monitors, patterns,
+ * assertion checking and delegate implementations are bypassed) and without locking, even in a {@link ConcurrentEditingContext}: the
+ * graph may therefore be shared by any number of threads, as long as its objects are only read,</li>
+ * <li>values of LIST properties are returned as unmodifiable lists,</li>
+ * <li>any modification of its objects (setters, adders, removers, deletion, undo of previous edits, or update of an inverse property
+ * by an object which is not frozen) is rejected with a {@link ModelExecutionException}.</li>
+ * </ul>
+ * Other methods (finders, business methods, ...) are still dispatched, without locking.<br>
+ * Objects referenced by the graph without being embedded are not frozen. An object may belong to several frozen graphs, it remains
+ * frozen until all of them are released.
+ * 
+ * @param <I>
+ *            type of root object
+ */
+public class FrozenGraph<I> implements AutoCloseable {
+
+	private final PamelaModelFactory factory;
+	private final I root;
+	private final List<Object> objects;
+	private final Set<Object> frozenObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+	private volatile boolean released = false;
+
+	FrozenGraph(PamelaModelFactory factory, I root, Object... context) {
+		this.factory = factory;
+		this.root = root;
+		List<Object> closure = new ArrayList<>();
+		closure.add(root);
+		closure.addAll(factory.getEmbeddedObjects(root, EmbeddingType.CLOSURE, context));
+		List<Object> objects = new ArrayList<>();
+		try {
+			for (Object o : closure) {
+				if (frozenObjects.add(o)) {
+					factory.getHandler(o).freeze();
+					objects.add(o);
+				}
+			}
+		} catch (RuntimeException e) {
+			// Objects already frozen are released
+			for (Object o : objects) {
+				factory.getHandler(o).unfreeze();
+			}
+			throw e;
+		}
+		this.objects = Collections.unmodifiableList(objects);
+	}
+
+	public PamelaModelFactory getModelFactory() {
+		return factory;
+	}
+
+	public I getRoot() {
+		return root;
+	}
+
+	/**
+	 * Return all frozen objects, root object first
+	 * 
+	 * @return
+	 */
+	public List<Object> getObjects() {
+		return objects;
+	}
+
+	/**
+	 * Return boolean indicating if supplied object was frozen by this graph
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public boolean contains(Object object) {
+		return frozenObjects.contains(object);
+	}
+
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * Release this snapshot: its objects may be modified again (unless they belong to another frozen graph), and getters return their
+	 * current values
+	 */
+	public synchronized void release() {
+		if (released) {
+			return;
+		}
+		released = true;
+		for (Object o : objects) {
+			factory.getHandler(o).unfreeze();
+		}
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+
+	@Override
+	public String toString() {
+		return "FrozenGraph[" + factory.getHandler(root).getModelEntity() + "," + objects.size() + " objects"
+				+ (released ? ",released" : "") + "]";
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.factory;
+
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Content of a PAMELA object which has not been deserialized yet, and which is loaded on demand<br>
+ * 
+ * When set on a {@link ProxyMethodHandler}, this content is asked to load values of a property before that property is first accessed (get,
+ * set, add, remove or reindex), whether this access comes from the API of the object or from the PAMELA interpreter itself (cloning,
+ * comparison, deletion, serialization...).<br>
+ * Implementations are responsible for removing themselves from the handler once all their content has been loaded.
+ */
+public interface LazyContent {
+
+	/**
+	 * Load values of supplied property which were not deserialized yet, if any
+	 * 
+	 * @param handler
+	 *            handler of the object owning this content
+	 * @param property
+	 *            the property being accessed
+	 */
+	public void load(ProxyMethodHandler<?> handler, ModelProperty<?> property);
+
+}
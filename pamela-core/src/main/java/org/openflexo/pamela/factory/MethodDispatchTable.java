@@ -0,0 +1,695 @@
+/**
+ *
+ * Copyright (c) 2014, Openflexo
+ *
+ * This file is part of Pamela-core, a component of the software infrastructure
+ * developed at Openflexo.
+ *
+ *
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either
+ * version 1.1 of the License, or any later version ), which is available at
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ *
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ *
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or
+ *          combining it with software containing parts covered by the terms
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. *
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.openflexo.org/license.html for details.
+ *
+ *
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ *
+ */
+
+package org.openflexo.pamela.factory;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.openflexo.pamela.annotations.Adder;
+import org.openflexo.pamela.annotations.Finder;
+import org.openflexo.pamela.annotations.Getter;
+import org.openflexo.pamela.annotations.Initializer;
+import org.openflexo.pamela.annotations.Reindexer;
+import org.openflexo.pamela.annotations.Remover;
+import org.openflexo.pamela.annotations.Setter;
+import org.openflexo.pamela.annotations.Updater;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+import com.google.common.base.Defaults;
+
+/**
+ * Dispatch table computed once per {@link ModelEntity}, used by {@link ProxyMethodHandler} to dispatch method calls<br>
+ *
+ * For each {@link Method} invoked on a PAMELA proxy, this table stores a {@link DispatchedMethod} which pre-resolves the kind of operation
+ * to perform (getter, setter, adder, ..., or one of the methods declared in {@link IProxyMethodHandler}) together with the
+ * {@link ModelProperty} involved. The resolution (annotation lookup and comparison with {@link IProxyMethodHandler} constants) is performed
+ * on first invocation only: subsequent invocations of the same method cost a single map lookup.
+ *
+ * @param <I>
+ *            type of entity this table is computed for
+ */
+public class MethodDispatchTable<I> {
+
+	/**
+	 * The kind of operation to perform when a given method is invoked
+	 */
+	public static enum Operation {
+		INITIALIZER,
+		GETTER,
+		SETTER,
+		UPDATER,
+		ADDER,
+		REMOVER,
+		REINDEXER,
+		FINDER,
+		GET_PROPERTY_CHANGE_SUPPORT,
+		PERFORM_SUPER_GETTER,
+		PERFORM_SUPER_SETTER,
+		PERFORM_SUPER_ADDER,
+		PERFORM_SUPER_ADDER_AT_INDEX,
+		PERFORM_SUPER_REMOVER,
+		PERFORM_SUPER_GETTER_ENTITY,
+		PERFORM_SUPER_SETTER_ENTITY,
+		PERFORM_SUPER_ADDER_ENTITY,
+		PERFORM_SUPER_REMOVER_ENTITY,
+		PERFORM_SUPER_DELETER_ENTITY,
+		PERFORM_SUPER_FINDER_ENTITY,
+		PERFORM_SUPER_FINDER,
+		PERFORM_SUPER_INITIALIZER,
+		IS_SERIALIZING,
+		IS_DESERIALIZING,
+		IS_MODIFIED,
+		SET_MODIFIED,
+		TO_STRING,
+		DESTROY,
+		CLONE_OBJECT,
+		EQUALS_OBJECT,
+		EQUALS_OBJECT_USING_FILTER,
+		UPDATE_WITH_OBJECT,
+		GET_EMBEDDED,
+		GET_REFERENCED,
+		ACCEPT_VISITOR,
+		ACCEPT_WITH_STRATEGY_VISITOR,
+		IS_DELETED,
+		IS_BEING_CLONED,
+		IS_CREATED_BY_CLONING,
+		GET_DELETED_PROPERTY,
+		PERFORM_SUPER_DELETER,
+		DELETE_OBJECT,
+		PERFORM_SUPER_UNDELETER,
+		UNDELETE_OBJECT,
+		CLONE_OBJECT_WITH_CONTEXT,
+		HAS_KEY,
+		OBJECT_FOR_KEY,
+		SET_OBJECT_FOR_KEY,
+		GET_TYPE_FOR_KEY,
+		ENABLE_ASSERTION_CHECKING,
+		DISABLE_ASSERTION_CHECKING,
+		UNHANDLED
+	}
+
+	/**
+	 * The kind of access to the object graph performed by a method, used to lock the graph when it is managed by a
+	 * {@link ConcurrentEditingContext}
+	 */
+	public static enum AccessMode {
+		/**
+		 * No lock is required: method doesn't access properties, or only accesses them through other PAMELA methods
+		 */
+		NONE,
+		/**
+		 * Method reads properties
+		 */
+		READ,
+		/**
+		 * Method modifies properties
+		 */
+		WRITE
+	}
+
+	/**
+	 * Return the kind of access performed by a method dispatched to supplied operation
+	 * 
+	 * @param operation
+	 * @return
+	 */
+	public static AccessMode getAccessMode(Operation operation) {
+		switch (operation) {
+			case GETTER:
+			case FINDER:
+			case PERFORM_SUPER_GETTER:
+			case PERFORM_SUPER_GETTER_ENTITY:
+			case PERFORM_SUPER_FINDER:
+			case PERFORM_SUPER_FINDER_ENTITY:
+			case IS_MODIFIED:
+			case TO_STRING:
+			case EQUALS_OBJECT:
+			case EQUALS_OBJECT_USING_FILTER:
+			case GET_EMBEDDED:
+			case GET_REFERENCED:
+			case OBJECT_FOR_KEY:
+				return AccessMode.READ;
+			case INITIALIZER:
+			case PERFORM_SUPER_INITIALIZER:
+			case SETTER:
+			case UPDATER:
+			case ADDER:
+			case REMOVER:
+			case REINDEXER:
+			case PERFORM_SUPER_SETTER:
+			case PERFORM_SUPER_SETTER_ENTITY:
+			case PERFORM_SUPER_ADDER:
+			case PERFORM_SUPER_ADDER_AT_INDEX:
+			case PERFORM_SUPER_ADDER_ENTITY:
+			case PERFORM_SUPER_REMOVER:
+			case PERFORM_SUPER_REMOVER_ENTITY:
+			case PERFORM_SUPER_DELETER:
+			case PERFORM_SUPER_DELETER_ENTITY:
+			case DELETE_OBJECT:
+			case PERFORM_SUPER_UNDELETER:
+			case UNDELETE_OBJECT:
+			case SET_MODIFIED:
+			case SET_OBJECT_FOR_KEY:
+			case UPDATE_WITH_OBJECT:
+			case CLONE_OBJECT:
+			case CLONE_OBJECT_WITH_CONTEXT:
+				return AccessMode.WRITE;
+			default:
+				return AccessMode.NONE;
+		}
+	}
+
+	/**
+	 * Pre-resolved dispatching information for a given {@link Method}
+	 *
+	 * @param <I>
+	 *            type of entity
+	 */
+	public static class DispatchedMethod<I> {
+
+		private final Method method;
+		private final Operation operation;
+		private final ModelProperty<? super I> property;
+		// Index of property in ModelEntity.getPropertyIndex(), -1 if none
+		private final int propertyIndex;
+		private final Finder finder;
+		private final ModelProperty<? super I> implementedProperty;
+		private final Object defaultReturnValue;
+		// Index of delegate implementation providing this method in DelegateImplementationTable, -1 if none
+		private final int delegateIndex;
+
+		// When a concrete implementation is provided for this method, indicates the kind of atomic edit to track
+		private final boolean concreteSetter;
+		private final boolean concreteAdder;
+		private final boolean concreteRemover;
+
+		private final AccessMode accessMode;
+
+		private DispatchedMethod(Method method, Operation operation, ModelProperty<? super I> property, int propertyIndex, Finder finder,
+				ModelProperty<? super I> implementedProperty, int delegateIndex) {
+			this.method = method;
+			this.operation = operation;
+			this.property = property;
+			this.propertyIndex = propertyIndex;
+			this.finder = finder;
+			this.implementedProperty = implementedProperty;
+			this.delegateIndex = delegateIndex;
+			this.defaultReturnValue = method.getReturnType().isPrimitive() ? Defaults.defaultValue(method.getReturnType()) : null;
+			// Concrete implementations are tracked using the property declaring this method, if any
+			concreteSetter = implementedProperty != null && (PamelaUtils.methodIsEquivalentTo(method, implementedProperty.getSetterMethod())
+					|| PamelaUtils.methodIsEquivalentTo(method, implementedProperty.getUpdaterMethod()));
+			concreteAdder = implementedProperty != null && PamelaUtils.methodIsEquivalentTo(method, implementedProperty.getAdderMethod());
+			concreteRemover = implementedProperty != null
+					&& PamelaUtils.methodIsEquivalentTo(method, implementedProperty.getRemoverMethod());
+			// A delegate implementation accesses properties through PAMELA methods
+			if (delegateIndex != -1) {
+				accessMode = AccessMode.NONE;
+			}
+			else if (concreteSetter || concreteAdder || concreteRemover) {
+				accessMode = AccessMode.WRITE;
+			}
+			else {
+				accessMode = MethodDispatchTable.getAccessMode(operation);
+			}
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		public Operation getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Return the {@link ModelProperty} addressed by this method, if any
+		 *
+		 * @return
+		 */
+		public ModelProperty<? super I> getProperty() {
+			return property;
+		}
+
+		/**
+		 * Return the index of the {@link ModelProperty} addressed by this method (see {@link ModelEntity#getPropertyIndex(String)}), -1 if
+		 * none
+		 *
+		 * @return
+		 */
+		public int getPropertyIndex() {
+			return propertyIndex;
+		}
+
+		public Finder getFinder() {
+			return finder;
+		}
+
+		/**
+		 * Return the {@link ModelProperty} declaring this method as one of its accessors (getter, setter, adder or remover), if any
+		 *
+		 * @return
+		 */
+		public ModelProperty<? super I> getImplementedProperty() {
+			return implementedProperty;
+		}
+
+		/**
+		 * Return value to return when invocation returned null while return type is primitive (avoids an NPE)
+		 *
+		 * @return
+		 */
+		public Object getDefaultReturnValue() {
+			return defaultReturnValue;
+		}
+
+		/**
+		 * Return index in {@link DelegateImplementationTable} of the delegate implementation providing an implementation of this method, -1
+		 * if none
+		 *
+		 * @return
+		 */
+		public int getDelegateIndex() {
+			return delegateIndex;
+		}
+
+		/**
+		 * Return boolean indicating if a concrete implementation of this method should be tracked as a SET operation
+		 */
+		public boolean isConcreteSetter() {
+			return concreteSetter;
+		}
+
+		/**
+		 * Return boolean indicating if a concrete implementation of this method should be tracked as an ADD operation
+		 */
+		public boolean isConcreteAdder() {
+			return concreteAdder;
+		}
+
+		/**
+		 * Return boolean indicating if a concrete implementation of this method should be tracked as a REMOVE operation
+		 */
+		public boolean isConcreteRemover() {
+			return concreteRemover;
+		}
+
+		/**
+		 * Return the kind of access to the object graph performed by this method
+		 */
+		public AccessMode getAccessMode() {
+			return accessMode;
+		}
+
+		@Override
+		public String toString() {
+			return "DispatchedMethod[" + method.getName() + "," + operation + (property != null ? "," + property.getPropertyIdentifier() : "")
+					+ "]";
+		}
+	}
+
+	private final ModelEntity<I> modelEntity;
+	private final ConcurrentHashMap<Method, DispatchedMethod<I>> dispatchedMethods = new ConcurrentHashMap<>();
+
+	// Methods implemented by compiled accessors, indexed by the index hard-coded in generated bytecode
+	private final List<DispatchedMethod<I>> compiledMethods = new CopyOnWriteArrayList<>();
+	// Compiled classes generated for this entity, stored by implementing class
+	private final Map<Class<?>, Class<?>> compiledClasses = new HashMap<>();
+	// Delegate implementations resolution, lazily computed
+	private DelegateImplementationTable<I> delegateImplementationTable;
+
+	public MethodDispatchTable(ModelEntity<I> modelEntity) {
+		this.modelEntity = modelEntity;
+	}
+
+	public ModelEntity<I> getModelEntity() {
+		return modelEntity;
+	}
+
+	/**
+	 * Register supplied method as implemented by a compiled accessor, and return the index under which it will be retrieved from generated
+	 * code
+	 * 
+	 * @param method
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	int registerCompiledMethod(Method method) throws ModelDefinitionException {
+		DispatchedMethod<I> dispatchedMethod = getDispatchedMethod(method);
+		synchronized (compiledMethods) {
+			int index = compiledMethods.indexOf(dispatchedMethod);
+			if (index == -1) {
+				compiledMethods.add(dispatchedMethod);
+				index = compiledMethods.size() - 1;
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Return method registered as implemented by a compiled accessor under supplied index
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public DispatchedMethod<I> getCompiledMethod(int index) {
+		return compiledMethods.get(index);
+	}
+
+	/**
+	 * Return compiled class generated for this entity on top of supplied implementing class, generating it when required<br>
+	 * Return null when no compiled class could be generated
+	 * 
+	 * @param implementingClass
+	 * @return
+	 */
+	public synchronized Class<?> getCompiledClass(Class<?> implementingClass) {
+		if (!compiledClasses.containsKey(implementingClass)) {
+			compiledClasses.put(implementingClass, CompiledEntityGenerator.generateCompiledClass(this, implementingClass));
+		}
+		return compiledClasses.get(implementingClass);
+	}
+
+	/**
+	 * Return delegate implementations resolution for this entity, computing it on first access
+	 * 
+	 * @return
+	 */
+	public synchronized DelegateImplementationTable<I> getDelegateImplementationTable() {
+		if (delegateImplementationTable == null) {
+			delegateImplementationTable = new DelegateImplementationTable<>(modelEntity);
+		}
+		return delegateImplementationTable;
+	}
+
+	/**
+	 * Return pre-resolved dispatching information for supplied method, computing it on first access
+	 *
+	 * @param method
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	public DispatchedMethod<I> getDispatchedMethod(Method method) throws ModelDefinitionException {
+		DispatchedMethod<I> returned = dispatchedMethods.get(method);
+		if (returned == null) {
+			returned = resolve(method);
+			DispatchedMethod<I> existing = dispatchedMethods.putIfAbsent(method, returned);
+			if (existing != null) {
+				return existing;
+			}
+		}
+		return returned;
+	}
+
+	private DispatchedMethod<I> resolve(Method method) throws ModelDefinitionException {
+		ModelProperty<? super I> implementedProperty = modelEntity.getPropertyForMethod(method);
+		Operation operation = resolveOperation(method, implementedProperty);
+		ModelProperty<? super I> property = null;
+		Finder finder = null;
+		switch (operation) {
+			case GETTER:
+			case SETTER:
+			case UPDATER:
+			case ADDER:
+			case REMOVER:
+			case REINDEXER:
+				property = resolvePropertyFromAnnotation(method);
+				if (property == null) {
+					property = implementedProperty;
+				}
+				break;
+			case FINDER:
+				finder = method.getAnnotation(Finder.class);
+				property = modelEntity.getModelProperty(finder.collection());
+				break;
+			default:
+				break;
+		}
+		int propertyIndex = property != null ? modelEntity.getPropertyIndex(property.getPropertyIdentifier()) : -1;
+		return new DispatchedMethod<>(method, operation, property, propertyIndex, finder, implementedProperty,
+				getDelegateImplementationTable().getDelegateIndex(method));
+	}
+
+	private ModelProperty<? super I> resolvePropertyFromAnnotation(Method method) throws ModelDefinitionException {
+		String propertyIdentifier = null;
+		if (method.getAnnotation(Getter.class) != null) {
+			propertyIdentifier = method.getAnnotation(Getter.class).value();
+		}
+		else if (method.getAnnotation(Setter.class) != null) {
+			propertyIdentifier = method.getAnnotation(Setter.class).value();
+		}
+		else if (method.getAnnotation(Updater.class) != null) {
+			propertyIdentifier = method.getAnnotation(Updater.class).value();
+		}
+		else if (method.getAnnotation(Adder.class) != null) {
+			propertyIdentifier = method.getAnnotation(Adder.class).value();
+		}
+		else if (method.getAnnotation(Remover.class) != null) {
+			propertyIdentifier = method.getAnnotation(Remover.class).value();
+		}
+		else if (method.getAnnotation(Reindexer.class) != null) {
+			propertyIdentifier = method.getAnnotation(Reindexer.class).value();
+		}
+		return propertyIdentifier != null ? modelEntity.getModelProperty(propertyIdentifier) : null;
+	}
+
+	/**
+	 * Resolve operation to perform for supplied method, respecting the precedence used by {@link ProxyMethodHandler}: PAMELA annotations
+	 * first, then {@link IProxyMethodHandler} methods, and finally property methods
+	 */
+	private static Operation resolveOperation(Method method, ModelProperty<?> implementedProperty) {
+
+		if (method.getAnnotation(Initializer.class) != null) {
+			return Operation.INITIALIZER;
+		}
+		if (method.getAnnotation(Getter.class) != null) {
+			return Operation.GETTER;
+		}
+		if (method.getAnnotation(Setter.class) != null) {
+			return Operation.SETTER;
+		}
+		if (method.getAnnotation(Updater.class) != null) {
+			return Operation.UPDATER;
+		}
+		if (method.getAnnotation(Adder.class) != null) {
+			return Operation.ADDER;
+		}
+		if (method.getAnnotation(Remover.class) != null) {
+			return Operation.REMOVER;
+		}
+		if (method.getAnnotation(Reindexer.class) != null) {
+			return Operation.REINDEXER;
+		}
+		if (method.getAnnotation(Finder.class) != null) {
+			return Operation.FINDER;
+		}
+
+		Operation operation = resolveProxyMethodHandlerOperation(method);
+		if (operation != null) {
+			return operation;
+		}
+
+		ModelProperty<?> property = implementedProperty;
+		if (property != null) {
+			if (PamelaUtils.methodIsEquivalentTo(method, property.getGetterMethod())) {
+				return Operation.GETTER;
+			}
+			else if (PamelaUtils.methodIsEquivalentTo(method, property.getSetterMethod())) {
+				return Operation.SETTER;
+			}
+			else if (PamelaUtils.methodIsEquivalentTo(method, property.getUpdaterMethod())) {
+				return Operation.UPDATER;
+			}
+			else if (PamelaUtils.methodIsEquivalentTo(method, property.getAdderMethod())) {
+				return Operation.ADDER;
+			}
+			else if (PamelaUtils.methodIsEquivalentTo(method, property.getRemoverMethod())) {
+				return Operation.REMOVER;
+			}
+		}
+		return Operation.UNHANDLED;
+	}
+
+	/**
+	 * Match supplied method against methods declared in {@link IProxyMethodHandler}
+	 *
+	 * @param method
+	 * @return matching operation, or null if method is not one of {@link IProxyMethodHandler} methods
+	 */
+	private static Operation resolveProxyMethodHandlerOperation(Method method) {
+		if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_PROPERTY_CHANGE_SUPPORT)) {
+			return Operation.GET_PROPERTY_CHANGE_SUPPORT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_GETTER)) {
+			return Operation.PERFORM_SUPER_GETTER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_SETTER)) {
+			return Operation.PERFORM_SUPER_SETTER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_ADDER)) {
+			return Operation.PERFORM_SUPER_ADDER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_ADDER_AT_INDEX)) {
+			return Operation.PERFORM_SUPER_ADDER_AT_INDEX;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_REMOVER)) {
+			return Operation.PERFORM_SUPER_REMOVER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_FINDER)) {
+			return Operation.PERFORM_SUPER_FINDER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_GETTER_ENTITY)) {
+			return Operation.PERFORM_SUPER_GETTER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_SETTER_ENTITY)) {
+			return Operation.PERFORM_SUPER_SETTER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_ADDER_ENTITY)) {
+			return Operation.PERFORM_SUPER_ADDER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_REMOVER_ENTITY)) {
+			return Operation.PERFORM_SUPER_REMOVER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_DELETER_ENTITY)) {
+			return Operation.PERFORM_SUPER_DELETER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_FINDER_ENTITY)) {
+			return Operation.PERFORM_SUPER_FINDER_ENTITY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_INITIALIZER)) {
+			return Operation.PERFORM_SUPER_INITIALIZER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_SERIALIZING)) {
+			return Operation.IS_SERIALIZING;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_DESERIALIZING)) {
+			return Operation.IS_DESERIALIZING;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_MODIFIED)) {
+			return Operation.IS_MODIFIED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.SET_MODIFIED)
+				|| PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_SET_MODIFIED)) {
+			return Operation.SET_MODIFIED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.TO_STRING)) {
+			return Operation.TO_STRING;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.DESTROY)) {
+			return Operation.DESTROY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.CLONE_OBJECT)) {
+			return Operation.CLONE_OBJECT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.EQUALS_OBJECT)) {
+			return Operation.EQUALS_OBJECT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.EQUALS_OBJECT_USING_FILTER)) {
+			return Operation.EQUALS_OBJECT_USING_FILTER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.UPDATE_WITH_OBJECT)) {
+			return Operation.UPDATE_WITH_OBJECT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_EMBEDDED)
+				|| PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_EMBEDDED_VALIDABLE)) {
+			return Operation.GET_EMBEDDED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_REFERENCED)) {
+			return Operation.GET_REFERENCED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.ACCEPT_VISITOR)) {
+			return Operation.ACCEPT_VISITOR;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.ACCEPT_WITH_STRATEGY_VISITOR)) {
+			return Operation.ACCEPT_WITH_STRATEGY_VISITOR;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_DELETED)) {
+			return Operation.IS_DELETED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_BEING_CLONED)) {
+			return Operation.IS_BEING_CLONED;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.IS_CREATED_BY_CLONING)) {
+			return Operation.IS_CREATED_BY_CLONING;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_DELETED_PROPERTY)) {
+			return Operation.GET_DELETED_PROPERTY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_DELETER)) {
+			return Operation.PERFORM_SUPER_DELETER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.DELETE_OBJECT)) {
+			return Operation.DELETE_OBJECT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.PERFORM_SUPER_UNDELETER)) {
+			return Operation.PERFORM_SUPER_UNDELETER;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.UNDELETE_OBJECT)) {
+			return Operation.UNDELETE_OBJECT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.CLONE_OBJECT_WITH_CONTEXT)) {
+			return Operation.CLONE_OBJECT_WITH_CONTEXT;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.HAS_KEY)) {
+			return Operation.HAS_KEY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.OBJECT_FOR_KEY)) {
+			return Operation.OBJECT_FOR_KEY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.SET_OBJECT_FOR_KEY)) {
+			return Operation.SET_OBJECT_FOR_KEY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.GET_TYPE_FOR_KEY)) {
+			return Operation.GET_TYPE_FOR_KEY;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.ENABLE_ASSERTION_CHECKING)) {
+			return Operation.ENABLE_ASSERTION_CHECKING;
+		}
+		else if (PamelaUtils.methodIsEquivalentTo(method, IProxyMethodHandler.DISABLE_ASSERTION_CHECKING)) {
+			return Operation.DISABLE_ASSERTION_CHECKING;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,298 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+package org.openflexo.pamela.factory;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeListenerProxy;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A scope during which the property change notifications raised by PAMELA objects of an {@link EditingContext} are queued instead of being
+ * delivered, and coalesced per object and property<br>
+ * 
+ * A batch is opened with {@link EditingContextImpl#beginNotificationBatch()} and is bound to the thread which opened it: only the changes
+ * performed by this thread are queued. When the batch is closed, a single net change is delivered for each changed property, in the order
+ * of the first change of each property:
+ * <ul>
+ * <li>for a SINGLE property (and for the modified status), the event carries the value before the first change and the value after the
+ * last change, and is not delivered at all when both are equal,</li>
+ * <li>for a LIST property, a single change is delivered as is, while many changes are summarized by an event with null old and new
+ * values, meaning that the list should be read again.</li>
+ * </ul>
+ * Batches opened on the same context while a batch is in progress are joined to the outermost batch, which delivers all the changes.
+ * Delivery may be performed by an {@link Executor} (for example the UI thread), so that the mutating thread does not run the listeners.<br>
+ * Deletion notifications are not batched, as listeners are released when an object is deleted. Listeners maintaining PAMELA invariants
+ * (indexes of finders, forwarding of the modified status) are not batched either, and are notified of each change immediately.
+ */
+public class NotificationBatch implements AutoCloseable {
+
+	private static final Logger logger = Logger.getLogger(NotificationBatch.class.getPackage().getName());
+
+	private static final ThreadLocal<NotificationBatch> NOTIFICATION_BATCH_IN_PROGRESS = new ThreadLocal<>();
+
+	/**
+	 * Number of batches currently opened in all threads, used to avoid thread local lookups when no batch is in progress
+	 */
+	private static final AtomicInteger openedBatches = new AtomicInteger();
+
+	private final EditingContext editingContext;
+	private final Executor deliveryExecutor;
+	private final NotificationBatch enclosingBatch;
+	private final NotificationBatch outermostBatch;
+	private boolean closed = false;
+
+	private final Map<PropertyChangeSupport, Map<String, PendingChange>> pendingChangesBySupport = new IdentityHashMap<>();
+	private final List<PendingChange> pendingChanges = new ArrayList<>();
+
+	NotificationBatch(EditingContext editingContext, Executor deliveryExecutor) {
+		this.editingContext = editingContext;
+		this.deliveryExecutor = deliveryExecutor;
+		enclosingBatch = NOTIFICATION_BATCH_IN_PROGRESS.get();
+		NotificationBatch joinedBatch = lookupBatch(enclosingBatch, editingContext);
+		outermostBatch = joinedBatch != null ? joinedBatch : this;
+		NOTIFICATION_BATCH_IN_PROGRESS.set(this);
+		openedBatches.incrementAndGet();
+	}
+
+	/**
+	 * Return the outermost batch in progress in this thread for supplied {@link EditingContext}, if any
+	 * 
+	 * @param editingContext
+	 * @return
+	 */
+	public static NotificationBatch getNotificationBatchInProgress(EditingContext editingContext) {
+		if (editingContext == null || openedBatches.get() == 0) {
+			return null;
+		}
+		return lookupBatch(NOTIFICATION_BATCH_IN_PROGRESS.get(), editingContext);
+	}
+
+	private static NotificationBatch lookupBatch(NotificationBatch batch, EditingContext editingContext) {
+		while (batch != null && batch.editingContext != editingContext) {
+			batch = batch.enclosingBatch;
+		}
+		return batch != null ? batch.outermostBatch : null;
+	}
+
+	/**
+	 * Notify a property change of an object managed by supplied {@link EditingContext}: the change is queued when a batch is in progress
+	 * for this context in current thread, and delivered immediately otherwise
+	 * 
+	 * @param editingContext
+	 *            context managing the changed object
+	 * @param source
+	 *            changed object
+	 * @param propertyChangeSupport
+	 *            support of the changed object
+	 * @param propertyName
+	 * @param oldValue
+	 * @param newValue
+	 * @param multiple
+	 *            true when the change is an addition, a removal or a reindexing in a LIST property
+	 */
+	public static void firePropertyChange(EditingContext editingContext, Object source, PropertyChangeSupport propertyChangeSupport,
+			String propertyName, Object oldValue, Object newValue, boolean multiple) {
+		NotificationBatch batch = getNotificationBatchInProgress(editingContext);
+		if (batch != null) {
+			if (oldValue == null || newValue == null || !oldValue.equals(newValue)) {
+				fire(new PropertyChangeEvent(source, propertyName, oldValue, newValue), propertyChangeSupport, true);
+			}
+			batch.queue(source, propertyChangeSupport, propertyName, oldValue, newValue, multiple);
+		}
+		else {
+			propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
+		}
+	}
+
+	public EditingContext getEditingContext() {
+		return editingContext;
+	}
+
+	/**
+	 * Return boolean indicating if this batch was joined to an enclosing batch, which will deliver the changes
+	 * 
+	 * @return
+	 */
+	public boolean isNested() {
+		return outermostBatch != this;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Return the number of properties whose change is still to be delivered
+	 * 
+	 * @return
+	 */
+	public int getPendingChangesCount() {
+		return outermostBatch.pendingChanges.size();
+	}
+
+	private void queue(Object source, PropertyChangeSupport propertyChangeSupport, String propertyName, Object oldValue, Object newValue,
+			boolean multiple) {
+		Map<String, PendingChange> changes = pendingChangesBySupport.computeIfAbsent(propertyChangeSupport, pcs -> new HashMap<>());
+		PendingChange change = changes.get(propertyName);
+		if (change == null) {
+			change = new PendingChange(source, propertyChangeSupport, propertyName, oldValue, multiple);
+			changes.put(propertyName, change);
+			pendingChanges.add(change);
+		}
+		change.newValue = newValue;
+		change.multiple |= multiple;
+		change.count++;
+	}
+
+	/**
+	 * Close this batch: when this batch is the outermost one, the queued changes are delivered, either in current thread or through the
+	 * delivery executor<br>
+	 * Batches must be closed in the reverse order of their opening.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		if (NOTIFICATION_BATCH_IN_PROGRESS.get() != this) {
+			logger.warning("Closing notification batch " + this + " which is not the innermost batch of current thread");
+		}
+		closed = true;
+		openedBatches.decrementAndGet();
+		if (enclosingBatch != null) {
+			NOTIFICATION_BATCH_IN_PROGRESS.set(enclosingBatch);
+		}
+		else {
+			NOTIFICATION_BATCH_IN_PROGRESS.remove();
+		}
+		if (isNested() || pendingChanges.isEmpty()) {
+			return;
+		}
+		List<PendingChange> changes = new ArrayList<>(pendingChanges);
+		pendingChanges.clear();
+		pendingChangesBySupport.clear();
+		if (deliveryExecutor != null) {
+			deliveryExecutor.execute(() -> deliver(changes));
+		}
+		else {
+			deliver(changes);
+		}
+	}
+
+	private static void deliver(List<PendingChange> changes) {
+		for (PendingChange change : changes) {
+			if (change.count > 1 && change.multiple) {
+				change.fire(null, null);
+			}
+			else if (change.count == 1 || !Objects.equals(change.oldValue, change.newValue)) {
+				change.fire(change.oldValue, change.newValue);
+			}
+		}
+	}
+
+	/**
+	 * Deliver supplied event either to the internal listeners of supplied support, or to the other ones
+	 */
+	private static void fire(PropertyChangeEvent event, PropertyChangeSupport propertyChangeSupport, boolean internalListeners) {
+		for (PropertyChangeListener listener : propertyChangeSupport.getPropertyChangeListeners()) {
+			if (listener instanceof PropertyChangeListenerProxy) {
+				if (!event.getPropertyName().equals(((PropertyChangeListenerProxy) listener).getPropertyName())) {
+					continue;
+				}
+				listener = ((PropertyChangeListenerProxy) listener).getListener();
+			}
+			if (isInternalListener(listener) == internalListeners) {
+				listener.propertyChange(event);
+			}
+		}
+	}
+
+	/**
+	 * Return boolean indicating if supplied listener maintains PAMELA invariants, and should be notified immediately
+	 */
+	private static boolean isInternalListener(PropertyChangeListener listener) {
+		return listener instanceof FinderIndex || listener instanceof ProxyMethodHandler;
+	}
+
+	@Override
+	public String toString() {
+		return "NotificationBatch[" + getPendingChangesCount() + " pending changes" + (isNested() ? ", nested" : "") + "]";
+	}
+
+	/**
+	 * Net change of a property of an object, accumulated during a batch
+	 */
+	private static class PendingChange {
+		private final Object source;
+		private final PropertyChangeSupport propertyChangeSupport;
+		private final String propertyName;
+		private final Object oldValue;
+		private Object newValue;
+		private boolean multiple;
+		private int count = 0;
+
+		private PendingChange(Object source, PropertyChangeSupport propertyChangeSupport, String propertyName, Object oldValue,
+				boolean multiple) {
+			this.source = source;
+			this.propertyChangeSupport = propertyChangeSupport;
+			this.propertyName = propertyName;
+			this.oldValue = oldValue;
+			this.multiple = multiple;
+		}
+
+		private void fire(Object oldValue, Object newValue) {
+			try {
+				// Internal listeners were already notified when the change was queued
+				NotificationBatch.fire(new PropertyChangeEvent(source, propertyName, oldValue, newValue), propertyChangeSupport, false);
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Exception raised while delivering change of " + propertyName, e);
+			}
+		}
+	}
+}
@@ -39,7 +39,10 @@
 
 package org.openflexo.pamela.factory;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -47,19 +50,25 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openflexo.IObjectGraphFactory;
-import org.openflexo.pamela.DeletableProxyObject;
+import org.openflexo.pamela.CloneableProxyObject;
 import org.openflexo.pamela.PamelaMetaModel;
 import org.openflexo.pamela.PamelaMetaModelLibrary;
 import org.openflexo.pamela.annotations.PastingPoint;
+import org.openflexo.pamela.binary.BinaryDeserializer;
+import org.openflexo.pamela.binary.BinaryFormat;
+import org.openflexo.pamela.binary.BinarySerializer;
 import org.openflexo.pamela.exceptions.MissingImplementationException;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
 import org.openflexo.pamela.exceptions.ModelExecutionException;
@@ -67,9 +76,14 @@ import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelInitializer;
 import org.openflexo.pamela.model.ModelProperty;
 import org.openflexo.pamela.model.StringConverterLibrary.Converter;
+import org.openflexo.pamela.undo.CompoundEdit;
 import org.openflexo.pamela.undo.CreateCommand;
+import org.openflexo.pamela.undo.UndoManager;
+import org.openflexo.pamela.xml.LazyXMLDocument;
 import org.openflexo.pamela.xml.XMLSaxDeserializer;
+import org.openflexo.pamela.xml.XMLSerializationCache;
 import org.openflexo.pamela.xml.XMLSerializer;
+import org.openflexo.pamela.xml.XMLStreamSerializer;
 
 import javassist.CannotCompileException;
 import javassist.ClassPool;
@@ -103,9 +117,18 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 
 	private EditingContext editingContext;
 
+	private boolean compiledEntities = false;
+
+	private boolean streamingSerialization = false;
+
+	private boolean copyOnWriteClipboard = false;
+
+	// Caches used by incremental serialization, stored by root object
+	private final Map<Object, XMLSerializationCache> serializationCaches = Collections.synchronizedMap(new IdentityHashMap<>());
+
 	// Stores on-the-fly generated classes to proxy the targeted implementation
-	// class, but in the right package
-	private static Map<Class, Map<Class, Class>> implementationProxyClasses = new HashMap<>();
+	// class, but in the right package (shared by all factories, and guarded by its own monitor)
+	private static final Map<Class, Map<Class, Class>> implementationProxyClasses = new HashMap<>();
 
 	public Map<Class, PAMELAProxyFactory> getProxyFactories() {
 		return proxyFactories;
@@ -129,6 +152,11 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 						return true;
 					}
 
+					if (CompiledEntityGenerator.isCompiledMethod(method)) {
+						// Implemented by a compiled accessor
+						return false;
+					}
+
 					if (aModelEntity.getJMLMethodDefinition(method) != null) {
 						return true;
 					}
@@ -308,6 +336,15 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 			}
 			else {
 
+				// When compiled entities are enabled, use (generate when required) a base class implementing
+				// simple accessors with compiled code
+				if (isCompiledEntities() && !CompiledEntityGenerator.isCompiledClass(getSuperclass())) {
+					Class<?> compiledClass = modelEntity.getMethodDispatchTable().getCompiledClass(getSuperclass());
+					if (compiledClass != null) {
+						setProxySuperClass(compiledClass);
+					}
+				}
+
 				// Java 11 security issue
 				// If the base implementation class is not in the same package than the
 				// implemented interface, it fails
@@ -378,6 +415,13 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 		 * @return
 		 */
 		private Class retrieveProxyImplementationClass(Class<?> implementedInterface, Class<?> superClass) {
+			// A class must be generated only once, even when factories are used concurrently
+			synchronized (implementationProxyClasses) {
+				return doRetrieveProxyImplementationClass(implementedInterface, superClass);
+			}
+		}
+
+		private Class doRetrieveProxyImplementationClass(Class<?> implementedInterface, Class<?> superClass) {
 
 			String packageName = implementedInterface.getPackageName();
 
@@ -420,7 +464,8 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 
 	public PamelaModelFactory(PamelaMetaModel pamelaMetaModel) {
 		this.pamelaMetaModel = pamelaMetaModel;
-		proxyFactories = new HashMap<>();
+		// Objects may be instantiated concurrently (see ConcurrentEditingContext)
+		proxyFactories = new ConcurrentHashMap<>();
 		stringEncoder = new StringEncoder(this);
 	}
 
@@ -486,10 +531,24 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 	}
 
 	public <I> I _newInstance(Class<I> implementedInterface, boolean useExtended, Object... args) {
+		return instantiate(implementedInterface, useExtended, true, args);
+	}
+
+	/**
+	 * Instantiate a new object, without registering its creation in the {@link UndoManager}
+	 * 
+	 * @param implementedInterface
+	 * @return
+	 */
+	<I> I newUntrackedInstance(Class<I> implementedInterface) {
+		return instantiate(implementedInterface, true, false, (Object[]) null);
+	}
+
+	private <I> I instantiate(Class<I> implementedInterface, boolean useExtended, boolean trackCreation, Object... args) {
 		try {
 			PAMELAProxyFactory<I> proxyFactory = getProxyFactory(implementedInterface, true, useExtended);
 			I returned = proxyFactory.newInstance(args);
-			if (getEditingContext() != null) {
+			if (trackCreation && getEditingContext() != null) {
 				if (getEditingContext().getUndoManager() != null) {
 					getEditingContext().getUndoManager().addEdit(new CreateCommand<>(returned, proxyFactory.getModelEntity(), this));
 				}
@@ -548,13 +607,38 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 			}
 			else {
 				if (create) {
-					proxyFactories.put(implementedInterface, proxyFactory = new PAMELAProxyFactory<>(entity, this.getModelContext()));
+					proxyFactory = new PAMELAProxyFactory<>(entity, this.getModelContext());
+					PAMELAProxyFactory<I> existingProxyFactory = proxyFactories.putIfAbsent(implementedInterface, proxyFactory);
+					if (existingProxyFactory != null) {
+						proxyFactory = existingProxyFactory;
+					}
 				}
 			}
 		}
 		return proxyFactory;
 	}
 
+	/**
+	 * Return boolean indicating if this factory instantiates compiled entities<br>
+	 * 
+	 * When set, getters and setters of single properties are implemented by generated code calling the {@link ProxyMethodHandler}
+	 * directly, instead of being dispatched through reflective javassist proxy mechanism (see {@link CompiledEntityGenerator})
+	 * 
+	 * @return
+	 */
+	public boolean isCompiledEntities() {
+		return compiledEntities;
+	}
+
+	/**
+	 * Sets compiled entities mode. This should be set before any instantiation, since already instantiated entities are not affected
+	 * 
+	 * @param compiledEntities
+	 */
+	public void setCompiledEntities(boolean compiledEntities) {
+		this.compiledEntities = compiledEntities;
+	}
+
 	public Class<?> getDefaultModelClass() {
 		return defaultModelClass;
 	}
@@ -660,11 +744,11 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 	}
 
 	public boolean isEmbedddedIn(Object parentObject, Object childObject, EmbeddingType embeddingType) {
-		return getEmbeddedObjects(parentObject, embeddingType).contains(childObject);
+		return new EmbeddingClosure(this, embeddingType).isEmbeddedIn(parentObject, childObject);
 	}
 
 	public boolean isEmbedddedIn(Object parentObject, Object childObject, EmbeddingType embeddingType, Object... context) {
-		return getEmbeddedObjects(parentObject, embeddingType, context).contains(childObject);
+		return new EmbeddingClosure(this, embeddingType, context).isEmbeddedIn(parentObject, childObject);
 	}
 
 	/**
@@ -691,159 +775,57 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 	 * @return
 	 */
 	public List<Object> getEmbeddedObjects(Object root, EmbeddingType embeddingType, Object... context) {
-		if (!isProxyObject(root)) {
-			return Collections.emptyList();
-		}
+		return new EmbeddingClosure(this, embeddingType, context).getEmbeddedObjects(root);
+	}
 
-		List<Object> derivedObjectsFromContext = new ArrayList<>();
+	/**
+	 * Return a copy-on-write clone of supplied object, which initially shares its values with supplied object (see
+	 * {@link CopyOnWriteCloning})<br>
+	 * Supplied context is used to determine the closure of objects graph being cloned, as for
+	 * {@link CloneableProxyObject#cloneObject(Object...)}
+	 * 
+	 * @param object
+	 * @param context
+	 * @return
+	 * @throws CloneNotSupportedException
+	 *             when supplied object is not implementing CloneableProxyObject interface
+	 */
+	public <I> I copyOnWriteClone(I object, Object... context) throws CloneNotSupportedException {
 		if (context != null && context.length > 0) {
-			for (Object o : context) {
-				derivedObjectsFromContext.add(o);
-				derivedObjectsFromContext.addAll(getEmbeddedObjects(o, embeddingType));
-			}
+			Object[] newContext = Arrays.copyOf(context, context.length + 1);
+			newContext[context.length] = object;
+			context = newContext;
 		}
-
-		List<Object> returned = new ArrayList<>();
-		try {
-			appendEmbeddedObjects(root, returned, embeddingType);
-		} catch (ModelDefinitionException e) {
-			throw new ModelExecutionException(e);
-		}
-		List<Object> discardedObjects = new ArrayList<>();
-		for (int i = 0; i < returned.size(); i++) {
-			Object o = returned.get(i);
-			if (o instanceof ConditionalPresence) {
-				boolean allOthersArePresent = true;
-				for (Object other : ((ConditionalPresence) o).requiredPresence) {
-					if (!returned.contains(other) && !derivedObjectsFromContext.contains(other)) {
-						allOthersArePresent = false;
-						break;
-					}
-				}
-				if (allOthersArePresent && !returned.contains(((ConditionalPresence) o).object)) {
-					// Closure is fine and object is not already present, add
-					// object
-					returned.set(i, ((ConditionalPresence) o).object);
-				}
-				else {
-					// Discard object
-					discardedObjects.add(o);
-				}
-			}
-		}
-		for (Object o : discardedObjects) {
-			returned.remove(o);
-		}
-		return returned;
+		EmbeddingClosure contextClosure = context != null && context.length > 0 ? new EmbeddingClosure(this, EmbeddingType.CLOSURE, context)
+				: null;
+		return (I) new CopyOnWriteCloning(this, contextClosure, object).getClones().get(0);
 	}
 
-	private class ConditionalPresence {
-		private final Object object;
-		private final List<Object> requiredPresence;
-
-		public ConditionalPresence(Object object, List<Object> requiredPresence) {
-			super();
-			this.object = object;
-			this.requiredPresence = requiredPresence;
-		}
+	/**
+	 * Return copy-on-write clones of supplied objects, in the same order (see {@link CopyOnWriteCloning})<br>
+	 * Supplied objects are used as the context determining the closure of objects graph being cloned
+	 * 
+	 * @param objects
+	 * @return
+	 * @throws CloneNotSupportedException
+	 *             when one of supplied object is not implementing CloneableProxyObject interface
+	 */
+	public List<Object> copyOnWriteClones(Object... objects) throws CloneNotSupportedException {
+		EmbeddingClosure contextClosure = objects.length > 0 ? new EmbeddingClosure(this, EmbeddingType.CLOSURE, objects) : null;
+		return new CopyOnWriteCloning(this, contextClosure, objects).getClones();
 	}
 
-	private void appendEmbedded(ModelProperty p, Object father, List<Object> list, Object child, EmbeddingType embeddingType)
-			throws ModelDefinitionException {
-		if (!isProxyObject(child)) {
-			return;
-		}
-
-		if (p.getEmbedded() == null && p.getComplexEmbedded() == null) {
-			// this property is not embedded
-			return;
-		}
-
-		boolean append = false;
-		switch (embeddingType) {
-			case CLOSURE:
-				append = p.getEmbedded() != null && p.getEmbedded().closureConditions().length == 0
-						|| p.getComplexEmbedded() != null && p.getComplexEmbedded().closureConditions().length == 0;
-				break;
-			case DELETION:
-				append = p.getEmbedded() != null && p.getEmbedded().deletionConditions().length == 0
-						|| p.getComplexEmbedded() != null && p.getComplexEmbedded().deletionConditions().length == 0;
-				break;
-		}
-
-		if (append) {
-			// There is no condition, just append it
-			if (!list.contains(child)) {
-				// System.out.println("Embedded in "+father+" because of "+p+" : "+child);
-				list.add(child);
-				appendEmbeddedObjects(child, list, embeddingType);
-			}
-		}
-		else {
-			List<Object> requiredPresence = new ArrayList<>();
-			if (p.getEmbedded() != null) {
-				switch (embeddingType) {
-					case CLOSURE:
-						for (String c : p.getEmbedded().closureConditions()) {
-							ModelEntity<?> closureConditionEntity = getModelEntityForInstance(child);
-							ModelProperty closureConditionProperty = closureConditionEntity.getModelProperty(c);
-							Object closureConditionRequiredObject = getHandler(child).invokeGetter(closureConditionProperty);
-							if (closureConditionRequiredObject != null) {
-								requiredPresence.add(closureConditionRequiredObject);
-							}
-						}
-						break;
-					case DELETION:
-						for (String c : p.getEmbedded().deletionConditions()) {
-							ModelEntity<?> deletionConditionEntity = getModelEntityForInstance(child);
-							ModelProperty deletionConditionProperty = deletionConditionEntity.getModelProperty(c);
-							Object deletionConditionRequiredObject = getHandler(child).invokeGetter(deletionConditionProperty);
-							if (deletionConditionRequiredObject != null) {
-								requiredPresence.add(deletionConditionRequiredObject);
-							}
-						}
-						break;
-				}
-				if (requiredPresence.size() > 0) {
-					ConditionalPresence conditionalPresence = new ConditionalPresence(child, requiredPresence);
-					list.add(conditionalPresence);
-				}
-				else {
-					if (!list.contains(child)) {
-						// System.out.println("Embedded in "+father+" because of "+p+" : "+child);
-						list.add(child);
-						appendEmbeddedObjects(child, list, embeddingType);
-					}
-				}
-			}
-			// System.out.println("Embedded in "+father+" : "+child+" conditioned to required presence of "+requiredPresence);
-		}
+	/**
+	 * Return a flag indicating if {@link Clipboard} contents are copy-on-write clones of copied objects (see {@link CopyOnWriteCloning})
+	 * 
+	 * @return
+	 */
+	public boolean isCopyOnWriteClipboard() {
+		return copyOnWriteClipboard;
 	}
 
-	private void appendEmbeddedObjects(Object father, List<Object> list, EmbeddingType embeddingType) throws ModelDefinitionException {
-		ProxyMethodHandler handler = getHandler(father);
-		ModelEntity modelEntity = handler.getModelEntity();
-
-		Iterator<ModelProperty<?>> properties = modelEntity.getProperties();
-		while (properties.hasNext()) {
-			ModelProperty<?> p = properties.next();
-			switch (p.getCardinality()) {
-				case SINGLE:
-					Object oValue = handler.invokeGetter(p);
-					appendEmbedded(p, father, list, oValue, embeddingType);
-					break;
-				case LIST:
-					List<?> values = (List<?>) handler.invokeGetter(p);
-					if (values != null) {
-						for (Object o : values) {
-							appendEmbedded(p, father, list, o, embeddingType);
-						}
-					}
-					break;
-				default:
-					break;
-			}
-		}
+	public void setCopyOnWriteClipboard(boolean copyOnWriteClipboard) {
+		this.copyOnWriteClipboard = copyOnWriteClipboard;
 	}
 
 	public Clipboard copy(Object... objects) throws ModelExecutionException, ModelDefinitionException, CloneNotSupportedException {
@@ -852,12 +834,58 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 
 	public Clipboard cut(Object... objects) throws ModelExecutionException, ModelDefinitionException, CloneNotSupportedException {
 		Clipboard returned = new Clipboard(this, objects);
-		for (Object o : objects) {
-			if (o instanceof DeletableProxyObject) {
-				((DeletableProxyObject) o).delete(objects);
+		deleteAll(Arrays.asList(objects));
+		return returned;
+	}
+
+	/**
+	 * Freeze supplied object and the objects it embeds into a read-only snapshot (see {@link FrozenGraph}), until the returned graph is
+	 * released<br>
+	 * Getters of frozen objects are served without dispatching nor locking, so that the graph can be read by many threads at once (for
+	 * reporting or code generation), while all modifications are rejected. In a {@link ConcurrentEditingContext}, the graph is frozen while
+	 * holding a read lock, so that it observes a consistent state.
+	 * 
+	 * @param root
+	 * @param context
+	 *            other objects to take into account when computing embedded objects (see {@link EmbeddingClosure})
+	 * @return the frozen graph, to be released when modifications are needed again
+	 */
+	public <I> FrozenGraph<I> freeze(I root, Object... context) {
+		if (!isProxyObject(root)) {
+			throw new ModelExecutionException("Cannot freeze " + root + " which is not a PAMELA object");
+		}
+		if (getEditingContext() instanceof ConcurrentEditingContext) {
+			return ((ConcurrentEditingContext) getEditingContext()).executeRead(() -> new FrozenGraph<>(this, root, context));
+		}
+		return new FrozenGraph<>(this, root, context);
+	}
+
+	/**
+	 * Delete all supplied objects as a single operation (see {@link BulkDeletion})<br>
+	 * 
+	 * Embedded objects closure is computed once for all objects, and objects being deleted only notify their deletion. When an
+	 * {@link UndoManager} is declared and not already recording, all edits are recorded in a single {@link CompoundEdit}.
+	 * 
+	 * @param objects
+	 *            objects to delete, objects which are not deletable or already deleted are ignored
+	 * @param context
+	 *            other objects that will also be deleted, which should be taken into account when computing embedded objects
+	 * @return number of deleted objects, including embedded objects
+	 */
+	public int deleteAll(Collection<?> objects, Object... context) {
+		BulkDeletion bulkDeletion = new BulkDeletion(this, objects, context);
+		UndoManager undoManager = getEditingContext() != null ? getEditingContext().getUndoManager() : null;
+		CompoundEdit edit = null;
+		if (undoManager != null && !undoManager.isBeeingRecording() && !bulkDeletion.getObjects().isEmpty()) {
+			edit = undoManager.startRecording("Delete " + bulkDeletion.getObjects().size() + " objects");
+		}
+		try {
+			return bulkDeletion.perform();
+		} finally {
+			if (edit != null) {
+				undoManager.stopRecording(edit);
 			}
 		}
-		return returned;
 	}
 
 	/**
@@ -957,8 +985,94 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 
 	public void serialize(Object object, OutputStream os, SerializationPolicy policy, boolean resetModifiedStatus)
 			throws IOException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, ModelDefinitionException {
-		XMLSerializer serializer = new XMLSerializer(this, policy);
-		serializer.serializeDocument(object, os, resetModifiedStatus);
+		serialize(object, os, policy, resetModifiedStatus, SerializationFormat.XML);
+	}
+
+	/**
+	 * Serialize supplied object in supplied format<br>
+	 * Documents serialized in {@link SerializationFormat#BINARY} format are recognized by {@link #deserialize(InputStream)}
+	 * 
+	 * @param object
+	 * @param os
+	 * @param policy
+	 * @param resetModifiedStatus
+	 * @param format
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 * @throws ModelDefinitionException
+	 */
+	public void serialize(Object object, OutputStream os, SerializationPolicy policy, boolean resetModifiedStatus,
+			SerializationFormat format)
+			throws IOException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, ModelDefinitionException {
+		if (format == SerializationFormat.BINARY) {
+			BinarySerializer serializer = new BinarySerializer(this, policy);
+			serializer.serializeDocument(object, os, resetModifiedStatus);
+		}
+		else if (isStreamingSerialization()) {
+			XMLStreamSerializer serializer = new XMLStreamSerializer(this, policy);
+			serializer.serializeDocument(object, os, resetModifiedStatus);
+		}
+		else {
+			XMLSerializer serializer = new XMLSerializer(this, policy);
+			serializer.serializeDocument(object, os, resetModifiedStatus);
+		}
+	}
+
+	/**
+	 * Return boolean indicating if serialization is performed by {@link XMLStreamSerializer}, which writes XML as a stream without
+	 * building a JDOM document in memory (and then has a bounded memory footprint for large models)
+	 * 
+	 * @return
+	 */
+	public boolean isStreamingSerialization() {
+		return streamingSerialization;
+	}
+
+	public void setStreamingSerialization(boolean streamingSerialization) {
+		this.streamingSerialization = streamingSerialization;
+	}
+
+	/**
+	 * Serialize supplied object as XML, only writing again the subtrees containing objects modified since last incremental serialization
+	 * of the same root object<br>
+	 * Description of unchanged subtrees is copied from previous serialization (see {@link XMLSerializationCache}). Produced document is
+	 * the same as the one produced by {@link XMLStreamSerializer}.
+	 * 
+	 * @param root
+	 * @param os
+	 * @param policy
+	 * @param resetModifiedStatus
+	 * @throws IOException
+	 * @throws ModelDefinitionException
+	 */
+	public void serializeIncrementally(Object root, OutputStream os, SerializationPolicy policy, boolean resetModifiedStatus)
+			throws IOException, ModelDefinitionException {
+		XMLSerializationCache cache = serializationCaches.computeIfAbsent(root, XMLSerializationCache::new);
+		synchronized (cache) {
+			XMLStreamSerializer serializer = new XMLStreamSerializer(this, policy, cache);
+			serializer.serializeDocument(root, os, resetModifiedStatus);
+		}
+	}
+
+	/**
+	 * Return cache used by incremental serialization of supplied root object, null if root was never serialized incrementally
+	 * 
+	 * @param root
+	 * @return
+	 */
+	public XMLSerializationCache getSerializationCache(Object root) {
+		return serializationCaches.get(root);
+	}
+
+	/**
+	 * Release the cache used by incremental serialization of supplied root object
+	 * 
+	 * @param root
+	 */
+	public void discardSerializationCache(Object root) {
+		serializationCaches.remove(root);
 	}
 
 	@Override
@@ -966,11 +1080,68 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 		return deserialize(is, DeserializationPolicy.PERMISSIVE);
 	}
 
+	/**
+	 * Deserialize document read from supplied stream, either in XML or in binary format (format is detected from document header)
+	 * 
+	 * @param is
+	 * @param policy
+	 * @return
+	 * @throws Exception
+	 */
 	public Object deserialize(InputStream is, DeserializationPolicy policy) throws Exception {
+		if (!is.markSupported()) {
+			is = new BufferedInputStream(is);
+		}
+		if (BinaryFormat.isBinaryDocument(is)) {
+			BinaryDeserializer deserializer = new BinaryDeserializer(this, policy);
+			return deserializer.deserializeDocument(is);
+		}
 		XMLSaxDeserializer deserializer = new XMLSaxDeserializer(this, policy);
 		return deserializer.deserializeDocument(is);
 	}
 
+	/**
+	 * Deserialize document read from supplied stream, loading embedded objects on demand (see {@link LazyXMLDocument})<br>
+	 * Binary documents are always fully deserialized
+	 * 
+	 * @param is
+	 * @param policy
+	 * @return
+	 * @throws Exception
+	 */
+	public Object deserializeLazily(InputStream is, DeserializationPolicy policy) throws Exception {
+		if (!is.markSupported()) {
+			is = new BufferedInputStream(is);
+		}
+		if (BinaryFormat.isBinaryDocument(is)) {
+			BinaryDeserializer deserializer = new BinaryDeserializer(this, policy);
+			return deserializer.deserializeDocument(is);
+		}
+		LazyXMLDocument document = new LazyXMLDocument(this, policy);
+		return document.deserializeDocument(is);
+	}
+
+	/**
+	 * Deserialize document read from supplied file, loading embedded objects on demand (see {@link LazyXMLDocument}): embedded objects
+	 * are read again from the file when loaded, so that the file should not be modified until they are all loaded<br>
+	 * Binary documents are always fully deserialized
+	 * 
+	 * @param file
+	 * @param policy
+	 * @return
+	 * @throws Exception
+	 */
+	public Object deserializeLazily(File file, DeserializationPolicy policy) throws Exception {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+			if (BinaryFormat.isBinaryDocument(is)) {
+				BinaryDeserializer deserializer = new BinaryDeserializer(this, policy);
+				return deserializer.deserializeDocument(is);
+			}
+		}
+		LazyXMLDocument document = new LazyXMLDocument(this, policy);
+		return document.deserializeDocument(file);
+	}
+
 	@Override
 	public Object deserialize(String input) throws Exception {
 		return deserialize(input, DeserializationPolicy.PERMISSIVE);
@@ -1010,6 +1181,23 @@ public class PamelaModelFactory implements IObjectGraphFactory {
 	public <I> void objectHasBeenDeserialized(I newlyCreatedObject, Class<I> implementedInterface) {
 	}
 
+	/**
+	 * Called by handlers each time a serializable property of supplied object is modified (even if object was already marked as
+	 * modified)<br>
+	 * Modification is recorded in the caches used by incremental serialization
+	 * 
+	 * @param object
+	 */
+	public <I> void objectHasBeenModified(I object) {
+		if (!serializationCaches.isEmpty()) {
+			synchronized (serializationCaches) {
+				for (XMLSerializationCache cache : serializationCaches.values()) {
+					cache.objectHasBeenModified(object);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Return {@link EditingContext} associated with this factory.
 	 * 
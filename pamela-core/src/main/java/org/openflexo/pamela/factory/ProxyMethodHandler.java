@@ -45,9 +45,13 @@ package org.openflexo.pamela.factory;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -55,44 +59,36 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.Nonnull;
 
-import org.openflexo.connie.DataBinding;
-import org.openflexo.connie.binding.javareflect.InvalidKeyValuePropertyException;
-import org.openflexo.connie.exception.NullReferenceException;
-import org.openflexo.connie.exception.TypeMismatchException;
-import org.openflexo.connie.java.util.JavaBindingEvaluator;
 import org.openflexo.connie.type.TypeUtils;
 import org.openflexo.pamela.AccessibleProxyObject;
 import org.openflexo.pamela.CloneableProxyObject;
 import org.openflexo.pamela.DeletableProxyObject;
 import org.openflexo.pamela.PamelaMetaModel;
-import org.openflexo.pamela.annotations.Adder;
-import org.openflexo.pamela.annotations.CloningStrategy.StrategyType;
 import org.openflexo.pamela.annotations.ComplexEmbedded;
 import org.openflexo.pamela.annotations.Embedded;
 import org.openflexo.pamela.annotations.Finder;
 import org.openflexo.pamela.annotations.Getter;
 import org.openflexo.pamela.annotations.Getter.Cardinality;
-import org.openflexo.pamela.annotations.Initializer;
 import org.openflexo.pamela.annotations.PastingPoint;
-import org.openflexo.pamela.annotations.Reindexer;
-import org.openflexo.pamela.annotations.Remover;
-import org.openflexo.pamela.annotations.Setter;
-import org.openflexo.pamela.annotations.Updater;
 import org.openflexo.pamela.exceptions.InvalidDataException;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
 import org.openflexo.pamela.exceptions.ModelExecutionException;
 import org.openflexo.pamela.exceptions.NoSuchEntityException;
 import org.openflexo.pamela.exceptions.UnitializedEntityException;
+import org.openflexo.pamela.factory.MethodDispatchTable.AccessMode;
+import org.openflexo.pamela.factory.MethodDispatchTable.DispatchedMethod;
+import org.openflexo.pamela.factory.MethodDispatchTable.Operation;
 import org.openflexo.pamela.factory.PamelaModelFactory.PAMELAProxyFactory;
 import org.openflexo.pamela.jml.JMLEnsures;
 import org.openflexo.pamela.jml.JMLMethodDefinition;
@@ -104,6 +100,7 @@ import org.openflexo.pamela.model.PamelaVisitor;
 import org.openflexo.pamela.model.PamelaVisitor.VisitingStrategy;
 import org.openflexo.pamela.model.property.DefaultMultiplePropertyImplementation;
 import org.openflexo.pamela.model.property.DefaultSinglePropertyImplementation;
+import org.openflexo.pamela.model.property.InitializablePropertyImplementation;
 import org.openflexo.pamela.model.property.MultiplePropertyImplementation;
 import org.openflexo.pamela.model.property.PropertyImplementation;
 import org.openflexo.pamela.model.property.ReindexableListPropertyImplementation;
@@ -124,7 +121,6 @@ import org.openflexo.pamela.undo.SetCommand;
 import org.openflexo.pamela.undo.UndoManager;
 import org.openflexo.toolbox.HasPropertyChangeSupport;
 
-import com.google.common.base.Defaults;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 
@@ -143,6 +139,27 @@ import javassist.util.proxy.ProxyObject;
  */
 public class ProxyMethodHandler<I> extends IProxyMethodHandler implements MethodHandler, PropertyChangeListener {
 
+	private static final Logger logger = Logger.getLogger(ProxyMethodHandler.class.getPackage().getName());
+
+	/**
+	 * For each proxy class, whether its implementation class provides its own PropertyChangeSupport: when not, the support of the objects
+	 * is the one lazily created by their handler
+	 */
+	private static final ClassValue<Boolean> IMPLEMENTS_PROPERTY_CHANGE_SUPPORT = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> proxyClass) {
+			if (proxyClass.getSuperclass() == null) {
+				return false;
+			}
+			try {
+				Method method = proxyClass.getSuperclass().getMethod(GET_PROPERTY_CHANGE_SUPPORT.getName());
+				return !Modifier.isAbstract(method.getModifiers());
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
+
 	/**
 	 * Object this invocation handler manages
 	 */
@@ -152,7 +169,8 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	 * This map contains all scheduled set for a given property<br>
 	 * We need to retain values beeing set in case of bidirectional inverse properties patterns, to avoid infinite loop
 	 */
-	private final Map<ModelProperty<? super I>, Object> scheduledSets = new HashMap<>();
+	// Lazily instantiated, only required while some sets are being performed with inverse properties
+	private Map<ModelProperty<? super I>, Object> scheduledSets;
 
 	private boolean destroyed = false;
 	private boolean deleted = false;
@@ -167,52 +185,73 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	private PropertyChangeSupport propertyChangeSupport;
 	protected boolean initializing;
 
-	private Map<String, PropertyImplementation<? super I, ?>> propertyImplementations;
+	// Property implementations, stored at index given by ModelEntity.getPropertyIndex(), lazily instantiated on first access
+	// Slots are published with release semantics, so that implementations instantiated by a reader are safely seen by other readers
+	private volatile PropertyImplementation<? super I, ?>[] propertyImplementations;
+	private static final VarHandle PROPERTY_IMPLEMENTATION = MethodHandles.arrayElementVarHandle(PropertyImplementation[].class);
+
+	// Values of the properties of a frozen object, stored at index given by ModelEntity.getPropertyIndex(), null while not frozen
+	// Published last, so that a thread seeing this object frozen also sees all values it has read while freezing
+	private volatile Object[] frozenValues;
+	// Number of frozen graphs this object belongs to
+	private int freezeCount = 0;
+
+	// Delegate implementations, stored at index given by DelegateImplementationTable, lazily instantiated on first use
+	private DelegateImplementation<? super I>[] delegateImplementations;
 
-	private List<DelegateImplementation<? super I>> delegateImplementations;
+	// Indexes of finders declared with indexed=true, lazily instantiated on first invocation of such a finder
+	private Map<Finder, FinderIndex> finderIndexes;
+
+	// Content not deserialized yet, loaded on first access to related properties (null when object is fully loaded)
+	private volatile LazyContent lazyContent;
+	// True while some lazy content is being loaded in this object
+	private boolean loadingLazyContent = false;
+	// Copy-on-write clonings whose clones might still share values with this object (null when none)
+	private List<WeakReference<CopyOnWriteCloning>> copyOnWriteClonings;
 
 	private final PAMELAProxyFactory<I> pamelaProxyFactory;
+	private final PamelaMetaModel pamelaMetaModel;
 	private final EditingContext editingContext;
+	// Not null when the graph is accessed concurrently: accesses are then guarded by its locks
+	private final ConcurrentEditingContext concurrentEditingContext;
 
-	private Stack<Method> assertionCheckingStack = new Stack<>();
+	// Lazily instantiated, only required when assertion checking is enabled
+	private Stack<Method> assertionCheckingStack;
 	private Map<Method, Map<String, Object>> historyValues;
 
 	public ProxyMethodHandler(PAMELAProxyFactory<I> pamelaProxyFactory, EditingContext editingContext) throws ModelDefinitionException {
 		this.pamelaProxyFactory = pamelaProxyFactory;
+		this.pamelaMetaModel = pamelaProxyFactory.getModelFactory().getModelContext();
 		this.editingContext = editingContext;
+		concurrentEditingContext = editingContext instanceof ConcurrentEditingContext ? (ConcurrentEditingContext) editingContext : null;
 		// values = new HashMap<>(getModelEntity().getPropertiesSize(), 1.0f);
-		historyValues = new HashMap<>();
-		propertyImplementations = new HashMap<>(getModelEntity().getPropertiesSize(), 1.0f);
 		initialized = !getModelEntity().hasInitializers();
-		initDelegateImplementations();
 	}
 
-	private void initDelegateImplementations() throws ModelDefinitionException {
-		// System.out.println("***** init delegate implementations");
-		delegateImplementations = new ArrayList<>();
-		initDelegateImplementations(getModelEntity());
-	}
-
-	private void initDelegateImplementations(ModelEntity<? super I> entity) throws ModelDefinitionException {
-		if (entity.getDelegateImplementations().size() > 0) {
-			// System.out.println("***** init delegate implementations for " + entity.getImplementedInterface());
-			for (Class<? super I> delegateImplementationClass : entity.getDelegateImplementations().keySet()) {
-				try {
-					DelegateImplementation<? super I> delegateImplementation = new DelegateImplementation(this, delegateImplementationClass,
-							entity.getDelegateImplementations().get(delegateImplementationClass));
-					delegateImplementations.add(delegateImplementation);
-				} catch (Exception e) {
-					e.printStackTrace();
-					throw new ModelDefinitionException(e.getMessage());
-				}
-			}
+	/**
+	 * Return delegate implementation stored at supplied index in {@link DelegateImplementationTable} of the entity, instantiating it on
+	 * first access
+	 * 
+	 * @param index
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	private DelegateImplementation<? super I> getDelegateImplementation(int index) throws ModelDefinitionException {
+		DelegateImplementationTable<I> table = getModelEntity().getMethodDispatchTable().getDelegateImplementationTable();
+		if (delegateImplementations == null) {
+			delegateImplementations = new DelegateImplementation[table.size()];
 		}
-		if (entity.getDirectSuperEntities() != null) {
-			for (ModelEntity<? super I> superEntity : entity.getDirectSuperEntities()) {
-				initDelegateImplementations(superEntity);
+		DelegateImplementation<? super I> returned = delegateImplementations[index];
+		if (returned == null) {
+			try {
+				returned = new DelegateImplementation(this, table.getDelegateImplementationClass(index), table.getLocalImplementations(index));
+			} catch (Exception e) {
+				e.printStackTrace();
+				throw new ModelDefinitionException(e.getMessage());
 			}
+			delegateImplementations[index] = returned;
 		}
-
+		return returned;
 	}
 
 	public I getObject() {
@@ -234,6 +273,47 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return editingContext;
 	}
 
+	/**
+	 * Return boolean indicating if the changes performed on this object are currently recorded by an {@link UndoManager}: when not, there
+	 * is no need to retrieve old values nor to build edits
+	 * 
+	 * @return
+	 */
+	public boolean isTrackingEdits() {
+		UndoManager undoManager = getUndoManager();
+		return undoManager != null && undoManager.isEnabled();
+	}
+
+	/**
+	 * Return the {@link PropertyChangeSupport} notifying the changes of this object, if any<br>
+	 * When this support is provided by this handler (which is the general case), it is returned without dispatching a call on the object,
+	 * and null is returned while nobody asked for it (so nobody listens to this object)
+	 * 
+	 * @return
+	 */
+	public PropertyChangeSupport getObjectPropertyChangeSupport() {
+		if (!(getObject() instanceof HasPropertyChangeSupport)) {
+			return null;
+		}
+		if (IMPLEMENTS_PROPERTY_CHANGE_SUPPORT.get(getObject().getClass())) {
+			return ((HasPropertyChangeSupport) getObject()).getPropertyChangeSupport();
+		}
+		// Support is not created here: when null, nobody asked for it
+		return propertyChangeSupport;
+	}
+
+	/**
+	 * Return boolean indicating if some listeners are registered for the changes of supplied property of this object: when not, no
+	 * notification needs to be built
+	 * 
+	 * @param propertyName
+	 * @return
+	 */
+	public boolean hasPropertyChangeListeners(String propertyName) {
+		PropertyChangeSupport pcs = getObjectPropertyChangeSupport();
+		return pcs != null && pcs.hasListeners(propertyName);
+	}
+
 	public PamelaModelFactory getModelFactory() {
 		return pamelaProxyFactory.getModelFactory();
 	}
@@ -262,6 +342,16 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return deleting;
 	}
 
+	/**
+	 * Return boolean indicating if this object will be deleted by the {@link BulkDeletion} in progress, if any
+	 * 
+	 * @return
+	 */
+	public boolean isScheduledForDeletion() {
+		BulkDeletion bulkDeletion = BulkDeletion.getBulkDeletionInProgress();
+		return bulkDeletion != null && bulkDeletion.isScheduledForDeletion(getObject());
+	}
+
 	public boolean isUndeleting() {
 		return undeleting;
 	}
@@ -274,8 +364,93 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return createdByCloning;
 	}
 
+	public boolean isBeingCloned() {
+		return beingCloned;
+	}
+
+	void setBeingCloned(boolean beingCloned) {
+		this.beingCloned = beingCloned;
+	}
+
+	/**
+	 * Return boolean indicating if this object is frozen (see {@link FrozenGraph}): its getters return values read when it was frozen,
+	 * and it cannot be modified
+	 * 
+	 * @return
+	 */
+	public boolean isFrozen() {
+		return frozenValues != null;
+	}
+
+	/**
+	 * Freeze this object: values of all properties are read once (loading lazy content and default values), and then served by getters
+	 * without dispatching nor locking, while modifications are rejected
+	 */
+	synchronized void freeze() {
+		if (freezeCount > 0) {
+			freezeCount++;
+			return;
+		}
+		Object[] values = new Object[getModelEntity().getPropertiesSize()];
+		try {
+			Iterator<ModelProperty<? super I>> properties = getModelEntity().getProperties();
+			while (properties.hasNext()) {
+				ModelProperty<? super I> property = properties.next();
+				if (property.getGetter() != null) {
+					Object value = internallyInvokeGetter(property);
+					if (value instanceof List) {
+						value = Collections.unmodifiableList((List<?>) value);
+					}
+					values[getModelEntity().getPropertyIndex(property.getPropertyIdentifier())] = value;
+				}
+			}
+		} catch (ModelDefinitionException e) {
+			throw new ModelExecutionException("Cannot freeze " + getModelEntity(), e);
+		}
+		freezeCount = 1;
+		frozenValues = values;
+	}
+
+	/**
+	 * Make this object modifiable again, unless it still belongs to another frozen graph
+	 */
+	synchronized void unfreeze() {
+		if (freezeCount > 0 && --freezeCount == 0) {
+			frozenValues = null;
+		}
+	}
+
 	@Override
 	public Object invoke(Object self, Method method, Method proceed, Object[] args) throws Throwable {
+		DispatchedMethod<I> dispatchedMethod = getModelEntity().getMethodDispatchTable().getDispatchedMethod(method);
+		Object[] frozen = frozenValues;
+		if (frozen != null) {
+			if (proceed == null && dispatchedMethod.getOperation() == Operation.GETTER && dispatchedMethod.getDelegateIndex() == -1) {
+				Object returned = frozen[dispatchedMethod.getPropertyIndex()];
+				return returned != null ? returned : dispatchedMethod.getDefaultReturnValue();
+			}
+			if (dispatchedMethod.getAccessMode() != AccessMode.WRITE) {
+				// A frozen object is not modified anymore: reading it requires no locking
+				return invoke(self, method, proceed, args, dispatchedMethod);
+			}
+			if (dispatchedMethod.isConcreteSetter() || dispatchedMethod.isConcreteAdder() || dispatchedMethod.isConcreteRemover()) {
+				// Rejected before the concrete implementation runs (other modifications are rejected by beforeWrite())
+				beforeWrite(dispatchedMethod.getImplementedProperty());
+			}
+		}
+		if (concurrentEditingContext != null) {
+			AccessMode acquired = concurrentEditingContext.acquire(dispatchedMethod.getAccessMode());
+			try {
+				return invoke(self, method, proceed, args, dispatchedMethod);
+			} finally {
+				concurrentEditingContext.release(acquired);
+			}
+		}
+		return invoke(self, method, proceed, args, dispatchedMethod);
+	}
+
+	private Object invoke(Object self, Method method, Method proceed, Object[] args, DispatchedMethod<I> dispatchedMethod)
+			throws Throwable {
 		boolean assertionChecking = false;
 		boolean keepGoing = true;
 		Object invoke = null;
@@ -284,17 +459,22 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			assertionChecking = checkOnEntry(method, args);
 		}
 
-		for (ExecutionMonitor monitor : getModelFactory().getModelContext().getExecutionMonitors()) {
+		// Snapshot of relevant monitors, so that entering/leaving notifications remain paired
+		ExecutionMonitor[] monitors = getModelContext().getExecutionMonitors(getModelEntity(), method);
+		for (ExecutionMonitor monitor : monitors) {
 			monitor.enteringMethod(self, method, args);
 		}
 
+		// Null when no pattern is involved for this object: all pattern machinery is then skipped
 		Set<PatternInstance<?>> patternInstances = getModelFactory().getModelContext().getPatternInstances(self);
 		if (patternInstances != null) {
 			for (PatternInstance<?> patternInstance : patternInstances) {
-				// TODO: Perf issue : implement a cache here
+				// Resolved once per method by PatternDefinition
 				List<Requires> preconditions = patternInstance.getPatternDefinition().getPreconditions(method);
 				if (preconditions != null) {
-					System.out.println("Invoking preconditions for " + method + " in pattern instance : " + patternInstance);
+					if (logger.isLoggable(Level.FINE)) {
+						logger.fine("Invoking preconditions for " + method + " in pattern instance : " + patternInstance);
+					}
 					for (Requires precondition : preconditions) {
 						try {
 							patternInstance.invokePrecondition(precondition, method);
@@ -320,7 +500,7 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 					}
 				} catch (InvocationTargetException e) {
 					e.getTargetException().printStackTrace();
-					for (ExecutionMonitor monitor : getModelFactory().getModelContext().getExecutionMonitors()) {
+					for (ExecutionMonitor monitor : monitors) {
 						monitor.throwingException(self, method, args, e);
 					}
 					throw e.getTargetException();
@@ -338,10 +518,10 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		}*/
 
 		if (keepGoing) {
-			invoke = _invoke(self, method, proceed, args);
-			if (method.getReturnType().isPrimitive() && invoke == null) {
-				// Avoids an NPE
-				invoke = Defaults.defaultValue(method.getReturnType());
+			invoke = _invoke(self, method, proceed, args, dispatchedMethod);
+			if (invoke == null) {
+				// Avoids an NPE when return type is primitive
+				invoke = dispatchedMethod.getDefaultReturnValue();
 			}
 		}
 
@@ -351,15 +531,17 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 					patternInstance.processMethodAfterInvoke(self, method, invoke, args);
 				} catch (InvocationTargetException e) {
 					e.getTargetException().printStackTrace();
-					for (ExecutionMonitor monitor : getModelFactory().getModelContext().getExecutionMonitors()) {
+					for (ExecutionMonitor monitor : monitors) {
 						monitor.throwingException(self, method, args, e);
 					}
 					throw e.getTargetException();
 				}
-				// TODO: Perf issue : implement a cache here
+				// Resolved once per method by PatternDefinition
 				List<Ensures> postconditions = patternInstance.getPatternDefinition().getPostconditions(method);
 				if (postconditions != null) {
-					System.out.println("Invoking postconditions for " + method + " in pattern instance : " + patternInstance);
+					if (logger.isLoggable(Level.FINE)) {
+						logger.fine("Invoking postconditions for " + method + " in pattern instance : " + patternInstance);
+					}
 					for (Ensures postcondition : postconditions) {
 						try {
 							patternInstance.invokePostcondition(postcondition, method);
@@ -380,7 +562,7 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			}
 		}
 
-		for (ExecutionMonitor monitor : getModelFactory().getModelContext().getExecutionMonitors()) {
+		for (ExecutionMonitor monitor : monitors) {
 			monitor.leavingMethod(self, method, args, invoke);
 		}
 
@@ -395,31 +577,107 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return invoke;
 	}
 
-	private Object _invoke(Object self, Method method, Method proceed, Object[] args) throws Throwable {
+	/**
+	 * Entry point for getters implemented by compiled entities (see {@link CompiledEntityGenerator})<br>
+	 * Fallback on generic dispatching when a feature requiring it is enabled for this object
+	 * 
+	 * @param methodIndex
+	 *            index of compiled method in {@link MethodDispatchTable}
+	 * @return
+	 * @throws Throwable
+	 */
+	public Object invokeCompiledGetter(int methodIndex) throws Throwable {
+		DispatchedMethod<I> dispatchedMethod = getModelEntity().getMethodDispatchTable().getCompiledMethod(methodIndex);
+		Object[] frozen = frozenValues;
+		if (frozen != null) {
+			Object returned = frozen[dispatchedMethod.getPropertyIndex()];
+			return returned != null ? returned : dispatchedMethod.getDefaultReturnValue();
+		}
+		if (!canUseCompiledAccessors()) {
+			return invoke(getObject(), dispatchedMethod.getMethod(), null, new Object[0]);
+		}
+		if (!initialized && !initializing) {
+			throw new UnitializedEntityException(getModelEntity());
+		}
+		AccessMode acquired = concurrentEditingContext != null ? concurrentEditingContext.acquire(AccessMode.READ) : AccessMode.NONE;
+		try {
+			Object returned = internallyInvokeGetter(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex());
+			return returned != null ? returned : dispatchedMethod.getDefaultReturnValue();
+		} finally {
+			if (acquired != AccessMode.NONE) {
+				concurrentEditingContext.release(acquired);
+			}
+		}
+	}
+
+	/**
+	 * Entry point for setters implemented by compiled entities (see {@link CompiledEntityGenerator})<br>
+	 * Fallback on generic dispatching when a feature requiring it is enabled for this object
+	 * 
+	 * @param methodIndex
+	 *            index of compiled method in {@link MethodDispatchTable}
+	 * @param value
+	 * @throws Throwable
+	 */
+	public void invokeCompiledSetter(int methodIndex, Object value) throws Throwable {
+		DispatchedMethod<I> dispatchedMethod = getModelEntity().getMethodDispatchTable().getCompiledMethod(methodIndex);
+		if (!canUseCompiledAccessors()) {
+			invoke(getObject(), dispatchedMethod.getMethod(), null, new Object[] { value });
+			return;
+		}
+		if (!initialized && !initializing) {
+			throw new UnitializedEntityException(getModelEntity());
+		}
+		AccessMode acquired = concurrentEditingContext != null ? concurrentEditingContext.acquire(AccessMode.WRITE) : AccessMode.NONE;
+		try {
+			internallyInvokeSetter(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), value, true);
+		} finally {
+			if (acquired != AccessMode.NONE) {
+				concurrentEditingContext.release(acquired);
+			}
+		}
+	}
+
+	/**
+	 * Return boolean indicating if compiled accessors may bypass generic dispatching: this is the case when there is no assertion
+	 * checking, no execution monitor and no pattern instance for this object<br>
+	 * Entities with delegate implementations are never compiled (see {@link CompiledEntityGenerator}), and only flags are checked here
+	 */
+	private boolean canUseCompiledAccessors() {
+		return !enableAssertionChecking && !patternStakeHolder && !pamelaMetaModel.hasExecutionMonitors();
+	}
+
+	/**
+	 * Called when this object is registered as stake holder of a pattern instance: all its methods are then dispatched, so that pattern
+	 * hooks are invoked
+	 */
+	public void setPatternStakeHolder() {
+		patternStakeHolder = true;
+	}
+
+	private Object _invoke(Object self, Method method, Method proceed, Object[] args, DispatchedMethod<I> dispatchedMethod)
+			throws Throwable {
 
 		// System.out.println("_invoke " + method);
 
-		// First, we iterate on all delegate implementations to look for eventual partial implementation (in this case, prioritar)
-		for (DelegateImplementation<? super I> delegateImplementation : delegateImplementations) {
-			if (delegateImplementation.handleMethod(method)) {
-				// This delegate provides an implementation of that method, use it
-				// System.out.println("Delegating implementation of method=" + method + " to delegate "
-				// + delegateImplementation.getDelegateImplementationClass());
-				return delegateImplementation.invoke(self, method, proceed, args);
-			}
+		// First, we look for an eventual partial implementation provided by a delegate implementation (in this case, prioritar)
+		int delegateIndex = dispatchedMethod.getDelegateIndex();
+		if (delegateIndex != -1) {
+			// This delegate provides an implementation of that method, use it
+			return getDelegateImplementation(delegateIndex).invoke(self, method, proceed, args);
 		}
 
 		if (proceed != null) {
-			ModelProperty<? super I> property = getModelEntity().getPropertyForMethod(method);
+			ModelProperty<? super I> property = dispatchedMethod.getImplementedProperty();
 			boolean callSetModifiedAtTheEnd = false;
 			if (property != null) {
-				if (PamelaUtils.methodIsEquivalentTo(method, property.getSetterMethod())
-						|| PamelaUtils.methodIsEquivalentTo(method, property.getUpdaterMethod())) {
+				if (dispatchedMethod.isConcreteSetter()) {
 					// We have found a concrete implementation of that method as a setter call
 					// We will invoke it, but also notify UndoManager, and call setModified() after setter invoking
 					// System.out.println("DETECTS SET with " + proceed + " instead of " + method);
-					Object oldValue = invokeGetter(property);
-					if (getUndoManager() != null) {
+					// Old value is only required to build the edit
+					if (isTrackingEdits()) {
+						Object oldValue = invokeGetter(property);
 						if (oldValue != args[0]) {
 							getUndoManager().addEdit(
 									new SetCommand<>(getObject(), getModelEntity(), property, oldValue, args[0], getModelFactory()));
@@ -429,22 +687,22 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 						callSetModifiedAtTheEnd = true;
 					}
 				}
-				if (PamelaUtils.methodIsEquivalentTo(method, property.getAdderMethod())) {
+				if (dispatchedMethod.isConcreteAdder()) {
 					// We have found a concrete implementation of that method as a adder call
 					// We will invoke it, but also notify UndoManager, and call setModified() after adder invoking
 					// System.out.println("DETECTS ADD with " + proceed + " instead of " + method);
-					if (getUndoManager() != null) {
+					if (isTrackingEdits()) {
 						getUndoManager().addEdit(new AddCommand<>(getObject(), getModelEntity(), property, args[0], getModelFactory()));
 					}
 					if (property.isSerializable()) {
 						callSetModifiedAtTheEnd = true;
 					}
 				}
-				if (PamelaUtils.methodIsEquivalentTo(method, property.getRemoverMethod())) {
+				if (dispatchedMethod.isConcreteRemover()) {
 					// We have found a concrete implementation of that method as a remover call
 					// We will invoke it, but also notify UndoManager, and call setModified() after remover invoking
 					// System.out.println("DETECTS REMOVE with " + proceed + " instead of " + method);
-					if (getUndoManager() != null) {
+					if (isTrackingEdits()) {
 						getUndoManager().addEdit(new RemoveCommand<>(getObject(), getModelEntity(), property, args[0], getModelFactory()));
 					}
 					if (property.isSerializable()) {
@@ -482,282 +740,183 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			}
 		}
 		// System.out.println("Invoke " + method);
-		Initializer initializer = method.getAnnotation(Initializer.class);
-		if (initializer != null) {
+		if (dispatchedMethod.getOperation() == Operation.INITIALIZER) {
 			internallyInvokeInitializer(getModelEntity().getInitializers(method), args);
 			return self;
 		}
 		if (!initialized && !initializing) {
 			throw new UnitializedEntityException(getModelEntity());
 		}
-		Getter getter = method.getAnnotation(Getter.class);
-		if (getter != null) {
-			String id = getter.value();
-			Object returned = internallyInvokeGetter(id);
-			return returned;
-		}
-
-		Setter setter = method.getAnnotation(Setter.class);
-		if (setter != null) {
-			String id = setter.value();
-			internallyInvokeSetter(id, args[0], true);
-			return null;
-		}
-
-		Updater updater = method.getAnnotation(Updater.class);
-		if (updater != null) {
-			String id = updater.value();
-			internallyInvokeUpdater(id, args[0], true);
-			return null;
-		}
-
-		Adder adder = method.getAnnotation(Adder.class);
-		if (adder != null) {
-			String id = adder.value();
-			internallyInvokeAdder(id, args[0], true);
-			return null;
-		}
-
-		Remover remover = method.getAnnotation(Remover.class);
-		if (remover != null) {
-			String id = remover.value();
-			internallyInvokeRemover(id, args[0], true);
-			return null;
-		}
-
-		Reindexer reindexer = method.getAnnotation(Reindexer.class);
-		if (reindexer != null) {
-			String id = reindexer.value();
-			internallyInvokeReindexer(id, args[0], (int) args[1], true);
-			return null;
-		}
 
-		Finder finder = method.getAnnotation(Finder.class);
-		if (finder != null) {
-			return internallyInvokeFinder(finder, args);
-		}
-
-		if (PamelaUtils.methodIsEquivalentTo(method, GET_PROPERTY_CHANGE_SUPPORT)) {
-			return getPropertyChangeSuppport();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_GETTER)) {
-			return internallyInvokeGetter((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_SETTER)) {
-			internallyInvokeSetter((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_ADDER)) {
-			internallyInvokeAdder((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_ADDER_AT_INDEX)) {
-			internallyInvokeAdder((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], (int) args[2], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_REMOVER)) {
-			internallyInvokeRemover((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_FINDER)) {
-			internallyInvokeFinder(finder, args);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_GETTER_ENTITY)) {
-			ModelEntity<? super I> e = getModelEntityFromArg((Class<?>) args[1]);
-			return internallyInvokeGetter((String) args[0]/*e.getModelProperty((String) args[0])*/);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_SETTER_ENTITY)) {
-			ModelEntity<? super I> e = getModelEntityFromArg((Class<?>) args[2]);
-			internallyInvokeSetter((String) args[0] /*e.getModelProperty((String) args[0])*/, args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_ADDER_ENTITY)) {
-			ModelEntity<? super I> e = getModelEntityFromArg((Class<?>) args[2]);
-			internallyInvokeAdder((String) args[0] /*e.getModelProperty((String) args[0])*/, args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_REMOVER_ENTITY)) {
-			ModelEntity<? super I> e = getModelEntityFromArg((Class<?>) args[2]);
-			internallyInvokeRemover(e.getModelProperty((String) args[0]), args[1], false);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_DELETER_ENTITY)) {
-			return internallyInvokeDeleter(true);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_FINDER_ENTITY)) {
-			Class<?> class1 = (Class<?>) args[2];
-			ModelEntity<? super I> e = getModelEntityFromArg(class1);
-			finder = e.getFinder((String) args[0]);
-			if (finder != null) {
-				return internallyInvokeFinder(finder, args);
-			}
-			else {
-				throw new ModelExecutionException(
-						"No such finder defined. Finder '" + args[0] + "' could not be found on entity " + class1.getName());
-			}
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_FINDER)) {
-			finder = getModelEntity().getFinder((String) args[0]);
-			if (finder != null) {
-				return internallyInvokeFinder(finder, args);
-			}
-			else {
-				throw new ModelExecutionException("No such finder defined. Finder '" + args[0] + "' could not be found on entity "
-						+ getModelEntity().getImplementedInterface().getName());
-			}
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_INITIALIZER)) {
-			Object[] developpedArgs = (Object[]) args[0];
-			internallyInvokeInitializer(getModelEntity().getInitializerForArgs(developpedArgs), developpedArgs);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_SERIALIZING)) {
-			return isSerializing();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_DESERIALIZING)) {
-			return isDeserializing();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_MODIFIED)) {
-			return isModified();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, SET_MODIFIED)
-				|| PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_SET_MODIFIED)) {
-			internallyInvokeSetModified((Boolean) args[0]);
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, TO_STRING)) {
-			return internallyInvokeToString();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, DESTROY)) {
-			destroy();
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, CLONE_OBJECT)) {
-			return cloneObject();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, EQUALS_OBJECT)) {
-			return equalsObject(args[0]);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, EQUALS_OBJECT_USING_FILTER)) {
-			return equalsObject(args[0], (Function) args[1]);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, UPDATE_WITH_OBJECT)) {
-			return updateWith((I) args[0]);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, GET_EMBEDDED)) {
-			return getDirectEmbeddedObjects();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, GET_EMBEDDED_VALIDABLE)) {
-			return getDirectEmbeddedObjects();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, GET_REFERENCED)) {
-			return getReferencedObjects();
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, ACCEPT_VISITOR)) {
-			return acceptVisitor((PamelaVisitor) args[0]);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, ACCEPT_WITH_STRATEGY_VISITOR)) {
-			return acceptVisitor((PamelaVisitor) args[0], (VisitingStrategy) args[1]);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_DELETED)) {
-			return deleted;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_BEING_CLONED)) {
-			return beingCloned;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, IS_CREATED_BY_CLONING)) {
-			return createdByCloning;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, GET_DELETED_PROPERTY)) {
-			return DELETED;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_DELETER)) {
-			return internallyInvokeDeleter(false);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, DELETE_OBJECT)) {
-			return internallyInvokeDeleter(true, args);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, PERFORM_SUPER_UNDELETER)) {
-			return internallyInvokeUndeleter((Boolean) args[0], false);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, UNDELETE_OBJECT)) {
-			return internallyInvokeUndeleter((Boolean) args[0], true);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, CLONE_OBJECT_WITH_CONTEXT)) {
-			return cloneObject(args);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, HAS_KEY)) {
-			ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[0]);
-			return (property != null);
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, OBJECT_FOR_KEY)) {
-			ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[0]);
-			if (property != null) {
-				return invokeGetter(property);
-			}
-			else {
-				System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+		Finder finder;
+		switch (dispatchedMethod.getOperation()) {
+			// Property index was resolved by dispatch table: no lookup by identifier
+			case GETTER:
+				return internallyInvokeGetter(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex());
+			case SETTER:
+				internallyInvokeSetter(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), args[0], true);
 				return null;
-			}
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, SET_OBJECT_FOR_KEY)) {
-			ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[1]);
-			if (property != null) {
-				Object newValue = args[0];
-				/*Object oldValue = invokeGetter(property);
-				if (getModelFactory().getUndoManager() != null) {
-					getModelFactory().getUndoManager().addEdit(
-							new SetCommand<>(getObject(), getModelEntity(), property, oldValue, newValue, getModelFactory()));
-				}*/
-				invokeSetter(property, newValue);
+			case UPDATER:
+				internallyInvokeUpdater(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), args[0], true);
 				return null;
-			}
-			else {
-				System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+			case ADDER:
+				internallyInvokeAdder(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), args[0], -1, true);
 				return null;
-			}
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, GET_TYPE_FOR_KEY)) {
-			ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[0]);
-			if (property != null) {
-				return property.getType();
-			}
-			else {
-				System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+			case REMOVER:
+				internallyInvokeRemover(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), args[0], true);
 				return null;
-			}
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, ENABLE_ASSERTION_CHECKING)) {
-			invokeEnableAssertionChecking();
-			return null;
-		}
-		else if (PamelaUtils.methodIsEquivalentTo(method, DISABLE_ASSERTION_CHECKING)) {
-			invokeDisableAssertionChecking();
-			return null;
-		}
-		ModelProperty<? super I> property = getModelEntity().getPropertyForMethod(method);
-		if (property != null) {
-			if (PamelaUtils.methodIsEquivalentTo(method, property.getGetterMethod())) {
-				return internallyInvokeGetter(property);
-			}
-			else if (PamelaUtils.methodIsEquivalentTo(method, property.getSetterMethod())) {
-				internallyInvokeSetter(property, args[0], true);
+			case REINDEXER:
+				internallyInvokeReindexer(dispatchedMethod.getProperty(), dispatchedMethod.getPropertyIndex(), args[0], (int) args[1],
+						true);
 				return null;
-			}
-			else if (PamelaUtils.methodIsEquivalentTo(method, property.getUpdaterMethod())) {
-				internallyInvokeUpdater(property, args[0], true);
+			case FINDER:
+				return internallyInvokeFinder(dispatchedMethod.getFinder(), args);
+			case GET_PROPERTY_CHANGE_SUPPORT:
+				return getPropertyChangeSuppport();
+			case PERFORM_SUPER_GETTER:
+				return internallyInvokeGetter((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/);
+			case PERFORM_SUPER_SETTER:
+				internallyInvokeSetter((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
 				return null;
-			}
-			else if (PamelaUtils.methodIsEquivalentTo(method, property.getAdderMethod())) {
-				internallyInvokeAdder(property, args[0], true);
+			case PERFORM_SUPER_ADDER:
+				internallyInvokeAdder((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
 				return null;
-			}
-			else if (PamelaUtils.methodIsEquivalentTo(method, property.getRemoverMethod())) {
-				internallyInvokeRemover(property, args[0], true);
+			case PERFORM_SUPER_ADDER_AT_INDEX:
+				internallyInvokeAdder((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], (int) args[2],
+						false);
 				return null;
+			case PERFORM_SUPER_REMOVER:
+				internallyInvokeRemover((String) args[0] /*getModelEntity().getModelProperty((String) args[0])*/, args[1], false);
+				return null;
+			case PERFORM_SUPER_GETTER_ENTITY:
+				getModelEntityFromArg((Class<?>) args[1]);
+				return internallyInvokeGetter((String) args[0]/*e.getModelProperty((String) args[0])*/);
+			case PERFORM_SUPER_SETTER_ENTITY:
+				getModelEntityFromArg((Class<?>) args[2]);
+				internallyInvokeSetter((String) args[0] /*e.getModelProperty((String) args[0])*/, args[1], false);
+				return null;
+			case PERFORM_SUPER_ADDER_ENTITY:
+				getModelEntityFromArg((Class<?>) args[2]);
+				internallyInvokeAdder((String) args[0] /*e.getModelProperty((String) args[0])*/, args[1], false);
+				return null;
+			case PERFORM_SUPER_REMOVER_ENTITY:
+				ModelEntity<? super I> e = getModelEntityFromArg((Class<?>) args[2]);
+				internallyInvokeRemover(e.getModelProperty((String) args[0]), args[1], false);
+				return null;
+			case PERFORM_SUPER_DELETER_ENTITY:
+				return internallyInvokeDeleter(true);
+			case PERFORM_SUPER_FINDER_ENTITY:
+				Class<?> class1 = (Class<?>) args[2];
+				finder = getModelEntityFromArg(class1).getFinder((String) args[0]);
+				if (finder != null) {
+					return internallyInvokeFinder(finder, args);
+				}
+				else {
+					throw new ModelExecutionException(
+							"No such finder defined. Finder '" + args[0] + "' could not be found on entity " + class1.getName());
+				}
+			case PERFORM_SUPER_FINDER:
+				finder = getModelEntity().getFinder((String) args[0]);
+				if (finder != null) {
+					return internallyInvokeFinder(finder, args);
+				}
+				else {
+					throw new ModelExecutionException("No such finder defined. Finder '" + args[0] + "' could not be found on entity "
+							+ getModelEntity().getImplementedInterface().getName());
+				}
+			case PERFORM_SUPER_INITIALIZER:
+				Object[] developpedArgs = (Object[]) args[0];
+				internallyInvokeInitializer(getModelEntity().getInitializerForArgs(developpedArgs), developpedArgs);
+				return null;
+			case IS_SERIALIZING:
+				return isSerializing();
+			case IS_DESERIALIZING:
+				return isDeserializing();
+			case IS_MODIFIED:
+				return isModified();
+			case SET_MODIFIED:
+				internallyInvokeSetModified((Boolean) args[0]);
+				return null;
+			case TO_STRING:
+				return internallyInvokeToString();
+			case DESTROY:
+				destroy();
+				return null;
+			case CLONE_OBJECT:
+				return cloneObject();
+			case EQUALS_OBJECT:
+				return equalsObject(args[0]);
+			case EQUALS_OBJECT_USING_FILTER:
+				return equalsObject(args[0], (Function) args[1]);
+			case UPDATE_WITH_OBJECT:
+				return updateWith((I) args[0]);
+			case GET_EMBEDDED:
+				return getDirectEmbeddedObjects();
+			case GET_REFERENCED:
+				return getReferencedObjects();
+			case ACCEPT_VISITOR:
+				return acceptVisitor((PamelaVisitor) args[0]);
+			case ACCEPT_WITH_STRATEGY_VISITOR:
+				return acceptVisitor((PamelaVisitor) args[0], (VisitingStrategy) args[1]);
+			case IS_DELETED:
+				return deleted;
+			case IS_BEING_CLONED:
+				return beingCloned;
+			case IS_CREATED_BY_CLONING:
+				return createdByCloning;
+			case GET_DELETED_PROPERTY:
+				return DELETED;
+			case PERFORM_SUPER_DELETER:
+				return internallyInvokeDeleter(false);
+			case DELETE_OBJECT:
+				return internallyInvokeDeleter(true, args);
+			case PERFORM_SUPER_UNDELETER:
+				return internallyInvokeUndeleter((Boolean) args[0], false);
+			case UNDELETE_OBJECT:
+				return internallyInvokeUndeleter((Boolean) args[0], true);
+			case CLONE_OBJECT_WITH_CONTEXT:
+				return cloneObject(args);
+			case HAS_KEY:
+				return getModelEntity().getModelProperty((String) args[0]) != null;
+			case OBJECT_FOR_KEY: {
+				ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[0]);
+				if (property != null) {
+					return invokeGetter(property);
+				}
+				else {
+					System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+					return null;
+				}
 			}
-
+			case SET_OBJECT_FOR_KEY: {
+				ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[1]);
+				if (property != null) {
+					invokeSetter(property, args[0]);
+					return null;
+				}
+				else {
+					System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+					return null;
+				}
+			}
+			case GET_TYPE_FOR_KEY: {
+				ModelProperty<? super I> property = getModelEntity().getModelProperty((String) args[0]);
+				if (property != null) {
+					return property.getType();
+				}
+				else {
+					System.err.println("Cannot handle property " + args[0] + " for " + getObject());
+					return null;
+				}
+			}
+			case ENABLE_ASSERTION_CHECKING:
+				invokeEnableAssertionChecking();
+				return null;
+			case DISABLE_ASSERTION_CHECKING:
+				invokeDisableAssertionChecking();
+				return null;
+			default:
+				break;
 		}
 		System.err.println("Cannot handle method " + method + " for " + getObject().getClass() + ". Dumping stack for analysis.");
 		Thread.dumpStack();
@@ -804,7 +963,46 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	private PropertyImplementation<? super I, ?> getPropertyImplementation(ModelProperty<? super I> property)
 			throws ModelExecutionException {
-		PropertyImplementation<? super I, ?> returned = propertyImplementations.get(property.getPropertyIdentifier());
+		return getPropertyImplementation(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()));
+	}
+
+	/**
+	 * Return implementation of supplied property, whose index in {@link ModelEntity} was already resolved (for example by
+	 * {@link MethodDispatchTable}), avoiding a lookup by property identifier
+	 */
+	private PropertyImplementation<? super I, ?> getPropertyImplementation(ModelProperty<? super I> property, int index)
+			throws ModelExecutionException {
+		if (lazyContent != null) {
+			loadLazyContent(property);
+		}
+		if (index == -1) {
+			throw new ModelExecutionException("Property " + property.getPropertyIdentifier() + " is not defined for " + getModelEntity());
+		}
+		PropertyImplementation<? super I, ?>[] implementations = propertyImplementations;
+		PropertyImplementation<? super I, ?> returned = implementations != null
+				? (PropertyImplementation<? super I, ?>) PROPERTY_IMPLEMENTATION.getAcquire(implementations, index)
+				: null;
+		if (returned == null) {
+			if (concurrentEditingContext != null || frozenValues != null) {
+				// Concurrent readers may instantiate the same implementation
+				synchronized (this) {
+					return makePropertyImplementation(property, index);
+				}
+			}
+			return makePropertyImplementation(property, index);
+		}
+		return returned;
+	}
+
+	private PropertyImplementation<? super I, ?> makePropertyImplementation(ModelProperty<? super I> property, int index)
+			throws ModelExecutionException {
+		PropertyImplementation<? super I, ?>[] implementations = propertyImplementations;
+		if (implementations == null) {
+			implementations = new PropertyImplementation[getModelEntity().getPropertiesSize()];
+			propertyImplementations = implementations;
+		}
+		PropertyImplementation<? super I, ?> returned = (PropertyImplementation<? super I, ?>) PROPERTY_IMPLEMENTATION
+				.getAcquire(implementations, index);
 		if (returned == null) {
 			Class<? extends PropertyImplementation<? super I, ?>> implementationClass = null;
 			try {
@@ -832,7 +1030,7 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 						throw new ModelExecutionException("Unexpected cardinality for property " + property);
 					}
 				}
-				propertyImplementations.put(property.getPropertyIdentifier(), returned);
+				PROPERTY_IMPLEMENTATION.setRelease(implementations, index, returned);
 				return returned;
 
 			} catch (Exception e) {
@@ -852,6 +1050,11 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return internallyInvokeGetter(property, propertyImplementation);
 	}
 
+	private Object internallyInvokeGetter(ModelProperty<? super I> property, int propertyIndex) throws ModelDefinitionException {
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
+		return internallyInvokeGetter(property, propertyImplementation);
+	}
+
 	protected void internallyInvokeSetter(String propertyIdentifier, Object value, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
 		ModelProperty<? super I> property = getModelEntity().getModelProperty(propertyIdentifier);
@@ -860,7 +1063,13 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	public void internallyInvokeSetter(ModelProperty<? super I> property, Object value, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
-		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		internallyInvokeSetter(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()), value, trackAtomicEdit);
+	}
+
+	private void internallyInvokeSetter(ModelProperty<? super I> property, int propertyIndex, Object value, boolean trackAtomicEdit)
+			throws ModelDefinitionException {
+		beforeWrite(property);
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
 		if (propertyImplementation instanceof SettablePropertyImplementation) {
 			internallyInvokeSetter(property, (SettablePropertyImplementation) propertyImplementation, value, trackAtomicEdit);
 		}
@@ -878,7 +1087,13 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	public void internallyInvokeUpdater(ModelProperty<? super I> property, Object value, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
-		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		internallyInvokeUpdater(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()), value, trackAtomicEdit);
+	}
+
+	private void internallyInvokeUpdater(ModelProperty<? super I> property, int propertyIndex, Object value, boolean trackAtomicEdit)
+			throws ModelDefinitionException {
+		beforeWrite(property);
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
 		if (propertyImplementation instanceof SettablePropertyImplementation) {
 			internallyInvokeUpdater(property, (SettablePropertyImplementation) propertyImplementation, value, trackAtomicEdit);
 		}
@@ -906,7 +1121,14 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	protected void internallyInvokeAdder(ModelProperty<? super I> property, Object addedValue, int index, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
-		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		internallyInvokeAdder(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()), addedValue, index,
+				trackAtomicEdit);
+	}
+
+	private void internallyInvokeAdder(ModelProperty<? super I> property, int propertyIndex, Object addedValue, int index,
+			boolean trackAtomicEdit) throws ModelDefinitionException {
+		beforeWrite(property);
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
 		if (propertyImplementation instanceof MultiplePropertyImplementation) {
 			internallyInvokeAdder(property, (MultiplePropertyImplementation) propertyImplementation, addedValue, index, trackAtomicEdit);
 		}
@@ -924,7 +1146,14 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	protected void internallyInvokeRemover(ModelProperty<? super I> property, Object removedValue, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
-		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		internallyInvokeRemover(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()), removedValue,
+				trackAtomicEdit);
+	}
+
+	private void internallyInvokeRemover(ModelProperty<? super I> property, int propertyIndex, Object removedValue,
+			boolean trackAtomicEdit) throws ModelDefinitionException {
+		beforeWrite(property);
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
 		if (propertyImplementation instanceof MultiplePropertyImplementation) {
 			internallyInvokeRemover(property, (MultiplePropertyImplementation) propertyImplementation, removedValue, trackAtomicEdit);
 		}
@@ -942,7 +1171,14 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	protected void internallyInvokeReindexer(ModelProperty<? super I> property, Object value, int index, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
-		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		internallyInvokeReindexer(property, getModelEntity().getPropertyIndex(property.getPropertyIdentifier()), value, index,
+				trackAtomicEdit);
+	}
+
+	private void internallyInvokeReindexer(ModelProperty<? super I> property, int propertyIndex, Object value, int index,
+			boolean trackAtomicEdit) throws ModelDefinitionException {
+		beforeWrite(property);
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property, propertyIndex);
 		if (propertyImplementation instanceof ReindexableListPropertyImplementation) {
 			internallyInvokeReindexer(property, (ReindexableListPropertyImplementation) propertyImplementation, value, index,
 					trackAtomicEdit);
@@ -973,94 +1209,99 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			return false;
 		}
 
+		beforeWrite(null);
 		deleting = true;
-		if (context == null) {
-			context = new Object[] { getObject() };
-		}
-		else {
-			context = Arrays.copyOf(context, context.length + 1);
-			context[context.length - 1] = getObject();
-		}
-		// oldValues = new HashMap<>();
 		ModelEntity<I> modelEntity = getModelEntity();
-		Set<Object> objects = new HashSet<>();
-		for (Object o : context) {
-			objects.add(o);
+
+		// When this object is deleted because embedded in an object being deleted, we share the closure of the enclosing deletion
+		EmbeddingClosure deletionClosure = EmbeddingClosure.getDeletionInProgress(context);
+		boolean startsDeletion = deletionClosure == null;
+		if (startsDeletion) {
+			deletionClosure = new EmbeddingClosure(getModelFactory(), EmbeddingType.DELETION, context);
 		}
-		List<Object> embeddedObjects = getModelFactory().getEmbeddedObjects(getObject(), EmbeddingType.DELETION,
-				objects.toArray(new Object[objects.size()]));
-		objects.addAll(embeddedObjects);
+		deletionClosure.addToContext(getObject());
+		// Objects embedded in the enclosing deletion are already in its closure: we only need here objects directly embedded in this
+		// object, which will compute in turn their own embedded objects when deleted
+		List<Object> embeddedObjects = startsDeletion ? deletionClosure.getEmbeddedObjects(getObject())
+				: deletionClosure.getDirectlyEmbeddedObjects(getObject());
+		deletionClosure.addAllToContext(embeddedObjects);
 
-		context = objects.toArray(new Object[objects.size()]);
+		context = startsDeletion ? deletionClosure.beginDeletion() : context;
 
-		// We iterate on all properties conform to PAMELA meta-model
-		Iterator<ModelProperty<? super I>> i = modelEntity.getProperties();
-		while (i.hasNext()) {
-			ModelProperty<? super I> property = i.next();
+		try {
+			// We iterate on all properties conform to PAMELA meta-model
+			Iterator<ModelProperty<? super I>> i = modelEntity.getProperties();
+			while (i.hasNext()) {
+				ModelProperty<? super I> property = i.next();
 
-			if (property.getType().isPrimitive()) {
-				// Primitive do not need to be nullified
-				// Do nothing
-			}
-			else {
+				if (property.getType().isPrimitive()) {
+					// Primitive do not need to be nullified
+					// Do nothing
+				}
+				else {
 
-				PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+					PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
 
-				propertyImplementation.delete(embeddedObjects, context);
+					propertyImplementation.delete(embeddedObjects, context);
 
-				/*
-				// We retrieve and store old value for a potential undelete
-				Object oldValue = invokeGetter(property);
+					/*
+					// We retrieve and store old value for a potential undelete
+					Object oldValue = invokeGetter(property);
 				
-				List<Object> oldValuesList = null;
-				if (property.getCardinality() == Cardinality.LIST) {
-					oldValuesList = new ArrayList<>((List) oldValue);
-				}
+					List<Object> oldValuesList = null;
+					if (property.getCardinality() == Cardinality.LIST) {
+						oldValuesList = new ArrayList<>((List) oldValue);
+					}
 				
-				oldValues.put(property.getPropertyIdentifier(), oldValue);
-				// Otherwise nullify using setter
-				if (property.getSetterMethod() != null) {
-					invokeSetter(property, null);
-				}
-				else {
-					internallyInvokeSetter(property, null, true);
-				}
+					oldValues.put(property.getPropertyIdentifier(), oldValue);
+					// Otherwise nullify using setter
+					if (property.getSetterMethod() != null) {
+						invokeSetter(property, null);
+					}
+					else {
+						internallyInvokeSetter(property, null, true);
+					}
 				
-				if (property.getCardinality() == Cardinality.SINGLE) {
-					if ((oldValue instanceof DeletableProxyObject) && embeddedObjects.contains(oldValue)) {
-						// By the way, this object was embedded, delete it
-						((DeletableProxyObject) oldValue).delete(context);
-						embeddedObjects.remove(oldValue);
+					if (property.getCardinality() == Cardinality.SINGLE) {
+						if ((oldValue instanceof DeletableProxyObject) && embeddedObjects.contains(oldValue)) {
+							// By the way, this object was embedded, delete it
+							((DeletableProxyObject) oldValue).delete(context);
+							embeddedObjects.remove(oldValue);
+						}
 					}
-				}
 				
-				else if (property.getCardinality() == Cardinality.LIST) {
-					if (oldValuesList != null) {
-						for (Object toBeDeleted : oldValuesList) {
-							if ((toBeDeleted instanceof DeletableProxyObject) && embeddedObjects.contains(toBeDeleted)) {
-								// By the way, this object was embedded, delete it
-								((DeletableProxyObject) toBeDeleted).delete(context);
-								embeddedObjects.remove(toBeDeleted);
+					else if (property.getCardinality() == Cardinality.LIST) {
+						if (oldValuesList != null) {
+							for (Object toBeDeleted : oldValuesList) {
+								if ((toBeDeleted instanceof DeletableProxyObject) && embeddedObjects.contains(toBeDeleted)) {
+									// By the way, this object was embedded, delete it
+									((DeletableProxyObject) toBeDeleted).delete(context);
+									embeddedObjects.remove(toBeDeleted);
+								}
 							}
 						}
 					}
+					 */
 				}
-				 */
 			}
-		}
 
-		// Are there still embedded objects not deleted ???
-		for (Object object : embeddedObjects) {
-			if (object instanceof DeletableProxyObject) {
-				DeletableProxyObject objectToDelete = (DeletableProxyObject) object;
-				if (!objectToDelete.isDeleted()) {
-					objectToDelete.delete(context);
-					System.err.println("This is weird: this object was embedded but not deleted: " + objectToDelete);
+			// Are there still embedded objects not deleted ???
+			for (Object object : embeddedObjects) {
+				if (object instanceof DeletableProxyObject) {
+					DeletableProxyObject objectToDelete = (DeletableProxyObject) object;
+					if (!objectToDelete.isDeleted()) {
+						objectToDelete.delete(context);
+						System.err.println("This is weird: this object was embedded but not deleted: " + objectToDelete);
+					}
 				}
 			}
+		} finally {
+			if (startsDeletion) {
+				deletionClosure.endDeletion();
+			}
 		}
 
-		if (trackAtomicEdit && getUndoManager() != null) {
+		if (trackAtomicEdit && isTrackingEdits()) {
 			getUndoManager().addEdit(new DeleteCommand<>(getObject(), getModelEntity(), getModelFactory()));
 		}
 
@@ -1098,9 +1339,10 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			return false;
 		}
 
+		beforeWrite(null);
 		undeleting = true;
 
-		if (trackAtomicEdit && getUndoManager() != null) {
+		if (trackAtomicEdit && isTrackingEdits()) {
 			getUndoManager().addEdit(new CreateCommand<>(getObject(), getModelEntity(), getModelFactory()));
 		}
 
@@ -1150,10 +1392,15 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		}
 		oldValues = null;*/
 
-		if (propertyImplementations != null) {
-			propertyImplementations.clear();
-		}
 		propertyImplementations = null;
+		scheduledSets = null;
+		historyValues = null;
+		if (finderIndexes != null) {
+			for (FinderIndex finderIndex : finderIndexes.values()) {
+				finderIndex.invalidate();
+			}
+			finderIndexes = null;
+		}
 
 		destroyed = true;
 	}
@@ -1162,6 +1409,166 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		return destroyed;
 	}
 
+	/**
+	 * Return content of this object which was not deserialized yet, if any
+	 * 
+	 * @return
+	 */
+	public LazyContent getLazyContent() {
+		return lazyContent;
+	}
+
+	/**
+	 * Sets content of this object which was not deserialized yet, and which should be loaded on first access to related properties
+	 * 
+	 * @param lazyContent
+	 */
+	public void setLazyContent(LazyContent lazyContent) {
+		this.lazyContent = lazyContent;
+	}
+
+	/**
+	 * Load values of supplied property which were not deserialized yet, if any<br>
+	 * Loading those values does not mark this object as modified
+	 * 
+	 * @param property
+	 */
+	public void loadLazyContent(ModelProperty<?> property) {
+		LazyContent content = lazyContent;
+		if (content != null) {
+			if (concurrentEditingContext != null) {
+				// Concurrent readers may load the same content
+				synchronized (this) {
+					doLoadLazyContent(property);
+				}
+			}
+			else {
+				doLoadLazyContent(property);
+			}
+		}
+	}
+
+	private void doLoadLazyContent(ModelProperty<?> property) {
+		LazyContent content = lazyContent;
+		if (content != null) {
+			boolean wasLoadingLazyContent = loadingLazyContent;
+			loadingLazyContent = true;
+			try {
+				content.load(this, property);
+			} finally {
+				loadingLazyContent = wasLoadingLazyContent;
+			}
+		}
+	}
+
+	/**
+	 * Called before supplied property of this object is modified (all properties when null), so that copy-on-write clones still sharing
+	 * values with this object get their own copy first (see {@link CopyOnWriteCloning})<br>
+	 * Modifications of a frozen object are rejected here (see {@link FrozenGraph})
+	 * 
+	 * @param property
+	 */
+	private void beforeWrite(ModelProperty<? super I> property) {
+		if (frozenValues != null) {
+			throw new ModelExecutionException(
+					"Cannot modify " + (property != null ? property.getPropertyIdentifier() + " of " : "") + "frozen " + getModelEntity());
+		}
+		// Values loaded or deserialized are not modifications
+		if (copyOnWriteClonings != null && !loadingLazyContent && !deserializing) {
+			// Iterate on a copy, since materializing values might in turn modify some objects
+			for (WeakReference<CopyOnWriteCloning> ref : new ArrayList<>(copyOnWriteClonings)) {
+				CopyOnWriteCloning cloning = ref.get();
+				if (cloning != null && !cloning.isCompleted()) {
+					cloning.beforeWrite(getObject(), property);
+				}
+			}
+			List<WeakReference<CopyOnWriteCloning>> clonings = copyOnWriteClonings;
+			if (clonings != null) {
+				clonings.removeIf(ref -> ref.get() == null || ref.get().isCompleted());
+				if (clonings.isEmpty()) {
+					copyOnWriteClonings = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Register supplied copy-on-write cloning, whose clones might share values with this object until they are all materialized
+	 * 
+	 * @param cloning
+	 * @return false when supplied cloning was already registered
+	 */
+	boolean addCopyOnWriteCloning(CopyOnWriteCloning cloning) {
+		if (isSharingValuesWith(cloning)) {
+			return false;
+		}
+		if (copyOnWriteClonings == null) {
+			copyOnWriteClonings = new ArrayList<>(1);
+		}
+		copyOnWriteClonings.add(new WeakReference<>(cloning));
+		return true;
+	}
+
+	/**
+	 * Return a flag indicating if this object belongs to the graph cloned by supplied copy-on-write cloning, whose clones might still
+	 * share values with this object
+	 * 
+	 * @param cloning
+	 * @return
+	 */
+	boolean isSharingValuesWith(CopyOnWriteCloning cloning) {
+		List<WeakReference<CopyOnWriteCloning>> clonings = copyOnWriteClonings;
+		if (clonings != null) {
+			for (WeakReference<CopyOnWriteCloning> ref : clonings) {
+				if (ref.get() == cloning) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reject a change of supplied property which would modify the inverse property of supplied opposite object while it is frozen: this is
+	 * checked before any edit is recorded and any value is changed, so that both sides of the relationship are left untouched
+	 * 
+	 * @param property
+	 * @param opposite
+	 */
+	public void checkOppositeIsNotFrozen(ModelProperty<? super I> property, Object opposite) {
+		if (opposite != null && property.hasExplicitInverseProperty()) {
+			ProxyMethodHandler<Object> oppositeHandler = getModelFactory().getHandler(opposite);
+			if (oppositeHandler != null && oppositeHandler.isFrozen()) {
+				throw new ModelExecutionException("Cannot modify " + property.getPropertyIdentifier() + " of " + getModelEntity()
+						+ ": inverse property of frozen " + oppositeHandler.getModelEntity() + " would be modified");
+			}
+		}
+	}
+
+	/**
+	 * Initialize value of supplied property, without any side effect when property implementation allows it (see
+	 * {@link InitializablePropertyImplementation})
+	 * 
+	 * @param property
+	 * @param value
+	 * @throws ModelDefinitionException
+	 */
+	void initializePropertyValue(ModelProperty<? super I> property, Object value) throws ModelDefinitionException {
+		PropertyImplementation<? super I, ?> propertyImplementation = getPropertyImplementation(property);
+		if (propertyImplementation instanceof InitializablePropertyImplementation) {
+			((InitializablePropertyImplementation<? super I, Object>) propertyImplementation).initialize(value);
+		}
+		else {
+			boolean wasCreatedByCloning = createdByCloning;
+			createdByCloning = true;
+			try {
+				internallyInvokeSetter(property, value, false);
+			} finally {
+				createdByCloning = wasCreatedByCloning;
+			}
+		}
+	}
+
 	public Object invokeGetter(ModelProperty<? super I> property) {
 		try {
 			return property.getGetterMethod().invoke(getObject(), (Object[]) null);
@@ -1226,6 +1633,26 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		}
 	}
 
+	/**
+	 * Invoke adder of supplied property, inserting value at supplied index (or appending it when index is -1)<br>
+	 * As models do not declare adders with an index, value is added at an index without invoking adder method
+	 * 
+	 * @param property
+	 * @param value
+	 * @param index
+	 */
+	public void invokeAdder(ModelProperty<? super I> property, Object value, int index) {
+		if (index == -1) {
+			invokeAdder(property, value);
+			return;
+		}
+		try {
+			internallyInvokeAdder(property, value, index, true);
+		} catch (ModelDefinitionException e) {
+			throw new ModelExecutionException(e);
+		}
+	}
+
 	public void invokeRemover(ModelProperty<? super I> property, Object value) {
 		try {
 			property.getRemoverMethod().invoke(getObject(), value);
@@ -1309,12 +1736,36 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	}
 
 	public Map<ModelProperty<? super I>, Object> getScheduledSets() {
+		if (scheduledSets == null) {
+			scheduledSets = new HashMap<>();
+		}
 		return scheduledSets;
 	}
 
+	/**
+	 * Return value scheduled to be set for supplied property, if any
+	 * 
+	 * @param property
+	 * @return
+	 */
+	public Object getScheduledSet(ModelProperty<? super I> property) {
+		return scheduledSets != null ? scheduledSets.get(property) : null;
+	}
+
+	/**
+	 * Remove value scheduled to be set for supplied property, if any
+	 * 
+	 * @param property
+	 */
+	public void removeScheduledSet(ModelProperty<? super I> property) {
+		if (scheduledSets != null) {
+			scheduledSets.remove(property);
+		}
+	}
+
 	@Deprecated
 	private void firePropertyChange(String propertyIdentifier, Object oldValue, Object value) {
-		if (getObject() instanceof HasPropertyChangeSupport && !deleting) {
+		if (getObject() instanceof HasPropertyChangeSupport && !deleting && !isScheduledForDeletion()) {
 			PropertyChangeSupport propertyChangeSupport = ((HasPropertyChangeSupport) getObject()).getPropertyChangeSupport();
 			if (propertyChangeSupport != null) {
 				propertyChangeSupport.firePropertyChange(propertyIdentifier, oldValue, value);
@@ -1322,6 +1773,18 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		}
 	}
 
+	/**
+	 * Notify a change of the modified status, which is queued when a {@link NotificationBatch} is in progress
+	 */
+	private void fireModifiedChange(boolean oldValue, boolean value) {
+		if (!deleting && !isScheduledForDeletion()) {
+			PropertyChangeSupport pcs = getObjectPropertyChangeSupport();
+			if (pcs != null && pcs.hasListeners(MODIFIED)) {
+				NotificationBatch.firePropertyChange(editingContext, getObject(), pcs, MODIFIED, oldValue, value, false);
+			}
+		}
+	}
+
 	@Override
 	public void propertyChange(PropertyChangeEvent evt) {
 		try {
@@ -1373,6 +1836,22 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		if (collection instanceof Map<?, ?>) {
 			collection = ((Map<?, ?>) collection).values();
 		}
+		else if (finder.indexed() && collection instanceof Collection) {
+			FinderIndex finderIndex = getFinderIndex(finder);
+			if (finderIndex.isUsableFor(value)) {
+				List<Object> objects;
+				// Index is rebuilt on lookup when invalidated, and may be looked up by concurrent readers
+				synchronized (finderIndex) {
+					objects = finderIndex.lookup((Collection<?>) collection, value);
+				}
+				if (objects != null) {
+					if (finder.isMultiValued()) {
+						return new ArrayList<>(objects);
+					}
+					return objects.isEmpty() ? null : objects.get(0);
+				}
+			}
+		}
 		if (collection instanceof Iterable) {
 			if (finder.isMultiValued()) {
 				List<Object> objects = new ArrayList<>();
@@ -1405,6 +1884,52 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		throw new ModelDefinitionException("finder works only on maps and iterable");
 	}
 
+	private synchronized FinderIndex getFinderIndex(Finder finder) {
+		if (finderIndexes == null) {
+			finderIndexes = new HashMap<>();
+		}
+		FinderIndex returned = finderIndexes.get(finder);
+		if (returned == null) {
+			returned = new FinderIndex(finder, getModelFactory());
+			finderIndexes.put(finder, returned);
+		}
+		return returned;
+	}
+
+	/**
+	 * Notify indexes of finders iterating on supplied property that some object was added (added=true) or removed (added=false)
+	 * 
+	 * @param property
+	 * @param value
+	 * @param added
+	 * @throws ModelDefinitionException
+	 */
+	private void updateFinderIndexes(ModelProperty<? super I> property, Object value, boolean added) throws ModelDefinitionException {
+		for (FinderIndex finderIndex : finderIndexes.values()) {
+			if (finderIndex.getFinder().collection().equals(property.getPropertyIdentifier())) {
+				if (added) {
+					finderIndex.objectAdded(value);
+				}
+				else {
+					finderIndex.objectRemoved(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invalidate indexes of finders iterating on supplied property (called when the whole collection is replaced)
+	 * 
+	 * @param property
+	 */
+	private void invalidateFinderIndexes(ModelProperty<? super I> property) {
+		for (FinderIndex finderIndex : finderIndexes.values()) {
+			if (finderIndex.getFinder().collection().equals(property.getPropertyIdentifier())) {
+				finderIndex.invalidate();
+			}
+		}
+	}
+
 	private <T> T internallyInvokeGetter(ModelProperty<? super I> property, PropertyImplementation<? super I, T> propertyImplementation)
 			throws ModelDefinitionException {
 		return propertyImplementation.get();
@@ -1412,51 +1937,73 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 
 	private <T> void internallyInvokeSetter(ModelProperty<? super I> property, SettablePropertyImplementation<I, T> propertyImplementation,
 			T value, boolean trackAtomicEdit) throws ModelDefinitionException {
-		Object oldValue = invokeGetter(property);
-		if (trackAtomicEdit && getUndoManager() != null) {
+		if (trackAtomicEdit && isTrackingEdits()) {
+			Object oldValue = invokeGetter(property);
 			if (oldValue != value) {
+				// Edit must not be recorded for a change rejected by a frozen opposite object
+				checkOppositeIsNotFrozen(property, oldValue);
+				checkOppositeIsNotFrozen(property, value);
 				getUndoManager().addEdit(new SetCommand<>(getObject(), getModelEntity(), property, oldValue, value, getModelFactory()));
 			}
 		}
 		propertyImplementation.set(value);
+		if (finderIndexes != null) {
+			invalidateFinderIndexes(property);
+		}
 	}
 
 	private <T> void internallyInvokeUpdater(ModelProperty<? super I> property, SettablePropertyImplementation<I, T> propertyImplementation,
 			T value, boolean trackAtomicEdit) throws ModelDefinitionException {
-		if (trackAtomicEdit && getUndoManager() != null) {
+		if (trackAtomicEdit && isTrackingEdits()) {
 			Object oldValue = invokeGetter(property);
 			if (oldValue != value) {
+				checkOppositeIsNotFrozen(property, oldValue);
+				checkOppositeIsNotFrozen(property, value);
 				getUndoManager().addEdit(new SetCommand<>(getObject(), getModelEntity(), property, oldValue, value, getModelFactory()));
 			}
 		}
 		propertyImplementation.update(value);
+		if (finderIndexes != null) {
+			invalidateFinderIndexes(property);
+		}
 	}
 
 	private <T> void internallyInvokeAdder(ModelProperty<? super I> property, MultiplePropertyImplementation<I, T> propertyImplementation,
 			T value, int index, boolean trackAtomicEdit) throws ModelDefinitionException {
 		// System.out.println("Invoke ADDER "+property.getPropertyIdentifier());
-		if (trackAtomicEdit && getUndoManager() != null) {
-			getUndoManager().addEdit(new AddCommand<>(getObject(), getModelEntity(), property, value, getModelFactory()));
+		// Nothing is checked nor recorded when value is not actually added
+		if (trackAtomicEdit && isTrackingEdits() && (property.getAllowsMultipleOccurences() || !propertyImplementation.contains(value))) {
+			checkOppositeIsNotFrozen(property, value);
+			getUndoManager().addEdit(new AddCommand<>(getObject(), getModelEntity(), property, value, index, getModelFactory()));
 		}
 		propertyImplementation.addTo(value, index);
+		if (finderIndexes != null) {
+			updateFinderIndexes(property, value, true);
+		}
 	}
 
 	private <T> void internallyInvokeRemover(ModelProperty<? super I> property, MultiplePropertyImplementation<I, T> propertyImplementation,
 			T value, boolean trackAtomicEdit) throws ModelDefinitionException {
 		// System.out.println("Invoke ADDER "+property.getPropertyIdentifier());
-		if (trackAtomicEdit && getUndoManager() != null) {
+		// Nothing is checked nor recorded when value is not actually removed
+		if (trackAtomicEdit && isTrackingEdits() && propertyImplementation.contains(value)) {
+			checkOppositeIsNotFrozen(property, value);
 			getUndoManager().addEdit(new RemoveCommand<>(getObject(), getModelEntity(), property, value, getModelFactory()));
 		}
 		propertyImplementation.removeFrom(value);
+		if (finderIndexes != null) {
+			updateFinderIndexes(property, value, false);
+		}
 	}
 
 	private <T> void internallyInvokeReindexer(ModelProperty<? super I> property,
 			ReindexableListPropertyImplementation<I, T> propertyImplementation, T value, int index, boolean trackAtomicEdit)
 			throws ModelDefinitionException {
 		// System.out.println("Invoke ADDER "+property.getPropertyIdentifier());
-		if (trackAtomicEdit && getUndoManager() != null) {
+		if (trackAtomicEdit && isTrackingEdits()) {
+			// Value is added again at its new index
 			getUndoManager().addEdit(new RemoveCommand<>(getObject(), getModelEntity(), property, value, getModelFactory()));
-			getUndoManager().addEdit(new AddCommand<>(getObject(), getModelEntity(), property, value, getModelFactory()));
+			getUndoManager().addEdit(new AddCommand<>(getObject(), getModelEntity(), property, value, index, getModelFactory()));
 		}
 		propertyImplementation.reindex(value, index);
 	}
@@ -1833,334 +2380,12 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			throw new CloneNotSupportedException();
 		}
 
-		Hashtable<CloneableProxyObject, Object> clonedObjects = new Hashtable<>();
-		Object returned = performClone(clonedObjects, context);
-		// System.out.println("All clones are ready");
-		for (CloneableProxyObject o : clonedObjects.keySet()) {
-			// System.out.println("Finalizing " + o);
-			ProxyMethodHandler<?> clonedObjectHandler = getModelFactory().getHandler(o);
-			clonedObjectHandler.finalizeClone(clonedObjects, context);
-		}
-		return (I) returned;
-	}
-
-	/**
-	 * Internally used for cloning computation
-	 */
-	private Object appendToClonedObjects(Hashtable<CloneableProxyObject, Object> clonedObjects,
-			CloneableProxyObject objectToCloneOrReference) throws ModelExecutionException, ModelDefinitionException {
-		Object returned = clonedObjects.get(objectToCloneOrReference);
-		if (returned != null) {
-			return returned;
-		}
-		ProxyMethodHandler<?> clonedValueHandler = getModelFactory().getHandler(objectToCloneOrReference);
-		returned = clonedValueHandler.performClone(clonedObjects);
-		// System.out.println("CLONING " + objectToCloneOrReference + " clone is " + returned);
-		return returned;
-	}
-
-	/**
-	 * Internally used for cloning computation
-	 */
-	private Object performClone(Hashtable<CloneableProxyObject, Object> clonedObjects, Object... context)
-			throws ModelExecutionException, ModelDefinitionException {
-		// System.out.println("******* performClone " + getObject());
-		boolean setIsBeingCloned = !beingCloned;
-		beingCloned = true;
-		Object returned = null;
-		try {
-			returned = getModelFactory().newInstance(getModelEntity().getImplementedInterface(), true);
-			// System.out.println("Perform clone " + getModelEntity());
-			ProxyMethodHandler<?> clonedObjectHandler = getModelFactory().getHandler(returned);
-			clonedObjectHandler.createdByCloning = true;
-			clonedObjectHandler.initialized = true;
-			try {
-
-				Iterator<ModelProperty<? super I>> properties = getModelEntity().getPropertiesOrderedForCloning();
-				while (properties.hasNext()) {
-					ModelProperty p = properties.next();
-					switch (p.getCardinality()) {
-						case SINGLE:
-							Object singleValue = invokeGetter(p);
-							switch (p.getCloningStrategy()) {
-								case CLONE:
-									if (ModelEntity.isModelEntity(p.getType()) && singleValue instanceof CloneableProxyObject) {
-										if (!isPartOfContext(singleValue, EmbeddingType.CLOSURE, context)) {
-											// Don't do it, outside of context
-										}
-										else {
-											// Unused var Object clonedValue =
-											appendToClonedObjects(clonedObjects, (CloneableProxyObject) singleValue);
-											// System.out.println("Cloned " + clonedValue + " for " + p);
-										}
-									}
-									else {
-										if (singleValue != null) {
-											/*if (singleValue instanceof String) {
-														clonedObjectHandler.invokeSetter(p, new String((String) singleValue));
-													}
-													else*/ if (singleValue instanceof DataBinding) {
-												clonedObjectHandler.invokeSetter(p, ((DataBinding<?>) singleValue).clone());
-											}
-											else {
-												// TODO: handle primitive types and some basic types (eg. String)
-												clonedObjectHandler.invokeSetter(p, singleValue);
-											}
-										}
-										else {
-											clonedObjectHandler.invokeSetter(p, null);
-										}
-									}
-									break;
-								case REFERENCE:
-									clonedObjectHandler.invokeSetter(p, singleValue);
-									break;
-								case FACTORY:
-									break;
-								case CUSTOM_CLONE:
-									// We have here to invoke custom code (encoded in getStrategyTypeFactory())
-									try {
-										Object computedValue = JavaBindingEvaluator.evaluateBinding(p.getStrategyTypeFactory(),
-												getObject());
-										clonedObjectHandler.invokeSetter(p, computedValue);
-									} catch (InvalidKeyValuePropertyException e1) {
-										e1.printStackTrace();
-									} catch (TypeMismatchException e1) {
-										e1.printStackTrace();
-									} catch (NullReferenceException e1) {
-										e1.printStackTrace();
-									} catch (ReflectiveOperationException e1) {
-										e1.printStackTrace();
-									}
-									break;
-								case IGNORE:
-									break;
-							}
-							break;
-						case LIST:
-							List<?> values = (List<?>) invokeGetter(p);
-							if (values != null) {
-								List<?> values2 = new ArrayList<>(values);
-								for (Object value : values2) {
-									switch (p.getCloningStrategy()) {
-										case CLONE:
-											if (ModelEntity.isModelEntity(p.getType()) && value instanceof CloneableProxyObject) {
-												if (!isPartOfContext(value, EmbeddingType.CLOSURE, context)) {
-													// Don't do it, outside of context
-												}
-												else {
-													appendToClonedObjects(clonedObjects, (CloneableProxyObject) value);
-												}
-											} // SGU: removed this code i think it's wrong
-											/*else {
-													clonedObjectHandler.invokeAdder(p, value);
-													}*/
-											break;
-										case REFERENCE:
-											clonedObjectHandler.invokeAdder(p, value);
-											break;
-										case FACTORY:
-											break;
-										case IGNORE:
-											break;
-									}
-								}
-							}
-							break;
-						default:
-							break;
-					}
-
-				}
-
-				clonedObjects.put((CloneableProxyObject) getObject(), returned);
-				// System.out.println("Registering " + returned + " as clone of " + getObject());
-
-			} finally {
-				clonedObjectHandler.createdByCloning = false;
-			}
-		} finally {
-			if (setIsBeingCloned) {
-				beingCloned = false;
-			}
-		}
-		return returned;
-	}
-
-	/**
-	 * Internally used for cloning computation
-	 */
-	private Object finalizeClone(Hashtable<CloneableProxyObject, Object> clonedObjects, Object... context)
-			throws ModelExecutionException, ModelDefinitionException {
-		Object clonedObject = clonedObjects.get(getObject());
-
-		ProxyMethodHandler<?> clonedObjectHandler = getModelFactory().getHandler(clonedObject);
-		clonedObjectHandler.createdByCloning = true;
-		try {
-			Iterator<ModelProperty<? super I>> properties = getModelEntity().getPropertiesOrderedForCloning();
-
-			while (properties.hasNext()) {
-				ModelProperty p = properties.next();
-				// TODO: cross-check that we should invoke continue
-				// In the case of the deletedProperty, it is only normal that there are no setters.
-				// We should either prevent this by validating that all properties (that are not deleted properties)
-				// have a setter or allow properties to live without a setter.
-				switch (p.getCardinality()) {
-					case SINGLE:
-						if (p.getCloningStrategy() != StrategyType.IGNORE) {
-							Object singleValue = invokeGetter(p);
-							switch (p.getCloningStrategy()) {
-								case CLONE:
-									if (getModelFactory().getStringEncoder().isConvertable(p.getType())) {
-										Object clonedValue = null;
-										try {
-											String clonedValueAsString = getModelFactory().getStringEncoder().toString(singleValue);
-											clonedValue = getModelFactory().getStringEncoder().fromString(p.getType(), clonedValueAsString);
-										} catch (InvalidDataException e) {
-											throw new ModelExecutionException(e);
-										}
-										clonedObjectHandler.invokeSetter(p, clonedValue);
-										// clonedObjectHandler.internallyInvokeSetter(p, clonedValue);
-									}
-									else if (ModelEntity.isModelEntity(p.getType()) && singleValue instanceof CloneableProxyObject) {
-										// boolean debug = false;
-										/*if (p.getPropertyIdentifier().equals("startShape")) {
-												System.out.println("Tiens, pour startShape, singleValue=" + singleValue);
-												debug = true;
-												}*/
-										Object clonedValue = clonedObjects.get(singleValue);
-										/*if (debug) {
-												System.out.println("clonedValue=" + clonedValue + " singleValue=" + singleValue);
-												System.out.println("context=" + context);
-												System.out.println("isPartOfContext=" + isPartOfContext(singleValue, EmbeddingType.CLOSURE, context));
-												}*/
-										if (!isPartOfContext(singleValue, EmbeddingType.CLOSURE, context)) {
-											clonedValue = null;
-											/*if (debug) {
-													System.out.println("mais pas dans le contexte !!!");
-													}*/
-										}
-										clonedObjectHandler.invokeSetter(p, clonedValue);
-										// clonedObjectHandler.internallyInvokeSetter(p, clonedValue);
-									}
-									break;
-								case REFERENCE:
-									Object referenceValue = singleValue != null ? clonedObjects.get(singleValue) : null;
-									if (referenceValue == null) {
-										referenceValue = singleValue;
-									}
-									clonedObjectHandler.invokeSetter(p, referenceValue);
-									// clonedObjectHandler.internallyInvokeSetter(p, referenceValue);
-									break;
-								case CUSTOM_CLONE:
-									// clonedObjectHandler.invokeSetter(p, singleValue);
-									// clonedObjectHandler.internallyInvokeSetter(p, referenceValue);
-									break;
-								case FACTORY:
-									// We have here to invoke custom code (encoded in getStrategyTypeFactory())
-									try {
-										Object computedValue = JavaBindingEvaluator.evaluateBinding(p.getStrategyTypeFactory(),
-												clonedObject /*getObject()*/);
-										clonedObjectHandler.invokeSetter(p, computedValue);
-									} catch (InvalidKeyValuePropertyException e1) {
-										e1.printStackTrace();
-									} catch (TypeMismatchException e1) {
-										e1.printStackTrace();
-									} catch (NullReferenceException e1) {
-										e1.printStackTrace();
-									} catch (ReflectiveOperationException e1) {
-										e1.printStackTrace();
-									}
-									break;
-								case IGNORE:
-									break;
-							}
-						}
-						break;
-					case LIST:
-						List<?> values = (List<?>) invokeGetter(p);
-						if (values != null) {
-							List<?> valuesToClone = new ArrayList<>(values);
-							/*System.out.println("Cloning of property " + p);
-									System.out.println("Values to clone are: ");
-									for (Object value : valuesToClone) {
-									System.out.println("* " + value);
-									}*/
-							for (Object value : valuesToClone) {
-								switch (p.getCloningStrategy()) {
-									case CLONE:
-										if (getModelFactory().getStringEncoder().isConvertable(p.getType())) {
-											Object clonedValue = null;
-											try {
-												String clonedValueAsString = getModelFactory().getStringEncoder().toString(value);
-												clonedValue = getModelFactory().getStringEncoder().fromString(p.getType(),
-														clonedValueAsString);
-											} catch (InvalidDataException e) {
-												throw new ModelExecutionException(e);
-											}
-											List<?> l = (List<?>) clonedObjectHandler.invokeGetter(p);
-											clonedObjectHandler.invokeAdder(p, clonedValue);
-										}
-										else if (ModelEntity.isModelEntity(p.getType()) && value instanceof CloneableProxyObject) {
-											Object clonedValue = clonedObjects.get(value);
-											if (!isPartOfContext(value, EmbeddingType.CLOSURE, context)) {
-												clonedValue = null;
-											}
-											if (clonedValue != null) {
-												clonedObjectHandler.invokeAdder(p, clonedValue);
-											}
-										}
-										break;
-									case REFERENCE:
-										Object referenceValue = value != null ? clonedObjects.get(value) : null;
-										if (referenceValue == null) {
-											referenceValue = value;
-										}
-										clonedObjectHandler.invokeAdder(p, referenceValue);
-										break;
-									case FACTORY:
-										// TODO Not implemented
-										break;
-									case IGNORE:
-										break;
-								}
-
-							}
-						}
-						break;
-					default:
-						break;
-				}
-
-			}
-		} finally {
-			clonedObjectHandler.createdByCloning = false;
-		}
-
-		return clonedObject;
-	}
-
-	/**
-	 * Internally used for cloning computation This is the method which determine if a value belongs to derived object graph closure
-	 */
-	private boolean isPartOfContext(Object aValue, EmbeddingType embeddingType, Object... context) {
-		if (context == null || context.length == 0) {
-			return true;
-		}
-
-		for (Object o : context) {
-			// Very important: we first have to check if the value is contained in context
-			if (aValue == o) {
-				return true;
-			}
-			if (getModelFactory().isEmbedddedIn(o, aValue, embeddingType, context)) {
-				return true;
-			}
-		}
-
-		// System.out.println("Sorry "+aValue+" is not part of context "+context);
+		// Closure of the context is computed once for the whole cloning
+		EmbeddingClosure contextClosure = context != null && context.length > 0
+				? new EmbeddingClosure(getModelFactory(), EmbeddingType.CLOSURE, context)
+				: null;
 
-		return false;
+		return (I) new CloningEngine(getModelFactory(), contextClosure).cloneObjects(getObject()).get(0);
 	}
 
 	/**
@@ -2189,25 +2414,9 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			}
 		}
 
-		Hashtable<CloneableProxyObject, Object> clonedObjects = new Hashtable<>();
-
-		for (Object o : someObjects) {
-			ProxyMethodHandler<?> clonedObjectHandler = getModelFactory().getHandler(o);
-			clonedObjectHandler.performClone(clonedObjects, someObjects);
-		}
-
-		for (CloneableProxyObject o : clonedObjects.keySet()) {
-			ProxyMethodHandler<?> clonedObjectHandler = getModelFactory().getHandler(o);
-			clonedObjectHandler.finalizeClone(clonedObjects, someObjects);
-		}
-
-		List<Object> returned = new ArrayList<>();
-		for (int i = 0; i < someObjects.length; i++) {
-			Object o = someObjects[i];
-			returned.add(clonedObjects.get(o));
-		}
-
-		return returned;
+		EmbeddingClosure contextClosure = someObjects.length > 0 ? new EmbeddingClosure(getModelFactory(), EmbeddingType.CLOSURE, someObjects)
+				: null;
+		return new CloningEngine(getModelFactory(), contextClosure).cloneObjects(someObjects);
 	}
 
 	/**
@@ -2461,10 +2670,17 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	private String internallyInvokeToString() throws ModelDefinitionException {
 		StringBuilder sb = new StringBuilder();
 		sb.append(getModelEntity().getImplementedInterface().getSimpleName() + "[");
-		List<String> variables = new ArrayList<>(propertyImplementations.keySet());
+		List<String> variables = new ArrayList<>();
+		if (propertyImplementations != null) {
+			for (ModelProperty<? super I> property : getModelEntity().getPropertyIterable()) {
+				if (propertyImplementations[getModelEntity().getPropertyIndex(property.getPropertyIdentifier())] != null) {
+					variables.add(property.getPropertyIdentifier());
+				}
+			}
+		}
 		Collections.sort(variables);
 		for (String var : variables) {
-			Object obj = propertyImplementations.get(var).get();
+			Object obj = propertyImplementations[getModelEntity().getPropertyIndex(var)].get();
 			String s = null;
 			if (obj != null) {
 				if (!(obj instanceof ProxyObject)) {
@@ -2538,11 +2754,13 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	private void internallyInvokeSetModified(boolean modified) throws ModelDefinitionException {
 
 		if (modified) {
-			if (!isDeserializing() && !isSerializing()) {
+			if (!isDeserializing() && !isSerializing() && !loadingLazyContent) {
+				// Reported for each modification, used by incremental serialization
+				getModelFactory().objectHasBeenModified(getObject());
 				boolean old = this.modified;
 				this.modified = modified;
 				if (!old) {
-					firePropertyChange(MODIFIED, old, modified);
+					fireModifiedChange(old, modified);
 					if (getModelEntity().getModify() != null && getModelEntity().getModify().forward() != null) {
 						ModelProperty<? super I> modelProperty = getModelEntity().getModelProperty(getModelEntity().getModify().forward());
 						if (modelProperty != null) {
@@ -2557,11 +2775,13 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 		}
 		else if (this.modified != modified) {
 			this.modified = modified;
-			firePropertyChange(MODIFIED, !modified, modified);
+			fireModifiedChange(!modified, modified);
 		}
 	}
 
-	private boolean enableAssertionChecking = false;
+	private volatile boolean enableAssertionChecking = false;
+	// Set when this object is registered in a pattern instance, never reset as stake holders are never unregistered
+	private volatile boolean patternStakeHolder = false;
 
 	private void invokeEnableAssertionChecking() {
 		this.enableAssertionChecking = true;
@@ -2572,11 +2792,15 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 	}
 
 	public Stack<Method> getAssertionCheckingStack() {
+		if (assertionCheckingStack == null) {
+			assertionCheckingStack = new Stack<>();
+		}
 		return assertionCheckingStack;
 	}
 
 	private boolean checkOnEntry(Method method, Object[] args) {
 
+		Stack<Method> assertionCheckingStack = getAssertionCheckingStack();
 		if (!assertionCheckingStack.isEmpty() && assertionCheckingStack.peek() == method) {
 			return false;
 		}
@@ -2597,6 +2821,9 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			if (jmlMethodDefinition.getEnsures() != null) {
 				// System.out.println("Init post-condition " + jmlMethodDefinition.getEnsures().getExpression());
 				Map<String, Object> historyValuesForThisMethod = ((JMLEnsures) jmlMethodDefinition.getEnsures()).checkOnEntry(this, args);
+				if (historyValues == null) {
+					historyValues = new HashMap<>();
+				}
 				historyValues.put(method, historyValuesForThisMethod);
 			}
 		}
@@ -2621,13 +2848,14 @@ public class ProxyMethodHandler<I> extends IProxyMethodHandler implements Method
 			ModelProperty<? super I> property = getModelEntity().getPropertyForMethod(method);
 			if (jmlMethodDefinition.getEnsures() != null) {
 				// System.out.println("Check post-condition " + jmlMethodDefinition.getEnsures().getExpression());
-				((JMLEnsures) jmlMethodDefinition.getEnsures()).checkOnExit(this, args, historyValues.get(method));
+				((JMLEnsures) jmlMethodDefinition.getEnsures()).checkOnExit(this, args,
+						historyValues != null ? historyValues.get(method) : null);
 			}
 		}
 
 		// checkedMethod = null;
 
-		assertionCheckingStack.pop();
+		getAssertionCheckingStack().pop();
 
 	}
 
@@ -83,7 +83,6 @@ public class StringEncoder {
 		throw new InvalidDataException("Supplied value has no converter for type " + aClass.getName());
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public <T> T fromString(Class<T> type, String value) throws InvalidDataException {
 		if (value == null) {
 			return null;
@@ -91,7 +90,25 @@ public class StringEncoder {
 		if (type == null) {
 			return null;
 		}
-		Converter<T> converter = converterForClass(type);
+		return fromString(type, converterForClass(type), value);
+	}
+
+	/**
+	 * Decode supplied value as an instance of supplied type, using a converter previously retrieved with
+	 * {@link #converterForClass(Class)}
+	 * 
+	 * @param type
+	 * @param converter
+	 *            converter to use, may be null (enums)
+	 * @param value
+	 * @return
+	 * @throws InvalidDataException
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public <T> T fromString(Class<T> type, Converter<T> converter, String value) throws InvalidDataException {
+		if (value == null) {
+			return null;
+		}
 		if (converter != null) {
 			return converter.convertFromString(value, pamelaModelFactory);
 		}
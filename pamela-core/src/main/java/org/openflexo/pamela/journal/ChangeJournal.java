@@ -0,0 +1,673 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openflexo.pamela.exceptions.InvalidDataException;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+import org.openflexo.pamela.undo.AddCommand;
+import org.openflexo.pamela.undo.AtomicEdit;
+import org.openflexo.pamela.undo.CreateCommand;
+import org.openflexo.pamela.undo.DeleteCommand;
+import org.openflexo.pamela.undo.RemoveCommand;
+import org.openflexo.pamela.undo.SetCommand;
+import org.openflexo.pamela.undo.UndoManager;
+import org.openflexo.pamela.xml.XMLSaxDeserializer;
+import org.openflexo.pamela.xml.XMLSerializationCache;
+
+import javassist.util.proxy.ProxyObject;
+
+/**
+ * Append-only journal of the changes performed on a PAMELA model, stored in a directory next to a full snapshot of the model<br>
+ * 
+ * A journal is fed with the {@link AtomicEdit} stream received by the {@link UndoManager} of the {@link EditingContextImpl} it is
+ * registered to (see {@link EditingContextImpl#setChangeJournal(ChangeJournal)}). Each change of a serializable property, and each
+ * deletion, is appended to the journal as a record addressing objects by their identifier in last snapshot (objects created after this
+ * snapshot are given a new identifier at first use). Saving a change is then proportional to the size of the change, not to the size of
+ * the model.<br>
+ * 
+ * Records are written to a memory-mapped file and forced to disk every {@link #getRecordsPerSync()} records, or when {@link #sync()} is
+ * called. {@link #checkpoint()} writes a new snapshot and starts an empty journal. {@link #open(PamelaModelFactory, File)} rebuilds the
+ * model from last snapshot and replays all journaled records (a record which was incompletely written because of a crash is ignored).<br>
+ * 
+ * Note that changes performed while the {@link UndoManager} is disabled are not journaled. A change which cannot be journaled (a value
+ * which is neither a PAMELA object nor convertible to a string) is rejected with a {@link ModelExecutionException}. When a record cannot
+ * be written, the change is rejected as well and a checkpoint is performed before next record (see {@link #isCheckpointRequired()}).
+ */
+public class ChangeJournal implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(ChangeJournal.class.getPackage().getName());
+
+	public static final int DEFAULT_RECORDS_PER_SYNC = 100;
+
+	private static final Pattern SNAPSHOT_FILE_PATTERN = Pattern.compile("snapshot-(\\d+)\\.xml");
+	private static final Pattern JOURNAL_FILE_PATTERN = Pattern.compile("journal-(\\d+)\\.log");
+	// Prefix of identifiers given to objects which did not appear in last snapshot
+	private static final String NEW_OBJECT_PREFIX = "#";
+
+	// Record types
+	static final int CREATE = 1;
+	static final int DELETE = 2;
+	static final int UNDELETE = 3;
+	static final int SET = 4;
+	static final int ADD = 5;
+	static final int REMOVE = 6;
+
+	// Value tags
+	static final int NULL = 0;
+	static final int REFERENCE = 1;
+	static final int CONVERTED = 2;
+	static final int LIST = 3;
+
+	private final PamelaModelFactory factory;
+	private final Object root;
+	private final File directory;
+	private long generation;
+	private JournalFile journalFile;
+
+	// Identifiers of journaled objects
+	private final Map<Object, String> identifiers = new IdentityHashMap<>();
+	private final Set<Object> deletedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+	private int nextId = 0;
+
+	private int recordCount = 0;
+	private int recordsPerSync = DEFAULT_RECORDS_PER_SYNC;
+	private int unsyncedRecords = 0;
+	private boolean checkpointRequired = false;
+
+	private ChangeJournal(PamelaModelFactory factory, Object root, File directory, long generation) {
+		this.factory = factory;
+		this.root = root;
+		this.directory = directory;
+		this.generation = generation;
+	}
+
+	/**
+	 * Create a new journal for the model rooted on supplied object, writing an initial snapshot in supplied directory
+	 * 
+	 * @param factory
+	 * @param root
+	 * @param directory
+	 * @return
+	 * @throws IOException
+	 * @throws ModelDefinitionException
+	 */
+	public static ChangeJournal create(PamelaModelFactory factory, Object root, File directory)
+			throws IOException, ModelDefinitionException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		ChangeJournal returned = new ChangeJournal(factory, root, directory, Math.max(findLastGeneration(directory), 0));
+		returned.checkpoint();
+		return returned;
+	}
+
+	/**
+	 * Rebuild the model stored in supplied directory from last snapshot and journal, and return the journal, ready to record new changes
+	 * (the rebuilt model is available with {@link #getRoot()})
+	 * 
+	 * @param factory
+	 * @param directory
+	 * @return
+	 * @throws IOException
+	 * @throws ModelDefinitionException
+	 */
+	public static ChangeJournal open(PamelaModelFactory factory, File directory) throws IOException, ModelDefinitionException {
+		long generation = findLastGeneration(directory);
+		if (generation < 0) {
+			throw new FileNotFoundException("No snapshot found in " + directory);
+		}
+
+		// Rebuilding the model is not an edition
+		UndoManager undoManager = factory.getEditingContext() != null ? factory.getEditingContext().getUndoManager() : null;
+		boolean undoManagerWasEnabled = undoManager != null && undoManager.isEnabled();
+		if (undoManagerWasEnabled) {
+			undoManager.setEnabled(false);
+		}
+		try {
+			XMLSaxDeserializer deserializer = new XMLSaxDeserializer(factory, DeserializationPolicy.PERMISSIVE);
+			Object root;
+			try (InputStream in = new FileInputStream(getSnapshotFile(directory, generation))) {
+				root = deserializer.deserializeDocument(in);
+			} catch (IOException | ModelDefinitionException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException("Cannot read snapshot stored in " + directory, e);
+			}
+
+			ChangeJournal returned = new ChangeJournal(factory, root, directory, generation);
+			Map<String, Object> objects = new HashMap<>(deserializer.getObjectsWithId());
+			for (Map.Entry<String, Object> entry : objects.entrySet()) {
+				returned.identifiers.put(entry.getValue(), entry.getKey());
+			}
+			File file = getJournalFile(directory, generation);
+			List<byte[]> records = new ArrayList<>();
+			JournalFile journalFile = file.exists() ? JournalFile.open(file, records) : JournalFile.create(file);
+			try {
+				returned.replay(records, objects);
+			} catch (IOException | ModelDefinitionException | RuntimeException e) {
+				journalFile.close();
+				throw e;
+			}
+			returned.journalFile = journalFile;
+			returned.recordCount = records.size();
+			return returned;
+		} finally {
+			if (undoManagerWasEnabled) {
+				undoManager.setEnabled(true);
+			}
+		}
+	}
+
+	public Object getRoot() {
+		return root;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Return number of records appended since last snapshot
+	 * 
+	 * @return
+	 */
+	public synchronized int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Return number of records after which journal is forced to disk, 0 meaning that journal is only forced on {@link #sync()}
+	 * 
+	 * @return
+	 */
+	public synchronized int getRecordsPerSync() {
+		return recordsPerSync;
+	}
+
+	public synchronized void setRecordsPerSync(int recordsPerSync) {
+		this.recordsPerSync = recordsPerSync;
+	}
+
+	/**
+	 * Return boolean indicating that a record could not be written: a {@link #checkpoint()} is performed before next record
+	 * 
+	 * @return
+	 */
+	public synchronized boolean isCheckpointRequired() {
+		return checkpointRequired;
+	}
+
+	/**
+	 * Force all journaled records to disk
+	 */
+	public synchronized void sync() {
+		if (journalFile != null) {
+			journalFile.force();
+			unsyncedRecords = 0;
+		}
+	}
+
+	/**
+	 * Write a full snapshot of the model, and start a new empty journal<br>
+	 * Snapshot is written incrementally (see {@link XMLSerializationCache}): only subtrees modified since previous checkpoint are written
+	 * again
+	 * 
+	 * @throws IOException
+	 * @throws ModelDefinitionException
+	 */
+	public synchronized void checkpoint() throws IOException, ModelDefinitionException {
+		long newGeneration = generation + 1;
+		File snapshotFile = getSnapshotFile(directory, newGeneration);
+		File temporaryFile = new File(directory, snapshotFile.getName() + ".tmp");
+		try (FileOutputStream fileOut = new FileOutputStream(temporaryFile); OutputStream out = new BufferedOutputStream(fileOut)) {
+			factory.serializeIncrementally(root, out, SerializationPolicy.PERMISSIVE, false);
+			out.flush();
+			// Content of new snapshot must be on disk before it is published
+			fileOut.getChannel().force(true);
+		}
+		try {
+			Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		JournalFile newJournalFile = JournalFile.create(getJournalFile(directory, newGeneration));
+		// Renaming of new snapshot and creation of new journal must be on disk before previous generation is deleted
+		syncDirectory(directory);
+
+		// New snapshot is available, previous ones and their journals are not needed anymore
+		if (journalFile != null) {
+			journalFile.close();
+		}
+		deletePreviousGenerations(directory, newGeneration);
+		journalFile = newJournalFile;
+		generation = newGeneration;
+
+		identifiers.clear();
+		identifiers.putAll(factory.getSerializationCache(root).getIdentifiers());
+		deletedObjects.clear();
+		nextId = 0;
+		recordCount = 0;
+		unsyncedRecords = 0;
+		checkpointRequired = false;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (journalFile != null) {
+			journalFile.close();
+			journalFile = null;
+		}
+	}
+
+	/**
+	 * Append supplied edit to this journal, if it concerns the serialized state of the model<br>
+	 * This is called by the {@link UndoManager} for all edits it receives, including those received while undoing or redoing, before the
+	 * edit is performed
+	 * 
+	 * @param edit
+	 * @throws ModelExecutionException
+	 *             when edit cannot be journaled: edit should then not be performed
+	 */
+	public synchronized void record(AtomicEdit<?> edit) {
+		if (journalFile == null || !edit.isSignificant()) {
+			return;
+		}
+		if (checkpointRequired) {
+			// Edits are recorded before being performed: model does not include this edit yet
+			try {
+				checkpoint();
+			} catch (IOException | ModelDefinitionException e) {
+				throw new ModelExecutionException("Cannot journal " + edit.getPresentationName() + ": checkpoint failed", e);
+			}
+		}
+		try {
+			if (edit instanceof SetCommand) {
+				SetCommand<?> setCommand = (SetCommand<?>) edit;
+				if (setCommand.getModelProperty().isSerializable()) {
+					appendPropertyRecord(SET, setCommand.getObject(), setCommand.getModelProperty(), setCommand.getNewValue(), -1);
+				}
+			}
+			else if (edit instanceof AddCommand) {
+				AddCommand<?> addCommand = (AddCommand<?>) edit;
+				if (addCommand.getModelProperty().isSerializable()) {
+					appendPropertyRecord(ADD, addCommand.getObject(), addCommand.getModelProperty(), addCommand.getAddedValue(),
+							addCommand.getIndex());
+				}
+			}
+			else if (edit instanceof RemoveCommand) {
+				RemoveCommand<?> removeCommand = (RemoveCommand<?>) edit;
+				if (removeCommand.getModelProperty().isSerializable()) {
+					appendPropertyRecord(REMOVE, removeCommand.getObject(), removeCommand.getModelProperty(),
+							removeCommand.getRemovedValue(), -1);
+				}
+			}
+			else if (edit instanceof DeleteCommand) {
+				// Deletion of an object which was never journaled is not relevant
+				String id = identifiers.get(edit.getObject());
+				if (id != null && deletedObjects.add(edit.getObject())) {
+					appendObjectRecord(DELETE, id);
+				}
+			}
+			else if (edit instanceof CreateCommand) {
+				// New objects are journaled at first use, only undeletion is relevant here
+				if (deletedObjects.remove(edit.getObject())) {
+					appendObjectRecord(UNDELETE, identifiers.get(edit.getObject()));
+				}
+			}
+		} catch (InvalidDataException | ModelDefinitionException e) {
+			// Nothing was written for this edit, which is rejected
+			throw new ModelExecutionException("Cannot journal " + edit.getPresentationName(), e);
+		} catch (IOException e) {
+			logger.severe("Cannot write journal in " + directory + ": " + e.getMessage() + ". A checkpoint is required.");
+			checkpointRequired = true;
+			throw new ModelExecutionException("Cannot journal " + edit.getPresentationName(), e);
+		}
+	}
+
+	private void appendObjectRecord(int type, String id) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type);
+		out.writeUTF(id);
+		append(bytes.toByteArray());
+	}
+
+	private void appendPropertyRecord(int type, Object object, ModelProperty<?> property, Object value, int index)
+			throws IOException, InvalidDataException, ModelDefinitionException {
+		String id = getIdentifier(object);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type);
+		out.writeUTF(id);
+		out.writeUTF(property.getPropertyIdentifier());
+		if (type == ADD) {
+			out.writeInt(index);
+		}
+		// Writing the value might append records declaring new objects, before this one
+		writeValue(out, property, value);
+		append(bytes.toByteArray());
+	}
+
+	private void append(byte[] record) throws IOException {
+		journalFile.append(record);
+		recordCount++;
+		if (recordsPerSync > 0 && ++unsyncedRecords >= recordsPerSync) {
+			sync();
+		}
+	}
+
+	/**
+	 * Return identifier of supplied object, journaling its creation and its current state when it was not journaled yet
+	 */
+	private String getIdentifier(Object object) throws IOException, InvalidDataException, ModelDefinitionException {
+		String returned = identifiers.get(object);
+		if (returned == null) {
+			ProxyMethodHandler<Object> handler = object instanceof ProxyObject ? factory.getHandler(object) : null;
+			if (handler == null) {
+				throw new InvalidDataException("Cannot journal object " + object + " which is not a PAMELA object");
+			}
+			returned = NEW_OBJECT_PREFIX + (nextId++);
+			identifiers.put(object, returned);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(CREATE);
+			out.writeUTF(returned);
+			out.writeUTF(handler.getModelEntity().getImplementedInterface().getName());
+			append(bytes.toByteArray());
+
+			// Previous changes of this object were not journaled, journal its current state
+			Iterator<ModelProperty<? super Object>> properties = handler.getModelEntity().getProperties();
+			while (properties.hasNext()) {
+				ModelProperty<? super Object> property = properties.next();
+				if (!property.isSerializable()) {
+					continue;
+				}
+				Object value = handler.invokeGetter(property);
+				switch (property.getCardinality()) {
+					case SINGLE:
+						if (value != null) {
+							appendPropertyRecord(SET, object, property, value, -1);
+						}
+						break;
+					case LIST:
+						if (value != null) {
+							for (Object element : new ArrayList<>((List<?>) value)) {
+								appendPropertyRecord(ADD, object, property, element, -1);
+							}
+						}
+						break;
+					default:
+						throw new InvalidDataException("Cannot journal property " + property.getPropertyIdentifier() + " with cardinality "
+								+ property.getCardinality());
+				}
+			}
+		}
+		return returned;
+	}
+
+	private void writeValue(DataOutputStream out, ModelProperty<?> property, Object value)
+			throws IOException, InvalidDataException, ModelDefinitionException {
+		if (value == null) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof ProxyObject) {
+			String id = getIdentifier(value);
+			out.writeByte(REFERENCE);
+			out.writeUTF(id);
+		}
+		else if (value instanceof List) {
+			List<?> list = new ArrayList<>((List<?>) value);
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				writeValue(out, property, element);
+			}
+		}
+		else if (factory.getStringEncoder().isConvertable(property.getType())) {
+			byte[] text = factory.getStringEncoder().toString(value).getBytes(StandardCharsets.UTF_8);
+			out.writeByte(CONVERTED);
+			out.writeInt(text.length);
+			out.write(text);
+		}
+		else {
+			throw new InvalidDataException("Cannot journal value " + value + " of property " + property.getPropertyIdentifier());
+		}
+	}
+
+	/**
+	 * Apply supplied records to the model
+	 * 
+	 * @param records
+	 * @param objects
+	 *            objects by identifier, updated with created objects
+	 * @throws IOException
+	 * @throws ModelDefinitionException
+	 */
+	private void replay(List<byte[]> records, Map<String, Object> objects) throws IOException, ModelDefinitionException {
+		Map<String, ModelEntity<?>> entities = new HashMap<>();
+		Iterator<ModelEntity> iterator = factory.getModelContext().getEntities();
+		while (iterator.hasNext()) {
+			ModelEntity<?> entity = iterator.next();
+			entities.put(entity.getImplementedInterface().getName(), entity);
+		}
+
+		for (byte[] record : records) {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+			int type = in.readByte();
+			String id = in.readUTF();
+			if (type == CREATE) {
+				String entityName = in.readUTF();
+				ModelEntity<?> entity = entities.get(entityName);
+				if (entity == null) {
+					throw new ModelDefinitionException("Journal refers to unknown entity " + entityName);
+				}
+				Object created = factory.newInstance(entity.getImplementedInterface());
+				objects.put(id, created);
+				identifiers.put(created, id);
+				nextId = Math.max(nextId, Integer.parseInt(id.substring(NEW_OBJECT_PREFIX.length())) + 1);
+				continue;
+			}
+
+			Object object = objects.get(id);
+			if (object == null) {
+				throw new IOException("Journal refers to unknown object " + id);
+			}
+			ProxyMethodHandler<Object> handler = factory.getHandler(object);
+			switch (type) {
+				case DELETE:
+					handler.invokeDeleter();
+					deletedObjects.add(object);
+					break;
+				case UNDELETE:
+					// Properties are restored by following records
+					handler.invokeUndeleter(false);
+					deletedObjects.remove(object);
+					break;
+				case SET:
+				case ADD:
+				case REMOVE:
+					ModelProperty<? super Object> property = handler.getModelEntity().getModelProperty(in.readUTF());
+					int index = type == ADD ? in.readInt() : -1;
+					Object value = readValue(in, property, objects);
+					if (type == SET) {
+						handler.invokeSetter(property, value);
+					}
+					else if (type == ADD) {
+						handler.invokeAdder(property, value, index);
+					}
+					else {
+						handler.invokeRemover(property, value);
+					}
+					break;
+				default:
+					throw new IOException("Invalid record type " + type + " in journal");
+			}
+		}
+	}
+
+	private Object readValue(DataInputStream in, ModelProperty<?> property, Map<String, Object> objects) throws IOException {
+		int tag = in.readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				String id = in.readUTF();
+				Object returned = objects.get(id);
+				if (returned == null) {
+					throw new IOException("Journal refers to unknown object " + id);
+				}
+				return returned;
+			case CONVERTED:
+				byte[] text = new byte[in.readInt()];
+				in.readFully(text);
+				try {
+					return factory.getStringEncoder().fromString(property.getType(), new String(text, StandardCharsets.UTF_8));
+				} catch (InvalidDataException e) {
+					throw new IOException("Cannot decode value of property " + property.getPropertyIdentifier(), e);
+				}
+			case LIST:
+				int size = in.readInt();
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(readValue(in, property, objects));
+				}
+				return list;
+			default:
+				throw new IOException("Invalid value tag " + tag + " in journal");
+		}
+	}
+
+	static File getSnapshotFile(File directory, long generation) {
+		return new File(directory, "snapshot-" + generation + ".xml");
+	}
+
+	static File getJournalFile(File directory, long generation) {
+		return new File(directory, "journal-" + generation + ".log");
+	}
+
+	/**
+	 * Force to disk the entries of supplied directory, so that files renamed or created in it survive a crash<br>
+	 * Some platforms do not allow to open a directory: entries are then assumed to be persisted by the file system
+	 */
+	private static void syncDirectory(File directory) {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			logger.fine("Cannot force directory " + directory + " to disk: " + e);
+		}
+	}
+
+	/**
+	 * Delete snapshots and journals of generations older than supplied one, listing supplied directory once (files of several older
+	 * generations may remain after a crash)
+	 */
+	private static void deletePreviousGenerations(File directory, long generation) throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			return;
+		}
+		for (String name : names) {
+			Matcher matcher = SNAPSHOT_FILE_PATTERN.matcher(name);
+			if (!matcher.matches()) {
+				matcher = JOURNAL_FILE_PATTERN.matcher(name);
+			}
+			if (matcher.matches() && Long.parseLong(matcher.group(1)) < generation) {
+				Files.deleteIfExists(new File(directory, name).toPath());
+			}
+		}
+	}
+
+	/**
+	 * Return generation of last snapshot stored in supplied directory, -1 if none
+	 */
+	private static long findLastGeneration(File directory) {
+		long returned = -1;
+		String[] names = directory.list();
+		if (names != null) {
+			for (String name : names) {
+				Matcher matcher = SNAPSHOT_FILE_PATTERN.matcher(name);
+				if (matcher.matches()) {
+					returned = Math.max(returned, Long.parseLong(matcher.group(1)));
+				}
+			}
+		}
+		return returned;
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file storing the records of a {@link ChangeJournal}<br>
+ * 
+ * File is written through memory-mapped regions, which are forced to disk on {@link #force()}. Each record is stored as its length, the
+ * CRC32 of its content and its content: while opening an existing file, records are read until the first incomplete or corrupted one
+ * (which is the trace of an interrupted write), and file is truncated there.
+ */
+class JournalFile implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(JournalFile.class.getPackage().getName());
+
+	static final byte[] MAGIC = { 'P', 'M', 'L', 'J' };
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = MAGIC.length + 4;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int REGION_SIZE = 1 << 20;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private MappedByteBuffer region;
+	// Position of the end of last record
+	private long end;
+
+	private JournalFile(File file, long end) throws IOException {
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = randomAccessFile.getChannel();
+		this.end = end;
+	}
+
+	/**
+	 * Create a new empty journal file, replacing existing one if any
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static JournalFile create(File file) throws IOException {
+		JournalFile returned = new JournalFile(file, 0);
+		returned.channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MAGIC).putInt(VERSION).flip();
+		while (header.hasRemaining()) {
+			returned.channel.write(header, returned.end + header.position());
+		}
+		returned.end = HEADER_SIZE;
+		returned.channel.force(true);
+		return returned;
+	}
+
+	/**
+	 * Open an existing journal file in order to append new records, after having read all its valid records
+	 * 
+	 * @param file
+	 * @param records
+	 *            list where valid records are stored
+	 * @return
+	 * @throws IOException
+	 */
+	static JournalFile open(File file, List<byte[]> records) throws IOException {
+		long end = read(file, records);
+		JournalFile returned = new JournalFile(file, end);
+		// Discard the trace of an interrupted write
+		returned.channel.truncate(end);
+		return returned;
+	}
+
+	/**
+	 * Read all valid records of supplied file
+	 * 
+	 * @return position of the end of last valid record
+	 */
+	private static long read(File file, List<byte[]> records) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel readChannel = raf.getChannel()) {
+			long size = readChannel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("Invalid journal file " + file);
+			}
+			MappedByteBuffer buffer = readChannel.map(MapMode.READ_ONLY, 0, size);
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+				throw new IOException("Invalid journal file " + file);
+			}
+			CRC32 crc = new CRC32();
+			while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (length <= 0 || length > buffer.remaining()) {
+					break;
+				}
+				byte[] record = new byte[length];
+				buffer.get(record);
+				crc.reset();
+				crc.update(record, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					logger.warning("Corrupted record found in journal " + file + ", ignoring following records");
+					break;
+				}
+				records.add(record);
+				size = buffer.position();
+			}
+			return records.isEmpty() ? HEADER_SIZE : size;
+		}
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Append a record at the end of this file<br>
+	 * Record is not guaranteed to be on disk until {@link #force()} is called
+	 * 
+	 * @param record
+	 * @throws IOException
+	 */
+	void append(byte[] record) throws IOException {
+		int required = RECORD_HEADER_SIZE + record.length;
+		if (region == null || region.remaining() < required) {
+			if (region != null) {
+				region.force();
+			}
+			region = channel.map(MapMode.READ_WRITE, end, Math.max(REGION_SIZE, required));
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		region.putInt(record.length);
+		region.putInt((int) crc.getValue());
+		region.put(record);
+		end += required;
+	}
+
+	/**
+	 * Force all appended records to disk
+	 */
+	void force() {
+		if (region != null) {
+			region.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		region = null;
+		try {
+			// Remove unused part of last mapped region
+			channel.truncate(end);
+		} catch (IOException e) {
+			// Might happen on platforms where a mapped file cannot be truncated, unused part is ignored while reading
+			logger.warning("Could not truncate journal " + file + ": " + e.getMessage());
+		}
+		channel.close();
+		randomAccessFile.close();
+	}
+}
@@ -84,6 +84,8 @@ import org.openflexo.pamela.exceptions.MissingImplementationException;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
 import org.openflexo.pamela.exceptions.ModelExecutionException;
 import org.openflexo.pamela.exceptions.PropertyClashException;
+import org.openflexo.pamela.factory.CloningPlan;
+import org.openflexo.pamela.factory.MethodDispatchTable;
 import org.openflexo.pamela.factory.PamelaModelFactory;
 import org.openflexo.pamela.factory.PamelaUtils;
 import org.openflexo.pamela.factory.ProxyMethodHandler;
@@ -191,6 +193,21 @@ public class ModelEntity<I> {
 
 	private final Map<Class<I>, Set<Method>> delegateImplementations;
 
+	/**
+	 * Dense index of each property of this entity (including inherited ones), computed once properties have been merged
+	 */
+	private final Map<String, Integer> propertyIndexes = new HashMap<>();
+
+	/**
+	 * The dispatch table used by {@link ProxyMethodHandler} to dispatch method calls on instances of this entity
+	 */
+	private final MethodDispatchTable<I> methodDispatchTable;
+
+	/**
+	 * The plan used to clone instances of this entity, lazily computed once properties have been merged
+	 */
+	private volatile CloningPlan<I> cloningPlan;
+
 	ModelEntity(@Nonnull Class<I> implementedInterface) throws ModelDefinitionException {
 
 		super(/*implementedInterface.getName()*/);
@@ -295,6 +312,8 @@ public class ModelEntity<I> {
 			registerJMLAnnotations();
 		}
 
+		methodDispatchTable = new MethodDispatchTable<>(this);
+
 		// Init delegate implementations
 		delegateImplementations = new HashMap<>();
 		for (Class<?> c : getImplementedInterface().getDeclaredClasses()) {
@@ -409,6 +428,16 @@ public class ModelEntity<I> {
 		return delegateImplementations;
 	}
 
+	/**
+	 * Return the dispatch table used by {@link ProxyMethodHandler} to dispatch method calls on instances of this entity<br>
+	 * This table is shared by all instances of this entity, and is lazily filled while methods get invoked
+	 * 
+	 * @return
+	 */
+	public MethodDispatchTable<I> getMethodDispatchTable() {
+		return methodDispatchTable;
+	}
+
 	private void checkImplementationsClash() throws ModelDefinitionException {
 
 		// System.out.println("checkImplementationsClash() for " + getImplementedInterface());
@@ -484,6 +513,7 @@ public class ModelEntity<I> {
 		}
 		initialized = true;
 		for (ModelProperty<? super I> p : properties.values()) {
+			propertyIndexes.put(p.getPropertyIdentifier(), propertyIndexes.size());
 			propertyMethods.put(new ModelMethod(p.getGetterMethod()), p);
 			if (p.getSetterMethod() != null) {
 				propertyMethods.put(new ModelMethod(p.getSetterMethod()), p);
@@ -910,6 +940,22 @@ public class ModelEntity<I> {
 		return returned.iterator();
 	}
 
+	/**
+	 * Return the plan used to clone instances of this entity<br>
+	 * This plan is computed on first call and shared by all instances of this entity
+	 * 
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	public CloningPlan<I> getCloningPlan() throws ModelDefinitionException {
+		CloningPlan<I> returned = cloningPlan;
+		if (returned == null) {
+			returned = new CloningPlan<>(this);
+			cloningPlan = returned;
+		}
+		return returned;
+	}
+
 	private void appendProperty(ModelProperty<? super I> p, List<ModelProperty<? super I>> list) throws ModelDefinitionException {
 		if (p.getCloneAfterProperty() != null) {
 			appendProperty((ModelProperty<? super I>) p.getCloneAfterProperty(), list);
@@ -928,6 +974,18 @@ public class ModelEntity<I> {
 		return properties.size();
 	}
 
+	/**
+	 * Return the index of property identified by supplied identifier, in the range [0, {@link #getPropertiesSize()}[<br>
+	 * This index is used by {@link ProxyMethodHandler} to store property values in a compact way
+	 * 
+	 * @param propertyIdentifier
+	 * @return the index of the property, or -1 if no such property is defined for this entity
+	 */
+	public int getPropertyIndex(String propertyIdentifier) {
+		Integer returned = propertyIndexes.get(propertyIdentifier);
+		return returned != null ? returned : -1;
+	}
+
 	@Override
 	public String toString() {
 		return "ModelEntity[" + getImplementedInterface().getSimpleName() + "]";
@@ -2,13 +2,14 @@ package org.openflexo.pamela.model.property;
 
 import java.beans.PropertyChangeSupport;
 
+import org.openflexo.pamela.annotations.Getter.Cardinality;
 import org.openflexo.pamela.factory.IProxyMethodHandler;
+import org.openflexo.pamela.factory.NotificationBatch;
 import org.openflexo.pamela.factory.PamelaModelFactory;
 import org.openflexo.pamela.factory.PamelaModelFactory.PAMELAProxyFactory;
 import org.openflexo.pamela.factory.ProxyMethodHandler;
 import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelProperty;
-import org.openflexo.toolbox.HasPropertyChangeSupport;
 
 /**
  * Base abstract class providing property implementation
@@ -60,10 +61,12 @@ public abstract class AbstractPropertyImplementation<I, T> implements PropertyIm
 	}
 
 	protected void firePropertyChange(String propertyIdentifier, Object oldValue, Object value) {
-		if (getObject() instanceof HasPropertyChangeSupport && !getHandler().isDeleting()) {
-			PropertyChangeSupport propertyChangeSupport = ((HasPropertyChangeSupport) getObject()).getPropertyChangeSupport();
-			if (propertyChangeSupport != null) {
-				propertyChangeSupport.firePropertyChange(propertyIdentifier, oldValue, value);
+		if (!getHandler().isDeleting() && !getHandler().isScheduledForDeletion()) {
+			PropertyChangeSupport propertyChangeSupport = getHandler().getObjectPropertyChangeSupport();
+			// No event is built when nobody listens
+			if (propertyChangeSupport != null && propertyChangeSupport.hasListeners(propertyIdentifier)) {
+				NotificationBatch.firePropertyChange(getHandler().getEditingContext(), getObject(), propertyChangeSupport,
+						propertyIdentifier, oldValue, value, getProperty().getCardinality() != Cardinality.SINGLE);
 			}
 		}
 	}
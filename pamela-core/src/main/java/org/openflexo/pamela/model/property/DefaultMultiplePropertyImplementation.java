@@ -1,12 +1,17 @@
 package org.openflexo.pamela.model.property;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.openflexo.pamela.DeletableProxyObject;
 import org.openflexo.pamela.exceptions.InvalidDataException;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
 import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.BulkDeletion;
 import org.openflexo.pamela.factory.ProxyMethodHandler;
 import org.openflexo.pamela.model.ModelProperty;
 
@@ -21,11 +26,29 @@ import org.openflexo.pamela.model.ModelProperty;
  *            accessed type for the property
  */
 public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropertyImplementation<I, List<T>> implements
-		MultiplePropertyImplementation<I, T>, SettablePropertyImplementation<I, List<T>>, ReindexableListPropertyImplementation<I, T> {
+		MultiplePropertyImplementation<I, T>, SettablePropertyImplementation<I, List<T>>, ReindexableListPropertyImplementation<I, T>,
+		InitializablePropertyImplementation<I, List<T>> {
 
 	private List<T> internalValues;
 	private List<T> oldValues;
 
+	/**
+	 * Values removed during a {@link BulkDeletion}, which are still to be removed from internal values
+	 */
+	private Set<Object> pendingRemovals;
+	/**
+	 * Internal values not removed during current {@link BulkDeletion}
+	 */
+	private Set<Object> remainingValues;
+	/**
+	 * Internal values without pending removals, computed on demand
+	 */
+	private List<T> filteredValues;
+	/**
+	 * View returned by the getter while removals are pending
+	 */
+	private List<T> pendingRemovalsView;
+
 	public DefaultMultiplePropertyImplementation(ProxyMethodHandler<I> handler, ModelProperty<I> property,
 			Class<? extends List> listImplementationClass) throws InvalidDataException, ModelExecutionException {
 		super(handler, property);
@@ -41,6 +64,13 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		if (getProperty().getGetter() == null) {
 			throw new ModelExecutionException("Getter is not defined for property " + getProperty());
 		}
+		if (pendingRemovals != null) {
+			// Do not apply pending removals here: the getter is called for each removal of a deleted object
+			if (pendingRemovalsView == null) {
+				pendingRemovalsView = new PendingRemovalsView();
+			}
+			return pendingRemovalsView;
+		}
 		return internalValues;
 	}
 
@@ -50,6 +80,7 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 				&& !getHandler().isCreatedByCloning() && !getHandler().isDeleting()) {
 			throw new ModelExecutionException("Setter is not defined for property " + getProperty());
 		}
+		applyPendingRemovals();
 		// List<?> oldValues = (List<?>) getHandler().invokeGetter(getProperty());
 		List<T> oldValues = internalValues;
 		List<T> newValues = new ArrayList();
@@ -72,6 +103,15 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		}
 	}
 
+	@Override
+	public void initialize(List<T> values) {
+		applyPendingRemovals();
+		internalValues.clear();
+		if (values != null) {
+			internalValues.addAll(values);
+		}
+	}
+
 	@Override
 	public void update(List<T> aValue) throws ModelDefinitionException {
 		set(aValue);
@@ -88,10 +128,12 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 				&& !getHandler().isCreatedByCloning() && !getHandler().isDeleting() && !getHandler().isUndeleting()) {
 			throw new ModelExecutionException("Adder is not defined for property " + getProperty());
 		}
+		applyPendingRemovals();
 		// List<T> list = (List<T>) getHandler().invokeGetter(getProperty());
 		List<T> list = internalValues;
 
 		if (getProperty().getAllowsMultipleOccurences() || !list.contains(value)) {
+			getHandler().checkOppositeIsNotFrozen(getProperty(), value);
 			if (index == -1) {
 				list.add(value);
 			}
@@ -134,11 +176,24 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		if (getProperty().getRemover() == null) {
 			throw new ModelExecutionException("Remover is not defined for property " + getProperty());
 		}
-		// List<T> list = (List<T>) getHandler().invokeGetter(getProperty());
-		List<T> list = internalValues;
+		boolean removed;
+		BulkDeletion bulkDeletion = BulkDeletion.getBulkDeletionInProgress();
+		if (bulkDeletion != null && !getProperty().getAllowsMultipleOccurences() && bulkDeletion.isScheduledForDeletion(value)) {
+			removed = deferRemoval(bulkDeletion, value);
+		}
+		else {
+			applyPendingRemovals();
+			// List<T> list = (List<T>) getHandler().invokeGetter(getProperty());
+			List<T> list = internalValues;
+			int index = list.indexOf(value);
+			removed = index > -1;
+			if (removed) {
+				getHandler().checkOppositeIsNotFrozen(getProperty(), value);
+				list.remove(index);
+			}
+		}
 
-		if (list.contains(value)) {
-			list.remove(value);
+		if (removed) {
 			firePropertyChange(getProperty().getPropertyIdentifier(), value, null);
 			// Handle inverse property for new value
 			if (getProperty().hasExplicitInverseProperty() && value != null) {
@@ -172,6 +227,7 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		if (getProperty().getReindexer() == null) {
 			throw new ModelExecutionException("Reindexer is not defined for property " + getProperty());
 		}
+		applyPendingRemovals();
 		// List<T> list = (List<T>) getHandler().invokeGetter(getProperty());
 		List<T> list = internalValues;
 
@@ -200,6 +256,71 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		}
 	}
 
+	/**
+	 * Removal of an object deleted by a {@link BulkDeletion}: value is removed from internal values at the end of the deletion, in a single
+	 * pass for all removed values
+	 */
+	private boolean deferRemoval(BulkDeletion bulkDeletion, T value) {
+		if (pendingRemovals == null) {
+			pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<>());
+			remainingValues = Collections.newSetFromMap(new IdentityHashMap<>());
+			remainingValues.addAll(internalValues);
+			bulkDeletion.registerPendingRemovals(this);
+		}
+		if (remainingValues.contains(value)) {
+			getHandler().checkOppositeIsNotFrozen(getProperty(), value);
+			remainingValues.remove(value);
+			pendingRemovals.add(value);
+			filteredValues = null;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		if (pendingRemovals != null) {
+			if (remainingValues.contains(value)) {
+				return true;
+			}
+			if (pendingRemovals.contains(value)) {
+				return false;
+			}
+		}
+		return getValuesWithoutPendingRemovals().contains(value);
+	}
+
+	/**
+	 * Return internal values, without the values whose removal is pending
+	 */
+	private List<T> getValuesWithoutPendingRemovals() {
+		if (pendingRemovals == null) {
+			return internalValues;
+		}
+		if (filteredValues == null) {
+			filteredValues = new ArrayList<>(remainingValues.size());
+			for (T value : internalValues) {
+				if (!pendingRemovals.contains(value)) {
+					filteredValues.add(value);
+				}
+			}
+		}
+		return filteredValues;
+	}
+
+	/**
+	 * Remove from internal values the values whose removal was deferred during a {@link BulkDeletion}
+	 */
+	public void applyPendingRemovals() {
+		if (pendingRemovals != null) {
+			Set<Object> removedValues = pendingRemovals;
+			pendingRemovals = null;
+			remainingValues = null;
+			filteredValues = null;
+			internalValues.removeIf(removedValues::contains);
+		}
+	}
+
 	@Override
 	public void delete(List<Object> embeddedObjects, Object... context) throws ModelDefinitionException {
 		// We retrieve and store old value for a potential undelete
@@ -235,4 +356,34 @@ public class DefaultMultiplePropertyImplementation<I, T> extends AbstractPropert
 		}
 	}
 
+	/**
+	 * Read-only view of the values of this property while removals are pending during a {@link BulkDeletion}: membership is answered from
+	 * pending and remaining values, other accesses are served by a filtered copy of internal values
+	 */
+	private class PendingRemovalsView extends AbstractList<T> {
+
+		@Override
+		public T get(int index) {
+			return getValuesWithoutPendingRemovals().get(index);
+		}
+
+		@Override
+		public int size() {
+			if (pendingRemovals != null) {
+				return internalValues.size() - pendingRemovals.size();
+			}
+			return internalValues.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return DefaultMultiplePropertyImplementation.this.contains(o);
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			return getValuesWithoutPendingRemovals().indexOf(o);
+		}
+	}
+
 }
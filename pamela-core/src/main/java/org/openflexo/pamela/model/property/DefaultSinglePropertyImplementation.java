@@ -24,7 +24,7 @@ import javassist.util.proxy.ProxyObject;
  *            accessed type for the property
  */
 public class DefaultSinglePropertyImplementation<I, T> extends AbstractPropertyImplementation<I, T>
-		implements SinglePropertyImplementation<I, T> {
+		implements SinglePropertyImplementation<I, T>, InitializablePropertyImplementation<I, T> {
 
 	private T internalValue = null;
 	private T oldValue = null;
@@ -37,6 +37,11 @@ public class DefaultSinglePropertyImplementation<I, T> extends AbstractPropertyI
 		this.internalValue = aValue;
 	}
 
+	@Override
+	public void initialize(T aValue) {
+		setInternalValue(aValue);
+	}
+
 	@Override
 	public T get() throws ModelDefinitionException {
 		if (getProperty().getGetter() == null) {
@@ -101,12 +106,12 @@ public class DefaultSinglePropertyImplementation<I, T> extends AbstractPropertyI
 			}
 		}*/
 
-		if (getHandler().getScheduledSets().get(getProperty()) == aValue) {
+		if (getHandler().getScheduledSet(getProperty()) == aValue) {
 			// This set was already scheduled (we are entering in an infinite loop): break NOW
 			return;
 		}
 
-		getHandler().getScheduledSets().remove(getProperty());
+		getHandler().removeScheduledSet(getProperty());
 
 		// System.out.println("Object " + getModelEntity().getImplementedInterface().getSimpleName() + " set "
 		// + property.getPropertyIdentifier() + " with " + value);
@@ -122,6 +127,10 @@ public class DefaultSinglePropertyImplementation<I, T> extends AbstractPropertyI
 		if (!isEqual(oldValue, aValue)) {
 			// System.out.println("Change for " + oldValue + " to " + value);
 			boolean hasInverse = getProperty().hasExplicitInverseProperty();
+			if (hasInverse) {
+				getHandler().checkOppositeIsNotFrozen(getProperty(), oldValue);
+				getHandler().checkOppositeIsNotFrozen(getProperty(), aValue);
+			}
 
 			getHandler().getScheduledSets().put(getProperty(), aValue);
 
@@ -0,0 +1,25 @@
+package org.openflexo.pamela.model.property;
+
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+
+/**
+ * Represents a {@link PropertyImplementation} whose value might be initialized without any side effect: neither inverse property
+ * management, nor PropertyChange notification, nor undo edit<br>
+ * This is used to install values of an object computed elsewhere (for example while materializing a copy-on-write clone)
+ *
+ * @param <I>
+ *            type of entity defining such property
+ * @param <T>
+ *            accessed type for the property
+ */
+public interface InitializablePropertyImplementation<I, T> extends PropertyImplementation<I, T> {
+
+	/**
+	 * Initialize internal value of this property with supplied value
+	 * 
+	 * @param value
+	 * @throws ModelDefinitionException
+	 */
+	public void initialize(T value) throws ModelDefinitionException;
+
+}
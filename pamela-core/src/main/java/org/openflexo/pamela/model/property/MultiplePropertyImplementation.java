@@ -24,4 +24,16 @@ public interface MultiplePropertyImplementation<I, T> extends PropertyImplementa
 	public void addTo(T aValue, int index) throws ModelDefinitionException;
 
 	public void removeFrom(T aValue) throws ModelDefinitionException;
+
+	/**
+	 * Return flag indicating if supplied value is one of the values of this property
+	 * 
+	 * @param aValue
+	 * @return
+	 * @throws ModelDefinitionException
+	 */
+	public default boolean contains(Object aValue) throws ModelDefinitionException {
+		List<T> values = get();
+		return values != null && values.contains(aValue);
+	}
 }
@@ -1,6 +1,7 @@
 package org.openflexo.pamela.patterns;
 
 import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.model.ModelEntity;
 
 import java.lang.reflect.Method;
 
@@ -40,4 +41,17 @@ public abstract class ExecutionMonitor {
      * @param returnValue value about to be returned by the method.
      */
     public abstract void leavingMethod(Object instance, Method method, Object[] args, Object returnValue);
+
+    /**
+     * Indicates whether this monitor should be notified of calls to supplied method on instances of supplied entity.
+     * Result is cached by the {@link PamelaMetaModel} for each (entity, method) pair, so that monitored calls don't pay for unrelated monitors:
+     * it must not depend on any state evolving after monitor registration.
+     * Default implementation monitors all methods of all entities.
+     * @param entity entity of instance on which the method is called.
+     * @param method called method.
+     * @return true if this monitor is interested in supplied method.
+     */
+    public boolean isMonitoring(ModelEntity<?> entity, Method method) {
+        return true;
+    }
 }
@@ -41,9 +41,12 @@ package org.openflexo.pamela.patterns;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openflexo.pamela.PamelaMetaModel;
 import org.openflexo.pamela.exceptions.ModelDefinitionException;
@@ -78,11 +81,18 @@ public abstract class PatternDefinition {
 	private final Map<Method, List<Requires>> preconditions;
 	private final Map<Method, List<Ensures>> postconditions;
 
+	// Pre/postconditions resolved for each method ever looked up (including methods not involved in this pattern, mapped to an empty
+	// list), so that equivalent methods are searched only once
+	private final Map<Method, List<Requires>> resolvedPreconditions;
+	private final Map<Method, List<Ensures>> resolvedPostconditions;
+
 	public PatternDefinition(String identifier, PamelaMetaModel pamelaMetaModel) {
 		this.identifier = identifier;
 		this.pamelaMetaModel = pamelaMetaModel;
 		preconditions = new HashMap<>();
 		postconditions = new HashMap<>();
+		resolvedPreconditions = new ConcurrentHashMap<>();
+		resolvedPostconditions = new ConcurrentHashMap<>();
 	}
 
 	public String getIdentifier() {
@@ -95,40 +105,67 @@ public abstract class PatternDefinition {
 
 	public abstract void finalizeDefinition() throws ModelDefinitionException;
 
-	public boolean isMethodInvolvedInPattern(Method method) {
-		for (Method m : preconditions.keySet()) {
-			if (PamelaUtils.methodIsEquivalentTo(method, m)) {
-				return true;
-			}
-		}
-		for (Method m : postconditions.keySet()) {
-			if (PamelaUtils.methodIsEquivalentTo(method, m)) {
-				return true;
+	/**
+	 * Resolve pre/postconditions of all methods of supplied entities, so that no lookup of equivalent methods is performed while
+	 * invoking them<br>
+	 * Called by {@link PamelaMetaModel} right after {@link #finalizeDefinition()}
+	 * 
+	 * @param modelEntities
+	 */
+	public void resolveMethodHooks(Collection<ModelEntity<?>> modelEntities) {
+		resolvedPreconditions.clear();
+		resolvedPostconditions.clear();
+		for (ModelEntity<?> modelEntity : modelEntities) {
+			for (Method method : modelEntity.getImplementedInterface().getMethods()) {
+				getPreconditions(method);
+				getPostconditions(method);
 			}
 		}
-		return false;
 	}
 
+	public boolean isMethodInvolvedInPattern(Method method) {
+		return getPreconditions(method) != null || getPostconditions(method) != null;
+	}
+
+	/**
+	 * Return preconditions declared for supplied method (or an equivalent one), null if none
+	 * 
+	 * @param method
+	 * @return
+	 */
 	public List<Requires> getPreconditions(Method method) {
-		List<Requires> returned = preconditions.get(method);
+		List<Requires> returned = resolvedPreconditions.get(method);
 		if (returned == null) {
-			for (Method m : preconditions.keySet()) {
-				if (PamelaUtils.methodIsEquivalentTo(method, m)) {
-					return preconditions.get(m);
-				}
-			}
+			returned = lookupEquivalentMethod(preconditions, method);
+			resolvedPreconditions.put(method, returned);
 		}
-		return returned;
+		return returned.isEmpty() ? null : returned;
 	}
 
+	/**
+	 * Return postconditions declared for supplied method (or an equivalent one), null if none
+	 * 
+	 * @param method
+	 * @return
+	 */
 	public List<Ensures> getPostconditions(Method method) {
-		List<Ensures> returned = postconditions.get(method);
+		List<Ensures> returned = resolvedPostconditions.get(method);
+		if (returned == null) {
+			returned = lookupEquivalentMethod(postconditions, method);
+			resolvedPostconditions.put(method, returned);
+		}
+		return returned.isEmpty() ? null : returned;
+	}
+
+	private static <T> List<T> lookupEquivalentMethod(Map<Method, List<T>> conditions, Method method) {
+		List<T> returned = conditions.get(method);
 		if (returned == null) {
-			for (Method m : postconditions.keySet()) {
+			for (Method m : conditions.keySet()) {
 				if (PamelaUtils.methodIsEquivalentTo(method, m)) {
-					return postconditions.get(m);
+					return conditions.get(m);
 				}
 			}
+			return Collections.emptyList();
 		}
 		return returned;
 	}
@@ -142,6 +179,7 @@ public abstract class PatternDefinition {
 			preconditions.put(method, l);
 		}
 		l.add(precondition);
+		resolvedPreconditions.clear();
 	}
 
 	public void addToPostconditionsForMethod(Ensures postcondition, Method method) {
@@ -151,6 +189,7 @@ public abstract class PatternDefinition {
 			postconditions.put(method, l);
 		}
 		l.add(postcondition);
+		resolvedPostconditions.clear();
 	}
 
 }
@@ -42,6 +42,8 @@ package org.openflexo.pamela.patterns;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.Authenticator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.openflexo.pamela.PamelaMetaModel;
 import org.openflexo.pamela.patterns.annotations.Ensures;
@@ -65,6 +67,8 @@ import org.openflexo.pamela.patterns.annotations.Requires;
  */
 public abstract class PatternInstance<P extends PatternDefinition> {
 
+	private static final Logger logger = Logger.getLogger(PatternInstance.class.getPackage().getName());
+
 	private P patternDefinition;
 
 	public PatternInstance(P patternDefinition) {
@@ -97,7 +101,9 @@ public abstract class PatternInstance<P extends PatternDefinition> {
 	 * @param method
 	 */
 	public void invokePrecondition(Requires precondition, Method method) throws PropertyViolationException {
-		System.out.println("Invoking precondition " + precondition.property());
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Invoking precondition " + precondition.property());
+		}
 	}
 
 	/**
@@ -107,6 +113,8 @@ public abstract class PatternInstance<P extends PatternDefinition> {
 	 * @param method
 	 */
 	public void invokePostcondition(Ensures postcondition, Method method) throws PropertyViolationException {
-		System.out.println("Invoking postcondition " + postcondition.property());
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Invoking postcondition " + postcondition.property());
+		}
 	}
 }
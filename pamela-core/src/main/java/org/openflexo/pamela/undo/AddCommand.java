@@ -104,7 +104,7 @@ public class AddCommand<I> extends AtomicEdit<I> {
 
 	@Override
 	public void redo() throws CannotRedoException {
-		getModelFactory().getHandler(updatedObject).invokeAdder(modelProperty, addedValue);
+		getModelFactory().getHandler(updatedObject).invokeAdder(modelProperty, addedValue, index);
 	}
 
 	@Override
@@ -140,4 +140,8 @@ public class AddCommand<I> extends AtomicEdit<I> {
 		return index;
 	}
 
+	@Override
+	public long getEstimatedMemoryCost() {
+		return super.getEstimatedMemoryCost() + estimateMemoryCost(addedValue);
+	}
 }
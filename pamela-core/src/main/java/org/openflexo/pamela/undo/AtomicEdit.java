@@ -38,6 +38,8 @@
 
 package org.openflexo.pamela.undo;
 
+import java.util.List;
+
 import javax.swing.undo.UndoableEdit;
 
 import org.openflexo.pamela.factory.PamelaModelFactory;
@@ -54,6 +56,11 @@ import org.openflexo.pamela.model.ModelEntity;
  */
 public abstract class AtomicEdit<I> implements UndoableEdit {
 
+	// Estimated sizes used to compute memory cost of edits
+	static final long EDIT_COST = 32;
+	static final long REFERENCE_COST = 8;
+	static final long OBJECT_COST = 48;
+
 	private PamelaModelFactory pamelaModelFactory;
 	private ModelEntity<I> modelEntity;
 
@@ -106,4 +113,37 @@ public abstract class AtomicEdit<I> implements UndoableEdit {
 	}
 
 	public abstract String getType();
+
+	/**
+	 * Return an estimation, in bytes, of the heap retained by this edit (see {@link UndoManager#getMemoryBudget()})<br>
+	 * Objects which are still part of the model are not accounted, as they are retained by the model itself
+	 * 
+	 * @return
+	 */
+	public long getEstimatedMemoryCost() {
+		return EDIT_COST;
+	}
+
+	/**
+	 * Return an estimation, in bytes, of the heap retained by supplied value when stored in an edit
+	 * 
+	 * @param value
+	 * @return
+	 */
+	static long estimateMemoryCost(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof String) {
+			return 40 + 2L * ((String) value).length();
+		}
+		if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+			return 16;
+		}
+		if (value instanceof List) {
+			// Values stored in an edit are copies of the list
+			return 40 + REFERENCE_COST * ((List<?>) value).size();
+		}
+		return REFERENCE_COST;
+	}
 }
@@ -38,9 +38,12 @@
 
 package org.openflexo.pamela.undo;
 
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Vector;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
@@ -57,6 +60,10 @@ import javax.swing.undo.UndoableEdit;
  * received in {@link UndoManager} outside a declared recording {@link CompoundEdit}, then a new edition (a {@link CompoundEdit}) is
  * automatically instantiated. No inconsisency should be raised because of unregistered edits.<br>
  * 
+ * Consecutive {@link SetCommand}s on the same property of the same object are coalesced into a single {@link SetCommand} (see
+ * {@link #setCoalescing(boolean)}). When its {@link UndoManager} exceeds its memory budget, a {@link CompoundEdit} may be spilled to disk:
+ * its atomic edits are then reloaded when it is undone or redone.<br>
+ * 
  * Partially inspired from Ray Ryan's swing implementation
  * 
  * @author sylvain
@@ -64,6 +71,8 @@ import javax.swing.undo.UndoableEdit;
 @SuppressWarnings("serial")
 public class CompoundEdit extends AbstractUndoableEdit {
 
+	private static final Logger logger = Logger.getLogger(CompoundEdit.class.getPackage().getName());
+
 	private String presentationName;
 
 	/**
@@ -76,6 +85,19 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	 */
 	protected Vector<AtomicEdit<?>> edits;
 
+	private boolean coalescing = true;
+
+	// Estimated memory cost of edits, in bytes
+	private long memoryCost = AtomicEdit.EDIT_COST;
+
+	// Undo manager this edit was added to, notified of the changes of its memory cost
+	private UndoManager undoManager;
+
+	// Not null when edits were spilled to disk
+	private UndoSpillFile spillFile;
+	private UndoSpillFile.Record spilledRecord;
+	private boolean spilledSignificant;
+
 	protected CompoundEdit(String presentationName) {
 		super();
 		this.presentationName = presentationName;
@@ -83,12 +105,109 @@ public class CompoundEdit extends AbstractUndoableEdit {
 		edits = new Vector<>();
 	}
 
+	/**
+	 * Return flag indicating if consecutive {@link SetCommand}s on the same property of the same object are coalesced into a single one
+	 * 
+	 * @return
+	 */
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	public void setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+	}
+
+	/**
+	 * Return an estimation, in bytes, of the heap retained by this edit
+	 * 
+	 * @return
+	 */
+	public long getEstimatedMemoryCost() {
+		return memoryCost;
+	}
+
+	private void setEstimatedMemoryCost(long memoryCost) {
+		long delta = memoryCost - this.memoryCost;
+		this.memoryCost = memoryCost;
+		if (undoManager != null && delta != 0) {
+			undoManager.memoryCostChanged(delta);
+		}
+	}
+
+	UndoManager getUndoManager() {
+		return undoManager;
+	}
+
+	void setUndoManager(UndoManager undoManager) {
+		this.undoManager = undoManager;
+	}
+
+	/**
+	 * Return flag indicating if atomic edits of this edit are currently stored on disk
+	 * 
+	 * @return
+	 */
+	public boolean isSpilled() {
+		return spilledRecord != null;
+	}
+
+	/**
+	 * Store atomic edits of this edit in supplied file, and release them
+	 * 
+	 * @param spillFile
+	 * @return true if this edit was spilled
+	 * @throws IOException
+	 */
+	boolean spill(UndoSpillFile spillFile) throws IOException {
+		if (inProgress || isSpilled() || edits.isEmpty()) {
+			return false;
+		}
+		UndoSpillFile.Record record = spillFile.write(edits);
+		if (record == null) {
+			return false;
+		}
+		spilledSignificant = isSignificant();
+		this.spillFile = spillFile;
+		spilledRecord = record;
+		edits = new Vector<>();
+		setEstimatedMemoryCost(record.getEstimatedMemoryCost());
+		return true;
+	}
+
+	/**
+	 * Reload atomic edits of this edit when it was spilled to disk, and release them in spill file
+	 * 
+	 * @throws IOException
+	 */
+	void reload() throws IOException {
+		if (isSpilled()) {
+			edits = new Vector<>(spillFile.read(spilledRecord));
+			UndoSpillFile releasedFile = spillFile;
+			UndoSpillFile.Record releasedRecord = spilledRecord;
+			spillFile = null;
+			spilledRecord = null;
+			long reloadedCost = AtomicEdit.EDIT_COST;
+			for (AtomicEdit<?> edit : edits) {
+				reloadedCost += edit.getEstimatedMemoryCost();
+			}
+			setEstimatedMemoryCost(reloadedCost);
+			releasedFile.release(releasedRecord);
+		}
+	}
+
 	/**
 	 * Sends <code>undo</code> to all contained <code>AtomicEdit</code> in the reverse of the order in which they were added.
 	 */
 	@Override
 	public void undo() throws CannotUndoException {
 		super.undo();
+		try {
+			reload();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Cannot reload spilled edit " + getPresentationName(), e);
+			throw new CannotUndoException();
+		}
 		// System.out.println("UNDO " + getPresentationName());
 		int i = edits.size();
 		while (i-- > 0) {
@@ -104,6 +223,12 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	@Override
 	public void redo() throws CannotRedoException {
 		super.redo();
+		try {
+			reload();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Cannot reload spilled edit " + getPresentationName(), e);
+			throw new CannotRedoException();
+		}
 		Enumeration<AtomicEdit<?>> cursor = edits.elements();
 		while (cursor.hasMoreElements()) {
 			AtomicEdit<?> e = (cursor.nextElement());
@@ -128,6 +253,16 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	 */
 	@Override
 	public void die() {
+		// Spilled edits are simply forgotten
+		if (isSpilled()) {
+			try {
+				spillFile.release(spilledRecord);
+			} catch (IOException e) {
+				logger.warning("Cannot release spilled edit " + getPresentationName() + ": " + e.getMessage());
+			}
+		}
+		spillFile = null;
+		spilledRecord = null;
 		int size = edits.size();
 		for (int i = size - 1; i >= 0; i--) {
 			AtomicEdit<?> e = edits.elementAt(i);
@@ -146,6 +281,9 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	 * false), <code>anEdit</code> is given a chance to <code>replaceEdit</code> the last edit. If <code>anEdit</code> returns false here,
 	 * it is added to <code>edits</code>.
 	 * 
+	 * <p>
+	 * When coalescing, a {@link SetCommand} following a {@link SetCommand} on the same property of the same object is merged into it.
+	 * 
 	 * @param anEdit
 	 *            the edit to be added
 	 * @return true if the edit is <code>inProgress</code>; otherwise returns false
@@ -166,12 +304,18 @@ public class CompoundEdit extends AbstractUndoableEdit {
 
 				if (last == null) {
 					edits.addElement((AtomicEdit<?>) anEdit);
+					setEstimatedMemoryCost(memoryCost + ((AtomicEdit<?>) anEdit).getEstimatedMemoryCost());
+				}
+				else if (coalescing && last instanceof SetCommand && anEdit instanceof SetCommand
+						&& coalesce((SetCommand<?>) last, (SetCommand<?>) anEdit)) {
+					return true;
 				}
 				else if (!last.addEdit(anEdit)) {
 					if (anEdit.replaceEdit(last)) {
 						edits.removeElementAt(edits.size() - 1);
 					}
 					edits.addElement((AtomicEdit<?>) anEdit);
+					setEstimatedMemoryCost(memoryCost + ((AtomicEdit<?>) anEdit).getEstimatedMemoryCost());
 				}
 
 				return true;
@@ -180,12 +324,35 @@ public class CompoundEdit extends AbstractUndoableEdit {
 		return false;
 	}
 
+	private boolean coalesce(SetCommand<?> last, SetCommand<?> anEdit) {
+		long lastCost = last.getEstimatedMemoryCost();
+		if (!last.coalesce(anEdit)) {
+			return false;
+		}
+		if (last.isSignificant()) {
+			setEstimatedMemoryCost(memoryCost - lastCost + last.getEstimatedMemoryCost());
+		}
+		else {
+			// Property was set back to its initial value
+			edits.removeElementAt(edits.size() - 1);
+			setEstimatedMemoryCost(memoryCost - lastCost);
+			last.die();
+		}
+		return true;
+	}
+
 	/**
-	 * Return a list storing all atomic edits aggregated in this compound edit
+	 * Return a list storing all atomic edits aggregated in this compound edit<br>
+	 * Edits are reloaded if this edit was spilled to disk
 	 * 
 	 * @return
 	 */
 	public List<AtomicEdit<?>> getEdits() {
+		try {
+			reload();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Cannot reload spilled edit " + getPresentationName(), e);
+		}
 		return edits;
 	}
 
@@ -234,6 +401,9 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	 */
 	@Override
 	public boolean isSignificant() {
+		if (isSpilled()) {
+			return spilledSignificant;
+		}
 		Enumeration<AtomicEdit<?>> cursor = edits.elements();
 		while (cursor.hasMoreElements()) {
 			if (((AtomicEdit<?>) cursor.nextElement()).isSignificant()) {
@@ -272,7 +442,7 @@ public class CompoundEdit extends AbstractUndoableEdit {
 	 */
 	@Override
 	public String toString() {
-		return getPresentationName() + " inProgress: " + inProgress + " edits: " + edits;
+		return getPresentationName() + " inProgress: " + inProgress + " edits: " + (isSpilled() ? "<spilled>" : edits);
 	}
 
 	public String describe() {
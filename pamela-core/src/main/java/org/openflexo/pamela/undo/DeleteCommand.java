@@ -108,4 +108,12 @@ public class DeleteCommand<I> extends AtomicEdit<I> {
 		return "DELETE";
 	}
 
+	/**
+	 * Deleted object is not part of the model anymore: it is retained by this edit, with the values of its properties
+	 */
+	@Override
+	public long getEstimatedMemoryCost() {
+		int propertiesCount = getModelEntity() != null ? getModelEntity().getPropertiesSize() : 0;
+		return super.getEstimatedMemoryCost() + OBJECT_COST + REFERENCE_COST * propertiesCount;
+	}
 }
@@ -125,4 +125,8 @@ public class RemoveCommand<I> extends AtomicEdit<I> {
 		return "REMOVE";
 	}
 
+	@Override
+	public long getEstimatedMemoryCost() {
+		return super.getEstimatedMemoryCost() + estimateMemoryCost(removedValue);
+	}
 }
@@ -150,4 +150,26 @@ public class SetCommand<I> extends AtomicEdit<I> {
 		return "SET";
 	}
 
+	@Override
+	public long getEstimatedMemoryCost() {
+		return super.getEstimatedMemoryCost() + estimateMemoryCost(oldValue) + estimateMemoryCost(newValue);
+	}
+
+	/**
+	 * Merge supplied SET command, which immediately follows this one, into this command<br>
+	 * Both commands should address the same property of the same object: this command then keeps its old value and takes the new value of
+	 * supplied command, which dies.
+	 * 
+	 * @param nextCommand
+	 * @return true if supplied command was merged
+	 */
+	boolean coalesce(SetCommand<?> nextCommand) {
+		if (nextCommand.updatedObject != updatedObject || nextCommand.modelProperty != modelProperty) {
+			return false;
+		}
+		newValue = nextCommand.newValue;
+		nextCommand.die();
+		return true;
+	}
+
 }
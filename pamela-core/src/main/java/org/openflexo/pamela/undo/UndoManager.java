@@ -39,6 +39,8 @@
 package org.openflexo.pamela.undo;
 
 import java.beans.PropertyChangeSupport;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -47,6 +49,7 @@ import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoableEdit;
 
 import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.journal.ChangeJournal;
 import org.openflexo.toolbox.HasPropertyChangeSupport;
 
 /**
@@ -74,6 +77,10 @@ import org.openflexo.toolbox.HasPropertyChangeSupport;
  * 
  * Adding an edit to an <code>UndoManager</code> results in removing all edits from the index of the next edit to the end of the list.<br>
  * 
+ * Memory retained by the edits may be bounded with {@link #setMemoryBudget(long)}. When budget is exceeded, the edits which are the
+ * farthest from current position are spilled to a temporary file if a spill directory was set (see {@link #setSpillDirectory(File)}), and
+ * reloaded when undone or redone. Oldest edits are discarded when budget is still exceeded. Spill file is deleted by {@link #close()}.<br>
+ * 
  * TODO: WARNING: if you are dealing with custom implementation of PAMELA objects with methods involved in setter/adder/remover and declared
  * as final, those calls won't be intercepted by the UndoManager, and thus results will be of undetermined state. Please fix this.<br>
  * 
@@ -101,13 +108,22 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 
 	private boolean enabled = true;
 
+	private ChangeJournal changeJournal;
+
+	private boolean coalescing = true;
+	private long memoryBudget = 0;
+	private File spillDirectory;
+	private UndoSpillFile spillFile;
+	// Estimated memory cost of all edits, updated as edits are added, removed, or change
+	private long estimatedMemoryCost = 0;
+
 	public UndoManager() {
 		pcSupport = new PropertyChangeSupport(this);
 	}
 
 	private static final String ANTICIPATED_RECORDING = "AnticipatedRecording";
-	private static boolean allowsAnticipatedRecording = false;
-	private static CompoundEdit anticipatedRecording;
+	private boolean allowsAnticipatedRecording = false;
+	private CompoundEdit anticipatedRecording;
 
 	/**
 	 * Called to start registering a CompoundEdit in advance (when some edition actions occurs outside an "official" recording)<br>
@@ -183,7 +199,9 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 	}
 
 	protected CompoundEdit makeCompoundEdit(String presentationName) {
-		return new CompoundEdit(presentationName);
+		CompoundEdit returned = new CompoundEdit(presentationName);
+		returned.setCoalescing(coalescing);
+		return returned;
 	}
 
 	/**
@@ -219,9 +237,99 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 
 		fireAddEdit(edit);
 
+		enforceMemoryBudget();
+
 		return currentEdition;
 	}
 
+	/**
+	 * Start a new labelled edit tracking, apart from current edition: this {@link UndoManager} does not aggregate atomic edits in returned
+	 * {@link CompoundEdit} unless {@link #getSeparateRecording(AtomicEdit)} routes them to it<br>
+	 * Returned edit is made available for undo/redo by {@link #stopSeparateRecording(CompoundEdit)}, or discarded by
+	 * {@link #rollback(CompoundEdit)}
+	 * 
+	 * @param presentationName
+	 * @return the newly created {@link CompoundEdit}
+	 */
+	public synchronized CompoundEdit startSeparateRecording(String presentationName) {
+		if (!enabled) {
+			return null;
+		}
+		return makeCompoundEdit(presentationName);
+	}
+
+	/**
+	 * Stops supplied edit tracking, started with {@link #startSeparateRecording(String)}<br>
+	 * After this method, this edit will be available for undo/redo
+	 * 
+	 * @param edit
+	 */
+	public synchronized void stopSeparateRecording(CompoundEdit edit) {
+		if (!edit.isInProgress()) {
+			logger.warning("UndoManager exception: was not recording " + edit.getPresentationName());
+			return;
+		}
+		edit.end();
+		if (enabled) {
+			addEdit(edit);
+			enforceMemoryBudget();
+		}
+	}
+
+	/**
+	 * Return the edit recorded apart from current edition in which supplied atomic edit should be aggregated, if any<br>
+	 * This method should be overriden when required (see {@link #startSeparateRecording(String)}).<br>
+	 * Default implementation return null: all atomic edits are aggregated in current edition
+	 * 
+	 * @param edit
+	 * @return
+	 */
+	protected CompoundEdit getSeparateRecording(AtomicEdit<?> edit) {
+		return null;
+	}
+
+	/**
+	 * Stops supplied edit tracking, undo all atomic edits it contains and discard it<br>
+	 * This is used to cancel a sequence of changes which failed (see
+	 * {@link org.openflexo.pamela.factory.ConcurrentEditingContext.Transaction#rollback()})
+	 * 
+	 * @param edit
+	 */
+	public synchronized void rollback(CompoundEdit edit) {
+		if (currentEdition == edit) {
+			edit.end();
+			currentEdition = null;
+			if (anticipatedRecording == edit) {
+				anticipatedRecording = null;
+			}
+			getPropertyChangeSupport().firePropertyChange(STOP_RECORDING, null, edit);
+		}
+		int index = edits.indexOf(edit);
+		if (index == -1 && !edit.isInProgress()) {
+			logger.warning("UndoManager exception: cannot roll back unknown edit " + edit.getPresentationName());
+			return;
+		}
+		// An edit recorded separately is still in progress, and was never registered
+		if (edit.isInProgress()) {
+			edit.end();
+		}
+		if (edit.canUndo()) {
+			undoInProgress = true;
+			try {
+				edit.undo();
+			} finally {
+				undoInProgress = false;
+			}
+		}
+		if (index != -1) {
+			trimEdits(index, index);
+		}
+		else {
+			edit.die();
+		}
+		fireUndo();
+	}
+
 	/**
 	 * Return flag indicating if {@link UndoManager} is currently recording.<br>
 	 * Return true if start recording has been called
@@ -337,6 +445,11 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 
 		if (anEdit instanceof AtomicEdit) {
 
+			// Journal all changes, including those performed while undoing or redoing
+			if (changeJournal != null) {
+				changeJournal.record((AtomicEdit<?>) anEdit);
+			}
+
 			// If UNDO is in progress, ignore it
 			if (undoInProgress) {
 				// System.out.println("Ignoring " + anEdit.getPresentationName() + " because UNDO in progress");
@@ -358,6 +471,10 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 			if (isIgnorable(anEdit)) {
 				return false;
 			}
+			CompoundEdit separateRecording = getSeparateRecording((AtomicEdit<?>) anEdit);
+			if (separateRecording != null) {
+				return separateRecording.addEdit(anEdit);
+			}
 			// This is an atomic edit, therefore, i should agglomerate it in current edition
 			if (currentEdition == null) {
 				if (allowsAnticipatedRecording) {
@@ -382,6 +499,9 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 				return false;
 			}
 			boolean returned = super.addEdit(anEdit);
+			if (!edits.isEmpty() && edits.lastElement() == anEdit) {
+				register((CompoundEdit) anEdit);
+			}
 			fireAddEdit(anEdit);
 			return returned;
 		}
@@ -462,6 +582,7 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 			undoInProgress = true;
 			super.undo();
 			undoInProgress = false;
+			enforceMemoryBudget();
 			fireUndo();
 			// System.out.println("END UNDO ");
 		} catch (Exception e) {
@@ -507,6 +628,7 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 				// TODO: it should be nice to also "un-stop" anticipated recording which was stopped because of undo requiring
 			}
 
+			enforceMemoryBudget();
 			fireRedo();
 			// System.out.println("END REDO ");
 		} catch (Exception e) {
@@ -617,4 +739,229 @@ public class UndoManager extends javax.swing.undo.UndoManager implements HasProp
 		getPropertyChangeSupport().firePropertyChange(ENABLED, !enabled, enabled);
 	}
 
+	/**
+	 * Return flag indicating if consecutive {@link SetCommand}s on the same property of the same object are coalesced in newly recorded
+	 * edits (default is true)
+	 * 
+	 * @return
+	 */
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	public void setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+	}
+
+	/**
+	 * Return the maximal estimated memory, in bytes, retained by the edits of this {@link UndoManager}, 0 meaning no limit (default)
+	 * 
+	 * @return
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		enforceMemoryBudget();
+	}
+
+	/**
+	 * Return directory where edits are spilled when memory budget is exceeded, null meaning that edits are discarded
+	 * 
+	 * @return
+	 */
+	public File getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * Sets directory where edits are spilled when memory budget is exceeded<br>
+	 * Edits already spilled are reloaded, and spilled again in new directory if required: previous spill file is deleted
+	 * 
+	 * @param spillDirectory
+	 */
+	public synchronized void setSpillDirectory(File spillDirectory) {
+		if (spillDirectory == null ? this.spillDirectory == null : spillDirectory.equals(this.spillDirectory)) {
+			return;
+		}
+		this.spillDirectory = spillDirectory;
+		if (spillFile != null) {
+			for (UndoableEdit edit : edits) {
+				if (edit instanceof CompoundEdit) {
+					try {
+						((CompoundEdit) edit).reload();
+					} catch (IOException e) {
+						logger.severe("Cannot reload spilled edit " + edit.getPresentationName() + ": " + e.getMessage());
+					}
+				}
+			}
+			closeSpillFile();
+		}
+		enforceMemoryBudget();
+	}
+
+	/**
+	 * Discard all edits of this {@link UndoManager}, and delete its spill file, if any<br>
+	 * This should be called when this {@link UndoManager} is not used anymore
+	 */
+	public synchronized void close() {
+		discardAllEdits();
+		closeSpillFile();
+	}
+
+	private void closeSpillFile() {
+		if (spillFile != null) {
+			try {
+				spillFile.close();
+			} catch (IOException e) {
+				logger.warning("Cannot delete spill file " + spillFile.getFile() + ": " + e.getMessage());
+			}
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * Return an estimation, in bytes, of the heap retained by the edits of this {@link UndoManager}
+	 * 
+	 * @return
+	 */
+	public synchronized long getEstimatedMemoryCost() {
+		return estimatedMemoryCost;
+	}
+
+	/**
+	 * Called when estimated memory cost of one of the edits of this {@link UndoManager} changed
+	 * 
+	 * @param delta
+	 */
+	synchronized void memoryCostChanged(long delta) {
+		estimatedMemoryCost += delta;
+	}
+
+	private void register(CompoundEdit edit) {
+		if (edit.getUndoManager() != this) {
+			edit.setUndoManager(this);
+			estimatedMemoryCost += edit.getEstimatedMemoryCost();
+		}
+	}
+
+	private void unregister(UndoableEdit edit) {
+		if (edit instanceof CompoundEdit && ((CompoundEdit) edit).getUndoManager() == this) {
+			((CompoundEdit) edit).setUndoManager(null);
+			estimatedMemoryCost -= ((CompoundEdit) edit).getEstimatedMemoryCost();
+		}
+	}
+
+	@Override
+	protected void trimEdits(int from, int to) {
+		for (int i = from; i <= to; i++) {
+			unregister(edits.elementAt(i));
+		}
+		super.trimEdits(from, to);
+	}
+
+	/**
+	 * Return number of edits currently spilled to disk
+	 * 
+	 * @return
+	 */
+	public synchronized int getSpilledEditsCount() {
+		int returned = 0;
+		for (UndoableEdit edit : edits) {
+			if (edit instanceof CompoundEdit && ((CompoundEdit) edit).isSpilled()) {
+				returned++;
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Spill or discard edits until estimated memory cost fits in memory budget<br>
+	 * Edits are spilled from the farthest to the nearest from the index of next edit, then oldest edits are discarded. Last edit to be
+	 * undone is never discarded, and edits in progress are never spilled nor discarded.
+	 */
+	protected synchronized void enforceMemoryBudget() {
+		if (memoryBudget <= 0 || undoInProgress || redoInProgress || estimatedMemoryCost <= memoryBudget) {
+			return;
+		}
+
+		CompoundEdit nextEditToBeUndone = editToBeUndone();
+		int indexOfNextAdd = nextEditToBeUndone != null ? edits.indexOf(nextEditToBeUndone) + 1 : 0;
+
+		UndoSpillFile spillFile = getSpillFile();
+		if (spillFile != null) {
+			int low = 0;
+			int high = edits.size() - 1;
+			try {
+				while (estimatedMemoryCost > memoryBudget && low <= high) {
+					boolean spillOldest = indexOfNextAdd - 1 - low >= high - indexOfNextAdd;
+					UndoableEdit edit = spillOldest ? edits.elementAt(low++) : edits.elementAt(high--);
+					if (edit instanceof CompoundEdit) {
+						// Memory cost is updated by the edit
+						((CompoundEdit) edit).spill(spillFile);
+					}
+				}
+			} catch (IOException e) {
+				logger.warning("Cannot spill edits to " + spillFile.getFile() + ": " + e.getMessage());
+			}
+		}
+
+		long cost = estimatedMemoryCost;
+		int discardedEdits = 0;
+		while (cost > memoryBudget && discardedEdits < indexOfNextAdd - 1) {
+			UndoableEdit edit = edits.elementAt(discardedEdits);
+			if (edit instanceof CompoundEdit) {
+				if (((CompoundEdit) edit).isInProgress()) {
+					break;
+				}
+				cost -= ((CompoundEdit) edit).getEstimatedMemoryCost();
+			}
+			discardedEdits++;
+		}
+		if (discardedEdits > 0) {
+			trimEdits(0, discardedEdits - 1);
+		}
+	}
+
+	private UndoSpillFile getSpillFile() {
+		if (spillFile == null && spillDirectory != null) {
+			try {
+				spillFile = new UndoSpillFile(spillDirectory);
+			} catch (IOException e) {
+				logger.warning("Cannot create spill file in " + spillDirectory + ": " + e.getMessage());
+			}
+		}
+		return spillFile;
+	}
+
+	@Override
+	public synchronized void discardAllEdits() {
+		for (UndoableEdit edit : edits) {
+			unregister(edit);
+		}
+		super.discardAllEdits();
+		if (spillFile != null) {
+			try {
+				spillFile.clear();
+			} catch (IOException e) {
+				logger.warning("Cannot clear spill file " + spillFile.getFile() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Return {@link ChangeJournal} recording all atomic edits received by this {@link UndoManager}, if any
+	 * 
+	 * @return
+	 */
+	public ChangeJournal getChangeJournal() {
+		return changeJournal;
+	}
+
+	public void setChangeJournal(ChangeJournal changeJournal) {
+		this.changeJournal = changeJournal;
+	}
+
 }
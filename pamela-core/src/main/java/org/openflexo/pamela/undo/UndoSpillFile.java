@@ -0,0 +1,390 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.undo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+
+/**
+ * Temporary file storing the {@link AtomicEdit}s of {@link CompoundEdit}s spilled by an {@link UndoManager} exceeding its memory budget
+ * (see {@link UndoManager#setSpillDirectory(File)})<br>
+ * 
+ * Edits are encoded in a compact binary form: strings and primitive values are written in the file, while all other values (PAMELA
+ * objects, model entities and properties, factory, lists) are replaced by an index in a table of references kept in memory. Such objects
+ * are anyway retained by the model, and identity of edited objects must be preserved for undo to be possible.<br>
+ * 
+ * Records are appended to the file, and released when their edits are reloaded or discarded. The file is truncated when it holds no more
+ * live record, and rewritten to a new file with live records only when most of its content was released.
+ */
+final class UndoSpillFile implements Closeable {
+
+	// Edit types
+	private static final int CREATE = 1;
+	private static final int DELETE = 2;
+	private static final int SET = 3;
+	private static final int ADD = 4;
+	private static final int REMOVE = 5;
+
+	// Value tags
+	private static final int NULL = 0;
+	private static final int REFERENCE = 1;
+	private static final int STRING = 2;
+	private static final int INTEGER = 3;
+	private static final int LONG = 4;
+	private static final int DOUBLE = 5;
+	private static final int FLOAT = 6;
+	private static final int BOOLEAN = 7;
+
+	// Minimal size of the file before it is compacted
+	private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Location in the file of the edits of a spilled {@link CompoundEdit}, with the references they use
+	 */
+	static final class Record {
+		// Updated when file is compacted
+		private long position;
+		private final int length;
+		private final Object[] references;
+
+		private Record(long position, int length, Object[] references) {
+			this.position = position;
+			this.length = length;
+			this.references = references;
+		}
+
+		long getEstimatedMemoryCost() {
+			return AtomicEdit.EDIT_COST + AtomicEdit.REFERENCE_COST * references.length;
+		}
+	}
+
+	private File file;
+	private RandomAccessFile data;
+	// Records which were not released, and their size in bytes
+	private final Set<Record> liveRecords = Collections.newSetFromMap(new IdentityHashMap<>());
+	private long liveBytes = 0;
+
+	UndoSpillFile(File directory) throws IOException {
+		file = File.createTempFile("undo", ".spill", directory);
+		file.deleteOnExit();
+		data = new RandomAccessFile(file, "rw");
+	}
+
+	synchronized File getFile() {
+		return file;
+	}
+
+	/**
+	 * Append supplied edits to this file
+	 * 
+	 * @param edits
+	 * @return the record locating edits in this file, or null if one of supplied edits cannot be spilled
+	 * @throws IOException
+	 */
+	synchronized Record write(List<AtomicEdit<?>> edits) throws IOException {
+		Map<Object, Integer> indexes = new IdentityHashMap<>();
+		List<Object> references = new ArrayList<>();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(edits.size());
+		for (AtomicEdit<?> edit : edits) {
+			if (edit instanceof CreateCommand) {
+				out.writeByte(CREATE);
+			}
+			else if (edit instanceof DeleteCommand) {
+				out.writeByte(DELETE);
+			}
+			else if (edit instanceof SetCommand) {
+				out.writeByte(SET);
+			}
+			else if (edit instanceof AddCommand) {
+				out.writeByte(ADD);
+			}
+			else if (edit instanceof RemoveCommand) {
+				out.writeByte(REMOVE);
+			}
+			else {
+				// Unknown edit
+				return null;
+			}
+			out.writeInt(getReferenceIndex(edit.getModelFactory(), indexes, references));
+			out.writeInt(getReferenceIndex(edit.getModelEntity(), indexes, references));
+			out.writeInt(getReferenceIndex(edit.getObject(), indexes, references));
+			if (edit instanceof SetCommand) {
+				SetCommand<?> setCommand = (SetCommand<?>) edit;
+				out.writeInt(getReferenceIndex(setCommand.getModelProperty(), indexes, references));
+				writeValue(out, setCommand.getOldValue(), indexes, references);
+				writeValue(out, setCommand.getNewValue(), indexes, references);
+			}
+			else if (edit instanceof AddCommand) {
+				AddCommand<?> addCommand = (AddCommand<?>) edit;
+				out.writeInt(getReferenceIndex(addCommand.getModelProperty(), indexes, references));
+				writeValue(out, addCommand.getAddedValue(), indexes, references);
+				out.writeInt(addCommand.getIndex());
+			}
+			else if (edit instanceof RemoveCommand) {
+				RemoveCommand<?> removeCommand = (RemoveCommand<?>) edit;
+				out.writeInt(getReferenceIndex(removeCommand.getModelProperty(), indexes, references));
+				writeValue(out, removeCommand.getRemovedValue(), indexes, references);
+			}
+		}
+		out.flush();
+		byte[] record = bytes.toByteArray();
+		long position = data.length();
+		data.seek(position);
+		data.write(record);
+		Record returned = new Record(position, record.length, references.toArray());
+		liveRecords.add(returned);
+		liveBytes += record.length;
+		return returned;
+	}
+
+	private static int getReferenceIndex(Object object, Map<Object, Integer> indexes, List<Object> references) {
+		Integer returned = indexes.get(object);
+		if (returned == null) {
+			returned = references.size();
+			indexes.put(object, returned);
+			references.add(object);
+		}
+		return returned;
+	}
+
+	private static void writeValue(DataOutputStream out, Object value, Map<Object, Integer> indexes, List<Object> references)
+			throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING);
+			// writeUTF() is limited to 65535 bytes
+			byte[] text = ((String) value).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(text.length);
+			out.write(text);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		}
+		else {
+			out.writeByte(REFERENCE);
+			out.writeInt(getReferenceIndex(value, indexes, references));
+		}
+	}
+
+	/**
+	 * Read back the edits located by supplied record
+	 * 
+	 * @param record
+	 * @return
+	 * @throws IOException
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	synchronized List<AtomicEdit<?>> read(Record record) throws IOException {
+		byte[] bytes = new byte[record.length];
+		data.seek(record.position);
+		data.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		Object[] references = record.references;
+		int size = in.readInt();
+		List<AtomicEdit<?>> returned = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int type = in.readByte();
+			PamelaModelFactory factory = (PamelaModelFactory) references[in.readInt()];
+			ModelEntity entity = (ModelEntity) references[in.readInt()];
+			Object object = references[in.readInt()];
+			switch (type) {
+				case CREATE:
+					returned.add(new CreateCommand(object, entity, factory));
+					break;
+				case DELETE:
+					returned.add(new DeleteCommand(object, entity, factory));
+					break;
+				case SET:
+					ModelProperty setProperty = (ModelProperty) references[in.readInt()];
+					Object oldValue = readValue(in, references);
+					Object newValue = readValue(in, references);
+					returned.add(new SetCommand(object, entity, setProperty, oldValue, newValue, factory));
+					break;
+				case ADD:
+					ModelProperty addProperty = (ModelProperty) references[in.readInt()];
+					Object addedValue = readValue(in, references);
+					returned.add(new AddCommand(object, entity, addProperty, addedValue, in.readInt(), factory));
+					break;
+				case REMOVE:
+					ModelProperty removeProperty = (ModelProperty) references[in.readInt()];
+					returned.add(new RemoveCommand(object, entity, removeProperty, readValue(in, references), factory));
+					break;
+				default:
+					throw new IOException("Invalid edit type " + type + " in " + file);
+			}
+		}
+		return returned;
+	}
+
+	private Object readValue(DataInputStream in, Object[] references) throws IOException {
+		int tag = in.readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				return references[in.readInt()];
+			case STRING:
+				byte[] text = new byte[in.readInt()];
+				in.readFully(text);
+				return new String(text, StandardCharsets.UTF_8);
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case DOUBLE:
+				return in.readDouble();
+			case FLOAT:
+				return in.readFloat();
+			case BOOLEAN:
+				return in.readBoolean();
+			default:
+				throw new IOException("Invalid value tag " + tag + " in " + file);
+		}
+	}
+
+	/**
+	 * Release supplied record, whose edits were reloaded or discarded
+	 * 
+	 * @param record
+	 * @throws IOException
+	 */
+	synchronized void release(Record record) throws IOException {
+		if (!liveRecords.remove(record)) {
+			return;
+		}
+		liveBytes -= record.length;
+		if (liveRecords.isEmpty()) {
+			data.setLength(0);
+		}
+		else if (data.length() > COMPACTION_THRESHOLD && liveBytes * 2 < data.length()) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copy live records to a new file, which replaces this one<br>
+	 * Records are located in new file only once it is complete, so that this file remains valid if copy fails
+	 * 
+	 * @throws IOException
+	 */
+	private void compact() throws IOException {
+		List<Record> records = new ArrayList<>(liveRecords);
+		records.sort(Comparator.comparingLong(record -> record.position));
+		File newFile = File.createTempFile("undo", ".spill", file.getParentFile());
+		newFile.deleteOnExit();
+		RandomAccessFile newData = new RandomAccessFile(newFile, "rw");
+		try {
+			for (Record record : records) {
+				byte[] bytes = new byte[record.length];
+				data.seek(record.position);
+				data.readFully(bytes);
+				newData.write(bytes);
+			}
+		} catch (IOException e) {
+			newData.close();
+			newFile.delete();
+			throw e;
+		}
+		long position = 0;
+		for (Record record : records) {
+			record.position = position;
+			position += record.length;
+		}
+		data.close();
+		file.delete();
+		file = newFile;
+		data = newData;
+	}
+
+	/**
+	 * Discard all records of this file
+	 * 
+	 * @throws IOException
+	 */
+	synchronized void clear() throws IOException {
+		liveRecords.clear();
+		liveBytes = 0;
+		data.setLength(0);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		data.close();
+		file.delete();
+	}
+}
@@ -48,12 +48,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import org.openflexo.connie.type.TypeUtils;
 import org.openflexo.pamela.PamelaMetaModel;
 import org.openflexo.pamela.annotations.DefineValidationRule;
+import org.openflexo.pamela.factory.ConcurrentEditingContext;
 import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
 import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.toolbox.HasPropertyChangeSupport;
 
@@ -75,6 +78,8 @@ public abstract class ValidationModel implements HasPropertyChangeSupport {
 	private PamelaModelFactory validationModelFactory;
 	private List<Class<?>> sortedClasses;
 	private ValidationRuleFilter ruleFilter = null;
+	private boolean parallelValidation = false;
+	private ForkJoinPool validationPool = null;
 
 	private final PropertyChangeSupport pcSupport;
 
@@ -220,6 +225,82 @@ public abstract class ValidationModel implements HasPropertyChangeSupport {
 		return sortedClasses;
 	}
 
+	/**
+	 * Return a flag indicating if rules evaluation should be distributed across {@link #getValidationPool()}<br>
+	 * When set, {@link ValidationRule#applyValidation(Validable)} may be called concurrently for different objects: rules must then only
+	 * read the model. Notifications and issues registration are still performed on calling thread, once all rules have been evaluated.
+	 * Parallel validation is not performed when {@link #fixAutomaticallyIfOneFixProposal()} is set, since fixes modify the model.<br>
+	 * Since handlers of PAMELA objects are not thread-safe by themselves, parallel validation is only performed when validated object is
+	 * frozen (see {@link PamelaModelFactory#freeze(Object, Object...)}) or managed by a {@link ConcurrentEditingContext}, whose getters
+	 * acquire read access, outside of a read or a transaction: otherwise validation is performed sequentially. Validating a frozen graph also guarantees that rules see a
+	 * consistent state of the model.
+	 * 
+	 * @return
+	 */
+	public boolean isParallelValidation() {
+		return parallelValidation;
+	}
+
+	public void setParallelValidation(boolean parallelValidation) {
+		this.parallelValidation = parallelValidation;
+	}
+
+	/**
+	 * Return the pool used to perform parallel validation (common pool when not explicitely set)
+	 * 
+	 * @return
+	 */
+	public ForkJoinPool getValidationPool() {
+		if (validationPool == null) {
+			return ForkJoinPool.commonPool();
+		}
+		return validationPool;
+	}
+
+	public void setValidationPool(ForkJoinPool validationPool) {
+		this.validationPool = validationPool;
+	}
+
+	/**
+	 * Return a flag indicating if rules evaluation should be performed in parallel for supplied validated object
+	 * 
+	 * @param validable
+	 * @return
+	 */
+	boolean shouldValidateInParallel(Validable validable) {
+		if (!isParallelValidation() || fixAutomaticallyIfOneFixProposal()) {
+			return false;
+		}
+		if (!allowsConcurrentReads(validable)) {
+			logger.fine("Parallel validation of " + validable + " is not thread-safe: validate sequentially");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return a boolean indicating if supplied object may be read concurrently by several threads: object must be frozen, or be managed by
+	 * a {@link ConcurrentEditingContext} in which current thread holds no lock
+	 * 
+	 * @param object
+	 * @return
+	 */
+	private boolean allowsConcurrentReads(Object object) {
+		ProxyMethodHandler<Object> handler = getValidationModelFactory().getHandler(object);
+		if (handler == null) {
+			return false;
+		}
+		if (handler.isFrozen()) {
+			return true;
+		}
+		if (handler.getEditingContext() instanceof ConcurrentEditingContext) {
+			ConcurrentEditingContext editingContext = (ConcurrentEditingContext) handler.getEditingContext();
+			// Validation threads would wait for a lock held by current thread
+			return !editingContext.isWriteLockedByCurrentThread() && !editingContext.isReadLockedByCurrentThread();
+		}
+		return false;
+	}
+
 	public ValidationRuleFilter getRuleFilter() {
 		return ruleFilter;
 	}
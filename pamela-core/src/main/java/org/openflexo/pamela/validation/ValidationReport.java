@@ -49,6 +49,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -97,6 +98,10 @@ public class ValidationReport implements HasPropertyChangeSupport {
 
 	private final Map<Validable, ValidationNode<?>> nodes = new HashMap<>();
 
+	private boolean incrementalValidation = false;
+	// Set while a validation is in progress, to ignore notifications fired during validation in incremental mode
+	private boolean validating = false;
+
 	/**
 	 * Represents validation for a given {@link Validable} object
 	 * 
@@ -120,6 +125,11 @@ public class ValidationReport implements HasPropertyChangeSupport {
 		private ValidationNode<?> parentNode;
 		private final List<ValidationNode<?>> childNodes;
 
+		// Rule set resolved before parallel evaluation, and issues computed for each rule during this evaluation, consumed by
+		// _performValidate()
+		private ValidationRuleSet<? super V> ruleSetToEvaluate;
+		private Map<ValidationRule<?, ? super V>, ValidationIssue<?, ? super V>> evaluatedRules;
+
 		public ValidationNode(V object, ValidationNode<?> parentNode) {
 			this.object = object;
 			this.parentNode = parentNode;
@@ -145,6 +155,9 @@ public class ValidationReport implements HasPropertyChangeSupport {
 				childNode.delete();
 			}
 			childNodes.clear();
+			if (nodes.get(object) == this) {
+				nodes.remove(object);
+			}
 			if (parentNode != null) {
 				parentNode.childNodes.remove(this);
 				parentNode.clearIssuesAfterStructuralModifications();
@@ -156,6 +169,66 @@ public class ValidationReport implements HasPropertyChangeSupport {
 			if (evt.getPropertyName().equals(((HasPropertyChangeSupport) object).getDeletedProperty())) {
 				delete();
 			}
+			else if (incrementalValidation && !validating && !isDeleted) {
+				validating = true;
+				try {
+					incrementallyRevalidate(evt);
+				} finally {
+					validating = false;
+				}
+				notifyChange();
+			}
+		}
+
+		/**
+		 * Re-apply rules relevant for the property which has changed, replacing the issues they previously raised<br>
+		 * Structure is also updated when changed property might be an embedding one
+		 * 
+		 * @param evt
+		 */
+		private void incrementallyRevalidate(PropertyChangeEvent evt) {
+
+			if (object == null) {
+				return;
+			}
+
+			ValidationRuleSet<? super V> ruleSet = getValidationModel().getRuleSet(object);
+
+			for (ValidationRule<?, ? super V> rule : ruleSet) {
+				if (rule.isRelevantFor(evt.getPropertyName())) {
+					if (logger.isLoggable(Level.FINE)) {
+						logger.fine("Incrementally applying rule " + rule.getRuleName() + " for " + object + " after change of "
+								+ evt.getPropertyName());
+					}
+					removeIssuesCausedBy(rule);
+					performRuleValidation((ValidationRule) rule);
+				}
+			}
+
+			if (evt.getNewValue() instanceof Validable || evt.getOldValue() instanceof Validable || evt.getNewValue() instanceof Collection
+					|| evt.getOldValue() instanceof Collection) {
+				if (_updateChildren(true)) {
+					clearIssuesAfterStructuralModifications();
+				}
+			}
+		}
+
+		private void removeIssuesCausedBy(ValidationRule<?, ?> rule) {
+			for (InformationIssue<?, ? super V> issue : new ArrayList<>(infoIssues)) {
+				if (issue.getCause() == rule) {
+					removeFromValidationIssues(issue);
+				}
+			}
+			for (ValidationError<?, ? super V> error : new ArrayList<>(errors)) {
+				if (error.getCause() == rule) {
+					removeFromValidationIssues(error);
+				}
+			}
+			for (ValidationWarning<?, ? super V> warning : new ArrayList<>(warnings)) {
+				if (warning.getCause() == rule) {
+					removeFromValidationIssues(warning);
+				}
+			}
 		}
 
 		public V getObject() {
@@ -175,21 +248,109 @@ public class ValidationReport implements HasPropertyChangeSupport {
 
 			_performValidate();
 
-			_updateChildren();
+			_updateChildren(true);
+
+			allIssues = null;
+			allErrors = null;
+			allWarnings = null;
+			allInfoIssues = null;
+
+		}
+
+		/**
+		 * Apply validation on this node and its whole subtree, evaluating rules in parallel<br>
+		 * Structure is first computed, then rules are evaluated across the pool of {@link ValidationModel}, and finally issues are
+		 * registered on calling thread, in the same order as sequential validation
+		 */
+		private void validateInParallel() {
+
+			_buildSubtree();
+
+			getValidationModel().getValidationPool().invoke(new RuleEvaluationTask(this));
+
+			_mergeSubtree();
+
+			_resetIssueCaches();
+		}
+
+		/**
+		 * Apply validation on this node and its whole subtree, asserting it has already been performed, and evaluating rules in parallel
+		 */
+		private void revalidateInParallel() {
+
+			clear();
+
+			_buildSubtree();
+
+			getValidationModel().getValidationPool().invoke(new RuleEvaluationTask(this));
+
+			_mergeSubtree();
+
+			checkRootConsistency();
+		}
+
+		/**
+		 * Internally called to structurally update the whole subtree, without performing any validation
+		 */
+		private void _buildSubtree() {
+			if (object != null) {
+				// Rule set lookup is not thread-safe
+				ruleSetToEvaluate = getValidationModel().getRuleSet(object);
+			}
+			if (_updateChildren(false)) {
+				clearIssuesAfterStructuralModifications();
+			}
+			for (ValidationNode<?> childNode : childNodes) {
+				childNode._buildSubtree();
+			}
+		}
+
+		/**
+		 * Internally called to register issues computed during parallel evaluation, for the whole subtree
+		 */
+		private void _mergeSubtree() {
+			_performValidate();
+			for (ValidationNode<?> childNode : childNodes) {
+				childNode._mergeSubtree();
+			}
+		}
 
+		private void _resetIssueCaches() {
 			allIssues = null;
 			allErrors = null;
 			allWarnings = null;
 			allInfoIssues = null;
+			for (ValidationNode<?> childNode : childNodes) {
+				childNode._resetIssueCaches();
+			}
+		}
+
+		/**
+		 * Evaluate all relevant rules for this node, without registering resulting issues<br>
+		 * May be called from any thread
+		 */
+		private void _evaluateRules() {
+
+			if (ruleSetToEvaluate == null) {
+				return;
+			}
 
+			Map<ValidationRule<?, ? super V>, ValidationIssue<?, ? super V>> evaluated = new HashMap<>();
+			for (ValidationRule<?, ? super V> rule : ruleSetToEvaluate) {
+				evaluated.put(rule, applyRule((ValidationRule) rule));
+			}
+			evaluatedRules = evaluated;
+			ruleSetToEvaluate = null;
 		}
 
 		/**
 		 * Internally called to structurally update ValidationNode tree (append and/or remove children)
 		 * 
+		 * @param validateNewChildren
+		 *            when set, validation of new children nodes is performed
 		 * @return boolean indicating if some chidren nodes were added or removed
 		 */
-		private boolean _updateChildren() {
+		private boolean _updateChildren(boolean validateNewChildren) {
 
 			if (object == null) {
 				return false;
@@ -208,7 +369,9 @@ public class ValidationReport implements HasPropertyChangeSupport {
 						childNode = new ValidationNode<>(embeddedValidable, this);
 						childNodes.add(childNode);
 						nodes.put(embeddedValidable, childNode);
-						childNode.validate();
+						if (validateNewChildren) {
+							childNode.validate();
+						}
 						childrenWereModified = true;
 					}
 					else {
@@ -222,6 +385,8 @@ public class ValidationReport implements HasPropertyChangeSupport {
 				for (ValidationNode childToRemove : childrenToRemove) {
 					childNodes.remove(childToRemove);
 					nodes.remove(childToRemove.getObject());
+					// Stop listening removed objects
+					childToRemove.delete();
 					childrenWereModified = true;
 				}
 			}
@@ -260,9 +425,16 @@ public class ValidationReport implements HasPropertyChangeSupport {
 					getValidationModel().getPropertyChangeSupport().firePropertyChange(VALIDATE_WITH_RULE, null, rule);
 				}
 
-				performRuleValidation((ValidationRule) rule);
+				if (evaluatedRules != null) {
+					// Rule was already evaluated in parallel
+					registerRuleIssue((ValidationRule) rule, (ValidationIssue) evaluatedRules.get(rule));
+				}
+				else {
+					performRuleValidation((ValidationRule) rule);
+				}
 			}
 
+			evaluatedRules = null;
 		}
 
 		private void clear() {
@@ -299,7 +471,7 @@ public class ValidationReport implements HasPropertyChangeSupport {
 
 			_performValidate();
 
-			if (_updateChildren()) {
+			if (_updateChildren(true)) {
 				clearIssuesAfterStructuralModifications();
 			}
 
@@ -307,12 +479,22 @@ public class ValidationReport implements HasPropertyChangeSupport {
 				childNode.revalidate();
 			}
 
+			checkRootConsistency();
+		}
+
+		private void checkRootConsistency() {
 			if (getObject() == getRootObject() && getAllIssues().size() == 0) {
 				addToValidationIssues(new ConsistencySuccessfullyChecked<>(object, "consistency_check_ok"));
 			}
 		}
 
 		private <R extends ValidationRule<R, ? super V>> ValidationIssue<R, ? super V> performRuleValidation(R rule) {
+			ValidationIssue<R, ? super V> issue = applyRule(rule);
+			registerRuleIssue(rule, issue);
+			return issue;
+		}
+
+		private <R extends ValidationRule<R, ? super V>> ValidationIssue<R, ? super V> applyRule(R rule) {
 			ValidationIssue<R, ? super V> issue = null;
 			try {
 				issue = rule.getIsEnabled() ? rule.applyValidation(object) : null;
@@ -322,6 +504,10 @@ public class ValidationReport implements HasPropertyChangeSupport {
 				e.printStackTrace();
 				issue = new ValidationError(rule, object, "Unexpected exception: " + e.getMessage());
 			}
+			return issue;
+		}
+
+		private <R extends ValidationRule<R, ? super V>> void registerRuleIssue(R rule, ValidationIssue<R, ? super V> issue) {
 			if (issue != null) {
 				if (logger.isLoggable(Level.FINE)) {
 					logger.fine("Adding issue " + issue);
@@ -354,7 +540,6 @@ public class ValidationReport implements HasPropertyChangeSupport {
 					}
 				}
 			}
-			return issue;
 		}
 
 		public Collection<InformationIssue<?, ? super V>> getInfoIssues() {
@@ -490,6 +675,29 @@ public class ValidationReport implements HasPropertyChangeSupport {
 
 	}
 
+	/**
+	 * Evaluate rules of a {@link ValidationNode} and forks evaluation of its children
+	 */
+	@SuppressWarnings("serial")
+	private class RuleEvaluationTask extends RecursiveAction {
+
+		private final ValidationNode<?> node;
+
+		private RuleEvaluationTask(ValidationNode<?> node) {
+			this.node = node;
+		}
+
+		@Override
+		protected void compute() {
+			node._evaluateRules();
+			List<RuleEvaluationTask> subTasks = new ArrayList<>();
+			for (ValidationNode<?> childNode : node.getChildNodes()) {
+				subTasks.add(new RuleEvaluationTask(childNode));
+			}
+			invokeAll(subTasks);
+		}
+	}
+
 	public ValidationReport(ValidationModel validationModel, Validable rootObject) {
 		super();
 
@@ -500,7 +708,17 @@ public class ValidationReport implements HasPropertyChangeSupport {
 		rootNode = new ValidationNode<>(rootObject, null);
 		nodes.put(rootObject, rootNode);
 		// System.out.println(">>>>>>>> START validation");
-		rootNode.validate();
+		validating = true;
+		try {
+			if (validationModel.shouldValidateInParallel(rootObject)) {
+				rootNode.validateInParallel();
+			}
+			else {
+				rootNode.validate();
+			}
+		} finally {
+			validating = false;
+		}
 		// System.out.println(">>>>>>>> STOP validation");
 		// System.out.println("All: " + getAllIssues().size() + " : " + getAllIssues());
 		// System.out.println("Errors: " + getAllErrors().size() + " : " + getAllErrors());
@@ -538,6 +756,22 @@ public class ValidationReport implements HasPropertyChangeSupport {
 		}
 	}
 
+	/**
+	 * Return a flag indicating if this report is incrementally maintained<br>
+	 * When set, a property change on a validated object re-applies the rules of that object declared as relevant for changed property
+	 * (see {@link ValidationRule#isRelevantFor(String)}), and merges their results into this report. Rules reading other objects than
+	 * the one they validate are not re-applied when those objects change: use {@link #revalidate()} in this case.
+	 * 
+	 * @return
+	 */
+	public boolean isIncrementalValidation() {
+		return incrementalValidation;
+	}
+
+	public void setIncrementalValidation(boolean incrementalValidation) {
+		this.incrementalValidation = incrementalValidation;
+	}
+
 	protected <V extends Validable> ValidationNode<V> getValidationNode(V object) {
 		return (ValidationNode<V>) nodes.get(object);
 	}
@@ -564,7 +798,17 @@ public class ValidationReport implements HasPropertyChangeSupport {
 				.collect(Collectors.counting());
 		getValidationModel().getPropertyChangeSupport().firePropertyChange(VALIDATION_START, getRootObject(), validationStepToNotify);
 
-		rootNode.revalidate();
+		validating = true;
+		try {
+			if (getValidationModel().shouldValidateInParallel(getRootObject())) {
+				rootNode.revalidateInParallel();
+			}
+			else {
+				rootNode.revalidate();
+			}
+		} finally {
+			validating = false;
+		}
 
 		// Notify validation is finished
 		getValidationModel().getPropertyChangeSupport().firePropertyChange(VALIDATION_END, null, getRootObject());
@@ -604,7 +848,17 @@ public class ValidationReport implements HasPropertyChangeSupport {
 			// System.out.println("Avant : \n" + debug());
 			ValidationNode<V> validationNode = getValidationNode(validable);
 			if (validationNode != null) {
-				validationNode.revalidate();
+				validating = true;
+				try {
+					if (getValidationModel().shouldValidateInParallel(getRootObject())) {
+						validationNode.revalidateInParallel();
+					}
+					else {
+						validationNode.revalidate();
+					}
+				} finally {
+					validating = false;
+				}
 			}
 			// System.out.println("Apres : \n" + debug());
 		}
@@ -97,6 +97,18 @@ public abstract class ValidationRule<R extends ValidationRule<R, V>, V extends V
 
 	public abstract ValidationIssue<R, V> applyValidation(final V object);
 
+	/**
+	 * Return a flag indicating if the result of this rule might be affected by a change of supplied property on validated object<br>
+	 * Used by incremental validation (see {@link ValidationReport#setIncrementalValidation(boolean)}) to only re-apply relevant rules.
+	 * Default implementation returns true: override to restrict this rule to the properties it actually reads.
+	 * 
+	 * @param propertyName
+	 * @return
+	 */
+	public boolean isRelevantFor(String propertyName) {
+		return true;
+	}
+
 	public Class<? super V> getObjectType() {
 		return _objectType;
 	}
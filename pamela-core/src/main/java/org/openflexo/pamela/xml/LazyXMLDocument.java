@@ -0,0 +1,629 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.LazyContent;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * An XML document deserialized on demand<br>
+ * 
+ * Initial scan of the document only deserializes objects which are not embedded in another object (the root object and objects it refers
+ * to). Each embedded subtree is indexed by its location in the document, and registered as a {@link LazyContent} of the object
+ * containing it: it is deserialized with {@link XMLSaxDeserializer} when the related property of this object is first accessed, its own
+ * embedded subtrees being in turn left unloaded.<br>
+ * 
+ * Identifiers declared in unloaded subtrees are also indexed, so that a reference to such an object may be resolved with a placeholder:
+ * an instance of the right entity, which is not initialized until one of its properties is accessed, or until the subtree defining it is
+ * loaded.<br>
+ * 
+ * Once scanned, the document is only retained as the source its pending subtrees are read from, as long as some content remains
+ * unloaded: a document read from a file is read again from this file (which should then not be modified), otherwise its bytes (or its
+ * text) are retained. Only documents encoded in an ASCII compatible charset (declared in XML prolog, UTF-8 by default) are supported.
+ */
+public class LazyXMLDocument {
+
+	private static final Pattern ENCODING_PATTERN = Pattern
+			.compile("^(?:\u00EF\u00BB\u00BF)?\\s*<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._\\-]+)[\"']");
+
+	private final PamelaModelFactory factory;
+	private final DeserializationPolicy policy;
+
+	// Source pending subtrees are read from, null once all content is loaded
+	private DocumentSource source;
+	private int pendingSubtreesCount = 0;
+
+	private final Map<String, Object> objectsWithId = new HashMap<>();
+	private final Map<String, IndexedObject> indexedObjects = new HashMap<>();
+	private final Map<String, Object> placeholders = new HashMap<>();
+
+	public LazyXMLDocument(PamelaModelFactory factory) {
+		this(factory, DeserializationPolicy.PERMISSIVE);
+	}
+
+	public LazyXMLDocument(PamelaModelFactory factory, DeserializationPolicy policy) {
+		this.factory = factory;
+		this.policy = policy;
+	}
+
+	public PamelaModelFactory getFactory() {
+		return factory;
+	}
+
+	public DeserializationPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Read document from supplied stream and return root object, embedded objects being loaded on demand
+	 * 
+	 * @param in
+	 * @return
+	 * @throws Exception
+	 */
+	public Object deserializeDocument(InputStream in) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return deserializeDocument(out.toByteArray());
+	}
+
+	public Object deserializeDocument(byte[] bytes) throws Exception {
+		Charset charset = detectCharset(bytes);
+		return scan(new BytesSource(bytes, charset), bytes, charset);
+	}
+
+	/**
+	 * Read document from supplied file and return root object, embedded objects being loaded on demand: only the file is retained, and
+	 * embedded objects are read again from it when loaded
+	 * 
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	public Object deserializeDocument(File file) throws Exception {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Charset charset = detectCharset(bytes);
+		return scan(new FileSource(file, charset), bytes, charset);
+	}
+
+	public synchronized Object deserializeDocument(String xml) throws Exception {
+		source = new StringSource(xml);
+		int start = xml.length() > 0 && xml.charAt(0) == '\uFEFF' ? 1 : 0;
+		return scan(new Region(xml.substring(start), start, null));
+	}
+
+	private synchronized Object scan(DocumentSource source, byte[] bytes, Charset charset) throws Exception {
+		this.source = source;
+		int start = charset.equals(StandardCharsets.UTF_8) && startsWithUTF8ByteOrderMark(bytes) ? 3 : 0;
+		return scan(new Region(new String(bytes, start, bytes.length - start, charset), start, charset));
+	}
+
+	private Object scan(Region region) throws Exception {
+		Object returned = new XMLSaxDeserializer(this, null, region).deserializeLazily();
+		releaseSourceIfLoaded();
+		return returned;
+	}
+
+	private static boolean startsWithUTF8ByteOrderMark(byte[] bytes) {
+		return bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF;
+	}
+
+	private static Charset detectCharset(byte[] bytes) {
+		String prolog = new String(bytes, 0, Math.min(bytes.length, 200), StandardCharsets.ISO_8859_1);
+		Matcher matcher = ENCODING_PATTERN.matcher(prolog);
+		if (matcher.find()) {
+			try {
+				return Charset.forName(matcher.group(1));
+			} catch (IllegalArgumentException e) {
+				// unsupported charset, fallback on default one
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	private static int[] computeLineStarts(String text) {
+		int[] returned = new int[64];
+		int lines = 1;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || (c == '\r' && (i + 1 == length || text.charAt(i + 1) != '\n'))) {
+				if (lines == returned.length) {
+					returned = Arrays.copyOf(returned, lines * 2);
+				}
+				returned[lines++] = i + 1;
+			}
+		}
+		return Arrays.copyOf(returned, lines);
+	}
+
+	/**
+	 * Release document source once all pending subtrees are loaded
+	 */
+	private void releaseSourceIfLoaded() {
+		if (pendingSubtreesCount == 0) {
+			source = null;
+		}
+	}
+
+	/**
+	 * Return true when some content of the document is not loaded yet, the document source being then retained
+	 * 
+	 * @return
+	 */
+	public synchronized boolean hasPendingContent() {
+		return pendingSubtreesCount > 0;
+	}
+
+	Map<String, Object> getObjectsWithId() {
+		return objectsWithId;
+	}
+
+	/**
+	 * Register an identifier declared in a subtree which is not loaded yet, with the entity of identified object when it is known
+	 */
+	void indexObject(String id, PendingSubtree subtree, ModelEntity<Object> entity) {
+		indexedObjects.put(id, new IndexedObject(subtree, entity));
+	}
+
+	/**
+	 * Register a subtree whose location is fully known as a pending content of its parent
+	 */
+	void addPendingSubtree(PendingSubtree subtree) {
+		ProxyMethodHandler<?> handler = factory.getHandler(subtree.getParent());
+		LazyContent content = handler.getLazyContent();
+		if (!(content instanceof PendingContent)) {
+			content = new PendingContent();
+			handler.setLazyContent(content);
+		}
+		((PendingContent) content).add(subtree);
+		pendingSubtreesCount++;
+	}
+
+	/**
+	 * Return object identified by supplied id, which is either already loaded, or a placeholder for an object declared in a subtree which
+	 * is not loaded yet<br>
+	 * Return null if no object with this identifier is known yet
+	 * 
+	 * @param id
+	 * @return
+	 */
+	synchronized Object getReference(String id) {
+		Object returned = objectsWithId.get(id);
+		if (returned != null) {
+			return returned;
+		}
+		IndexedObject indexedObject = indexedObjects.get(id);
+		if (indexedObject == null) {
+			return null;
+		}
+		if (indexedObject.entity == null) {
+			// Type of the object is not known: load it now
+			load(id);
+			return objectsWithId.get(id);
+		}
+		returned = factory._newInstance(indexedObject.entity.getImplementedInterface(), policy == DeserializationPolicy.EXTENSIVE);
+		factory.getHandler(returned).setLazyContent(new PlaceholderContent(id));
+		placeholders.put(id, returned);
+		objectsWithId.put(id, returned);
+		return returned;
+	}
+
+	/**
+	 * Called when the element defining object identified by supplied id is being deserialized: return placeholder created for this object,
+	 * if any, which is then used as deserialized object
+	 */
+	synchronized Object claimPlaceholder(String id) {
+		Object returned = placeholders.remove(id);
+		if (returned != null) {
+			factory.getHandler(returned).setLazyContent(null);
+		}
+		indexedObjects.remove(id);
+		return returned;
+	}
+
+	/**
+	 * Load subtrees until object with supplied id is deserialized, or until the subtree declaring it is already being loaded
+	 */
+	private void load(String id) {
+		while (placeholders.containsKey(id) || !objectsWithId.containsKey(id)) {
+			IndexedObject indexedObject = indexedObjects.get(id);
+			if (indexedObject == null || indexedObject.subtree.scheduled) {
+				return;
+			}
+			// Load all pending subtrees of related property, so that their order is preserved
+			PendingSubtree subtree = indexedObject.subtree;
+			factory.getHandler(subtree.getParent()).loadLazyContent(subtree.getProperty());
+			if (!subtree.scheduled) {
+				throw new ModelExecutionException("Could not load object with identifier " + id);
+			}
+		}
+	}
+
+	/**
+	 * Deserialize supplied subtrees, in order<br>
+	 * Undo recording is disabled during this operation, since loading content is not an edition of the model
+	 */
+	private synchronized void materialize(List<PendingSubtree> subtrees) {
+		UndoManager undoManager = factory.getEditingContext() != null ? factory.getEditingContext().getUndoManager() : null;
+		boolean disableUndoManager = undoManager != null && undoManager.isEnabled();
+		if (disableUndoManager) {
+			undoManager.setEnabled(false);
+		}
+		try {
+			for (PendingSubtree subtree : subtrees) {
+				subtree.scheduled = true;
+				pendingSubtreesCount--;
+			}
+			for (PendingSubtree subtree : subtrees) {
+				String text = source.read(subtree.getStart(), subtree.getEnd());
+				new XMLSaxDeserializer(this, subtree, new Region(text, subtree.getStart(), source.getCharset())).deserializeLazily();
+			}
+			releaseSourceIfLoaded();
+		} catch (Exception e) {
+			throw new ModelExecutionException("Could not load content of " + subtrees.get(0).getParent(), e);
+		} finally {
+			if (disableUndoManager) {
+				undoManager.setEnabled(true);
+			}
+		}
+	}
+
+	/**
+	 * A part of the document being parsed: the whole document during initial scan, or a pending subtree<br>
+	 * Locations reported by the parser are converted into offsets in region text, and then into offsets in document source, which are
+	 * byte offsets when document is read from bytes (charset is then not null)
+	 */
+	static class Region {
+
+		private final String text;
+		private final int start;
+		private final Charset charset;
+		private final int[] lineStarts;
+		// Last converted offset, offsets being requested in document order
+		private int lastOffset = 0;
+		private int lastDocumentOffset;
+
+		private Region(String text, int start, Charset charset) {
+			this.text = text;
+			this.start = start;
+			this.charset = charset;
+			this.lineStarts = computeLineStarts(text);
+			this.lastDocumentOffset = start;
+		}
+
+		String getText() {
+			return text;
+		}
+
+		/**
+		 * Return offset in region text of a location reported by the parser (1-based line and column numbers)
+		 */
+		int getOffset(int line, int column) {
+			return lineStarts[line - 1] + column - 1;
+		}
+
+		/**
+		 * Return offset in document source matching supplied offset in region text
+		 */
+		int getDocumentOffset(int offset) {
+			if (charset == null) {
+				return start + offset;
+			}
+			if (offset < lastOffset) {
+				lastOffset = 0;
+				lastDocumentOffset = start;
+			}
+			lastDocumentOffset += encodedLength(lastOffset, offset);
+			lastOffset = offset;
+			return lastDocumentOffset;
+		}
+
+		private int encodedLength(int from, int to) {
+			if (charset.equals(StandardCharsets.UTF_8)) {
+				int returned = 0;
+				for (int i = from; i < to; i++) {
+					char c = text.charAt(i);
+					if (c < 0x80) {
+						returned++;
+					}
+					else if (c < 0x800) {
+						returned += 2;
+					}
+					else if (Character.isHighSurrogate(c)) {
+						// Surrogate pair
+						returned += 4;
+						i++;
+					}
+					else {
+						returned += 3;
+					}
+				}
+				return returned;
+			}
+			return text.substring(from, to).getBytes(charset).length;
+		}
+
+		/**
+		 * Return offset of start tag of element named qName, given the offset following this start tag, or -1 if start tag could not be
+		 * located
+		 */
+		int getStartTagOffset(int endOfStartTag, String qName) {
+			if (!isEndOfTag(endOfStartTag)) {
+				return -1;
+			}
+			// '<' is not allowed in attribute values
+			int returned = text.lastIndexOf('<', endOfStartTag - 1);
+			if (returned == -1 || !text.startsWith(qName, returned + 1)) {
+				return -1;
+			}
+			return returned;
+		}
+
+		boolean isEndOfTag(int offset) {
+			return offset > 0 && offset <= text.length() && text.charAt(offset - 1) == '>';
+		}
+	}
+
+	/**
+	 * Source from which pending subtrees are read
+	 */
+	private interface DocumentSource {
+
+		/**
+		 * Return text located between supplied offsets
+		 */
+		String read(int start, int end) throws IOException;
+
+		/**
+		 * Return charset of the document when offsets are byte offsets, null when they are offsets in document text
+		 */
+		Charset getCharset();
+	}
+
+	private static class StringSource implements DocumentSource {
+		private final String text;
+
+		private StringSource(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public String read(int start, int end) {
+			return text.substring(start, end);
+		}
+
+		@Override
+		public Charset getCharset() {
+			return null;
+		}
+	}
+
+	private static class BytesSource implements DocumentSource {
+		private final byte[] bytes;
+		private final Charset charset;
+
+		private BytesSource(byte[] bytes, Charset charset) {
+			this.bytes = bytes;
+			this.charset = charset;
+		}
+
+		@Override
+		public String read(int start, int end) {
+			return new String(bytes, start, end - start, charset);
+		}
+
+		@Override
+		public Charset getCharset() {
+			return charset;
+		}
+	}
+
+	private static class FileSource implements DocumentSource {
+		private final File file;
+		private final Charset charset;
+
+		private FileSource(File file, Charset charset) {
+			this.file = file;
+			this.charset = charset;
+		}
+
+		@Override
+		public String read(int start, int end) throws IOException {
+			byte[] bytes = new byte[end - start];
+			try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+				in.seek(start);
+				in.readFully(bytes);
+			}
+			return new String(bytes, charset);
+		}
+
+		@Override
+		public Charset getCharset() {
+			return charset;
+		}
+	}
+
+	/**
+	 * Location of an object whose identifier was declared in a subtree which is not loaded yet
+	 */
+	private static class IndexedObject {
+		private final PendingSubtree subtree;
+		private final ModelEntity<Object> entity;
+
+		private IndexedObject(PendingSubtree subtree, ModelEntity<Object> entity) {
+			this.subtree = subtree;
+			this.entity = entity;
+		}
+	}
+
+	/**
+	 * An embedded subtree of the document, which is not loaded yet
+	 */
+	public class PendingSubtree {
+
+		private final Object parent;
+		private final ModelEntity<Object> parentEntity;
+		private final ModelProperty<Object> property;
+		private final int start;
+		private int end = -1;
+		private boolean scheduled = false;
+
+		PendingSubtree(Object parent, ModelEntity<Object> parentEntity, ModelProperty<Object> property, int start) {
+			this.parent = parent;
+			this.parentEntity = parentEntity;
+			this.property = property;
+			this.start = start;
+		}
+
+		/**
+		 * Return the object this subtree is to be connected to
+		 */
+		public Object getParent() {
+			return parent;
+		}
+
+		/**
+		 * Return entity used to resolve root element of this subtree
+		 */
+		public ModelEntity<Object> getParentEntity() {
+			return parentEntity;
+		}
+
+		/**
+		 * Return the property of parent object this subtree is to be connected to
+		 */
+		public ModelProperty<Object> getProperty() {
+			return property;
+		}
+
+		public int getStart() {
+			return start;
+		}
+
+		public int getEnd() {
+			return end;
+		}
+
+		void setEnd(int end) {
+			this.end = end;
+		}
+
+		@Override
+		public String toString() {
+			return "PendingSubtree[" + property.getPropertyIdentifier() + ":" + start + "-" + end + "]";
+		}
+	}
+
+	/**
+	 * Pending subtrees of an object, stored by property (in document order)
+	 */
+	private class PendingContent implements LazyContent {
+
+		private final Map<String, List<PendingSubtree>> pendingSubtrees = new LinkedHashMap<>();
+
+		private void add(PendingSubtree subtree) {
+			pendingSubtrees.computeIfAbsent(subtree.getProperty().getPropertyIdentifier(), k -> new ArrayList<>()).add(subtree);
+		}
+
+		@Override
+		public void load(ProxyMethodHandler<?> handler, ModelProperty<?> property) {
+			synchronized (LazyXMLDocument.this) {
+				List<PendingSubtree> subtrees = pendingSubtrees.remove(property.getPropertyIdentifier());
+				if (pendingSubtrees.isEmpty() && handler.getLazyContent() == this) {
+					handler.setLazyContent(null);
+				}
+				if (subtrees != null) {
+					materialize(subtrees);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Content of a placeholder, which is loaded with the subtree declaring it
+	 */
+	private class PlaceholderContent implements LazyContent {
+
+		private final String id;
+
+		private PlaceholderContent(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void load(ProxyMethodHandler<?> handler, ModelProperty<?> property) {
+			synchronized (LazyXMLDocument.this) {
+				LazyXMLDocument.this.load(id);
+			}
+			// Once loaded, placeholder may in turn own some pending subtrees
+			LazyContent content = handler.getLazyContent();
+			if (content != null && content != this) {
+				content.load(handler, property);
+			}
+		}
+	}
+}
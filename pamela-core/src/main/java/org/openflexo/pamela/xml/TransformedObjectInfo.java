@@ -62,6 +62,9 @@ public class TransformedObjectInfo {
 	private final ModelEntity<Object> modelEntity;
 	private final Class<Object> implementedInterface;
 
+	// Lazily computed when not supplied
+	private Boolean convertible;
+
 	private boolean resolved = false;
 	private Object object;
 
@@ -80,6 +83,26 @@ public class TransformedObjectInfo {
 		}
 	}
 
+	/**
+	 * Build a new {@link TransformedObjectInfo} with already resolved entity and type informations
+	 * 
+	 * @param factory
+	 * @param parent
+	 * @param leadingProperty
+	 * @param modelEntity
+	 * @param implementedInterface
+	 * @param convertible
+	 */
+	public TransformedObjectInfo(PamelaModelFactory factory, Object parent, ModelProperty<Object> leadingProperty,
+			ModelEntity<Object> modelEntity, Class<Object> implementedInterface, boolean convertible) {
+		this.factory = factory;
+		this.parent = parent;
+		this.leadingProperty = leadingProperty;
+		this.modelEntity = modelEntity;
+		this.implementedInterface = implementedInterface;
+		this.convertible = convertible;
+	}
+
 	public Object getParent() {
 		return parent;
 	}
@@ -113,8 +136,15 @@ public class TransformedObjectInfo {
 		return modelEntity;
 	}
 
+	public Class<Object> getImplementedInterface() {
+		return implementedInterface;
+	}
+
 	public boolean isConvertible() {
-		return factory.getStringEncoder().isConvertable(implementedInterface);
+		if (convertible == null) {
+			convertible = factory.getStringEncoder().isConvertable(implementedInterface);
+		}
+		return convertible;
 	}
 
 	public void initializeDeserialization() throws SAXException {
@@ -0,0 +1,223 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.xml;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+import org.openflexo.pamela.model.ModelPropertyXMLTag;
+
+/**
+ * Deserialization plan of a {@link PamelaMetaModel}, used by {@link XMLSaxDeserializer}<br>
+ * 
+ * For each {@link ModelEntity}, the plan stores binders for XML attributes and child elements, with all informations required to
+ * instantiate and connect read values already resolved. Entity plans are compiled on first use, and then shared by all deserializations
+ * performed with the meta-model.
+ */
+public class XMLDeserializationPlan {
+
+	private final PamelaMetaModel metaModel;
+	private final Map<ModelEntity<?>, EntityPlan> entityPlans = new ConcurrentHashMap<>();
+
+	public XMLDeserializationPlan(PamelaMetaModel metaModel) {
+		this.metaModel = metaModel;
+	}
+
+	public PamelaMetaModel getMetaModel() {
+		return metaModel;
+	}
+
+	/**
+	 * Return plan to deserialize instances of supplied entity, compiling it on first access
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	public EntityPlan getEntityPlan(ModelEntity<Object> entity) {
+		EntityPlan returned = entityPlans.get(entity);
+		if (returned == null) {
+			returned = new EntityPlan(entity);
+			EntityPlan existing = entityPlans.putIfAbsent(entity, returned);
+			if (existing != null) {
+				return existing;
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Plan to deserialize instances of an entity
+	 */
+	public class EntityPlan {
+
+		private final ModelEntity<Object> entity;
+		private final Map<String, AttributeBinder> attributeBinders;
+		// Child binders, lazily resolved while matching XML tags
+		private final Map<String, ChildBinder> childBinders = new ConcurrentHashMap<>();
+
+		private EntityPlan(ModelEntity<Object> entity) {
+			this.entity = entity;
+			Map<String, AttributeBinder> binders = new HashMap<>();
+			for (ModelProperty<? super Object> property : entity.getPropertyIterable()) {
+				if (property.getXMLTag() != null) {
+					binders.put(property.getXMLTag(), new AttributeBinder((ModelProperty<Object>) property));
+				}
+			}
+			attributeBinders = Collections.unmodifiableMap(binders);
+		}
+
+		public ModelEntity<Object> getEntity() {
+			return entity;
+		}
+
+		/**
+		 * Return binder for the XML attribute with supplied name, null if this attribute does not match any property
+		 * 
+		 * @param attributeName
+		 * @return
+		 */
+		public AttributeBinder getAttributeBinder(String attributeName) {
+			return attributeBinders.get(attributeName);
+		}
+
+		/**
+		 * Return binder for a child element with supplied XML tag, null if this tag does not match any property
+		 * 
+		 * @param xmlTag
+		 * @param factory
+		 * @return
+		 * @throws ModelDefinitionException
+		 */
+		public ChildBinder getChildBinder(String xmlTag, PamelaModelFactory factory) throws ModelDefinitionException {
+			ChildBinder returned = childBinders.get(xmlTag);
+			if (returned == null) {
+				ModelPropertyXMLTag<Object> tag = metaModel.getPropertyForXMLTag(entity, factory, xmlTag);
+				returned = tag != null ? new ChildBinder((ModelProperty<Object>) tag.getProperty(), (ModelEntity<Object>) tag.getAccessedEntity())
+						: NO_CHILD_BINDER;
+				childBinders.put(xmlTag, returned);
+			}
+			return returned != NO_CHILD_BINDER ? returned : null;
+		}
+	}
+
+	private final ChildBinder NO_CHILD_BINDER = new ChildBinder(null, null);
+
+	/**
+	 * Binds a value read from an XML attribute to a property
+	 */
+	public class AttributeBinder {
+
+		private final ModelProperty<Object> property;
+		private final Class<Object> type;
+		private final ModelEntity<Object> typeEntity;
+
+		private AttributeBinder(ModelProperty<Object> property) {
+			this.property = property;
+			this.type = (Class<Object>) property.getType();
+			this.typeEntity = metaModel.getModelEntity(type);
+		}
+
+		public ModelProperty<Object> getProperty() {
+			return property;
+		}
+
+		/**
+		 * Return type of values bound by this binder
+		 * 
+		 * @return
+		 */
+		public Class<Object> getType() {
+			return type;
+		}
+
+		/**
+		 * Return entity of values bound by this binder, if any
+		 * 
+		 * @return
+		 */
+		public ModelEntity<Object> getTypeEntity() {
+			return typeEntity;
+		}
+	}
+
+	/**
+	 * Binds an object read from a child XML element to a property
+	 */
+	public class ChildBinder {
+
+		private final ModelProperty<Object> property;
+		private final ModelEntity<Object> modelEntity;
+		private final Class<Object> implementedInterface;
+
+		private ChildBinder(ModelProperty<Object> property, ModelEntity<Object> accessedEntity) {
+			this.property = property;
+			if (accessedEntity != null) {
+				this.modelEntity = accessedEntity;
+				this.implementedInterface = accessedEntity.getImplementedInterface();
+			}
+			else if (property != null) {
+				this.implementedInterface = (Class<Object>) property.getType();
+				this.modelEntity = metaModel.getModelEntity(implementedInterface);
+			}
+			else {
+				this.implementedInterface = null;
+				this.modelEntity = null;
+			}
+		}
+
+		public ModelProperty<Object> getProperty() {
+			return property;
+		}
+
+		public ModelEntity<Object> getModelEntity() {
+			return modelEntity;
+		}
+
+		public Class<Object> getImplementedInterface() {
+			return implementedInterface;
+		}
+	}
+}
@@ -41,6 +41,7 @@ package org.openflexo.pamela.xml;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -64,8 +65,15 @@ import org.openflexo.pamela.factory.PamelaConstants;
 import org.openflexo.pamela.factory.ProxyMethodHandler;
 import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.model.ModelProperty;
-import org.openflexo.pamela.model.ModelPropertyXMLTag;
+import org.openflexo.pamela.model.StringConverterLibrary.Converter;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.AttributeBinder;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.ChildBinder;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.EntityPlan;
+import org.openflexo.pamela.xml.LazyXMLDocument.PendingSubtree;
+import org.openflexo.pamela.xml.LazyXMLDocument.Region;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -87,19 +95,25 @@ public class XMLSaxDeserializer extends DefaultHandler {
 
 	@FunctionalInterface
 	private interface Resolver {
-		void resolve(TransformedObjectInfo resolved) throws SAXException;
+		void resolve(Object resolved) throws SAXException;
 	}
 
 	private final PamelaModelFactory factory;
 	private final PamelaMetaModel context;
+	private final XMLDeserializationPlan plan;
+
+	/**
+	 * Converters used during this deserialization, stored by type (null value when type has no converter)
+	 */
+	private final Map<Class<?>, Converter<?>> converters = new HashMap<>();
 
 	/**
 	 * Stores already serialized objects where value is the serialized object and key is an object coding the unique identifier of the
 	 * object
 	 */
-	private final HashMap<String, Object> objectsWithId = new HashMap<>();
+	private final Map<String, Object> objectsWithId;
 
-	private final List<TransformedObjectInfo> allObjects = new LinkedList<>();
+	private final List<TransformedObjectInfo> allObjects = new ArrayList<>();
 
 	/**
 	 * Stores lambda to resolve forward references
@@ -108,12 +122,35 @@ public class XMLSaxDeserializer extends DefaultHandler {
 
 	private final DeserializationPolicy policy;
 
-	private StringBuilder currentConvertibleString = new StringBuilder();
+	private final StringBuilder currentConvertibleString = new StringBuilder();
 
 	private LinkedList<TransformedObjectInfo> stack = new LinkedList<>();
 
 	private TransformedObjectInfo rootInfo = null;
 
+	/**
+	 * Lazily loaded document this deserializer reads a part of (null when document is eagerly deserialized)
+	 */
+	private final LazyXMLDocument lazyDocument;
+	/**
+	 * Subtree of lazy document being materialized, null when performing initial scan of the document
+	 */
+	private final PendingSubtree materializedSubtree;
+	/**
+	 * Part of lazy document being parsed, used to locate skipped subtrees in the document
+	 */
+	private final Region region;
+	private Locator locator;
+
+	/**
+	 * Embedded subtree currently skipped during the scan of a lazy document, with the entities of its elements being read
+	 */
+	private PendingSubtree skippedSubtree;
+	// Offset of skipped subtree in parsed region
+	private int skippedSubtreeStart;
+	private final LinkedList<ModelEntity<Object>> skippedEntities = new LinkedList<>();
+	private final List<String> skippedIds = new ArrayList<>();
+
 	public XMLSaxDeserializer(PamelaModelFactory factory) {
 		this(factory, DeserializationPolicy.PERMISSIVE);
 	}
@@ -122,6 +159,26 @@ public class XMLSaxDeserializer extends DefaultHandler {
 		this.factory = factory;
 		this.policy = policy;
 		this.context = factory.getModelContext();
+		this.plan = context.getXMLDeserializationPlan();
+		this.objectsWithId = new HashMap<>();
+		this.lazyDocument = null;
+		this.materializedSubtree = null;
+		this.region = null;
+	}
+
+	/**
+	 * Build a deserializer reading a part of a lazily loaded document: the whole document when materializedSubtree is null (initial scan),
+	 * or the supplied subtree, whose text is supplied region
+	 */
+	XMLSaxDeserializer(LazyXMLDocument lazyDocument, PendingSubtree materializedSubtree, Region region) {
+		this.factory = lazyDocument.getFactory();
+		this.policy = lazyDocument.getPolicy();
+		this.context = factory.getModelContext();
+		this.plan = context.getXMLDeserializationPlan();
+		this.objectsWithId = lazyDocument.getObjectsWithId();
+		this.lazyDocument = lazyDocument;
+		this.materializedSubtree = materializedSubtree;
+		this.region = region;
 	}
 
 	public Object deserializeDocument(String xml) throws Exception {
@@ -130,16 +187,37 @@ public class XMLSaxDeserializer extends DefaultHandler {
 
 	public Object deserializeDocument(InputStream in) throws Exception {
 		objectsWithId.clear();
+		converters.clear();
 
 		// prepares buffered stream
 		if (!(in instanceof BufferedInputStream && in instanceof ByteArrayInputStream)) {
 			in = new BufferedInputStream(in);
 		}
 
+		return parse(new InputSource(in));
+	}
+
+	/**
+	 * Return objects declaring an identifier in last deserialized document, by identifier
+	 * 
+	 * @return
+	 */
+	public Map<String, Object> getObjectsWithId() {
+		return objectsWithId;
+	}
+
+	/**
+	 * Deserialize the part of the lazy document this deserializer was built for, embedded subtrees being only indexed
+	 */
+	Object deserializeLazily() throws Exception {
+		return parse(new InputSource(new StringReader(region.getText())));
+	}
+
+	private Object parse(InputSource source) throws Exception {
 		try {
 			SAXParserFactory parserFactory = SAXParserFactory.newInstance();
 			SAXParser parser = parserFactory.newSAXParser();
-			parser.parse(in, this);
+			parser.parse(source, this);
 
 			// Close deserializing mode
 			for (TransformedObjectInfo info : allObjects) {
@@ -151,7 +229,7 @@ public class XMLSaxDeserializer extends DefaultHandler {
 				throw new InvalidDataException("Unresolved references to objects with identifiers " + forwardReferences.keySet());
 			}
 
-			return rootInfo.getObject();
+			return rootInfo != null ? rootInfo.getObject() : null;
 		} catch (SAXException e) {
 			if (e.getCause() instanceof Exception)
 				throw (Exception) e.getCause();
@@ -160,6 +238,11 @@ public class XMLSaxDeserializer extends DefaultHandler {
 		}
 	}
 
+	@Override
+	public void setDocumentLocator(Locator locator) {
+		this.locator = locator;
+	}
+
 	@Override
 	public void startDocument() throws SAXException {
 		// nothing to do
@@ -171,44 +254,77 @@ public class XMLSaxDeserializer extends DefaultHandler {
 	}
 
 	private TransformedObjectInfo constructMetaInformations(String qName) throws SAXException {
-		ModelEntity<Object> modelEntity = null;
-		ModelProperty<Object> leadingProperty = null;
-		Object parent = null;
 		if (stackEmpty()) {
-			modelEntity = (ModelEntity<Object>) factory.getModelContext().getModelEntity(qName);
+			if (materializedSubtree != null) {
+				// Root of a subtree of a lazy document, which is connected to an already deserialized object
+				return constructMetaInformations(materializedSubtree.getParent(), materializedSubtree.getParentEntity(), qName);
+			}
+			ModelEntity<Object> modelEntity = (ModelEntity<Object>) factory.getModelContext().getModelEntity(qName);
+			return modelEntity != null ? new TransformedObjectInfo(factory, null, null, modelEntity) : null;
 		}
-		else {
-			try {
-				TransformedObjectInfo parentInfo = peekInfo();
-				if (parentInfo != null) {
-					parent = parentInfo.getObject();
-					if (parentInfo != null) {
-						ModelEntity<Object> parentModelEntity = parentInfo.getModelEntity();
-						ModelPropertyXMLTag<Object> modelPropertyXMLTag = context.getPropertyForXMLTag(parentModelEntity, factory, qName);
-						if (modelPropertyXMLTag != null) {
-							modelEntity = (ModelEntity<Object>) modelPropertyXMLTag.getAccessedEntity();
-							leadingProperty = modelPropertyXMLTag.getProperty();
-						}
-						else if (policy == DeserializationPolicy.RESTRICTIVE) {
-							throw new RestrictiveDeserializationException(
-									"Element with name does not fit any properties within entity " + parentModelEntity);
-						}
-					}
-				}
-			} catch (ModelDefinitionException e) {
-				throw new SAXException(e);
+		TransformedObjectInfo parentInfo = peekInfo();
+		if (parentInfo != null) {
+			return constructMetaInformations(parentInfo.getObject(), parentInfo.getModelEntity(), qName);
+		}
+		return null;
+	}
+
+	private TransformedObjectInfo constructMetaInformations(Object parent, ModelEntity<Object> parentModelEntity, String qName)
+			throws SAXException {
+		try {
+			ChildBinder binder = parentModelEntity != null ? plan.getEntityPlan(parentModelEntity).getChildBinder(qName, factory) : null;
+			if (binder != null) {
+				return new TransformedObjectInfo(factory, parent, binder.getProperty(), binder.getModelEntity(),
+						binder.getImplementedInterface(), isConvertible(binder.getImplementedInterface()));
 			}
+			else if (policy == DeserializationPolicy.RESTRICTIVE) {
+				throw new RestrictiveDeserializationException(
+						"Element with name does not fit any properties within entity " + parentModelEntity);
+			}
+		} catch (ModelDefinitionException e) {
+			throw new SAXException(e);
 		}
-		return leadingProperty != null || modelEntity != null ? new TransformedObjectInfo(factory, parent, leadingProperty, modelEntity)
-				: null;
+		return null;
+	}
+
+	/**
+	 * Return converter to use for supplied type, resolving it once per deserialization
+	 */
+	private Converter<Object> getConverter(Class<Object> type) {
+		Converter<?> returned = converters.get(type);
+		if (returned == null && !converters.containsKey(type)) {
+			returned = factory.getStringEncoder().converterForClass(type);
+			converters.put(type, returned);
+		}
+		return (Converter<Object>) returned;
+	}
+
+	private boolean isConvertible(Class<Object> type) {
+		return type != null && (getConverter(type) != null || type.isEnum());
+	}
+
+	private Object fromString(Class<Object> type, String value) throws InvalidDataException {
+		if (type == null) {
+			return null;
+		}
+		return factory.getStringEncoder().fromString(type, getConverter(type), value);
 	}
 
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
 
+		if (skippedSubtree != null) {
+			indexSkippedElement(qName, attributes);
+			return;
+		}
+
 		final TransformedObjectInfo info = constructMetaInformations(qName);
 		String id = attributes.getValue(ID);
 
+		if (info != null && lazyDocument != null && isDeferrable(info) && startSkipping(qName, info, attributes)) {
+			return;
+		}
+
 		if (info != null) {
 			// if modelEntity is convertible from start, a
 			if (!info.isConvertible()) {
@@ -216,6 +332,10 @@ public class XMLSaxDeserializer extends DefaultHandler {
 				if (idref != null) {
 					// objects is a reference
 					Object referenceObject = objectsWithId.get(idref);
+					if (referenceObject == null && lazyDocument != null) {
+						// object might be defined in a subtree which is not loaded yet
+						referenceObject = lazyDocument.getReference(idref);
+					}
 					if (referenceObject != null) {
 						info.setObject(referenceObject);
 					}
@@ -223,7 +343,7 @@ public class XMLSaxDeserializer extends DefaultHandler {
 						// it needs to be resolved later
 						List<Resolver> forwards = forwardReferences.computeIfAbsent(idref, (v) -> new ArrayList<>());
 						forwards.add((target) -> {
-							info.setObject(target.getObject());
+							info.setObject(target);
 							connectObject(info);
 						});
 					}
@@ -245,20 +365,158 @@ public class XMLSaxDeserializer extends DefaultHandler {
 
 	}
 
+	/**
+	 * Return boolean indicating if the element described by supplied info may be left unloaded in a lazy document: this is the case of
+	 * objects (not convertible values) stored in an embedded property of an already deserialized object
+	 */
+	private boolean isDeferrable(TransformedObjectInfo info) {
+		if (stackEmpty() || info.isConvertible() || info.getParent() == null) {
+			return false;
+		}
+		ModelProperty<Object> property = info.getLeadingProperty();
+		return property != null && (property.getEmbedded() != null || property.getComplexEmbedded() != null);
+	}
+
+	/**
+	 * Start skipping the element described by supplied info, which is registered as a pending subtree of its parent
+	 * 
+	 * @return false when the element could not be located in lazy document, and should be eagerly deserialized
+	 */
+	private boolean startSkipping(String qName, TransformedObjectInfo info, Attributes attributes) throws SAXException {
+		int start = region.getStartTagOffset(currentOffset(), qName);
+		if (start == -1) {
+			return false;
+		}
+		skippedSubtreeStart = start;
+		skippedSubtree = lazyDocument.new PendingSubtree(info.getParent(), peekInfo().getModelEntity(), info.getLeadingProperty(),
+				region.getDocumentOffset(start));
+		ModelEntity<Object> entity = getConcreteEntity(info.getModelEntity(), attributes);
+		skippedEntities.push(entity);
+		indexSkippedId(attributes.getValue(ID), entity);
+		return true;
+	}
+
+	/**
+	 * Index an element located inside a skipped subtree: only the identifier of the element, and the entity to use to instantiate it, are
+	 * retained
+	 */
+	private void indexSkippedElement(String qName, Attributes attributes) throws SAXException {
+		ModelEntity<Object> parentEntity = skippedEntities.peek();
+		ModelEntity<Object> entity = null;
+		if (parentEntity != null) {
+			try {
+				ChildBinder binder = plan.getEntityPlan(parentEntity).getChildBinder(qName, factory);
+				entity = binder != null ? binder.getModelEntity() : null;
+			} catch (ModelDefinitionException e) {
+				throw new SAXException(e);
+			}
+		}
+		entity = getConcreteEntity(entity, attributes);
+		skippedEntities.push(entity);
+		indexSkippedId(attributes.getValue(ID), entity);
+	}
+
+	private void indexSkippedId(String id, ModelEntity<Object> entity) {
+		if (id != null) {
+			lazyDocument.indexObject(id, skippedSubtree, entity);
+			skippedIds.add(id);
+		}
+	}
+
+	private void endSkipping() throws SAXException {
+		int end = currentOffset();
+		if (end <= skippedSubtreeStart || !region.isEndOfTag(end)) {
+			throw new SAXException(new InvalidDataException("Could not locate end of element starting at " + skippedSubtree.getStart()));
+		}
+		skippedSubtree.setEnd(region.getDocumentOffset(end));
+		lazyDocument.addPendingSubtree(skippedSubtree);
+		skippedSubtree = null;
+
+		// resolves forward references to objects defined in skipped subtree, if any
+		for (String id : skippedIds) {
+			List<Resolver> forwards = forwardReferences.get(id);
+			if (forwards != null) {
+				Object referenceObject = lazyDocument.getReference(id);
+				if (referenceObject != null) {
+					forwardReferences.remove(id);
+					for (Resolver forward : forwards) {
+						forward.resolve(referenceObject);
+					}
+				}
+			}
+		}
+		skippedIds.clear();
+	}
+
+	/**
+	 * Return entity declared by attributes of an element, if any, or supplied entity otherwise
+	 */
+	private ModelEntity<Object> getConcreteEntity(ModelEntity<Object> entity, Attributes attributes) {
+		String className = attributes.getValue(CLASS_NAME);
+		if (className == null) {
+			className = attributes.getValue(PamelaConstants.Q_CLASS_ATTRIBUTE);
+		}
+		if (className == null) {
+			className = attributes.getValue(PamelaConstants.Q_MODEL_ENTITY_ATTRIBUTE);
+		}
+		if (className != null) {
+			try {
+				Class<Object> implementedInterface = (Class<Object>) Class.forName(className);
+				// Null when entity is not known yet: such an object will be loaded as soon as it is referenced
+				return (policy == DeserializationPolicy.EXTENSIVE ? factory.getExtendedContext() : factory.getModelContext())
+						.getModelEntity(implementedInterface);
+			} catch (ClassNotFoundException e) {
+				return null;
+			}
+		}
+		return entity;
+	}
+
+	/**
+	 * Return offset in parsed region matching current location of parser
+	 */
+	private int currentOffset() {
+		return region.getOffset(locator.getLineNumber(), locator.getColumnNumber());
+	}
+
 	@Override
 	public void characters(char[] ch, int start, int length) throws SAXException {
-		String text = new String(ch, start, length).trim();
-		currentConvertibleString.append(text);
+		// Text is only relevant inside a convertible element
+		TransformedObjectInfo info = peekInfo();
+		if (info == null || !info.isConvertible()) {
+			return;
+		}
+		// Append trimmed text without allocating an intermediate String
+		int end = start + length;
+		while (start < end && ch[start] <= ' ') {
+			start++;
+		}
+		while (end > start && ch[end - 1] <= ' ') {
+			end--;
+		}
+		currentConvertibleString.append(ch, start, end - start);
 	}
 
 	@Override
 	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (skippedSubtree != null) {
+			skippedEntities.pop();
+			if (skippedEntities.isEmpty()) {
+				endSkipping();
+			}
+			return;
+		}
+
 		TransformedObjectInfo info = popInfo();
 		// info may be null if current object is a reference
 		if (info != null) {
 			if (info.isConvertible()) {
 				// transforms string to object and construct new info
-				info.setFromString(currentConvertibleString.toString());
+				try {
+					info.setObject(fromString(info.getImplementedInterface(), currentConvertibleString.toString()));
+				} catch (InvalidDataException e) {
+					throw new SAXException(e);
+				}
 				info.initializeDeserialization();
 			}
 
@@ -267,7 +525,7 @@ public class XMLSaxDeserializer extends DefaultHandler {
 			}
 		}
 
-		currentConvertibleString = new StringBuilder();
+		currentConvertibleString.setLength(0);
 	}
 
 	private void connectObject(TransformedObjectInfo info) throws SAXException {
@@ -275,12 +533,20 @@ public class XMLSaxDeserializer extends DefaultHandler {
 		if (info.getObject() == null)
 			return;
 
+		if (info.getLeadingProperty() != null) {
+			connectObject(info, factory.getHandler(info.getParent()));
+		}
+	}
+
+	private void connectObject(TransformedObjectInfo info, ProxyMethodHandler parent) throws SAXException {
+		// don't set a null object
+		if (info.getObject() == null)
+			return;
+
 		// adds object to its parent if needed
 		ModelProperty<Object> property = info.getLeadingProperty();
 		if (property != null) {
 			try {
-				ProxyMethodHandler parent = factory.getHandler(info.getParent());
-
 				if (parent != null) {
 					switch (property.getCardinality()) {
 						case SINGLE:
@@ -309,8 +575,11 @@ public class XMLSaxDeserializer extends DefaultHandler {
 	 */
 	private boolean buildObjectFromAttributes(String name, String id, TransformedObjectInfo info, Attributes attributes)
 			throws SAXException {
+		// Object may have already been referenced as a placeholder, which is now to be loaded
+		Object placeholder = lazyDocument != null && id != null ? lazyDocument.claimPlaceholder(id) : null;
+
 		// if it's the case, the serialization has problems
-		if (id != null && objectsWithId.containsKey(id)) {
+		if (placeholder == null && id != null && objectsWithId.containsKey(id)) {
 			// No need to go further: i've got my object
 			return false;
 		}
@@ -369,9 +638,11 @@ public class XMLSaxDeserializer extends DefaultHandler {
 
 			// Creates object instance
 			Class<Object> entityClass = concreteEntity.getImplementedInterface();
-			Object returned = null;
+			Object returned = placeholder;
 			try {
-				returned = factory._newInstance(entityClass, policy == DeserializationPolicy.EXTENSIVE);
+				if (returned == null) {
+					returned = factory._newInstance(entityClass, policy == DeserializationPolicy.EXTENSIVE);
+				}
 			} catch (NullPointerException e) {
 				System.err.println("!!! Unexpected exception " + e);
 				System.err.println("!!! while deserializing " + name + " id=" + id + " attributes=" + attributes);
@@ -380,28 +651,27 @@ public class XMLSaxDeserializer extends DefaultHandler {
 			info.setObject(returned);
 			info.initializeDeserialization();
 
+			EntityPlan entityPlan = plan.getEntityPlan(concreteEntity);
+			ProxyMethodHandler<?> handler = factory.getHandler(returned);
 			for (int i = 0; i < attributes.getLength(); i++) {
 				String attributeName = attributes.getQName(i);
-				ModelProperty<Object> property = concreteEntity.getPropertyForXMLAttributeName(attributeName);
+				AttributeBinder binder = entityPlan.getAttributeBinder(attributeName);
 
-				if (property == null && IGNORED_ATTRIBUTES.contains(attributeName)) {
-					continue;
-				}
-
-				if (property == null) {
+				if (binder == null) {
+					if (IGNORED_ATTRIBUTES.contains(attributeName)) {
+						continue;
+					}
 					if (policy == DeserializationPolicy.RESTRICTIVE) {
 						throw new RestrictiveDeserializationException("No attribute found for the attribute named: " + attributeName);
 					}
-					else {
-						continue;
-					}
+					continue;
 				}
 
 				// transforms child
-				TransformedObjectInfo childInfo = new TransformedObjectInfo(factory, returned, property, null);
-				childInfo.setFromString(attributes.getValue(i));
-				info.initializeDeserialization();
-				connectObject(childInfo);
+				TransformedObjectInfo childInfo = new TransformedObjectInfo(factory, returned, binder.getProperty(),
+						binder.getTypeEntity(), binder.getType(), true);
+				childInfo.setObject(fromString(binder.getType(), attributes.getValue(i)));
+				connectObject(childInfo, handler);
 				allObjects.add(childInfo);
 			}
 
@@ -422,7 +692,7 @@ public class XMLSaxDeserializer extends DefaultHandler {
 			List<Resolver> forwards = forwardReferences.remove(id);
 			if (forwards != null) {
 				for (Resolver forward : forwards) {
-					forward.resolve(info);
+					forward.resolve(info.getObject());
 				}
 			}
 		}
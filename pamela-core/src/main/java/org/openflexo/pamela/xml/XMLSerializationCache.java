@@ -0,0 +1,286 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openflexo.pamela.annotations.XMLElement;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.SerializationPolicy;
+
+/**
+ * Stores the state required to serialize again a document rooted on a given object, writing only the subtrees which changed since last
+ * serialization<br>
+ * 
+ * For each object fully described in last serialized document, a {@link Fragment} is kept: a fragment holds the text of the XML element
+ * describing the object, where the elements of described children are replaced by their own fragments. Identifiers of objects are stable
+ * across serializations performed with the same cache.<br>
+ * 
+ * Handlers report each modification of a serializable property (see {@link PamelaModelFactory#objectHasBeenModified(Object)}): modified
+ * objects are stored in a dirty set (by identity). When serializing again, the fragments of dirty objects and of all their enclosing
+ * fragments are discarded, while fragments of unchanged subtrees are written as is, after having checked that objects are described at
+ * the same places with the same identifiers. Dirty set is cleared when modified status of serialized objects is reset.
+ */
+public class XMLSerializationCache {
+
+	private final Object root;
+
+	// Objects modified since last serialization, compared by identity
+	private final Set<Object> dirtyObjects = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+	// Fragments by described object, this map is replaced (never modified) after each serialization
+	private volatile Map<Object, Fragment> fragments = Collections.emptyMap();
+
+	// Generated identifiers, by object
+	private final Map<Object, String> ids = new IdentityHashMap<>();
+	// Identifiers of all objects described or referenced in last serialized document
+	private Map<Object, String> identifiers = Collections.emptyMap();
+	private int nextId = 0;
+
+	private SerializationPolicy policy;
+
+	public XMLSerializationCache(Object root) {
+		this.root = root;
+	}
+
+	public Object getRoot() {
+		return root;
+	}
+
+	/**
+	 * Return the objects modified since last serialization, and whose description will be written again
+	 * 
+	 * @return
+	 */
+	public Set<Object> getDirtyObjects() {
+		synchronized (dirtyObjects) {
+			Set<Object> returned = Collections.newSetFromMap(new IdentityHashMap<>());
+			returned.addAll(dirtyObjects);
+			return returned;
+		}
+	}
+
+	/**
+	 * Return the number of fragments kept by this cache (one per object described in last serialized document)
+	 * 
+	 * @return
+	 */
+	public int getFragmentsCount() {
+		return fragments.size();
+	}
+
+	/**
+	 * Return identifier of supplied object in last serialized document, null if object did not appear in this document
+	 * 
+	 * @param object
+	 * @return
+	 */
+	public synchronized String getIdentifier(Object object) {
+		return identifiers.get(object);
+	}
+
+	/**
+	 * Return identifiers of all objects described or referenced in last serialized document
+	 * 
+	 * @return
+	 */
+	public synchronized Map<Object, String> getIdentifiers() {
+		return Collections.unmodifiableMap(identifiers);
+	}
+
+	/**
+	 * Notify this cache that supplied object has been modified<br>
+	 * Only objects described in last serialized document are retained: new objects are always written
+	 * 
+	 * @param object
+	 */
+	public void objectHasBeenModified(Object object) {
+		if (fragments.containsKey(object)) {
+			dirtyObjects.add(object);
+		}
+	}
+
+	/**
+	 * Forget everything, next serialization will write the whole document
+	 */
+	public synchronized void clear() {
+		fragments = Collections.emptyMap();
+		dirtyObjects.clear();
+		ids.clear();
+		identifiers = Collections.emptyMap();
+		nextId = 0;
+	}
+
+	/**
+	 * Called at the beginning of a serialization: discard fragments of dirty objects and of all fragments enclosing them
+	 * 
+	 * @param policy
+	 * @return the dirty objects
+	 */
+	synchronized List<Object> startSerialization(SerializationPolicy policy) {
+		if (this.policy != policy) {
+			fragments = Collections.emptyMap();
+			this.policy = policy;
+		}
+		List<Object> dirty;
+		synchronized (dirtyObjects) {
+			dirty = new ArrayList<>(dirtyObjects);
+			dirtyObjects.clear();
+		}
+		for (Object object : dirty) {
+			Fragment fragment = fragments.get(object);
+			while (fragment != null && fragment.valid) {
+				fragment.valid = false;
+				fragment = fragment.parent;
+			}
+		}
+		return dirty;
+	}
+
+	/**
+	 * Called at the end of a successful serialization
+	 * 
+	 * @param writtenFragments
+	 *            fragments of all objects described in serialized document
+	 * @param encounteredObjects
+	 *            all objects described or referenced in serialized document
+	 * @param stillDirtyObjects
+	 *            objects to keep in dirty set (when modified status was not reset)
+	 */
+	synchronized void endSerialization(Map<Object, Fragment> writtenFragments, Map<Object, String> encounteredObjects,
+			List<Object> stillDirtyObjects) {
+		fragments = writtenFragments;
+		identifiers = new IdentityHashMap<>(encounteredObjects);
+		ids.keySet().removeIf(o -> !encounteredObjects.containsKey(o));
+		if (stillDirtyObjects != null) {
+			for (Object object : stillDirtyObjects) {
+				objectHasBeenModified(object);
+			}
+		}
+	}
+
+	Fragment getValidFragment(Object object) {
+		Fragment returned = fragments.get(object);
+		return returned != null && returned.valid ? returned : null;
+	}
+
+	String getId(Object object) {
+		String returned = ids.get(object);
+		if (returned == null) {
+			returned = String.valueOf(nextId++);
+			ids.put(object, returned);
+		}
+		return returned;
+	}
+
+	/**
+	 * Serialized text of an XML element fully describing an object<br>
+	 * Text is stored as a list of segments, which are either strings or {@link Fragment} of described children
+	 */
+	static class Fragment {
+		final Object object;
+		final String id;
+		final String elementName;
+		final int depth;
+		final String defaultNamespace;
+		final String pamelaNamespace;
+		final List<Object> segments = new ArrayList<>();
+		final List<ChildReference> children = new ArrayList<>();
+		Fragment parent;
+		boolean valid = true;
+
+		Fragment(Object object, String id, String elementName, int depth, String defaultNamespace, String pamelaNamespace) {
+			this.object = object;
+			this.id = id;
+			this.elementName = elementName;
+			this.depth = depth;
+			this.defaultNamespace = defaultNamespace;
+			this.pamelaNamespace = pamelaNamespace;
+		}
+
+		boolean matches(String elementName, int depth, String defaultNamespace, String pamelaNamespace) {
+			return this.elementName.equals(elementName) && this.depth == depth && sameNamespace(this.defaultNamespace, defaultNamespace)
+					&& sameNamespace(this.pamelaNamespace, pamelaNamespace);
+		}
+
+		private static boolean sameNamespace(String s1, String s2) {
+			return s1 == null || s1.isEmpty() ? s2 == null || s2.isEmpty() : s1.equals(s2);
+		}
+
+		void addText(CharSequence text) {
+			if (text.length() > 0) {
+				segments.add(text.toString());
+			}
+		}
+
+		void addChild(ChildReference child) {
+			children.add(child);
+			if (child.fragment != null) {
+				child.fragment.parent = this;
+				segments.add(child.fragment);
+			}
+		}
+	}
+
+	/**
+	 * An object appearing as child of a fragment, either fully described (then with its own fragment) or referenced with an idref
+	 */
+	static class ChildReference {
+		final Object object;
+		final XMLElement context;
+		final String id;
+		final Fragment fragment;
+
+		ChildReference(Object object, XMLElement context, String id, Fragment fragment) {
+			this.object = object;
+			this.context = context;
+			this.id = id;
+			this.fragment = fragment;
+		}
+
+		boolean isDescribed() {
+			return fragment != null;
+		}
+	}
+}
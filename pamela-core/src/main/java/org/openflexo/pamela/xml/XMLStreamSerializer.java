@@ -0,0 +1,750 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.openflexo.connie.java.JavaBindingFactory;
+import org.openflexo.connie.java.util.JavaBindingEvaluator;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.annotations.XMLElement;
+import org.openflexo.pamela.exceptions.InvalidDataException;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.exceptions.RestrictiveSerializationException;
+import org.openflexo.pamela.factory.PamelaConstants;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openflexo.pamela.factory.StringEncoder;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.model.ModelProperty;
+import org.openflexo.pamela.xml.XMLSerializationCache.ChildReference;
+import org.openflexo.pamela.xml.XMLSerializationCache.Fragment;
+import org.openflexo.toolbox.StringUtils;
+
+import javassist.util.proxy.ProxyObject;
+
+/**
+ * Streaming XML serializer, writing the document directly to an {@link OutputStream} using StAX<br>
+ * 
+ * Unlike {@link XMLSerializer}, no JDOM document is built: the place where each object is fully described is computed in a single pre-pass
+ * over the object graph. An object appearing in a context declared as {@link XMLElement#primary()} is fully described there (and
+ * referenced with an idref elsewhere), unless this context is inside its own description, otherwise it is described at its first
+ * occurrence. Produced documents are read by {@link XMLSaxDeserializer} exactly as documents produced by {@link XMLSerializer}.<br>
+ * Memory used does not depend on the size of the document, but is still proportional to the number of serialized objects (visited objects,
+ * references and description places).<br>
+ * 
+ * When an {@link XMLSerializationCache} is supplied, serialization is incremental: descriptions of unchanged subtrees are copied from
+ * the fragments stored by previous serialization, and only subtrees containing modified objects are written again.
+ */
+public class XMLStreamSerializer {
+
+	private static final String INDENT = "  ";
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private static JavaBindingFactory JAVA_BINDING_FACTORY = new JavaBindingFactory();
+
+	private final PamelaModelFactory pamelaModelFactory;
+	private final SerializationPolicy policy;
+
+	// Objects for which full description must be performed in a primary context
+	private Set<Object> deferredObjects;
+	// Objects already fully described
+	private Set<Object> describedObjects;
+	// Object whose description encloses each described object (only used during pre-pass)
+	private Map<Object, Object> enclosingObjects;
+	// Object enclosing the first primary context of each object appearing in a primary context (only used during pre-pass)
+	private Map<Object, Object> primaryEnclosingObjects;
+	// Object currently described (only used during pre-pass)
+	private Object currentObject;
+	// References of objects, stored at first occurrence
+	private Map<Object, String> references;
+
+	private XMLStreamWriter writer;
+	private int depth;
+	private int id = 0;
+
+	// Cache used for incremental serialization, might be null
+	private final XMLSerializationCache cache;
+	// Following fields are only used for incremental serialization
+	private FragmentWriter output;
+	private Deque<Fragment> fragmentStack;
+	private Map<Object, Fragment> writtenFragments;
+
+	public XMLStreamSerializer(PamelaModelFactory pamelaModelFactory) {
+		this(pamelaModelFactory, SerializationPolicy.PERMISSIVE);
+	}
+
+	public XMLStreamSerializer(PamelaModelFactory pamelaModelFactory, SerializationPolicy policy) {
+		this(pamelaModelFactory, policy, null);
+	}
+
+	/**
+	 * Build a serializer performing incremental serialization with supplied cache (a cache must always be used with the same root object)
+	 * 
+	 * @param pamelaModelFactory
+	 * @param policy
+	 * @param cache
+	 */
+	public XMLStreamSerializer(PamelaModelFactory pamelaModelFactory, SerializationPolicy policy, XMLSerializationCache cache) {
+		this.pamelaModelFactory = pamelaModelFactory;
+		this.policy = policy;
+		this.cache = cache;
+	}
+
+	private StringEncoder getStringEncoder() {
+		return pamelaModelFactory.getStringEncoder();
+	}
+
+	public void serializeDocument(Object object, OutputStream out, boolean resetModifiedStatus)
+			throws IOException, ModelDefinitionException {
+
+		List<Object> dirtyObjects = cache != null ? cache.startSerialization(policy) : null;
+		boolean success = false;
+		try {
+			computeDescriptionPlaces(object);
+
+			id = 0;
+			depth = 0;
+			describedObjects = new HashSet<>();
+			references = new HashMap<>();
+			if (cache != null) {
+				output = new FragmentWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				fragmentStack = new ArrayDeque<>();
+				writtenFragments = new IdentityHashMap<>();
+				writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output);
+			}
+			else {
+				writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+			}
+			writer.writeStartDocument("UTF-8", "1.0");
+			serializeElement(object, null, resetModifiedStatus);
+			writer.writeCharacters(LINE_SEPARATOR);
+			writer.writeEndDocument();
+			writer.flush();
+			writer.close();
+			if (output != null) {
+				output.flushOutput();
+			}
+			if (cache != null) {
+				// When modified status is not reset, modified objects stay dirty until next serialization
+				cache.endSerialization(writtenFragments, references, resetModifiedStatus ? null : dirtyObjects);
+			}
+			success = true;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (cache != null && !success) {
+				// Don't rely on a partially built cache
+				cache.clear();
+			}
+			writer = null;
+			describedObjects = null;
+			references = null;
+			deferredObjects = null;
+			output = null;
+			fragmentStack = null;
+			writtenFragments = null;
+		}
+		out.flush();
+	}
+
+	/**
+	 * Pre-pass computing objects whose description must be deferred to a primary context<br>
+	 * Graph is walked once as during serialization, but nothing is written: each object is first placed at its first occurrence. Then,
+	 * in the order they were met, objects appearing in a primary context are moved there, unless this context is enclosed in their own
+	 * description (as {@link XMLSerializer} does when relocating primary elements). Only the enclosing object of each object is stored, so
+	 * this check walks up the enclosing objects without walking the graph again.
+	 * 
+	 * @param root
+	 * @throws ModelDefinitionException
+	 * @throws XMLStreamException
+	 */
+	private void computeDescriptionPlaces(Object root) throws ModelDefinitionException, XMLStreamException {
+		deferredObjects = new HashSet<>();
+		try {
+			describedObjects = new HashSet<>();
+			enclosingObjects = new HashMap<>();
+			primaryEnclosingObjects = new LinkedHashMap<>();
+			currentObject = null;
+			serializeElement(root, null, false);
+			for (Map.Entry<Object, Object> entry : primaryEnclosingObjects.entrySet()) {
+				Object object = entry.getKey();
+				Object primaryEnclosingObject = entry.getValue();
+				// Root object is always described at its place
+				if (object == root) {
+					continue;
+				}
+				if (enclosingObjects.get(object) == primaryEnclosingObject || !encloses(object, primaryEnclosingObject)) {
+					enclosingObjects.put(object, primaryEnclosingObject);
+					deferredObjects.add(object);
+				}
+			}
+		} finally {
+			enclosingObjects = null;
+			primaryEnclosingObjects = null;
+			describedObjects = null;
+			currentObject = null;
+		}
+	}
+
+	/**
+	 * Return boolean indicating if description of supplied object encloses the description of other object, as currently placed
+	 */
+	private boolean encloses(Object object, Object other) {
+		for (Object o = other; o != null; o = enclosingObjects.get(o)) {
+			if (o == object) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isPrePass() {
+		return writer == null;
+	}
+
+	private String generateReference(Object o, XMLElement xmlElement) {
+
+		if (xmlElement != null && !xmlElement.idFactory().equals(XMLElement.NO_ID_FACTORY)) {
+			Object computedValue;
+			try {
+				computedValue = JavaBindingEvaluator.evaluateBinding(xmlElement.idFactory(), o, JAVA_BINDING_FACTORY);
+				return computedValue.toString();
+			} catch (Exception e) {
+				System.err.println("Could not evaluate " + xmlElement.idFactory() + " for " + o);
+			}
+		}
+
+		if (cache != null) {
+			// Identifiers are stable across incremental serializations
+			return cache.getId(o);
+		}
+		return String.valueOf(id++);
+	}
+
+	private <I> void serializeElement(Object object, XMLElement context, boolean resetModifiedStatus)
+			throws ModelDefinitionException, XMLStreamException {
+		if (object instanceof ProxyObject) {
+			ProxyMethodHandler<I> handler = (ProxyMethodHandler<I>) ((ProxyObject) object).getHandler();
+			ModelEntity<I> modelEntity = handler.getModelEntity();
+			Class<I> implementedInterface = modelEntity.getImplementedInterface();
+			boolean serializeModelEntityName = false;
+			XMLElement xmlElement = modelEntity.getXMLElement();
+			String xmlTag = modelEntity.getXMLTag();
+			if (pamelaModelFactory.getModelContext().getModelEntity(implementedInterface) == null) {
+				serializeModelEntityName = true;
+				switch (policy) {
+					case EXTENSIVE:
+						List<ModelEntity<?>> upperEntities = pamelaModelFactory.getModelContext().getUpperEntities(object);
+						if (upperEntities.size() == 0) {
+							throw new ModelDefinitionException("Cannot serialize object of type: " + object.getClass().getName()
+									+ " in context " + context.xmlTag() + ". No model entity could be found in the model mapping");
+						}
+						else if (upperEntities.size() > 1) {
+							throw new ModelDefinitionException("Ambiguous entity for object " + object.getClass().getName()
+									+ ". More than one entities are known in this model mapping.");
+						}
+						ModelEntity<?> e = upperEntities.get(0);
+						xmlTag = e.getXMLTag();
+						modelEntity = PamelaMetaModelLibrary.retrieveMetaModel(implementedInterface).getModelEntity(implementedInterface);
+						break;
+					case PERMISSIVE:
+						upperEntities = pamelaModelFactory.getModelContext().getUpperEntities(object);
+						if (upperEntities.size() == 0) {
+							throw new ModelDefinitionException("Cannot serialize object of type: " + object.getClass().getName()
+									+ " in context " + context.xmlTag() + ". No model entity could be found in the model mapping");
+						}
+						else if (upperEntities.size() > 1) {
+							throw new ModelDefinitionException("Ambiguous entity for object " + object.getClass().getName()
+									+ ". More than one entities are known in this model mapping.");
+						}
+						modelEntity = (ModelEntity<I>) upperEntities.get(0);
+						break;
+					case RESTRICTIVE:
+						throw new RestrictiveSerializationException(
+								"Entity of type " + implementedInterface.getName() + " cannot be serialized in this model context");
+				}
+			}
+			String contextString = context != null ? context.context() : "";
+			String elementName = contextString + xmlTag;
+			String namespace = null;
+			if (xmlElement != null) {
+				namespace = !(xmlElement.namespace().equals(XMLElement.NO_NAME_SPACE)) ? xmlElement.namespace() : null;
+			}
+			boolean primaryContext = context != null && context.primary();
+
+			if (isPrePass() && primaryContext) {
+				primaryEnclosingObjects.putIfAbsent(object, currentObject);
+			}
+
+			boolean describeHere = !describedObjects.contains(object)
+					&& (primaryContext || context == null || !deferredObjects.contains(object));
+
+			if (!describeHere) {
+				// This object was (or will be) described somewhere else, only put an idref
+				if (!isPrePass()) {
+					String reference = getReference(object, xmlElement);
+					startElement(elementName, namespace, true);
+					writer.writeAttribute(XMLSerializer.ID_REF, reference);
+					endElement(true, false);
+					if (cache != null && !fragmentStack.isEmpty()) {
+						fragmentStack.peek().addChild(new ChildReference(object, context, reference, null));
+					}
+				}
+				return;
+			}
+
+			describedObjects.add(object);
+
+			if (isPrePass()) {
+				enclosingObjects.put(object, currentObject);
+				if (xmlElement != null) {
+					Object enclosingObject = currentObject;
+					currentObject = object;
+					try {
+						Fragment fragment = cache != null ? cache.getValidFragment(object) : null;
+						if (fragment != null) {
+							// Children of an unchanged object are those of its fragment, don't invoke getters again
+							for (ChildReference child : fragment.children) {
+								serializeElement(child.object, child.context, resetModifiedStatus);
+							}
+						}
+						else {
+							for (Object[] child : getChildren(handler, modelEntity)) {
+								serializeElement(child[1], ((ModelProperty<?>) child[0]).getXMLElement(), resetModifiedStatus);
+							}
+						}
+					} finally {
+						currentObject = enclosingObject;
+					}
+				}
+				return;
+			}
+
+			String reference = getReference(object, xmlElement);
+			Fragment fragment = null;
+			if (cache != null) {
+				String defaultNamespace = writer.getNamespaceContext().getNamespaceURI("");
+				String pamelaNamespace = writer.getNamespaceContext().getNamespaceURI(PamelaConstants.NAMESPACE_PREFIX);
+				if (replayFragment(object, context, reference, elementName, defaultNamespace, pamelaNamespace)) {
+					return;
+				}
+				flushToCurrentFragment();
+				fragment = new Fragment(object, reference, elementName, depth, defaultNamespace, pamelaNamespace);
+				fragmentStack.push(fragment);
+			}
+
+			try {
+				handler.setSerializing(true, resetModifiedStatus);
+
+				if (xmlElement != null) {
+					List<Object[]> children = getChildren(handler, modelEntity);
+					startElement(elementName, namespace, children.isEmpty());
+					writer.writeAttribute(XMLSerializer.ID, reference);
+					if (serializeModelEntityName) {
+						writePamelaAttribute(PamelaConstants.MODEL_ENTITY_ATTRIBUTE,
+								handler.getModelEntity().getImplementedInterface().getName());
+						if (handler.getOverridingSuperClass() != null) {
+							writePamelaAttribute(PamelaConstants.CLASS_ATTRIBUTE, handler.getOverridingSuperClass().getName());
+						}
+					}
+					writeAttributes(handler, modelEntity);
+					for (Object[] child : children) {
+						serializeElement(child[1], ((ModelProperty<?>) child[0]).getXMLElement(), resetModifiedStatus);
+					}
+					endElement(children.isEmpty(), false);
+				}
+				else if (getStringEncoder().isConvertable(modelEntity.getImplementedInterface())) {
+					try {
+						String text = getStringEncoder().toString(object);
+						startElement(elementName, namespace, false);
+						writer.writeAttribute(XMLSerializer.ID, reference);
+						writer.writeCharacters(text);
+						endElement(false, true);
+					} catch (InvalidDataException e) {
+						// This should not happen. If it does, then it is likely that the StringEncoder class is messed up
+						throw new ModelDefinitionException(
+								"Hu hoh, really don't know how you got into this state: your object is string convertable but conversion could not be performed",
+								e);
+					}
+				}
+				else {
+					throw new ModelDefinitionException(
+							"No XML element for " + modelEntity.getImplementedInterface() + " modelEntity=" + modelEntity);
+				}
+			} finally {
+				handler.setSerializing(false, resetModifiedStatus);
+			}
+			if (fragment != null) {
+				flushToCurrentFragment();
+				fragmentStack.pop();
+				registerFragment(fragment, context);
+			}
+		}
+		else if (getStringEncoder().isConvertable(object.getClass())) {
+			try {
+				if (StringUtils.isNotEmpty(context.xmlTag())) {
+					String text = getStringEncoder().toString(object);
+					if (!isPrePass()) {
+						startElement(context.xmlTag(), StringUtils.isNotEmpty(context.namespace()) ? context.namespace() : null, false);
+						writer.writeCharacters(text);
+						endElement(false, true);
+					}
+				}
+				else {
+					throw new ModelDefinitionException("No XML tag defined for " + context + " while serializing " + object);
+				}
+			} catch (InvalidDataException e) {
+				throw new ModelDefinitionException(
+						"Hu hoh, really don't know how you got into this state: your object is string convertable but conversion could not be performed",
+						e);
+			}
+		}
+		else {
+			throw new ModelDefinitionException("Cannot serialize non-proxy object " + object);
+		}
+	}
+
+	private String getReference(Object object, XMLElement xmlElement) {
+		String returned = references.get(object);
+		if (returned == null) {
+			returned = generateReference(object, xmlElement);
+			references.put(object, returned);
+		}
+		return returned;
+	}
+
+	private String getReference(Object object) {
+		return getReference(object, ((ProxyMethodHandler<?>) ((ProxyObject) object).getHandler()).getModelEntity().getXMLElement());
+	}
+
+	/**
+	 * Write the fragment stored for supplied object in previous serialization, when the object and all objects it contains were not
+	 * modified, and when it would be serialized exactly the same way (same place in the document, same description places for children,
+	 * same identifiers)
+	 * 
+	 * @return true when fragment was written
+	 * @throws XMLStreamException
+	 */
+	private boolean replayFragment(Object object, XMLElement context, String reference, String elementName, String defaultNamespace,
+			String pamelaNamespace) throws XMLStreamException {
+		Fragment fragment = cache.getValidFragment(object);
+		if (fragment == null || !fragment.id.equals(reference) || !fragment.matches(elementName, depth, defaultNamespace, pamelaNamespace)) {
+			return false;
+		}
+		Set<Object> replayedObjects = new HashSet<>();
+		if (!canReplay(fragment, replayedObjects)) {
+			return false;
+		}
+		flushToCurrentFragment();
+		try {
+			output.writeFragment(fragment);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+		describedObjects.addAll(replayedObjects);
+		registerFragment(fragment, context);
+		return true;
+	}
+
+	/**
+	 * Check that all children of supplied fragment would be described (or referenced) as they were in previous serialization
+	 */
+	private boolean canReplay(Fragment fragment, Set<Object> replayedObjects) {
+		for (ChildReference child : fragment.children) {
+			boolean describeHere = !describedObjects.contains(child.object) && !replayedObjects.contains(child.object)
+					&& (child.context.primary() || !deferredObjects.contains(child.object));
+			if (describeHere != child.isDescribed() || !child.id.equals(getReference(child.object))) {
+				return false;
+			}
+			if (describeHere) {
+				replayedObjects.add(child.object);
+				if (!child.fragment.valid || !canReplay(child.fragment, replayedObjects)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Register a fragment written in current document, either newly built or replayed
+	 */
+	private void registerFragment(Fragment fragment, XMLElement context) {
+		writtenFragments.put(fragment.object, fragment);
+		registerChildFragments(fragment);
+		if (fragmentStack.isEmpty()) {
+			fragment.parent = null;
+		}
+		else {
+			fragmentStack.peek().addChild(new ChildReference(fragment.object, context, fragment.id, fragment));
+		}
+	}
+
+	private void registerChildFragments(Fragment fragment) {
+		for (ChildReference child : fragment.children) {
+			if (child.isDescribed() && !writtenFragments.containsKey(child.object)) {
+				writtenFragments.put(child.object, child.fragment);
+				registerChildFragments(child.fragment);
+			}
+		}
+	}
+
+	/**
+	 * Close any pending start tag and flush the StAX writer, so that all text written so far is stored in the fragment being built
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private void flushToCurrentFragment() throws XMLStreamException {
+		writer.writeCharacters("");
+		writer.flush();
+		output.takeText(fragmentStack.peek());
+	}
+
+	/**
+	 * Return all objects to be serialized as XML elements of supplied object, as pairs (property, value)
+	 */
+	private <I> List<Object[]> getChildren(ProxyMethodHandler<I> handler, ModelEntity<I> modelEntity) throws ModelDefinitionException {
+		List<Object[]> returned = new ArrayList<>();
+		Iterator<ModelProperty<? super I>> properties = modelEntity.getProperties();
+		while (properties.hasNext()) {
+			ModelProperty<? super I> p = properties.next();
+			if (p.getXMLAttribute() == null && p.getXMLElement() != null) {
+				switch (p.getCardinality()) {
+					case SINGLE:
+						Object oValue = handler.invokeGetter(p);
+						if (oValue != null) {
+							returned.add(new Object[] { p, oValue });
+						}
+						break;
+					case LIST:
+						List<?> values = (List<?>) handler.invokeGetter(p);
+						if (values != null) {
+							for (Object o : new ArrayList<>(values)) {
+								if (o != null) {
+									returned.add(new Object[] { p, o });
+								}
+							}
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		return returned;
+	}
+
+	private <I> void writeAttributes(ProxyMethodHandler<I> handler, ModelEntity<I> modelEntity)
+			throws ModelDefinitionException, XMLStreamException {
+		Iterator<ModelProperty<? super I>> properties = modelEntity.getProperties();
+		while (properties.hasNext()) {
+			ModelProperty<? super I> p = properties.next();
+			if (p.getXMLAttribute() != null) {
+				Object oValue = handler.invokeGetter(p);
+				boolean ignoreProperty = false;
+				try {
+					if (oValue != null && oValue.equals(p.getDefaultValue(pamelaModelFactory))) {
+						// This is the default value, no need to serialize this
+						ignoreProperty = true;
+					}
+				} catch (InvalidDataException e1) {
+					e1.printStackTrace();
+				}
+				if (oValue != null && !ignoreProperty) {
+					try {
+						String value = getStringEncoder().toString(oValue);
+						if (value != null) {
+							writer.writeAttribute(p.getXMLTag(), value);
+						}
+					} catch (InvalidDataException e) {
+						System.err.println("Cannot serialize " + oValue + " for property " + p);
+						e.printStackTrace();
+						throw new ModelExecutionException(e);
+					}
+				}
+			}
+		}
+	}
+
+	private void writePamelaAttribute(String name, String value) throws XMLStreamException {
+		if (!PamelaConstants.NS.equals(writer.getNamespaceContext().getNamespaceURI(PamelaConstants.NAMESPACE_PREFIX))) {
+			writer.writeNamespace(PamelaConstants.NAMESPACE_PREFIX, PamelaConstants.NS);
+			writer.setPrefix(PamelaConstants.NAMESPACE_PREFIX, PamelaConstants.NS);
+		}
+		writer.writeAttribute(PamelaConstants.NAMESPACE_PREFIX, PamelaConstants.NS, name, value);
+	}
+
+	/**
+	 * Start a new element, indenting it as JDOM pretty format would do
+	 * 
+	 * @param name
+	 * @param namespace
+	 *            default namespace of the element, null when none
+	 * @param empty
+	 *            true when element has neither children nor text
+	 * @throws XMLStreamException
+	 */
+	private void startElement(String name, String namespace, boolean empty) throws XMLStreamException {
+		writer.writeCharacters(LINE_SEPARATOR);
+		for (int i = 0; i < depth; i++) {
+			writer.writeCharacters(INDENT);
+		}
+		String currentNamespace = writer.getNamespaceContext().getNamespaceURI("");
+		String requiredNamespace = namespace != null ? namespace : "";
+		if (empty) {
+			writer.writeEmptyElement("", name, requiredNamespace);
+		}
+		else {
+			writer.writeStartElement("", name, requiredNamespace);
+			writer.setDefaultNamespace(requiredNamespace);
+			depth++;
+		}
+		if (!requiredNamespace.equals(currentNamespace != null ? currentNamespace : "")) {
+			writer.writeDefaultNamespace(requiredNamespace);
+		}
+	}
+
+	/**
+	 * End current element
+	 * 
+	 * @param empty
+	 *            true when element was started as an empty element
+	 * @param textOnly
+	 *            true when element only contains text
+	 * @throws XMLStreamException
+	 */
+	private void endElement(boolean empty, boolean textOnly) throws XMLStreamException {
+		if (empty) {
+			return;
+		}
+		depth--;
+		if (!textOnly) {
+			writer.writeCharacters(LINE_SEPARATOR);
+			for (int i = 0; i < depth; i++) {
+				writer.writeCharacters(INDENT);
+			}
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writer used for incremental serialization, keeping the text written since last call to {@link #takeText(Fragment)}
+	 */
+	private static class FragmentWriter extends Writer {
+
+		private final Writer out;
+		private final StringBuilder text = new StringBuilder();
+
+		private FragmentWriter(Writer out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write(cbuf, off, len);
+			text.append(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			out.write(str, off, len);
+			text.append(str, off, off + len);
+		}
+
+		/**
+		 * Append text written since last call to supplied fragment (text is discarded when fragment is null)
+		 */
+		private void takeText(Fragment fragment) {
+			if (fragment != null) {
+				fragment.addText(text);
+			}
+			text.setLength(0);
+		}
+
+		/**
+		 * Write a fragment stored by a previous serialization, its text is not kept
+		 */
+		private void writeFragment(Fragment fragment) throws IOException {
+			for (Object segment : fragment.segments) {
+				if (segment instanceof Fragment) {
+					writeFragment((Fragment) segment);
+				}
+				else {
+					out.write((String) segment);
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			// Output is only flushed at the end of the document
+		}
+
+		private void flushOutput() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
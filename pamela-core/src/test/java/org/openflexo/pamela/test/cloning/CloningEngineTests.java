@@ -0,0 +1,192 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.cloning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.CloningEngine;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Test cloning of large graphs of objects with {@link CloningEngine}, with sequential and parallel exploration
+ */
+public class CloningEngineTests {
+
+	private PamelaModelFactory factory;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(GraphNode.class);
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		CloningEngine.setParallelCloning(false);
+		CloningEngine.setCloningPool(null);
+		pool.shutdown();
+	}
+
+	private GraphNode createNode(String name, GraphNode parent) {
+		GraphNode node = factory.newInstance(GraphNode.class);
+		node.setName(name);
+		node.setWeight(name.length());
+		node.setLabel("Label of " + name);
+		if (parent != null) {
+			parent.addToChildren(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Build a tree of supplied size, where each node has at most 4 children, and references another node of the tree as partner
+	 */
+	private GraphNode makeTree(int size) {
+		List<GraphNode> nodes = new ArrayList<>();
+		GraphNode root = createNode("Root", null);
+		nodes.add(root);
+		for (int i = 1; i < size; i++) {
+			GraphNode node = createNode("Node" + i, nodes.get((i - 1) / 4));
+			node.setPartner(nodes.get(i / 2));
+			nodes.add(node);
+		}
+		return root;
+	}
+
+	/**
+	 * Check that supplied clone has the same structure than original, and return a map of clones indexed by original objects
+	 */
+	private Map<GraphNode, GraphNode> assertCloned(GraphNode original, GraphNode clone) {
+		Map<GraphNode, GraphNode> clones = new IdentityHashMap<>();
+		Deque<GraphNode[]> toCheck = new ArrayDeque<>();
+		toCheck.push(new GraphNode[] { original, clone });
+		while (!toCheck.isEmpty()) {
+			GraphNode[] pair = toCheck.pop();
+			assertNotSame(pair[0], pair[1]);
+			assertEquals(pair[0].getName(), pair[1].getName());
+			assertEquals(pair[0].getWeight(), pair[1].getWeight());
+			assertNull(pair[1].getLabel());
+			assertEquals(pair[0].getChildren().size(), pair[1].getChildren().size());
+			clones.put(pair[0], pair[1]);
+			for (int i = 0; i < pair[0].getChildren().size(); i++) {
+				toCheck.push(new GraphNode[] { pair[0].getChildren().get(i), pair[1].getChildren().get(i) });
+			}
+		}
+		for (Map.Entry<GraphNode, GraphNode> e : clones.entrySet()) {
+			GraphNode expectedParent = e.getKey().getParent() != null ? clones.get(e.getKey().getParent()) : null;
+			assertSame(expectedParent, e.getValue().getParent());
+			GraphNode expectedPartner = clones.containsKey(e.getKey().getPartner()) ? clones.get(e.getKey().getPartner())
+					: e.getKey().getPartner();
+			assertSame(expectedPartner, e.getValue().getPartner());
+		}
+		return clones;
+	}
+
+	@Test
+	public void testSequentialCloning() {
+		GraphNode root = makeTree(10000);
+		GraphNode clone = (GraphNode) root.cloneObject();
+		assertEquals(10000, assertCloned(root, clone).size());
+		assertEquals(4, root.getChildren().size());
+	}
+
+	@Test
+	public void testParallelCloning() {
+		CloningEngine.setParallelCloning(true);
+		CloningEngine.setCloningPool(pool);
+		GraphNode root = makeTree(10000);
+		GraphNode clone = (GraphNode) root.cloneObject();
+		assertEquals(10000, assertCloned(root, clone).size());
+		assertEquals(4, root.getChildren().size());
+
+		// Same result when cloned sequentially
+		CloningEngine.setParallelCloning(false);
+		GraphNode clone2 = (GraphNode) root.cloneObject();
+		assertEquals(10000, assertCloned(root, clone2).size());
+	}
+
+	@Test
+	public void testReferenceOutsideOfClonedGraph() {
+		GraphNode outside = createNode("Outside", null);
+		GraphNode root = makeTree(100);
+		root.setPartner(outside);
+		CloningEngine.setParallelCloning(true);
+		CloningEngine.setCloningPool(pool);
+		GraphNode clone = (GraphNode) root.cloneObject();
+		assertCloned(root, clone);
+		assertSame(outside, clone.getPartner());
+		assertEquals(0, outside.getChildren().size());
+	}
+
+	@Test
+	public void testDeepChainCloning() {
+		GraphNode root = createNode("Root", null);
+		GraphNode current = root;
+		for (int i = 0; i < 20000; i++) {
+			current = createNode("Node" + i, current);
+		}
+		CloningEngine.setParallelCloning(true);
+		CloningEngine.setCloningPool(pool);
+		GraphNode clone = (GraphNode) root.cloneObject();
+		int depth = 0;
+		GraphNode clonedNode = clone;
+		while (clonedNode.getChildren().size() > 0) {
+			assertSame(clonedNode, clonedNode.getChildren().get(0).getParent());
+			clonedNode = clonedNode.getChildren().get(0);
+			depth++;
+		}
+		assertEquals(20000, depth);
+		assertEquals("Node19999", clonedNode.getName());
+	}
+}
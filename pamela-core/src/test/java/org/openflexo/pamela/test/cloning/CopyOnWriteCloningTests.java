@@ -0,0 +1,221 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.cloning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.Clipboard;
+import org.openflexo.pamela.factory.CopyOnWriteCloning;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Test copy-on-write cloning (see {@link CopyOnWriteCloning})
+ */
+public class CopyOnWriteCloningTests {
+
+	private PamelaModelFactory factory;
+	private List<GraphNode> nodes;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(GraphNode.class);
+		nodes = new ArrayList<>();
+	}
+
+	private GraphNode createNode(String name, GraphNode parent) {
+		GraphNode node = factory.newInstance(GraphNode.class);
+		node.setName(name);
+		node.setWeight(name.length());
+		node.setLabel("Label of " + name);
+		if (parent != null) {
+			parent.addToChildren(node);
+		}
+		nodes.add(node);
+		return node;
+	}
+
+	/**
+	 * Build a tree of supplied size, where each node has at most 4 children, and references another node of the tree as partner
+	 */
+	private GraphNode makeTree(int size) {
+		GraphNode root = createNode("Root", null);
+		for (int i = 1; i < size; i++) {
+			GraphNode node = createNode("Node" + i, nodes.get((i - 1) / 4));
+			node.setPartner(nodes.get(i / 2));
+		}
+		return root;
+	}
+
+	private boolean isSharingValues(Object clone) {
+		return factory.getHandler(clone).getLazyContent() != null;
+	}
+
+	@Test
+	public void testCloningIsLazy() throws Exception {
+		GraphNode root = makeTree(10000);
+		GraphNode clone = factory.copyOnWriteClone(root);
+		assertNotSame(root, clone);
+		assertTrue(isSharingValues(clone));
+
+		assertEquals("Root", clone.getName());
+		assertEquals(4, clone.getChildren().size());
+		GraphNode child = clone.getChildren().get(2);
+		assertNotSame(root.getChildren().get(2), child);
+		assertTrue(isSharingValues(child));
+		assertEquals("Node3", child.getName());
+		assertSame(clone, child.getParent());
+		assertNull(child.getLabel());
+		assertEquals(5, child.getWeight());
+		assertTrue(isSharingValues(child.getChildren().get(0)));
+	}
+
+	@Test
+	public void testModifyingClone() throws Exception {
+		GraphNode root = makeTree(100);
+		GraphNode clone = factory.copyOnWriteClone(root);
+		clone.setName("Clone");
+		GraphNode clonedChild = clone.getChildren().get(0);
+		clonedChild.addToChildren(factory.newInstance(GraphNode.class));
+		clone.removeFromChildren(clone.getChildren().get(3));
+
+		assertEquals("Root", root.getName());
+		assertEquals(4, root.getChildren().size());
+		assertEquals(4, root.getChildren().get(0).getChildren().size());
+		assertEquals(3, clone.getChildren().size());
+		assertEquals(5, clonedChild.getChildren().size());
+		assertSame(clonedChild, clonedChild.getChildren().get(4).getParent());
+	}
+
+	@Test
+	public void testModifyingOriginal() throws Exception {
+		GraphNode root = makeTree(1000);
+		GraphNode clone = factory.copyOnWriteClone(root);
+		GraphNode leaf = nodes.get(900);
+		GraphNode leafParent = leaf.getParent();
+		String leafName = leaf.getName();
+
+		root.setName("Changed");
+		leaf.setName("ChangedLeaf");
+		leafParent.removeFromChildren(leaf);
+		root.removeFromChildren(root.getChildren().get(0));
+
+		assertEquals("Root", clone.getName());
+		assertEquals(4, clone.getChildren().size());
+		assertEquals(3, root.getChildren().size());
+
+		// Clones of modified objects keep the values they had when cloned
+		GraphNode clonedLeafParent = findClone(clone, leafParent.getName());
+		assertNotNull(clonedLeafParent);
+		assertEquals(4, clonedLeafParent.getChildren().size());
+		GraphNode clonedLeaf = findClone(clonedLeafParent, leafName);
+		assertNotNull(clonedLeaf);
+		assertSame(clonedLeafParent, clonedLeaf.getParent());
+	}
+
+	/**
+	 * Return node with supplied name in the cloned tree rooted at supplied node
+	 */
+	private GraphNode findClone(GraphNode node, String name) {
+		if (name.equals(node.getName())) {
+			return node;
+		}
+		for (GraphNode child : node.getChildren()) {
+			GraphNode returned = findClone(child, name);
+			if (returned != null) {
+				return returned;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testReferencesAreResolvedToClones() throws Exception {
+		GraphNode outside = factory.newInstance(GraphNode.class);
+		GraphNode root = makeTree(100);
+		root.setPartner(outside);
+		GraphNode clone = factory.copyOnWriteClone(root);
+
+		assertSame(outside, clone.getPartner());
+		GraphNode node9 = findClone(clone, "Node9");
+		// Node9 references Node4 as partner
+		GraphNode node4 = node9.getPartner();
+		assertEquals("Node4", node4.getName());
+		assertSame(findClone(clone, "Node4"), node4);
+		assertNotSame(nodes.get(4), node4);
+	}
+
+	@Test
+	public void testModifyingObjectOutsideClonedGraph() throws Exception {
+		GraphNode outside = factory.newInstance(GraphNode.class);
+		outside.setName("Outside");
+		GraphNode root = makeTree(100);
+		root.setPartner(outside);
+		GraphNode clone = factory.copyOnWriteClone(root);
+
+		// Only originals of the cloned graph are tracked, nothing is materialized
+		outside.setName("Changed");
+		outside.addToChildren(factory.newInstance(GraphNode.class));
+		assertTrue(isSharingValues(clone));
+		assertSame(outside, clone.getPartner());
+		assertEquals("Changed", clone.getPartner().getName());
+	}
+
+	@Test
+	public void testCopyOnWriteClipboard() throws Exception {
+		GraphNode root = makeTree(100);
+		factory.setCopyOnWriteClipboard(true);
+		Clipboard clipboard = factory.copy(root);
+		GraphNode contents = (GraphNode) clipboard.getSingleContents();
+		assertTrue(isSharingValues(contents));
+		root.setName("Changed");
+		assertEquals("Root", contents.getName());
+		assertEquals(4, contents.getChildren().size());
+		assertNotSame(root.getChildren().get(0), contents.getChildren().get(0));
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.cloning;
+
+import java.util.List;
+
+import org.openflexo.pamela.AccessibleProxyObject;
+import org.openflexo.pamela.CloneableProxyObject;
+import org.openflexo.pamela.annotations.Adder;
+import org.openflexo.pamela.annotations.CloningStrategy;
+import org.openflexo.pamela.annotations.CloningStrategy.StrategyType;
+import org.openflexo.pamela.annotations.Embedded;
+import org.openflexo.pamela.annotations.Getter;
+import org.openflexo.pamela.annotations.Getter.Cardinality;
+import org.openflexo.pamela.annotations.ModelEntity;
+import org.openflexo.pamela.annotations.Remover;
+import org.openflexo.pamela.annotations.Setter;
+
+@ModelEntity
+public interface GraphNode extends AccessibleProxyObject, CloneableProxyObject {
+
+	public static final String NAME = "name";
+	public static final String WEIGHT = "weight";
+	public static final String LABEL = "label";
+	public static final String PARENT = "parent";
+	public static final String CHILDREN = "children";
+	public static final String PARTNER = "partner";
+
+	@Getter(NAME)
+	public String getName();
+
+	@Setter(NAME)
+	public void setName(String name);
+
+	@Getter(value = WEIGHT, defaultValue = "0")
+	public int getWeight();
+
+	@Setter(WEIGHT)
+	public void setWeight(int weight);
+
+	@Getter(LABEL)
+	@CloningStrategy(StrategyType.IGNORE)
+	public String getLabel();
+
+	@Setter(LABEL)
+	public void setLabel(String label);
+
+	@Getter(value = PARENT, inverse = CHILDREN)
+	@CloningStrategy(StrategyType.REFERENCE)
+	public GraphNode getParent();
+
+	@Setter(PARENT)
+	public void setParent(GraphNode parent);
+
+	@Getter(value = CHILDREN, cardinality = Cardinality.LIST, inverse = PARENT)
+	@CloningStrategy(StrategyType.CLONE)
+	@Embedded
+	public List<GraphNode> getChildren();
+
+	@Setter(CHILDREN)
+	public void setChildren(List<GraphNode> children);
+
+	@Adder(CHILDREN)
+	public void addToChildren(GraphNode child);
+
+	@Remover(CHILDREN)
+	public void removeFromChildren(GraphNode child);
+
+	@Getter(PARTNER)
+	@CloningStrategy(StrategyType.REFERENCE)
+	public GraphNode getPartner();
+
+	@Setter(PARTNER)
+	public void setPartner(GraphNode partner);
+
+}
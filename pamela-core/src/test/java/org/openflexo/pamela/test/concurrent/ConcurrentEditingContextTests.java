@@ -0,0 +1,254 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.ConcurrentEditingContext;
+import org.openflexo.pamela.factory.ConcurrentEditingContext.Transaction;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.embedding.TreeNode;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test concurrent access to objects managed by a {@link ConcurrentEditingContext}
+ */
+public class ConcurrentEditingContextTests {
+
+	private PamelaModelFactory factory;
+	private ConcurrentEditingContext editingContext;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+		editingContext = new ConcurrentEditingContext(4);
+		factory.setEditingContext(editingContext);
+	}
+
+	private TreeNode createNode(String name) {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		return node;
+	}
+
+	@Test
+	public void testReadersSeeCommittedTransactions() throws Exception {
+		TreeNode root = createNode("Root");
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<Integer>> readers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				readers.add(executor.submit(() -> {
+					int reads = 0;
+					while (writing.get() || reads == 0) {
+						int size = editingContext.executeRead(() -> {
+							for (TreeNode child : root.getChildren()) {
+								assertSame(root, child.getParent());
+							}
+							return root.getChildren().size();
+						});
+						// Children are added by pairs in a single transaction
+						assertEquals(0, size % 2);
+						// Single accesses do not require an explicit read
+						assertEquals("Root", root.getName());
+						reads++;
+					}
+					return reads;
+				}));
+			}
+			Future<?> writer = executor.submit(() -> {
+				try {
+					for (int i = 0; i < 200; i++) {
+						int index = i;
+						editingContext.executeWrite("add children", () -> {
+							root.addToChildren(createNode("Node" + index + "-0"));
+							root.addToChildren(createNode("Node" + index + "-1"));
+							return null;
+						});
+					}
+				} finally {
+					writing.set(false);
+				}
+			});
+			writer.get(30, TimeUnit.SECONDS);
+			for (Future<Integer> reader : readers) {
+				assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(400, root.getChildren().size());
+	}
+
+	@Test
+	public void testRollback() {
+		editingContext.createUndoManager();
+		TreeNode root = editingContext.executeWrite("create", () -> createNode("Root"));
+		int editsCount = editingContext.getUndoManager().getEdits().size();
+
+		try {
+			editingContext.executeWrite("failing edit", () -> {
+				root.setName("Renamed");
+				root.addToChildren(createNode("Child"));
+				throw new IllegalStateException("Failure");
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		assertEquals("Root", root.getName());
+		assertTrue(root.getChildren().isEmpty());
+		assertEquals(editsCount, editingContext.getUndoManager().getEdits().size());
+		assertNull(editingContext.getCurrentTransaction());
+		assertFalse(editingContext.isWriteLockedByCurrentThread());
+	}
+
+	@Test
+	public void testNestedTransactions() {
+		editingContext.createUndoManager();
+		TreeNode root = editingContext.executeWrite("create", () -> createNode("Root"));
+
+		try (Transaction transaction = editingContext.beginTransaction("outer")) {
+			root.setName("Outer");
+			try (Transaction nested = editingContext.beginTransaction("nested")) {
+				assertTrue(nested.isNested());
+				root.setName("Nested");
+				nested.commit();
+			}
+			transaction.commit();
+		}
+		assertEquals("Nested", root.getName());
+
+		Transaction transaction = editingContext.beginTransaction("outer");
+		root.setName("Outer");
+		Transaction nested = editingContext.beginTransaction("nested");
+		root.setName("Nested");
+		nested.rollback();
+		try {
+			transaction.commit();
+			fail();
+		} catch (ModelExecutionException e) {
+			// Expected: outer transaction is rolled back
+		}
+		assertEquals("Nested", root.getName());
+		assertFalse(editingContext.isWriteLockedByCurrentThread());
+	}
+
+	@Test
+	public void testUndoWhileTransactionsAreCommitted() throws Exception {
+		TreeNode root = createNode("Root");
+		UndoManager undoManager = editingContext.createUndoManager();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// Undoing an edit requires the write lock, while committing a transaction requires the UndoManager
+			Future<?> undoer = executor.submit(() -> {
+				while (writing.get()) {
+					if (undoManager.canUndo()) {
+						undoManager.undo();
+					}
+				}
+			});
+			Future<?> writer = executor.submit(() -> {
+				try {
+					for (int i = 0; i < 500; i++) {
+						int index = i;
+						editingContext.executeWrite("add child", () -> {
+							root.setName("Root" + index);
+							root.addToChildren(createNode("Node" + index));
+							return null;
+						});
+					}
+				} finally {
+					writing.set(false);
+				}
+			});
+			writer.get(30, TimeUnit.SECONDS);
+			undoer.get(30, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Each transaction was recorded in its own edit: undoing all remaining edits restores initial state
+		int undone = 0;
+		while (editingContext.undo()) {
+			undone++;
+		}
+		// Edits undone while transactions were committed are discarded by the next commit
+		assertTrue(undone <= 500);
+		assertEquals("Root", root.getName());
+		assertTrue(root.getChildren().isEmpty());
+		assertTrue(editingContext.redo());
+		assertEquals(1, root.getChildren().size());
+		assertFalse(editingContext.isWriteLockedByCurrentThread());
+	}
+
+	@Test
+	public void testWriteWhileReadingIsRejected() {
+		TreeNode root = createNode("Root");
+		try {
+			editingContext.executeRead(() -> {
+				root.setName("Renamed");
+				return null;
+			});
+			fail();
+		} catch (ModelExecutionException e) {
+			// Expected
+		}
+		assertEquals("Root", root.getName());
+		assertFalse(editingContext.isReadLockedByCurrentThread());
+	}
+}
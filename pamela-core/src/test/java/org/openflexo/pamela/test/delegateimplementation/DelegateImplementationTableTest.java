@@ -0,0 +1,144 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.delegateimplementation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.annotations.Getter;
+import org.openflexo.pamela.annotations.Implementation;
+import org.openflexo.pamela.annotations.ModelEntity;
+import org.openflexo.pamela.annotations.Setter;
+import org.openflexo.pamela.factory.DelegateImplementationTable;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Test resolution of delegate implementations through {@link DelegateImplementationTable}
+ */
+public class DelegateImplementationTableTest {
+
+	private static int fooImplInstances = 0;
+	private static int toStringImplInstances = 0;
+
+	@ModelEntity
+	public interface AnEntity {
+		String FOO = "foo";
+
+		@Getter(value = FOO, defaultValue = "4")
+		int getFoo();
+
+		@Setter(FOO)
+		void setFoo(int foo);
+
+		@Implementation
+		public static abstract class FooImpl implements AnEntity {
+			public FooImpl() {
+				fooImplInstances++;
+			}
+
+			@Override
+			public int getFoo() {
+				return 10;
+			}
+		}
+
+		@Implementation
+		public static abstract class ToStringImpl implements AnEntity {
+			public ToStringImpl() {
+				toStringImplInstances++;
+			}
+
+			@Override
+			public String toString() {
+				return "ShouldReturnThis";
+			}
+		}
+	}
+
+	private PamelaModelFactory factory;
+	private PamelaMetaModel pamelaMetaModel;
+
+	@Before
+	public void setUp() throws Exception {
+		pamelaMetaModel = new PamelaMetaModel(AnEntity.class);
+		factory = new PamelaModelFactory(pamelaMetaModel);
+		fooImplInstances = 0;
+		toStringImplInstances = 0;
+	}
+
+	@Test
+	public void testTableResolution() throws Exception {
+		DelegateImplementationTable<AnEntity> table = pamelaMetaModel.getModelEntity(AnEntity.class).getMethodDispatchTable()
+				.getDelegateImplementationTable();
+		assertFalse(table.isEmpty());
+		assertEquals(2, table.size());
+		int fooIndex = table.getDelegateIndex(AnEntity.class.getMethod("getFoo"));
+		assertEquals(AnEntity.FooImpl.class, table.getDelegateImplementationClass(fooIndex));
+		int toStringIndex = table.getDelegateIndex(Object.class.getMethod("toString"));
+		assertEquals(AnEntity.ToStringImpl.class, table.getDelegateImplementationClass(toStringIndex));
+		assertEquals(-1, table.getDelegateIndex(AnEntity.class.getMethod("setFoo", Integer.TYPE)));
+		// Table is computed once per entity
+		assertSame(table, pamelaMetaModel.getModelEntity(AnEntity.class).getMethodDispatchTable().getDelegateImplementationTable());
+	}
+
+	@Test
+	public void testLazyDelegateInstantiation() {
+		AnEntity entity1 = factory.newInstance(AnEntity.class);
+		AnEntity entity2 = factory.newInstance(AnEntity.class);
+		assertEquals(0, fooImplInstances);
+		assertEquals(0, toStringImplInstances);
+
+		assertEquals(10, entity1.getFoo());
+		assertEquals(10, entity1.getFoo());
+		assertEquals(1, fooImplInstances);
+		assertEquals(0, toStringImplInstances);
+
+		assertEquals("ShouldReturnThis", entity2.toString());
+		assertEquals(1, fooImplInstances);
+		assertEquals(1, toStringImplInstances);
+
+		entity2.setFoo(12);
+		assertEquals(10, entity2.getFoo());
+		assertEquals(2, fooImplInstances);
+	}
+}
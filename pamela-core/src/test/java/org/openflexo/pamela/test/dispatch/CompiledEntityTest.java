@@ -0,0 +1,96 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.factory.CompiledEntityGenerator;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test compiled entities mode of {@link PamelaModelFactory} on Library-Book model
+ */
+public class CompiledEntityTest {
+
+	@Test
+	public void testCompiledAccessors() throws Exception {
+
+		PamelaModelFactory factory = new PamelaModelFactory(PamelaMetaModelLibrary.retrieveMetaModel(Library.class));
+		factory.setCompiledEntities(true);
+		EditingContextImpl editingContext = new EditingContextImpl();
+		editingContext.createUndoManager();
+		factory.setEditingContext(editingContext);
+		UndoManager undoManager = editingContext.getUndoManager();
+
+		Library library = factory.newInstance(Library.class);
+		Book book = factory.newInstance(Book.class, "Lord of the ring");
+
+		assertTrue(CompiledEntityGenerator.isCompiledClass(library.getClass().getSuperclass()));
+		assertTrue(CompiledEntityGenerator.isCompiledClass(book.getClass().getSuperclass()));
+
+		assertEquals("Lord of the ring", book.getTitle());
+		assertNull(book.getISBN());
+
+		CompoundEdit edit = undoManager.startRecording("setName");
+		library.setName("My library");
+		undoManager.stopRecording(edit);
+		assertEquals("My library", library.getName());
+		assertTrue(library.isModified());
+
+		undoManager.undo();
+		assertNull(library.getName());
+		undoManager.redo();
+		assertEquals("My library", library.getName());
+
+		// Multiple properties are still dispatched through the proxy
+		library.addToBooks(book);
+		assertSame(book, library.getBook("Lord of the ring"));
+	}
+
+}
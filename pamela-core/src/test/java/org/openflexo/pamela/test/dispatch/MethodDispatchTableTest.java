@@ -0,0 +1,109 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.factory.IProxyMethodHandler;
+import org.openflexo.pamela.factory.MethodDispatchTable;
+import org.openflexo.pamela.factory.MethodDispatchTable.DispatchedMethod;
+import org.openflexo.pamela.factory.MethodDispatchTable.Operation;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+
+/**
+ * Test the {@link MethodDispatchTable} computed for Library-Book model
+ */
+public class MethodDispatchTableTest {
+
+	@Test
+	public void testDispatchedMethods() throws Exception {
+
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		ModelEntity<Library> libraryEntity = pamelaMetaModel.getModelEntity(Library.class);
+		MethodDispatchTable<Library> table = libraryEntity.getMethodDispatchTable();
+
+		DispatchedMethod<Library> getName = table.getDispatchedMethod(Library.class.getMethod("getName"));
+		assertEquals(Operation.GETTER, getName.getOperation());
+		assertEquals("name", getName.getProperty().getPropertyIdentifier());
+
+		DispatchedMethod<Library> setName = table.getDispatchedMethod(Library.class.getMethod("setName", String.class));
+		assertEquals(Operation.SETTER, setName.getOperation());
+		assertEquals("name", setName.getProperty().getPropertyIdentifier());
+
+		DispatchedMethod<Library> addToBooks = table.getDispatchedMethod(Library.class.getMethod("addToBooks", Book.class));
+		assertEquals(Operation.ADDER, addToBooks.getOperation());
+		assertEquals("books", addToBooks.getProperty().getPropertyIdentifier());
+
+		DispatchedMethod<Library> getBook = table.getDispatchedMethod(Library.class.getMethod("getBook", String.class));
+		assertEquals(Operation.FINDER, getBook.getOperation());
+		assertEquals("books", getBook.getProperty().getPropertyIdentifier());
+
+		DispatchedMethod<Library> isModified = table.getDispatchedMethod(IProxyMethodHandler.IS_MODIFIED);
+		assertEquals(Operation.IS_MODIFIED, isModified.getOperation());
+		assertEquals(Boolean.FALSE, isModified.getDefaultReturnValue());
+
+		// Resolution is performed once per method
+		assertSame(getName, table.getDispatchedMethod(Library.class.getMethod("getName")));
+	}
+
+	@Test
+	public void testInvokeThroughDispatchTable() throws Exception {
+
+		PamelaModelFactory factory = new PamelaModelFactory(PamelaMetaModelLibrary.retrieveMetaModel(Library.class));
+		Library library = factory.newInstance(Library.class);
+		Book book = factory.newInstance(Book.class, "Lord of the ring");
+
+		library.setName("My library");
+		assertEquals("My library", library.getName());
+		assertTrue(library.isModified());
+		library.addToBooks(book);
+		assertSame(book, library.getBook("Lord of the ring"));
+		library.removeFromBooks(book);
+		assertTrue(library.getBooks().isEmpty());
+	}
+
+}
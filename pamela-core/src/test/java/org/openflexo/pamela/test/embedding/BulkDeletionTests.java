@@ -0,0 +1,162 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.embedding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.BulkDeletion;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test deletion of many objects with {@link PamelaModelFactory#deleteAll(java.util.Collection, Object...)} (see {@link BulkDeletion})
+ */
+public class BulkDeletionTests {
+
+	private PamelaModelFactory factory;
+	private UndoManager undoManager;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+		EditingContextImpl editingContext = new EditingContextImpl();
+		editingContext.createUndoManager();
+		factory.setEditingContext(editingContext);
+		undoManager = editingContext.getUndoManager();
+	}
+
+	private TreeNode createNode(String name, TreeNode parent) {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		if (parent != null) {
+			parent.addToChildren(node);
+		}
+		return node;
+	}
+
+	private TreeNode createTree(int childrenCount) {
+		CompoundEdit edit = undoManager.startRecording("create tree");
+		TreeNode root = createNode("Root", null);
+		for (int i = 0; i < childrenCount; i++) {
+			TreeNode child = createNode("Node" + i, root);
+			createNode("Node" + i + "-0", child);
+			createNode("Node" + i + "-1", child);
+		}
+		undoManager.stopRecording(edit);
+		return root;
+	}
+
+	@Test
+	public void testDeleteAll() {
+		TreeNode root = createTree(5000);
+		List<TreeNode> deletedChildren = new ArrayList<>();
+		List<TreeNode> remainingChildren = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			(i % 2 == 0 ? deletedChildren : remainingChildren).add(root.getChildren().get(i));
+		}
+
+		List<String> rootNotifications = new ArrayList<>();
+		root.getPropertyChangeSupport().addPropertyChangeListener(evt -> rootNotifications.add(evt.getPropertyName()));
+		TreeNode observedChild = deletedChildren.get(10);
+		List<String> childNotifications = new ArrayList<>();
+		observedChild.getPropertyChangeSupport().addPropertyChangeListener(evt -> childNotifications.add(evt.getPropertyName()));
+
+		assertEquals(7500, factory.deleteAll(deletedChildren));
+
+		assertEquals(remainingChildren, root.getChildren());
+		for (TreeNode child : deletedChildren) {
+			assertTrue(child.isDeleted());
+			assertTrue(child.getChildren().isEmpty());
+		}
+		for (TreeNode child : remainingChildren) {
+			assertFalse(child.isDeleted());
+			assertSame(root, child.getParent());
+			assertEquals(2, child.getChildren().size());
+		}
+
+		// Survivors are notified once per property, deleted objects only notify their deletion
+		assertEquals(1, rootNotifications.stream().filter(TreeNode.CHILDREN::equals).count());
+		assertFalse(childNotifications.isEmpty());
+		assertFalse(childNotifications.contains(TreeNode.PARENT));
+		assertFalse(childNotifications.contains(TreeNode.CHILDREN));
+	}
+
+	@Test
+	public void testDeleteAllIsUndoneAtOnce() {
+		TreeNode root = createTree(500);
+		List<TreeNode> children = new ArrayList<>(root.getChildren());
+		int editsCount = undoManager.getEdits().size();
+
+		factory.deleteAll(children.subList(100, 300));
+		assertEquals(300, root.getChildren().size());
+		assertEquals(editsCount + 1, undoManager.getEdits().size());
+
+		undoManager.undo();
+		assertEquals(500, root.getChildren().size());
+		for (TreeNode child : children) {
+			assertFalse(child.isDeleted());
+			assertSame(root, child.getParent());
+			assertEquals(2, child.getChildren().size());
+		}
+	}
+
+	@Test
+	public void testDeleteAllWithContainer() {
+		TreeNode root = createTree(100);
+		TreeNode other = createNode("Other", null);
+		List<Object> toDelete = new ArrayList<>(root.getChildren());
+		toDelete.add(root);
+		toDelete.add("NotAnObject");
+
+		assertEquals(301, factory.deleteAll(toDelete));
+		assertTrue(root.isDeleted());
+		assertFalse(other.isDeleted());
+		assertEquals(0, factory.deleteAll(toDelete));
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.embedding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.EmbeddingClosure;
+import org.openflexo.pamela.factory.EmbeddingType;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.tests1.ActivityNode;
+import org.openflexo.pamela.test.tests1.EndNode;
+import org.openflexo.pamela.test.tests1.FlexoProcess;
+import org.openflexo.pamela.test.tests1.StartNode;
+import org.openflexo.pamela.test.tests1.TokenEdge;
+
+/**
+ * Test computation of embedded objects closures with {@link EmbeddingClosure}
+ */
+public class EmbeddingClosureTests {
+
+	private PamelaModelFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+	}
+
+	private TreeNode createNode(String name, TreeNode parent) {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		if (parent != null) {
+			parent.addToChildren(node);
+		}
+		return node;
+	}
+
+	@Test
+	public void testDeepClosure() {
+		TreeNode root = createNode("Root", null);
+		TreeNode current = root;
+		for (int i = 0; i < 20000; i++) {
+			current = createNode("Node" + i, current);
+		}
+
+		List<Object> embeddedObjects = factory.getEmbeddedObjects(root, EmbeddingType.CLOSURE);
+		assertEquals(20000, embeddedObjects.size());
+		assertSame(root.getChildren().get(0), embeddedObjects.get(0));
+		assertSame(current, embeddedObjects.get(19999));
+		assertTrue(embeddedObjects.contains(current));
+		assertFalse(embeddedObjects.contains(root));
+
+		assertTrue(embeddedObjects.remove(current));
+		assertFalse(embeddedObjects.contains(current));
+		assertEquals(19999, embeddedObjects.size());
+		assertSame(current.getParent(), embeddedObjects.get(19998));
+
+		assertTrue(factory.isEmbedddedIn(root, current, EmbeddingType.DELETION));
+		assertFalse(factory.isEmbedddedIn(current, root, EmbeddingType.DELETION));
+	}
+
+	@Test
+	public void testDeleteLargeSubtree() {
+		TreeNode root = createNode("Root", null);
+		List<TreeNode> allNodes = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			TreeNode child = createNode("Node" + i, root);
+			allNodes.add(child);
+			for (int j = 0; j < 500; j++) {
+				allNodes.add(createNode("Node" + i + "-" + j, child));
+			}
+		}
+		TreeNode sibling = createNode("Sibling", null);
+
+		root.delete();
+
+		assertTrue(root.isDeleted());
+		for (TreeNode node : allNodes) {
+			assertTrue(node.isDeleted());
+		}
+		assertFalse(sibling.isDeleted());
+	}
+
+	@Test
+	public void testConditionalEmbedding() throws Exception {
+		PamelaModelFactory processFactory = new PamelaModelFactory(FlexoProcess.class);
+		FlexoProcess process = processFactory.newInstance(FlexoProcess.class);
+		process.init("234XX");
+		process.setName("NewProcess");
+		ActivityNode activityNode = processFactory.newInstance(ActivityNode.class, "MyActivity");
+		process.addToNodes(activityNode);
+		StartNode startNode = processFactory.newInstance(StartNode.class, "Start");
+		process.addToNodes(startNode);
+		EndNode endNode = processFactory.newInstance(EndNode.class, "End");
+		process.addToNodes(endNode);
+		TokenEdge edge1 = processFactory.newInstance(TokenEdge.class, "edge1", startNode, activityNode);
+		TokenEdge edge2 = processFactory.newInstance(TokenEdge.class, "edge2", activityNode, endNode);
+
+		EmbeddingClosure closure = new EmbeddingClosure(processFactory, EmbeddingType.DELETION, startNode);
+		List<Object> embeddedObjects = closure.getEmbeddedObjects(activityNode);
+		assertEquals(1, embeddedObjects.size());
+		assertTrue(embeddedObjects.contains(edge1));
+		assertTrue(closure.isPartOfContext(startNode));
+		assertFalse(closure.isPartOfContext(edge2));
+
+		// Context is extended: edge2 is now embedded
+		closure.addToContext(endNode);
+		assertEquals(2, closure.getEmbeddedObjects(activityNode).size());
+
+		process.delete();
+		assertTrue(activityNode.isDeleted());
+		assertTrue(edge1.isDeleted());
+		assertTrue(edge2.isDeleted());
+	}
+}
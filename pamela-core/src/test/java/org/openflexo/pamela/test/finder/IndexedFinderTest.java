@@ -0,0 +1,202 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.finder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.NotificationBatch;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test finders declared with indexed=true, and check that index is maintained while collection and contained objects evolve
+ */
+public class IndexedFinderTest {
+
+	private PamelaModelFactory factory;
+	private UndoManager undoManager;
+
+	@Before
+	public void setUp() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		factory = new PamelaModelFactory(pamelaMetaModel);
+		EditingContextImpl editingContext = new EditingContextImpl();
+		editingContext.createUndoManager();
+		factory.setEditingContext(editingContext);
+		undoManager = editingContext.getUndoManager();
+	}
+
+	private Book makeBook(String title, String isbn) {
+		Book book = factory.newInstance(Book.class, title);
+		book.setISBN(isbn);
+		return book;
+	}
+
+	@Test
+	public void testLookup() {
+		Library library = factory.newInstance(Library.class);
+		for (int i = 0; i < 1000; i++) {
+			library.addToBooks(makeBook("Book" + (i % 10), "ISBN-" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertSame(library.getBooks().get(i), library.getBookWithISBN("ISBN-" + i));
+		}
+		assertNull(library.getBookWithISBN("unknown"));
+		assertEquals(100, library.getBooksWithTitle("Book3").size());
+		assertTrue(library.getBooksWithTitle("unknown").isEmpty());
+	}
+
+	@Test
+	public void testIndexMaintainedByAdderAndRemover() {
+		Library library = factory.newInstance(Library.class);
+		Book book1 = makeBook("Dune", "1");
+		library.addToBooks(book1);
+		assertSame(book1, library.getBookWithISBN("1"));
+
+		Book book2 = makeBook("Dune", "2");
+		library.addToBooks(book2);
+		assertSame(book2, library.getBookWithISBN("2"));
+		assertEquals(2, library.getBooksWithTitle("Dune").size());
+
+		library.removeFromBooks(book1);
+		assertNull(library.getBookWithISBN("1"));
+		assertSame(book2, library.getBookWithISBN("2"));
+		List<Book> dunes = library.getBooksWithTitle("Dune");
+		assertEquals(1, dunes.size());
+		assertSame(book2, dunes.get(0));
+	}
+
+	@Test
+	public void testIndexMaintainedByAttributeChange() {
+		Library library = factory.newInstance(Library.class);
+		Book book = makeBook("Dune", "1");
+		library.addToBooks(book);
+		assertSame(book, library.getBookWithISBN("1"));
+
+		book.setISBN("42");
+		assertNull(library.getBookWithISBN("1"));
+		assertSame(book, library.getBookWithISBN("42"));
+
+		book.setTitle("Children of Dune");
+		assertTrue(library.getBooksWithTitle("Dune").isEmpty());
+		assertSame(book, library.getBooksWithTitle("Children of Dune").get(0));
+
+		// Once removed, book is no more observed by index
+		library.removeFromBooks(book);
+		book.setISBN("43");
+		assertNull(library.getBookWithISBN("42"));
+		assertNull(library.getBookWithISBN("43"));
+	}
+
+	@Test
+	public void testIndexAndUndoRedo() {
+		Library library = factory.newInstance(Library.class);
+		Book book = makeBook("Dune", "1");
+		library.addToBooks(book);
+		assertSame(book, library.getBookWithISBN("1"));
+
+		CompoundEdit edit = undoManager.startRecording("remove and rename");
+		library.removeFromBooks(book);
+		book.setISBN("2");
+		undoManager.stopRecording(edit);
+		assertNull(library.getBookWithISBN("1"));
+		assertNull(library.getBookWithISBN("2"));
+
+		undoManager.undo();
+		assertSame(book, library.getBookWithISBN("1"));
+		assertNull(library.getBookWithISBN("2"));
+
+		undoManager.redo();
+		assertNull(library.getBookWithISBN("1"));
+		assertNull(library.getBookWithISBN("2"));
+	}
+
+	@Test
+	public void testIndexedAndLinearFindersAgree() {
+		Library library = factory.newInstance(Library.class);
+		for (int i = 0; i < 100; i++) {
+			library.addToBooks(makeBook("Book" + i, "ISBN-" + i));
+		}
+		for (int i = 0; i < 100; i += 7) {
+			library.getBooks().get(i).setTitle("Renamed" + i);
+		}
+		for (int i = 0; i < 100; i++) {
+			Book book = library.getBooks().get(i);
+			assertSame(library.getBook(book.getTitle()), library.getBooksWithTitle(book.getTitle()).get(0));
+		}
+	}
+
+	@Test
+	public void testIndexMaintainedInsideNotificationBatch() {
+		Library library = factory.newInstance(Library.class);
+		Book book = makeBook("Dune", "1");
+		library.addToBooks(book);
+		assertSame(book, library.getBookWithISBN("1"));
+
+		List<String> notifications = new ArrayList<>();
+		book.getPropertyChangeSupport().addPropertyChangeListener("ISBN", evt -> notifications.add(evt.getPropertyName()));
+
+		try (NotificationBatch batch = ((EditingContextImpl) factory.getEditingContext()).beginNotificationBatch()) {
+			book.setISBN("2");
+			// Index is updated at once, while other listeners wait for the end of the batch
+			assertNull(library.getBookWithISBN("1"));
+			assertSame(book, library.getBookWithISBN("2"));
+			assertTrue(notifications.isEmpty());
+			book.setISBN("3");
+			assertNull(library.getBookWithISBN("2"));
+			assertSame(book, library.getBookWithISBN("3"));
+		}
+		assertEquals(1, notifications.size());
+		assertSame(book, library.getBookWithISBN("3"));
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.frozen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.exceptions.ModelExecutionException;
+import org.openflexo.pamela.factory.ConcurrentEditingContext;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.FrozenGraph;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.embedding.TreeNode;
+import org.openflexo.pamela.undo.CompoundEdit;
+
+/**
+ * Test read-only snapshots of object graphs with {@link FrozenGraph}
+ */
+public class FrozenGraphTests {
+
+	private PamelaModelFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+	}
+
+	private TreeNode createNode(String name) {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		return node;
+	}
+
+	private TreeNode createTree() {
+		TreeNode root = createNode("Root");
+		for (int i = 0; i < 3; i++) {
+			TreeNode child = createNode("Child" + i);
+			root.addToChildren(child);
+			child.addToChildren(createNode("GrandChild" + i));
+		}
+		return root;
+	}
+
+	@Test
+	public void testGettersServeFrozenValues() {
+		TreeNode root = createTree();
+		TreeNode child = root.getChildren().get(1);
+		try (FrozenGraph<TreeNode> graph = factory.freeze(root)) {
+			assertSame(root, graph.getRoot());
+			assertEquals(7, graph.getObjects().size());
+			assertTrue(graph.contains(child.getChildren().get(0)));
+			assertTrue(factory.getHandler(child).isFrozen());
+
+			assertEquals("Root", root.getName());
+			assertEquals(3, root.getChildren().size());
+			assertSame(child, root.getChildren().get(1));
+			assertSame(root, child.getParent());
+			assertEquals("GrandChild1", child.getChildren().get(0).getName());
+			try {
+				root.getChildren().clear();
+				fail();
+			} catch (UnsupportedOperationException e) {
+				// Expected
+			}
+		}
+		assertFalse(factory.getHandler(child).isFrozen());
+	}
+
+	@Test
+	public void testModificationsAreRejected() {
+		EditingContextImpl editingContext = new EditingContextImpl();
+		editingContext.createUndoManager();
+		factory.setEditingContext(editingContext);
+		CompoundEdit creation = editingContext.getUndoManager().startRecording("Create tree");
+		TreeNode root = createTree();
+		TreeNode child = root.getChildren().get(0);
+		TreeNode outside = createNode("Outside");
+		editingContext.getUndoManager().stopRecording(creation);
+		try (FrozenGraph<TreeNode> graph = factory.freeze(root)) {
+			try {
+				root.setName("Renamed");
+				fail();
+			} catch (ModelExecutionException e) {
+				// Expected
+			}
+			try {
+				root.removeFromChildren(child);
+				fail();
+			} catch (ModelExecutionException e) {
+				// Expected
+			}
+			try {
+				child.delete();
+				fail();
+			} catch (ModelExecutionException e) {
+				// Expected
+			}
+			CompoundEdit edit = editingContext.getUndoManager().startRecording("Rejected changes");
+			try {
+				// Inverse property of a frozen object cannot be updated either
+				outside.setParent(child);
+				fail();
+			} catch (ModelExecutionException e) {
+				// Expected
+			}
+			try {
+				outside.addToChildren(child);
+				fail();
+			} catch (ModelExecutionException e) {
+				// Expected
+			}
+			// Removing a value which is not in the list leaves frozen object untouched, and is allowed
+			outside.removeFromChildren(child);
+			editingContext.getUndoManager().stopRecording(edit);
+			assertTrue(edit.getEdits().isEmpty());
+			assertEquals("Root", root.getName());
+			assertEquals(3, root.getChildren().size());
+			assertFalse(child.isDeleted());
+			assertFalse(child.getChildren().contains(outside));
+			// Rejected change left no side modified
+			assertNull(outside.getParent());
+			assertTrue(outside.getChildren().isEmpty());
+		}
+
+		// Modifications are allowed again when graph is released
+		CompoundEdit modification = editingContext.getUndoManager().startRecording("Modify tree");
+		root.setName("Renamed");
+		assertEquals("Renamed", root.getName());
+		root.removeFromChildren(child);
+		assertEquals(2, root.getChildren().size());
+		outside.setParent(child);
+		assertSame(child, outside.getParent());
+		assertTrue(child.getChildren().contains(outside));
+		editingContext.getUndoManager().stopRecording(modification);
+		assertFalse(modification.getEdits().isEmpty());
+	}
+
+	@Test
+	public void testOverlappingGraphs() {
+		TreeNode root = createTree();
+		TreeNode child = root.getChildren().get(0);
+		FrozenGraph<TreeNode> rootGraph = factory.freeze(root);
+		FrozenGraph<TreeNode> childGraph = factory.freeze(child);
+		rootGraph.release();
+		assertTrue(rootGraph.isReleased());
+		assertFalse(factory.getHandler(root).isFrozen());
+		assertTrue(factory.getHandler(child).isFrozen());
+		root.setName("Renamed");
+		try {
+			child.setName("Renamed");
+			fail();
+		} catch (ModelExecutionException e) {
+			// Expected
+		}
+		childGraph.release();
+		child.setName("Renamed");
+		assertEquals("Renamed", child.getName());
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		factory.setEditingContext(new ConcurrentEditingContext(4));
+		TreeNode root = createTree();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (FrozenGraph<TreeNode> graph = factory.freeze(root)) {
+			List<Future<Integer>> readers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				readers.add(executor.submit(() -> {
+					int names = 0;
+					for (int j = 0; j < 1000; j++) {
+						for (TreeNode child : root.getChildren()) {
+							names += child.getName().length() + child.getChildren().get(0).getName().length();
+						}
+					}
+					return names;
+				}));
+			}
+			for (Future<Integer> reader : readers) {
+				assertEquals(1000 * 3 * (6 + 11), (int) reader.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.journal.ChangeJournal;
+import org.openflexo.pamela.test.serialization.Node;
+
+/**
+ * Test journaling of changes with {@link ChangeJournal}
+ */
+public class ChangeJournalTests {
+
+	private File directory;
+	private PamelaModelFactory factory;
+	private EditingContextImpl editingContext;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("ChangeJournalTests").toFile();
+		factory = new PamelaModelFactory(Node.class);
+		editingContext = new EditingContextImpl();
+		factory.setEditingContext(editingContext);
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private Node createTree() {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		for (int i = 0; i < 10; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("Node" + i);
+			rootNode.addToNodes(child);
+			for (int j = 0; j < 3; j++) {
+				Node grandChild = factory.newInstance(Node.class);
+				grandChild.setName("Node" + i + j);
+				child.addToNodes(grandChild);
+			}
+		}
+		return rootNode;
+	}
+
+	private static Node restore(File directory) throws Exception {
+		try (ChangeJournal journal = ChangeJournal.open(new PamelaModelFactory(Node.class), directory)) {
+			return (Node) journal.getRoot();
+		}
+	}
+
+	@Test
+	public void testJournalReplay() throws Exception {
+		Node rootNode = createTree();
+		ChangeJournal journal = ChangeJournal.create(factory, rootNode, directory);
+		editingContext.setChangeJournal(journal);
+		assertEquals(0, journal.getRecordCount());
+
+		rootNode.getNodes().get(2).setName("Renamed");
+		assertTrue(journal.getRecordCount() > 0);
+		Node newNode = factory.newInstance(Node.class);
+		newNode.setName("NewNode");
+		Node newGrandChild = factory.newInstance(Node.class);
+		newGrandChild.setName("NewGrandChild");
+		newNode.addToNodes(newGrandChild);
+		rootNode.getNodes().get(0).addToNodes(newNode);
+		rootNode.removeFromNodes(rootNode.getNodes().get(4));
+		rootNode.getNodes().get(6).getNodes().get(1).setName("RenamedGrandChild");
+		journal.close();
+
+		Node restored = restore(directory);
+		assertTrue(rootNode.equalsObject(restored));
+		assertEquals("Renamed", restored.getNodes().get(2).getName());
+		assertEquals(9, restored.getNodes().size());
+		assertEquals("NewNode", restored.getNodes().get(0).getNodes().get(3).getName());
+		assertEquals("NewGrandChild", restored.getNodes().get(0).getNodes().get(3).getNodes().get(0).getName());
+	}
+
+	@Test
+	public void testCheckpointDeletesPreviousGenerations() throws Exception {
+		Node rootNode = createTree();
+		ChangeJournal journal = ChangeJournal.create(factory, rootNode, directory);
+		editingContext.setChangeJournal(journal);
+		journal.checkpoint();
+		// Files left by a checkpoint interrupted by a crash
+		assertTrue(new File(directory, "snapshot-0.xml").createNewFile());
+		assertTrue(new File(directory, "journal-0.log").createNewFile());
+		rootNode.getNodes().get(1).setName("Renamed");
+		journal.checkpoint();
+		journal.close();
+
+		String[] names = directory.list();
+		Arrays.sort(names);
+		assertArrayEquals(new String[] { "journal-3.log", "snapshot-3.xml" }, names);
+	}
+
+	@Test
+	public void testCheckpointAndReopen() throws Exception {
+		Node rootNode = createTree();
+		ChangeJournal journal = ChangeJournal.create(factory, rootNode, directory);
+		editingContext.setChangeJournal(journal);
+		rootNode.getNodes().get(1).setName("Renamed");
+		journal.checkpoint();
+		assertEquals(0, journal.getRecordCount());
+		assertFalse(journal.isCheckpointRequired());
+		rootNode.getNodes().get(3).setName("RenamedAfterCheckpoint");
+		journal.close();
+
+		// Continue journaling on the rebuilt model
+		PamelaModelFactory otherFactory = new PamelaModelFactory(Node.class);
+		EditingContextImpl otherEditingContext = new EditingContextImpl();
+		otherFactory.setEditingContext(otherEditingContext);
+		ChangeJournal reopened = ChangeJournal.open(otherFactory, directory);
+		otherEditingContext.setChangeJournal(reopened);
+		Node restored = (Node) reopened.getRoot();
+		assertTrue(rootNode.equalsObject(restored));
+		Node newNode = otherFactory.newInstance(Node.class);
+		newNode.setName("NewNode");
+		restored.addToNodes(newNode);
+		restored.getNodes().get(5).setName("RenamedAfterReopen");
+		reopened.close();
+
+		Node restoredAgain = restore(directory);
+		assertTrue(restored.equalsObject(restoredAgain));
+		assertEquals("RenamedAfterCheckpoint", restoredAgain.getNodes().get(3).getName());
+		assertEquals("RenamedAfterReopen", restoredAgain.getNodes().get(5).getName());
+		assertEquals("NewNode", restoredAgain.getNodes().get(10).getName());
+	}
+
+	@Test
+	public void testListOrderIsRestored() throws Exception {
+		Node rootNode = createTree();
+		ChangeJournal journal = ChangeJournal.create(factory, rootNode, directory);
+		editingContext.setChangeJournal(journal);
+		rootNode.moveNodeToIndex(rootNode.getNodes().get(7), 1);
+		rootNode.getNodes().get(3).moveNodeToIndex(rootNode.getNodes().get(3).getNodes().get(2), 0);
+		Node newNode = factory.newInstance(Node.class);
+		newNode.setName("NewNode");
+		ProxyMethodHandler<Node> handler = factory.getHandler(rootNode);
+		handler.invokeAdder(handler.getModelEntity().getModelProperty(Node.NODES), newNode, 4);
+		journal.sync();
+
+		// Journal was not closed: state is rebuilt as after a crash
+		Node restored = restore(directory);
+		journal.close();
+		assertTrue(rootNode.equalsObject(restored));
+		assertEquals("Node7", restored.getNodes().get(1).getName());
+		assertEquals("Node1", restored.getNodes().get(2).getName());
+		assertEquals("NewNode", restored.getNodes().get(4).getName());
+		assertEquals("Node22", restored.getNodes().get(3).getNodes().get(0).getName());
+	}
+
+	@Test
+	public void testInterruptedWriteIsIgnored() throws Exception {
+		Node rootNode = createTree();
+		ChangeJournal journal = ChangeJournal.create(factory, rootNode, directory);
+		editingContext.setChangeJournal(journal);
+		rootNode.getNodes().get(7).setName("Renamed");
+		journal.close();
+
+		// Simulate a record whose writing was interrupted
+		File journalFile = findJournalFile();
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write(new byte[] { 0, 0, 0, 20, 1, 2, 3, 4, 5, 6 });
+		}
+
+		Node restored = restore(directory);
+		assertTrue(rootNode.equalsObject(restored));
+		assertEquals("Renamed", restored.getNodes().get(7).getName());
+	}
+
+	private File findJournalFile() throws IOException {
+		for (File file : directory.listFiles()) {
+			if (file.getName().endsWith(".log")) {
+				return file;
+			}
+		}
+		throw new IOException("No journal in " + directory);
+	}
+}
@@ -39,4 +39,10 @@ public interface Library extends AccessibleProxyObject, Validable {
 	@Finder(collection = "books", attribute = "title")
 	public Book getBook(String title);
 
+	@Finder(collection = "books", attribute = "ISBN", indexed = true)
+	public Book getBookWithISBN(String isbn);
+
+	@Finder(collection = "books", attribute = "title", isMultiValued = true, indexed = true)
+	public List<Book> getBooksWithTitle(String title);
+
 }
@@ -0,0 +1,212 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.NotificationBatch;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.test.embedding.TreeNode;
+
+/**
+ * Test batching of property change notifications with a {@link NotificationBatch}
+ */
+public class NotificationBatchTests {
+
+	private PamelaModelFactory factory;
+	private EditingContextImpl editingContext;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+		editingContext = new EditingContextImpl();
+		factory.setEditingContext(editingContext);
+	}
+
+	private TreeNode createNode(String name) {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		return node;
+	}
+
+	private static List<PropertyChangeEvent> listen(TreeNode node) {
+		List<PropertyChangeEvent> events = new ArrayList<>();
+		node.getPropertyChangeSupport().addPropertyChangeListener(events::add);
+		return events;
+	}
+
+	private static List<PropertyChangeEvent> eventsFor(List<PropertyChangeEvent> events, String propertyName) {
+		return events.stream().filter(e -> propertyName.equals(e.getPropertyName())).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testNotificationsWithoutBatch() {
+		TreeNode node = createNode("Root");
+		List<PropertyChangeEvent> events = listen(node);
+		node.setName("A");
+		node.setName("B");
+		assertEquals(2, eventsFor(events, TreeNode.NAME).size());
+		assertNull(editingContext.getNotificationBatchInProgress());
+	}
+
+	@Test
+	public void testCoalesceSingleProperty() {
+		TreeNode node = createNode("Root");
+		List<PropertyChangeEvent> events = listen(node);
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			assertSame(batch, editingContext.getNotificationBatchInProgress());
+			node.setName("A");
+			node.setName("B");
+			node.setName("C");
+			assertTrue(events.isEmpty());
+			assertEquals("C", node.getName());
+		}
+		List<PropertyChangeEvent> nameEvents = eventsFor(events, TreeNode.NAME);
+		assertEquals(1, nameEvents.size());
+		assertEquals("Root", nameEvents.get(0).getOldValue());
+		assertEquals("C", nameEvents.get(0).getNewValue());
+		assertTrue(eventsFor(events, ProxyMethodHandler.MODIFIED).size() <= 1);
+		assertNull(editingContext.getNotificationBatchInProgress());
+	}
+
+	@Test
+	public void testRevertedChangeIsNotDelivered() {
+		TreeNode node = createNode("Root");
+		List<PropertyChangeEvent> events = listen(node);
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			node.setName("A");
+			node.setName("Root");
+			assertTrue(batch.getPendingChangesCount() > 0);
+		}
+		assertTrue(eventsFor(events, TreeNode.NAME).isEmpty());
+	}
+
+	@Test
+	public void testCoalesceListProperty() {
+		TreeNode root = createNode("Root");
+		TreeNode child1 = createNode("Child1");
+		TreeNode child2 = createNode("Child2");
+		TreeNode child3 = createNode("Child3");
+		List<PropertyChangeEvent> rootEvents = listen(root);
+		List<PropertyChangeEvent> child1Events = listen(child1);
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			root.addToChildren(child1);
+			root.addToChildren(child2);
+			root.addToChildren(child3);
+			assertTrue(rootEvents.isEmpty());
+			assertTrue(child1Events.isEmpty());
+		}
+		List<PropertyChangeEvent> childrenEvents = eventsFor(rootEvents, TreeNode.CHILDREN);
+		assertEquals(1, childrenEvents.size());
+		assertNull(childrenEvents.get(0).getOldValue());
+		assertNull(childrenEvents.get(0).getNewValue());
+		List<PropertyChangeEvent> parentEvents = eventsFor(child1Events, TreeNode.PARENT);
+		assertEquals(1, parentEvents.size());
+		assertSame(root, parentEvents.get(0).getNewValue());
+
+		// A single change of a LIST property is delivered as is
+		rootEvents.clear();
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			root.removeFromChildren(child2);
+		}
+		childrenEvents = eventsFor(rootEvents, TreeNode.CHILDREN);
+		assertEquals(1, childrenEvents.size());
+		assertSame(child2, childrenEvents.get(0).getOldValue());
+		assertNull(childrenEvents.get(0).getNewValue());
+	}
+
+	@Test
+	public void testNestedBatches() {
+		TreeNode node = createNode("Root");
+		List<PropertyChangeEvent> events = listen(node);
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			assertFalse(batch.isNested());
+			node.setName("A");
+			try (NotificationBatch nestedBatch = editingContext.beginNotificationBatch()) {
+				assertTrue(nestedBatch.isNested());
+				node.setName("B");
+			}
+			assertTrue(events.isEmpty());
+			assertSame(batch, editingContext.getNotificationBatchInProgress());
+		}
+		List<PropertyChangeEvent> nameEvents = eventsFor(events, TreeNode.NAME);
+		assertEquals(1, nameEvents.size());
+		assertEquals("Root", nameEvents.get(0).getOldValue());
+		assertEquals("B", nameEvents.get(0).getNewValue());
+	}
+
+	@Test
+	public void testDeliveryExecutor() {
+		TreeNode node = createNode("Root");
+		List<PropertyChangeEvent> events = listen(node);
+		List<Runnable> deliveries = new ArrayList<>();
+		try (NotificationBatch batch = editingContext.beginNotificationBatch(deliveries::add)) {
+			node.setName("A");
+		}
+		assertTrue(events.isEmpty());
+		assertEquals(1, deliveries.size());
+		deliveries.get(0).run();
+		assertEquals(1, eventsFor(events, TreeNode.NAME).size());
+	}
+
+	@Test
+	public void testBatchIsBoundToContext() throws Exception {
+		PamelaModelFactory otherFactory = new PamelaModelFactory(TreeNode.class);
+		otherFactory.setEditingContext(new EditingContextImpl());
+		TreeNode otherNode = otherFactory.newInstance(TreeNode.class);
+		List<PropertyChangeEvent> events = listen(otherNode);
+		try (NotificationBatch batch = editingContext.beginNotificationBatch()) {
+			otherNode.setName("A");
+			assertEquals(1, eventsFor(events, TreeNode.NAME).size());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.ProxyMethodHandler;
+import org.openflexo.pamela.test.embedding.TreeNode;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test that changes of objects which are not observed skip old value retrieval and notifications, while observed objects are still
+ * notified and undoable
+ */
+public class NotificationFastPathTests {
+
+	private PamelaModelFactory factory;
+	private EditingContextImpl editingContext;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+		editingContext = new EditingContextImpl();
+		factory.setEditingContext(editingContext);
+	}
+
+	@Test
+	public void testListenersAreDetected() {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		ProxyMethodHandler<TreeNode> handler = factory.getHandler(node);
+		node.setName("A");
+		assertFalse(handler.hasPropertyChangeListeners(TreeNode.NAME));
+		// Support is only created when asked for
+		assertNull(handler.getObjectPropertyChangeSupport());
+
+		List<PropertyChangeEvent> events = new ArrayList<>();
+		PropertyChangeListener listener = events::add;
+		node.getPropertyChangeSupport().addPropertyChangeListener(TreeNode.NAME, listener);
+		assertSame(node.getPropertyChangeSupport(), handler.getObjectPropertyChangeSupport());
+		assertTrue(handler.hasPropertyChangeListeners(TreeNode.NAME));
+		assertFalse(handler.hasPropertyChangeListeners(TreeNode.CHILDREN));
+		node.setName("B");
+		assertEquals(1, events.size());
+		assertEquals("A", events.get(0).getOldValue());
+		assertEquals("B", events.get(0).getNewValue());
+
+		node.getPropertyChangeSupport().removePropertyChangeListener(TreeNode.NAME, listener);
+		assertFalse(handler.hasPropertyChangeListeners(TreeNode.NAME));
+		node.setName("C");
+		assertEquals(1, events.size());
+		assertEquals("C", node.getName());
+	}
+
+	@Test
+	public void testUndoManagerIsDetected() {
+		TreeNode node = factory.newInstance(TreeNode.class);
+		ProxyMethodHandler<TreeNode> handler = factory.getHandler(node);
+		node.setName("A");
+		assertFalse(handler.isTrackingEdits());
+
+		UndoManager undoManager = editingContext.createUndoManager();
+		assertTrue(handler.isTrackingEdits());
+		CompoundEdit edit = undoManager.startRecording("rename");
+		node.setName("B");
+		undoManager.stopRecording(edit);
+		undoManager.undo();
+		assertEquals("A", node.getName());
+
+		undoManager.setEnabled(false);
+		assertFalse(handler.isTrackingEdits());
+		node.setName("C");
+		assertEquals("C", node.getName());
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.patterns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.patterns.ExecutionMonitor;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+
+/**
+ * Test notification of {@link ExecutionMonitor} registered in a {@link PamelaMetaModel}
+ */
+public class ExecutionMonitorTest {
+
+	public static class NameMonitor extends ExecutionMonitor {
+
+		private int entering = 0;
+		private int leaving = 0;
+
+		public NameMonitor(PamelaMetaModel context) {
+			super(context);
+		}
+
+		@Override
+		public boolean isMonitoring(ModelEntity<?> entity, Method method) {
+			return entity.getImplementedInterface() == Library.class && method.getName().equals("getName");
+		}
+
+		@Override
+		public void enteringMethod(Object instance, Method method, Object[] args) {
+			entering++;
+		}
+
+		@Override
+		public void throwingException(Object instance, Method method, Object[] args, Exception exception) {
+		}
+
+		@Override
+		public void leavingMethod(Object instance, Method method, Object[] args, Object returnValue) {
+			leaving++;
+		}
+	}
+
+	@Test
+	public void testFilteredMonitor() throws Exception {
+		PamelaMetaModel pamelaMetaModel = new PamelaMetaModel(Library.class);
+		PamelaModelFactory factory = new PamelaModelFactory(pamelaMetaModel);
+		assertFalse(pamelaMetaModel.hasExecutionMonitors());
+		assertSame(PamelaMetaModel.NO_EXECUTION_MONITOR,
+				pamelaMetaModel.getExecutionMonitors(pamelaMetaModel.getModelEntity(Library.class), Library.class.getMethod("getName")));
+
+		NameMonitor monitor = new NameMonitor(pamelaMetaModel);
+		assertTrue(pamelaMetaModel.hasExecutionMonitors());
+
+		Library library = factory.newInstance(Library.class);
+		Book book = factory.newInstance(Book.class, "Dune");
+		library.setName("Library");
+		library.addToBooks(book);
+		book.getTitle();
+		assertEquals(0, monitor.entering);
+
+		assertEquals("Library", library.getName());
+		assertEquals(1, monitor.entering);
+		assertEquals(1, monitor.leaving);
+
+		assertEquals(1, pamelaMetaModel.getExecutionMonitors(pamelaMetaModel.getModelEntity(Library.class),
+				Library.class.getMethod("getName")).length);
+		assertEquals(0, pamelaMetaModel.getExecutionMonitors(pamelaMetaModel.getModelEntity(Library.class),
+				Library.class.getMethod("setName", String.class)).length);
+
+		assertTrue(pamelaMetaModel.removeExecutionMonitor(monitor));
+		assertFalse(pamelaMetaModel.hasExecutionMonitors());
+		library.getName();
+		assertEquals(1, monitor.entering);
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.patterns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.patterns.PatternDefinition;
+import org.openflexo.pamela.patterns.PropertyParadigmType;
+import org.openflexo.pamela.patterns.annotations.Ensures;
+import org.openflexo.pamela.patterns.annotations.Requires;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+
+/**
+ * Test resolution of pre/postconditions performed by {@link PatternDefinition}
+ */
+public class PatternDefinitionHooksTest {
+
+	public static class TestPatternDefinition extends PatternDefinition {
+
+		public TestPatternDefinition(String identifier, PamelaMetaModel pamelaMetaModel) {
+			super(identifier, pamelaMetaModel);
+		}
+
+		@Override
+		public void finalizeDefinition() throws ModelDefinitionException {
+		}
+
+		@Override
+		public <I> void notifiedNewInstance(I newInstance, ModelEntity<I> modelEntity) {
+		}
+	}
+
+	public static abstract class Hooks {
+
+		@Requires(patternID = "test", type = PropertyParadigmType.Java, property = "name != null")
+		public abstract void setName(String aName);
+
+		@Ensures(patternID = "test", type = PropertyParadigmType.Java, property = "getName() != null")
+		public abstract void setName2(String aName);
+	}
+
+	@Test
+	public void testResolvedHooks() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		TestPatternDefinition definition = new TestPatternDefinition("test", pamelaMetaModel);
+
+		Method setName = Library.class.getMethod("setName", String.class);
+		Method setTitle = Book.class.getMethod("setTitle", String.class);
+		Requires requires = Hooks.class.getMethod("setName", String.class).getAnnotation(Requires.class);
+		Ensures ensures = Hooks.class.getMethod("setName2", String.class).getAnnotation(Ensures.class);
+
+		definition.addToPreconditionsForMethod(requires, setName);
+		definition.addToPostconditionsForMethod(ensures, setName);
+		definition.resolveMethodHooks(Collections.singletonList(pamelaMetaModel.getModelEntity(Library.class)));
+
+		List<Requires> preconditions = definition.getPreconditions(setName);
+		assertEquals(1, preconditions.size());
+		assertSame(requires, preconditions.get(0));
+		assertSame(preconditions, definition.getPreconditions(setName));
+		assertEquals(1, definition.getPostconditions(setName).size());
+		assertTrue(definition.isMethodInvolvedInPattern(setName));
+
+		// Methods not involved in pattern are also resolved once
+		assertNull(definition.getPreconditions(setTitle));
+		assertNull(definition.getPostconditions(setTitle));
+		assertFalse(definition.isMethodInvolvedInPattern(setTitle));
+
+		// Registering a new condition invalidates resolved hooks
+		definition.addToPreconditionsForMethod(requires, setTitle);
+		assertEquals(1, definition.getPreconditions(setTitle).size());
+		assertTrue(definition.isMethodInvolvedInPattern(setTitle));
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.binary.BinaryFormat;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.SerializationFormat;
+import org.openflexo.pamela.factory.SerializationPolicy;
+
+/**
+ * Test binary serialization format
+ */
+public class BinarySerializationTests {
+
+	private PamelaModelFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(Node.class);
+	}
+
+	private Node createTree() {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		for (int i = 0; i < 50; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("Node" + i);
+			rootNode.addToNodes(child);
+			for (int j = 0; j < 3; j++) {
+				Node grandChild = factory.newInstance(Node.class);
+				grandChild.setName("Node" + i + j);
+				child.addToNodes(grandChild);
+			}
+		}
+		return rootNode;
+	}
+
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		Node rootNode = createTree();
+
+		ByteArrayOutputStream binaryOut = new ByteArrayOutputStream();
+		factory.serialize(rootNode, binaryOut, SerializationPolicy.PERMISSIVE, false, SerializationFormat.BINARY);
+		byte[] bytes = binaryOut.toByteArray();
+		assertTrue(BinaryFormat.isBinaryDocument(new ByteArrayInputStream(bytes)));
+
+		ByteArrayOutputStream xmlOut = new ByteArrayOutputStream();
+		factory.serialize(rootNode, xmlOut);
+		assertFalse(BinaryFormat.isBinaryDocument(new ByteArrayInputStream(xmlOut.toByteArray())));
+		assertTrue(bytes.length < xmlOut.size());
+
+		// Format is detected while loading
+		Node deserialized = (Node) factory.deserialize(new ByteArrayInputStream(bytes), DeserializationPolicy.PERMISSIVE);
+		assertEquals("Root", deserialized.getName());
+		assertEquals(50, deserialized.getNodes().size());
+		assertEquals("Node7", deserialized.getNodes().get(7).getName());
+		assertEquals(3, deserialized.getNodes().get(7).getNodes().size());
+		assertEquals("Node72", deserialized.getNodes().get(7).getNodes().get(2).getName());
+		assertSame(deserialized, deserialized.getNodes().get(7).getParentNode());
+		assertSame(deserialized.getNodes().get(7), deserialized.getNodes().get(7).getNodes().get(2).getParentNode());
+		assertTrue(rootNode.equalsObject(deserialized));
+	}
+
+	@Test
+	public void testDeserializationLifecycle() throws Exception {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		Node child = factory.newInstance(Node.class);
+		child.setName("Child");
+		rootNode.addToNodes(child);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(rootNode, out, SerializationPolicy.PERMISSIVE, false, SerializationFormat.BINARY);
+
+		Node.NodeImpl.DESERIALIZATION_TRACE = "";
+		factory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(" BEGIN:Root BEGIN:Child END:Root END:Child", Node.NodeImpl.DESERIALIZATION_TRACE);
+	}
+
+	private Object roundTrip(PamelaModelFactory settingFactory, Object value) throws Exception {
+		Setting setting = settingFactory.newInstance(Setting.class);
+		setting.setKey("key");
+		setting.setValue(value);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		settingFactory.serialize(setting, out, SerializationPolicy.PERMISSIVE, false, SerializationFormat.BINARY);
+		Setting deserialized = (Setting) settingFactory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals("key", deserialized.getKey());
+		return deserialized.getValue();
+	}
+
+	@Test
+	public void testUntypedValues() throws Exception {
+		PamelaModelFactory settingFactory = new PamelaModelFactory(Setting.class);
+		// Enum and converted values are decoded with their own type, property type being unknown
+		assertEquals(TimeUnit.SECONDS, roundTrip(settingFactory, TimeUnit.SECONDS));
+		assertEquals(new Point(3, 4), roundTrip(settingFactory, new Point(3, 4)));
+		assertEquals("Value", roundTrip(settingFactory, "Value"));
+		assertEquals(12, roundTrip(settingFactory, 12));
+	}
+}
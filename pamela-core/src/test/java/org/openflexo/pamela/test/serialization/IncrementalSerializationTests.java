@@ -0,0 +1,171 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openflexo.pamela.xml.XMLSerializationCache;
+
+/**
+ * Test incremental serialization (see {@link XMLSerializationCache})
+ */
+public class IncrementalSerializationTests {
+
+	private PamelaModelFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(Node.class);
+		factory.setStreamingSerialization(true);
+	}
+
+	private Node createTree() {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		for (int i = 0; i < 50; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("Node" + i);
+			rootNode.addToNodes(child);
+			for (int j = 0; j < 3; j++) {
+				Node grandChild = factory.newInstance(Node.class);
+				grandChild.setName("Node" + i + j);
+				child.addToNodes(grandChild);
+			}
+		}
+		return rootNode;
+	}
+
+	private String serializeIncrementally(Node rootNode) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serializeIncrementally(rootNode, out, SerializationPolicy.PERMISSIVE, true);
+		return out.toString("UTF-8");
+	}
+
+	private String serialize(Node rootNode) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(rootNode, out, SerializationPolicy.PERMISSIVE, false);
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	public void testIncrementalSerialization() throws Exception {
+		Node rootNode = createTree();
+
+		String xml = serializeIncrementally(rootNode);
+		assertEquals(serialize(rootNode), xml);
+		XMLSerializationCache cache = factory.getSerializationCache(rootNode);
+		assertNotNull(cache);
+		assertEquals(201, cache.getFragmentsCount());
+		assertTrue(cache.getDirtyObjects().isEmpty());
+		assertFalse(rootNode.isModified());
+
+		// Nothing changed: same document
+		assertEquals(xml, serializeIncrementally(rootNode));
+
+		Node modified = rootNode.getNodes().get(12).getNodes().get(1);
+		modified.setName("Modified");
+		modified.setName("ModifiedAgain");
+		assertEquals(1, cache.getDirtyObjects().size());
+		assertTrue(cache.getDirtyObjects().contains(modified));
+
+		xml = serializeIncrementally(rootNode);
+		assertEquals(serialize(rootNode), xml);
+		assertTrue(xml.contains("ModifiedAgain"));
+		assertTrue(cache.getDirtyObjects().isEmpty());
+		assertFalse(modified.isModified());
+		assertEquals(201, cache.getFragmentsCount());
+	}
+
+	@Test
+	public void testIncrementalSerializationAfterStructuralChanges() throws Exception {
+		Node rootNode = createTree();
+		serializeIncrementally(rootNode);
+
+		Node newNode = factory.newInstance(Node.class);
+		newNode.setName("NewNode");
+		rootNode.getNodes().get(5).addToNodes(newNode);
+		rootNode.getNodes().get(20).removeFromNodes(rootNode.getNodes().get(20).getNodes().get(0));
+		rootNode.removeFromNodes(rootNode.getNodes().get(30));
+
+		String xml = serializeIncrementally(rootNode);
+		assertTrue(xml.contains("NewNode"));
+		assertEquals(197, factory.getSerializationCache(rootNode).getFragmentsCount());
+
+		Node loaded = (Node) factory.deserialize(new ByteArrayInputStream(xml.getBytes("UTF-8")), DeserializationPolicy.PERMISSIVE);
+		assertTrue(rootNode.equalsObject(loaded));
+		assertEquals(49, loaded.getNodes().size());
+		assertEquals("NewNode", loaded.getNodes().get(5).getNodes().get(3).getName());
+
+		// Identifiers are stable: serializing again an unchanged model produces the same document
+		assertEquals(xml, serializeIncrementally(rootNode));
+	}
+
+	@Test
+	public void testDirtyObjectsKeptWhenModifiedStatusIsNotReset() throws Exception {
+		Node rootNode = createTree();
+		serializeIncrementally(rootNode);
+		XMLSerializationCache cache = factory.getSerializationCache(rootNode);
+
+		Node modified = rootNode.getNodes().get(3);
+		modified.setName("Modified");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serializeIncrementally(rootNode, out, SerializationPolicy.PERMISSIVE, false);
+		assertTrue(modified.isModified());
+		assertTrue(cache.getDirtyObjects().contains(modified));
+
+		serializeIncrementally(rootNode);
+		assertFalse(modified.isModified());
+		assertTrue(cache.getDirtyObjects().isEmpty());
+
+		factory.discardSerializationCache(rootNode);
+		assertEquals(null, factory.getSerializationCache(rootNode));
+	}
+}
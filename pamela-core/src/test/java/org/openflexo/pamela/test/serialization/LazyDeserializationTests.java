@@ -0,0 +1,220 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Test;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.serialization.Node.NodeImpl;
+import org.openflexo.pamela.test.tests1.ActivityNode;
+import org.openflexo.pamela.test.tests1.EndNode;
+import org.openflexo.pamela.test.tests1.FlexoProcess;
+import org.openflexo.pamela.test.tests1.StartNode;
+import org.openflexo.pamela.test.tests1.TokenEdge;
+import org.openflexo.pamela.xml.LazyXMLDocument;
+
+/**
+ * Test on demand deserialization of embedded objects (see {@link LazyXMLDocument})
+ */
+public class LazyDeserializationTests {
+
+	@Test
+	public void testLazyLoadingOfEmbeddedNodes() throws Exception {
+		PamelaModelFactory factory = new PamelaModelFactory(Node.class);
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		for (int i = 0; i < 10; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("Node" + i);
+			rootNode.addToNodes(child);
+			for (int j = 0; j < 3; j++) {
+				Node grandChild = factory.newInstance(Node.class);
+				grandChild.setName("Node" + i + j);
+				child.addToNodes(grandChild);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(rootNode, out);
+
+		NodeImpl.DESERIALIZATION_TRACE = "";
+		Node loaded = (Node) factory.deserializeLazily(new ByteArrayInputStream(out.toByteArray()), DeserializationPolicy.PERMISSIVE);
+
+		// Only root node is deserialized
+		assertEquals("Root", loaded.getName());
+		assertEquals(" BEGIN:Root END:Root", NodeImpl.DESERIALIZATION_TRACE);
+		assertNotNull(factory.getHandler(loaded).getLazyContent());
+		assertFalse(loaded.isModified());
+
+		// Children are loaded on first access, not grand-children
+		assertEquals(10, loaded.getNodes().size());
+		assertNull(factory.getHandler(loaded).getLazyContent());
+		assertTrue(NodeImpl.DESERIALIZATION_TRACE.contains("BEGIN:Node3 "));
+		assertFalse(NodeImpl.DESERIALIZATION_TRACE.contains("BEGIN:Node31"));
+		assertFalse(loaded.isModified());
+
+		Node node3 = loaded.getNodes().get(3);
+		assertEquals("Node3", node3.getName());
+		assertSame(loaded, node3.getParentNode());
+		assertNotNull(factory.getHandler(node3).getLazyContent());
+		assertEquals(3, node3.getNodes().size());
+		assertEquals("Node31", node3.getNodes().get(1).getName());
+		assertSame(node3, node3.getNodes().get(1).getParentNode());
+		assertFalse(NodeImpl.DESERIALIZATION_TRACE.contains("BEGIN:Node41"));
+
+		// Comparing with the original loads everything
+		assertTrue(rootNode.equalsObject(loaded));
+		assertTrue(NodeImpl.DESERIALIZATION_TRACE.contains("BEGIN:Node41"));
+	}
+
+	private static Node makeNonAsciiTree(PamelaModelFactory factory) {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Racine \u00e9t\u00e9");
+		for (int i = 0; i < 5; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("N\u0153ud \u20ac" + i);
+			rootNode.addToNodes(child);
+			for (int j = 0; j < 2; j++) {
+				Node grandChild = factory.newInstance(Node.class);
+				grandChild.setName("\uD83C\uDF33" + i + j);
+				child.addToNodes(grandChild);
+			}
+		}
+		return rootNode;
+	}
+
+	@Test
+	public void testLazyLoadingFromFile() throws Exception {
+		PamelaModelFactory factory = new PamelaModelFactory(Node.class);
+		Node rootNode = makeNonAsciiTree(factory);
+		File file = File.createTempFile("LazyDocument", ".xml");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			factory.serialize(rootNode, out);
+		}
+
+		LazyXMLDocument document = new LazyXMLDocument(factory);
+		Node loaded = (Node) document.deserializeDocument(file);
+		assertEquals("Racine \u00e9t\u00e9", loaded.getName());
+		assertTrue(document.hasPendingContent());
+
+		// Subtrees are located in the file even with multi-byte characters
+		Node node3 = loaded.getNodes().get(3);
+		assertEquals("N\u0153ud \u20ac3", node3.getName());
+		assertEquals("\uD83C\uDF3331", node3.getNodes().get(1).getName());
+		assertTrue(document.hasPendingContent());
+
+		// Document is released once all content is loaded
+		assertTrue(rootNode.equalsObject(loaded));
+		assertFalse(document.hasPendingContent());
+	}
+
+	@Test
+	public void testDocumentIsReleasedWhenLoaded() throws Exception {
+		PamelaModelFactory factory = new PamelaModelFactory(Node.class);
+		Node rootNode = makeNonAsciiTree(factory);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(rootNode, out);
+
+		LazyXMLDocument document = new LazyXMLDocument(factory);
+		Node loaded = (Node) document.deserializeDocument(out.toByteArray());
+		assertTrue(document.hasPendingContent());
+		assertEquals("\uD83C\uDF3341", loaded.getNodes().get(4).getNodes().get(1).getName());
+		assertTrue(rootNode.equalsObject(loaded));
+		assertFalse(document.hasPendingContent());
+	}
+
+	@Test
+	public void testReferencesToUnloadedObjects() throws Exception {
+		PamelaModelFactory factory = new PamelaModelFactory(FlexoProcess.class);
+		FlexoProcess process = factory.newInstance(FlexoProcess.class);
+		process.init("234XX");
+		process.setName("NewProcess");
+		ActivityNode activityNode = factory.newInstance(ActivityNode.class);
+		activityNode.init();
+		activityNode.setName("MyActivity");
+		process.addToNodes(activityNode);
+		StartNode startNode = factory.newInstance(StartNode.class);
+		startNode.setName("Start");
+		process.addToNodes(startNode);
+		EndNode endNode = factory.newInstance(EndNode.class);
+		endNode.init();
+		endNode.setName("End");
+		process.addToNodes(endNode);
+		TokenEdge edge1 = (TokenEdge) factory.newInstance(TokenEdge.class).init(startNode, activityNode);
+		edge1.setName("edge1");
+		factory.newInstance(TokenEdge.class, "edge2", activityNode, endNode);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(process, out);
+
+		FlexoProcess loaded = (FlexoProcess) factory.deserializeLazily(new ByteArrayInputStream(out.toByteArray()),
+				DeserializationPolicy.PERMISSIVE);
+		assertEquals("NewProcess", loaded.getName());
+		assertEquals(3, loaded.getNodes().size());
+
+		ActivityNode loadedActivityNode = (ActivityNode) loaded.getNodeNamed("MyActivity");
+		StartNode loadedStartNode = (StartNode) loaded.getNodeNamed("Start");
+		EndNode loadedEndNode = (EndNode) loaded.getNodeNamed("End");
+		assertNotNull(loadedActivityNode);
+		assertNotNull(loadedStartNode);
+		assertNotNull(loadedEndNode);
+		assertSame(loaded, loadedStartNode.getProcess());
+
+		assertEquals(1, loadedStartNode.getOutgoingEdges().size());
+		TokenEdge loadedEdge1 = (TokenEdge) loadedStartNode.getOutgoingEdges().get(0);
+		assertEquals("edge1", loadedEdge1.getName());
+		assertSame(loadedStartNode, loadedEdge1.getStartNode());
+		assertSame(loadedActivityNode, loadedEdge1.getEndNode());
+		assertEquals(1, loadedActivityNode.getOutgoingEdges().size());
+		assertSame(loadedEndNode, loadedActivityNode.getOutgoingEdges().get(0).getEndNode());
+		assertTrue(loadedEndNode.getIncomingEdges().contains(loadedActivityNode.getOutgoingEdges().get(0)));
+	}
+}
@@ -48,6 +48,7 @@ import org.openflexo.pamela.annotations.Embedded;
 import org.openflexo.pamela.annotations.Getter;
 import org.openflexo.pamela.annotations.ImplementationClass;
 import org.openflexo.pamela.annotations.ModelEntity;
+import org.openflexo.pamela.annotations.Reindexer;
 import org.openflexo.pamela.annotations.Remover;
 import org.openflexo.pamela.annotations.Setter;
 import org.openflexo.pamela.annotations.XMLAttribute;
@@ -90,6 +91,9 @@ public interface Node extends AccessibleProxyObject {
 	@Remover(NODES)
 	public void removeFromNodes(Node node);
 
+	@Reindexer(NODES)
+	public void moveNodeToIndex(Node node, int index);
+
 	@DeserializationInitializer
 	public void initializeDeserialization();
 
@@ -0,0 +1,145 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.AbstractPAMELATest;
+import org.openflexo.pamela.test.tests1.ActivityNode;
+import org.openflexo.pamela.test.tests1.EndNode;
+import org.openflexo.pamela.test.tests1.FlexoProcess;
+import org.openflexo.pamela.test.tests1.StartNode;
+import org.openflexo.pamela.test.tests1.TokenEdge;
+import org.openflexo.pamela.test.tests1.WKFAnnotation;
+import org.openflexo.pamela.xml.XMLStreamSerializer;
+
+/**
+ * Test serialization performed by {@link XMLStreamSerializer}
+ */
+public class StreamingSerializationTests extends AbstractPAMELATest {
+
+	private PamelaModelFactory factory;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(new PamelaMetaModel(FlexoProcess.class));
+		factory.setStreamingSerialization(true);
+	}
+
+	private FlexoProcess makeProcess() {
+		FlexoProcess process = factory.newInstance(FlexoProcess.class);
+		process.init("234XX");
+		process.setName("NewProcess");
+		process.setFoo(8);
+
+		ActivityNode activityNode = factory.newInstance(ActivityNode.class, "MyActivity");
+		process.addToNodes(activityNode);
+		StartNode startNode = factory.newInstance(StartNode.class, "Start");
+		process.addToNodes(startNode);
+		EndNode endNode = factory.newInstance(EndNode.class, "End");
+		endNode.init();
+		process.addToNodes(endNode);
+
+		factory.newInstance(TokenEdge.class, "edge1", startNode, activityNode);
+		factory.newInstance(TokenEdge.class, "edge2", activityNode, endNode);
+
+		WKFAnnotation annotation1 = factory.newInstance(WKFAnnotation.class, "Annotation 1");
+		WKFAnnotation annotation2 = factory.newInstance(WKFAnnotation.class, "Annotation 2");
+		startNode.setMasterAnnotation(annotation1);
+		startNode.addToOtherAnnotations(annotation2);
+		return process;
+	}
+
+	@Test
+	public void testStreamingRoundTrip() throws Exception {
+		FlexoProcess process = makeProcess();
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		factory.serialize(process, baos);
+		String xml = baos.toString("UTF-8");
+		assertTrue(xml.startsWith("<?xml"));
+
+		FlexoProcess loaded = (FlexoProcess) factory.deserialize(new ByteArrayInputStream(baos.toByteArray()));
+
+		assertEquals("NewProcess", loaded.getName());
+		assertEquals("234XX", loaded.getFlexoID());
+		assertEquals(8, loaded.getFoo());
+		ActivityNode activityNode = (ActivityNode) loaded.getNodeNamed("MyActivity");
+		StartNode startNode = (StartNode) loaded.getNodeNamed("Start");
+		EndNode endNode = (EndNode) loaded.getNodeNamed("End");
+		assertNotNull(activityNode);
+		assertNotNull(startNode);
+		assertNotNull(endNode);
+		assertEquals("Annotation 1", startNode.getMasterAnnotation().getText());
+		assertEquals(1, startNode.getOtherAnnotations().size());
+		TokenEdge edge1 = (TokenEdge) loaded.getEdgeNamed("edge1");
+		TokenEdge edge2 = (TokenEdge) loaded.getEdgeNamed("edge2");
+		assertNotNull(edge1);
+		assertNotNull(edge2);
+		assertEquals(startNode, edge1.getStartNode());
+		assertEquals(activityNode, edge1.getEndNode());
+		assertEquals(activityNode, edge2.getStartNode());
+		assertEquals(endNode, edge2.getEndNode());
+		assertEquals(1, activityNode.getOutgoingEdges().size());
+	}
+
+	@Test
+	public void testSameModelThanJDOMSerializer() throws Exception {
+		FlexoProcess process = makeProcess();
+
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		factory.serialize(process, streamed);
+
+		factory.setStreamingSerialization(false);
+		ByteArrayOutputStream built = new ByteArrayOutputStream();
+		factory.serialize(process, built);
+
+		// Reading both documents must produce the same model, and serializing it again must produce same documents
+		FlexoProcess fromStreamed = (FlexoProcess) factory.deserialize(new ByteArrayInputStream(streamed.toByteArray()));
+		FlexoProcess fromBuilt = (FlexoProcess) factory.deserialize(new ByteArrayInputStream(built.toByteArray()));
+		assertTrue(fromStreamed.equalsObject(fromBuilt));
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.DeserializationPolicy;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openflexo.pamela.model.ModelEntity;
+import org.openflexo.pamela.xml.XMLDeserializationPlan;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.AttributeBinder;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.ChildBinder;
+import org.openflexo.pamela.xml.XMLDeserializationPlan.EntityPlan;
+
+/**
+ * Test the {@link XMLDeserializationPlan} used by SAX deserializer
+ */
+public class XMLDeserializationPlanTest {
+
+	private PamelaModelFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(Node.class);
+	}
+
+	@Test
+	public void testEntityPlan() throws Exception {
+		XMLDeserializationPlan plan = factory.getModelContext().getXMLDeserializationPlan();
+		assertSame(plan, factory.getModelContext().getXMLDeserializationPlan());
+
+		ModelEntity<Object> nodeEntity = (ModelEntity) factory.getModelContext().getModelEntity(Node.class);
+		EntityPlan entityPlan = plan.getEntityPlan(nodeEntity);
+		assertSame(entityPlan, plan.getEntityPlan(nodeEntity));
+
+		AttributeBinder nameBinder = entityPlan.getAttributeBinder(Node.NAME);
+		assertNotNull(nameBinder);
+		assertEquals(Node.NAME, nameBinder.getProperty().getPropertyIdentifier());
+		assertEquals(String.class, nameBinder.getType());
+		assertNull(nameBinder.getTypeEntity());
+		assertNull(entityPlan.getAttributeBinder("unknown"));
+
+		ChildBinder nodeBinder = entityPlan.getChildBinder("Node", factory);
+		assertNotNull(nodeBinder);
+		assertEquals(Node.NODES, nodeBinder.getProperty().getPropertyIdentifier());
+		assertSame(nodeEntity, nodeBinder.getModelEntity());
+		assertNull(entityPlan.getChildBinder("Unknown", factory));
+	}
+
+	@Test
+	public void testDeserializeWithPlan() throws Exception {
+		Node rootNode = factory.newInstance(Node.class);
+		rootNode.setName("Root");
+		for (int i = 0; i < 10; i++) {
+			Node child = factory.newInstance(Node.class);
+			child.setName("Node" + i);
+			rootNode.addToNodes(child);
+			Node grandChild = factory.newInstance(Node.class);
+			grandChild.setName("Node" + i + "1");
+			child.addToNodes(grandChild);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		factory.serialize(rootNode, out, SerializationPolicy.EXTENSIVE, true);
+
+		// Deserialize twice, second deserialization reuses compiled plan
+		for (int k = 0; k < 2; k++) {
+			Node deserialized = (Node) factory.deserialize(new ByteArrayInputStream(out.toByteArray()), DeserializationPolicy.PERMISSIVE);
+			assertEquals("Root", deserialized.getName());
+			assertEquals(10, deserialized.getNodes().size());
+			assertEquals("Node3", deserialized.getNodes().get(3).getName());
+			assertEquals("Node31", deserialized.getNodes().get(3).getNodes().get(0).getName());
+			assertSame(deserialized, deserialized.getNodes().get(3).getParentNode());
+		}
+	}
+}
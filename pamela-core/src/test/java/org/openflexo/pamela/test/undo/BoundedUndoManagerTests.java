@@ -0,0 +1,252 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.undo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.swing.undo.UndoableEdit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.embedding.TreeNode;
+import org.openflexo.pamela.undo.CompoundEdit;
+import org.openflexo.pamela.undo.SetCommand;
+import org.openflexo.pamela.undo.UndoManager;
+
+/**
+ * Test coalescing of edits and memory budget of {@link UndoManager}
+ */
+public class BoundedUndoManagerTests {
+
+	private static final int EDITS_COUNT = 50;
+
+	private PamelaModelFactory factory;
+	private UndoManager undoManager;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new PamelaModelFactory(TreeNode.class);
+		EditingContextImpl editingContext = new EditingContextImpl();
+		editingContext.createUndoManager();
+		factory.setEditingContext(editingContext);
+		undoManager = editingContext.getUndoManager();
+	}
+
+	private TreeNode createNode(String name) {
+		CompoundEdit edit = undoManager.startRecording("create " + name);
+		TreeNode node = factory.newInstance(TreeNode.class);
+		node.setName(name);
+		undoManager.stopRecording(edit);
+		return node;
+	}
+
+	private static String makeName(int index) {
+		StringBuilder returned = new StringBuilder("Name" + index);
+		while (returned.length() < 100) {
+			returned.append('-');
+		}
+		return returned.toString();
+	}
+
+	private void rename(TreeNode node, int count) {
+		for (int i = 0; i < count; i++) {
+			CompoundEdit edit = undoManager.startRecording("rename " + i);
+			node.setName(makeName(i));
+			undoManager.stopRecording(edit);
+		}
+	}
+
+	@Test
+	public void testCoalescing() {
+		TreeNode node1 = createNode("Node1");
+		TreeNode node2 = createNode("Node2");
+
+		CompoundEdit edit = undoManager.startRecording("rename");
+		node1.setName("A");
+		node1.setName("B");
+		node1.setName("C");
+		undoManager.stopRecording(edit);
+		assertEquals(1, edit.getEdits().size());
+		SetCommand<?> setCommand = (SetCommand<?>) edit.getEdits().get(0);
+		assertEquals("Node1", setCommand.getOldValue());
+		assertEquals("C", setCommand.getNewValue());
+
+		undoManager.undo();
+		assertEquals("Node1", node1.getName());
+		undoManager.redo();
+		assertEquals("C", node1.getName());
+
+		// Only consecutive edits are coalesced
+		edit = undoManager.startRecording("rename both");
+		node1.setName("D");
+		node2.setName("E");
+		node1.setName("F");
+		undoManager.stopRecording(edit);
+		assertEquals(3, edit.getEdits().size());
+
+		// Setting back initial value cancels the edit
+		edit = undoManager.startRecording("rename twice");
+		node2.setName("G");
+		node2.setName("E");
+		undoManager.stopRecording(edit);
+		assertTrue(edit.getEdits().isEmpty());
+		assertFalse(edit.isSignificant());
+
+		undoManager.setCoalescing(false);
+		edit = undoManager.startRecording("rename without coalescing");
+		node1.setName("H");
+		node1.setName("I");
+		undoManager.stopRecording(edit);
+		assertEquals(2, edit.getEdits().size());
+	}
+
+	@Test
+	public void testSpillToDisk() throws Exception {
+		File spillDirectory = Files.createTempDirectory("undo").toFile();
+		spillDirectory.deleteOnExit();
+		undoManager.setSpillDirectory(spillDirectory);
+		undoManager.setMemoryBudget(5000);
+
+		TreeNode node = createNode("Root");
+		rename(node, EDITS_COUNT);
+
+		assertEquals(EDITS_COUNT + 1, undoManager.getEdits().size());
+		assertTrue(undoManager.getSpilledEditsCount() > 0);
+		assertTrue(undoManager.getEstimatedMemoryCost() <= 5000);
+
+		// Spilled edits are reloaded when undone
+		for (int i = EDITS_COUNT - 1; i >= 0; i--) {
+			assertEquals(makeName(i), node.getName());
+			assertTrue(undoManager.canUndo());
+			undoManager.undo();
+			assertTrue(undoManager.getEstimatedMemoryCost() <= 5000);
+		}
+		assertEquals("Root", node.getName());
+
+		// Undo the creation
+		undoManager.undo();
+		assertTrue(node.isDeleted());
+		assertFalse(undoManager.canUndo());
+
+		for (int i = 0; i <= EDITS_COUNT; i++) {
+			undoManager.redo();
+		}
+		assertFalse(node.isDeleted());
+		assertEquals(makeName(EDITS_COUNT - 1), node.getName());
+		assertFalse(undoManager.canRedo());
+		assertSame(node, ((SetCommand<?>) undoManager.editToBeUndone().getEdits().get(0)).getObject());
+	}
+
+	private long computeMemoryCost() {
+		long returned = 0;
+		for (UndoableEdit edit : undoManager.getEdits()) {
+			returned += ((CompoundEdit) edit).getEstimatedMemoryCost();
+		}
+		return returned;
+	}
+
+	@Test
+	public void testSpillFileLifecycle() throws Exception {
+		File spillDirectory = Files.createTempDirectory("undo").toFile();
+		spillDirectory.deleteOnExit();
+		File otherDirectory = Files.createTempDirectory("undo").toFile();
+		otherDirectory.deleteOnExit();
+		undoManager.setSpillDirectory(spillDirectory);
+		undoManager.setMemoryBudget(5000);
+
+		TreeNode node = createNode("Root");
+		rename(node, EDITS_COUNT);
+		assertEquals(1, spillDirectory.list().length);
+		assertEquals(computeMemoryCost(), undoManager.getEstimatedMemoryCost());
+
+		// Spilled edits are moved to the new directory
+		undoManager.setSpillDirectory(otherDirectory);
+		assertEquals(0, spillDirectory.list().length);
+		assertEquals(1, otherDirectory.list().length);
+		assertTrue(undoManager.getSpilledEditsCount() > 0);
+		assertEquals(computeMemoryCost(), undoManager.getEstimatedMemoryCost());
+		assertTrue(undoManager.getEstimatedMemoryCost() <= 5000);
+
+		for (int i = 0; i < EDITS_COUNT / 2; i++) {
+			undoManager.undo();
+		}
+		assertEquals(makeName(EDITS_COUNT / 2 - 1), node.getName());
+		assertEquals(computeMemoryCost(), undoManager.getEstimatedMemoryCost());
+
+		// Adding an edit discards the edits to be redone
+		rename(node, 1);
+		assertEquals(computeMemoryCost(), undoManager.getEstimatedMemoryCost());
+		assertEquals(EDITS_COUNT / 2 + 2, undoManager.getEdits().size());
+
+		undoManager.discardAllEdits();
+		assertEquals(0, undoManager.getEstimatedMemoryCost());
+		assertEquals(0, otherDirectory.listFiles()[0].length());
+
+		undoManager.close();
+		assertEquals(0, otherDirectory.list().length);
+	}
+
+	@Test
+	public void testDiscardOldestEdits() {
+		undoManager.setMemoryBudget(5000);
+
+		TreeNode node = createNode("Root");
+		rename(node, EDITS_COUNT);
+
+		int editsCount = undoManager.getEdits().size();
+		assertTrue(editsCount < EDITS_COUNT);
+		assertEquals(0, undoManager.getSpilledEditsCount());
+		assertTrue(undoManager.getEstimatedMemoryCost() <= 5000);
+
+		for (int i = 0; i < editsCount; i++) {
+			assertTrue(undoManager.canUndo());
+			undoManager.undo();
+		}
+		assertFalse(undoManager.canUndo());
+		assertEquals(makeName(EDITS_COUNT - editsCount - 1), node.getName());
+	}
+}
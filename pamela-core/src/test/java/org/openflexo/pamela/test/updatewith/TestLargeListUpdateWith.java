@@ -0,0 +1,133 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.updatewith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.factory.CompareAndMergeUtils;
+import org.openflexo.pamela.factory.ConcurrentEditingContext;
+import org.openflexo.pamela.factory.EditingContext;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Test PAMELA updateWith(Object) feature on large lists
+ */
+public class TestLargeListUpdateWith {
+
+	private static final int SIZE = 1000;
+
+	@After
+	public void tearDown() {
+		CompareAndMergeUtils.setParallelMatching(false);
+	}
+
+	private static ConceptA createConceptA(PamelaModelFactory factory) {
+		ConceptA a = factory.newInstance(ConceptA.class);
+		a.setValue("Root");
+		for (int i = 0; i < SIZE; i++) {
+			ConceptC1 c = factory.newInstance(ConceptC1.class);
+			c.setV1("Concept" + i);
+			c.setV2("Value" + (i % 10));
+			c.setV5("Other" + i);
+			a.addToConceptCs(c);
+		}
+		return a;
+	}
+
+	private static void performLargeListUpdate(EditingContext editingContext) throws Exception {
+		PamelaModelFactory factory = new PamelaModelFactory(
+				PamelaMetaModelLibrary.retrieveMetaModel(ConceptA.class, ConceptC1.class, ConceptC2.class));
+		factory.setEditingContext(editingContext);
+		ConceptA a1 = createConceptA(factory);
+		ConceptA a2 = (ConceptA) a1.cloneObject();
+		assertTrue(a1.equalsObject(a2));
+
+		List<ConceptC> initialCs = new ArrayList<>(a1.getConceptCs());
+
+		// Modify some concepts, remove some others and add new ones
+		((ConceptC1) a2.getConceptCs().get(10)).setV5("Modified");
+		a2.getConceptCs().get(500).setV1("Concept500bis");
+		a2.removeFromConceptCs(a2.getConceptCs().get(200));
+		ConceptC2 newC = factory.newInstance(ConceptC2.class);
+		newC.setV1("NewConcept");
+		a2.addToConceptCs(newC);
+		assertFalse(a1.equalsObject(a2));
+
+		a1.updateWith(a2);
+
+		assertTrue(a1.equalsObject(a2));
+		assertEquals(SIZE, a1.getConceptCs().size());
+		// Matched objects were updated, not replaced
+		assertSame(initialCs.get(0), a1.getConceptCs().get(0));
+		assertSame(initialCs.get(10), a1.getConceptCs().get(10));
+		assertEquals("Modified", ((ConceptC1) a1.getConceptCs().get(10)).getV5());
+		assertSame(initialCs.get(500), a1.getConceptCs().get(499));
+		assertEquals("Concept500bis", a1.getConceptCs().get(499).getV1());
+		assertFalse(a1.getConceptCs().contains(initialCs.get(200)));
+		assertSame(newC, a1.getConceptCs().get(SIZE - 1));
+	}
+
+	@Test
+	public void testLargeListUpdate() throws Exception {
+		performLargeListUpdate(null);
+	}
+
+	@Test(timeout = 60000)
+	public void testLargeListParallelUpdate() throws Exception {
+		CompareAndMergeUtils.setParallelMatching(true);
+		// Distances are computed on behalf of the thread performing the update, which holds the write lock
+		performLargeListUpdate(new ConcurrentEditingContext(4));
+	}
+
+	@Test
+	public void testLargeListParallelUpdateIsSequentialWithoutConcurrentContext() throws Exception {
+		CompareAndMergeUtils.setParallelMatching(true);
+		performLargeListUpdate(new EditingContextImpl());
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.test.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.openflexo.pamela.PamelaMetaModel;
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.factory.ConcurrentEditingContext;
+import org.openflexo.pamela.factory.ConcurrentEditingContext.Transaction;
+import org.openflexo.pamela.factory.FrozenGraph;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.test.library.Book;
+import org.openflexo.pamela.test.library.Library;
+import org.openflexo.pamela.validation.DefaultValidationModel;
+import org.openflexo.pamela.validation.ValidationModel;
+import org.openflexo.pamela.validation.ValidationReport;
+
+/**
+ * Test parallel and incremental validation on Library-Book model
+ */
+public class ParallelValidationTest {
+
+	private static Library makeLibrary(PamelaModelFactory factory, int booksNumber) {
+		Library library = factory.newInstance(Library.class);
+		library.setName("My library");
+		for (int i = 0; i < booksNumber; i++) {
+			Book book = factory.newInstance(Book.class, "Book" + i);
+			if (i % 3 == 0) {
+				book.setISBN("ISBN" + i);
+			}
+			library.addToBooks(book);
+		}
+		return library;
+	}
+
+	@Test
+	public void testParallelValidation() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		PamelaModelFactory factory = new PamelaModelFactory(pamelaMetaModel);
+		// Getters may be called concurrently by validation pool
+		factory.setEditingContext(new ConcurrentEditingContext(4));
+		Library library = makeLibrary(factory, 3000);
+
+		ValidationModel validationModel = new DefaultValidationModel(pamelaMetaModel);
+		ValidationReport sequentialReport = validationModel.validate(library);
+		assertEquals(2000, sequentialReport.getErrorsCount());
+
+		validationModel.setParallelValidation(true);
+		validationModel.setValidationPool(new ForkJoinPool(4));
+		ValidationReport parallelReport = validationModel.validate(library);
+		assertEquals(2000, parallelReport.getErrorsCount());
+		assertEquals(library.getBooks().size(), parallelReport.getRootNode().getChildNodes().size());
+
+		// Fix some books, and revalidate
+		for (int i = 1; i < 100; i += 3) {
+			library.getBooks().get(i).setISBN("ISBN" + i);
+		}
+		parallelReport.revalidate();
+		assertEquals(1967, parallelReport.getErrorsCount());
+	}
+
+	@Test
+	public void testParallelValidationOfFrozenGraph() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		PamelaModelFactory factory = new PamelaModelFactory(pamelaMetaModel);
+		Library library = makeLibrary(factory, 3000);
+
+		ValidationModel validationModel = new DefaultValidationModel(pamelaMetaModel);
+		validationModel.setParallelValidation(true);
+		validationModel.setValidationPool(new ForkJoinPool(4));
+		try (FrozenGraph<Library> graph = factory.freeze(library)) {
+			ValidationReport parallelReport = validationModel.validate(library);
+			assertEquals(2000, parallelReport.getErrorsCount());
+			assertEquals(library.getBooks().size(), parallelReport.getRootNode().getChildNodes().size());
+		}
+
+		// Graph is no more frozen: validation is performed sequentially
+		ValidationReport report = validationModel.validate(library);
+		assertEquals(2000, report.getErrorsCount());
+	}
+
+	@Test(timeout = 60000)
+	public void testValidationInTransaction() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		PamelaModelFactory factory = new PamelaModelFactory(pamelaMetaModel);
+		ConcurrentEditingContext editingContext = new ConcurrentEditingContext(4);
+		factory.setEditingContext(editingContext);
+		Library library = makeLibrary(factory, 300);
+
+		ValidationModel validationModel = new DefaultValidationModel(pamelaMetaModel);
+		validationModel.setParallelValidation(true);
+		validationModel.setValidationPool(new ForkJoinPool(4));
+		// Validation pool cannot read while current thread holds the write lock: validation is performed sequentially
+		try (Transaction transaction = editingContext.beginTransaction("Validate")) {
+			library.getBooks().get(1).setISBN("ISBN1");
+			ValidationReport report = validationModel.validate(library);
+			assertEquals(199, report.getErrorsCount());
+			transaction.commit();
+		}
+	}
+
+	@Test
+	public void testIncrementalValidation() throws Exception {
+		PamelaMetaModel pamelaMetaModel = PamelaMetaModelLibrary.retrieveMetaModel(Library.class);
+		PamelaModelFactory factory = new PamelaModelFactory(pamelaMetaModel);
+		Library library = makeLibrary(factory, 30);
+
+		ValidationModel validationModel = new DefaultValidationModel(pamelaMetaModel);
+		ValidationReport report = validationModel.validate(library);
+		report.setIncrementalValidation(true);
+		assertEquals(20, report.getErrorsCount());
+
+		Book book = library.getBooks().get(1);
+		book.setISBN("1234");
+		assertEquals(19, report.getErrorsCount());
+		assertEquals(0, report.errorIssuesRegarding(book).size());
+
+		book.setISBN(null);
+		assertEquals(20, report.getErrorsCount());
+		assertEquals(1, report.errorIssuesRegarding(book).size());
+
+		// Structural modifications are also tracked
+		library.addToBooks(factory.newInstance(Book.class, "New book"));
+		assertEquals(21, report.getErrorsCount());
+		library.removeFromBooks(book);
+		assertEquals(20, report.getErrorsCount());
+
+		// Removed objects are no more observed
+		book.setISBN("1234");
+		assertEquals(20, report.getErrorsCount());
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Measure the number of bytes retained by each PAMELA object, and compare it to {@link #BYTES_PER_OBJECT_TARGET}<br>
+ * 
+ * Measured objects are {@link FootprintObject} instances, with two single properties set. This measure includes the proxy, its
+ * {@link org.openflexo.pamela.factory.ProxyMethodHandler} and the storage of property values.<br>
+ * As any heap-based measure, this measure is to be taken with care since it relies on heap usage after an explicit GC.
+ */
+public class MemoryFootprint {
+
+	/**
+	 * Number of bytes we expect not to exceed for a {@link FootprintObject} with two properties set
+	 */
+	public static final int BYTES_PER_OBJECT_TARGET = 256;
+
+	private static final int OBJECTS_NUMBER = 100000;
+
+	/**
+	 * Instantiate {@link #OBJECTS_NUMBER} objects and return the average number of retained bytes per object
+	 * 
+	 * @param factory
+	 * @return
+	 */
+	public static long measureBytesPerObject(PamelaModelFactory factory) {
+		List<FootprintObject> objects = new ArrayList<>(OBJECTS_NUMBER);
+		// Warm-up, so that classes and shared structures are not measured
+		factory.newInstance(FootprintObject.class).setName("warmup");
+
+		long startMem = usedMemory();
+		for (int i = 0; i < OBJECTS_NUMBER; i++) {
+			FootprintObject object = factory.newInstance(FootprintObject.class);
+			object.setName("object");
+			object.setValue(i);
+			objects.add(object);
+		}
+		long endMem = usedMemory();
+		return (endMem - startMem) / objects.size();
+	}
+
+	private static long usedMemory() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+			}
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	public static void main(String[] args) throws ModelDefinitionException {
+		PamelaModelFactory factory = new PamelaModelFactory(PamelaMetaModelLibrary.retrieveMetaModel(FootprintObject.class));
+		long bytesPerObject = measureBytesPerObject(factory);
+		System.err.println("Bytes per object: " + bytesPerObject + " (target: " + BYTES_PER_OBJECT_TARGET + ")");
+		if (bytesPerObject > BYTES_PER_OBJECT_TARGET) {
+			System.err.println("Memory footprint target is NOT reached");
+			System.exit(1);
+		}
+	}
+
+}
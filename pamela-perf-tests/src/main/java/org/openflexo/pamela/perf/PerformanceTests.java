@@ -15,9 +15,13 @@ import java.lang.management.ManagementFactory;
  * great care since execution time can always be influenced by the workload of the computer on which it is executed, while the memory
  * measure can always be influenced by the GC running in a separate thread.
  * 
+ * @deprecated measures are now performed with JMH benchmarks, see {@link org.openflexo.pamela.perf.jmh.BenchmarkRunner}. This class is
+ *             only kept for the code generated from templates
+ * 
  * @author Guillaume
  * 
  */
+@Deprecated
 public class PerformanceTests {
 
 	/**
@@ -0,0 +1,105 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure getter, setter and adder throughput on a {@link BenchmarkNode}, and getter throughput on a frozen one
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccessorBenchmark {
+
+	private PamelaModelFactory factory;
+	private BenchmarkNode node;
+	private BenchmarkNode child;
+	private BenchmarkNode frozenNode;
+	private int counter;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws ModelDefinitionException {
+		factory = BenchmarkModelBuilder.makeFactory();
+		node = factory.newInstance(BenchmarkNode.class);
+		node.setName("node");
+		child = factory.newInstance(BenchmarkNode.class);
+		frozenNode = factory.newInstance(BenchmarkNode.class);
+		frozenNode.setName("frozen");
+		factory.freeze(frozenNode);
+	}
+
+	@Benchmark
+	public String getter() {
+		return node.getName();
+	}
+
+	@Benchmark
+	public int primitiveGetter() {
+		return node.getValue();
+	}
+
+	@Benchmark
+	public String frozenGetter() {
+		return frozenNode.getName();
+	}
+
+	@Benchmark
+	public void setter() {
+		node.setValue(counter++);
+	}
+
+	@Benchmark
+	public void adderAndRemover() {
+		node.addToChildren(child);
+		node.removeFromChildren(child);
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf.jmh;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.openflexo.pamela.PamelaMetaModelLibrary;
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+
+/**
+ * Build trees of {@link BenchmarkNode} of a given size, used as fixtures by JMH benchmarks
+ */
+public class BenchmarkModelBuilder {
+
+	/**
+	 * Number of children of each non-leaf node
+	 */
+	public static final int FAN_OUT = 10;
+
+	public static PamelaModelFactory makeFactory() throws ModelDefinitionException {
+		return new PamelaModelFactory(PamelaMetaModelLibrary.retrieveMetaModel(BenchmarkNode.class));
+	}
+
+	/**
+	 * Build a tree of exactly <code>size</code> nodes, filled breadth-first with {@link #FAN_OUT} children per node
+	 * 
+	 * @param factory
+	 * @param size
+	 * @return the root node
+	 */
+	public static BenchmarkNode makeTree(PamelaModelFactory factory, int size) {
+		BenchmarkNode root = makeNode(factory, 0);
+		Deque<BenchmarkNode> toFill = new ArrayDeque<>();
+		toFill.add(root);
+		int created = 1;
+		while (created < size) {
+			BenchmarkNode parent = toFill.poll();
+			for (int i = 0; i < FAN_OUT && created < size; i++) {
+				BenchmarkNode child = makeNode(factory, created++);
+				parent.addToChildren(child);
+				toFill.add(child);
+			}
+		}
+		return root;
+	}
+
+	private static BenchmarkNode makeNode(PamelaModelFactory factory, int index) {
+		BenchmarkNode returned = factory.newInstance(BenchmarkNode.class);
+		returned.setName("node" + index);
+		returned.setValue(index);
+		return returned;
+	}
+
+}
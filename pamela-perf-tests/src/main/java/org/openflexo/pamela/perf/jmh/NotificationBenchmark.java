@@ -0,0 +1,109 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.EditingContextImpl;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure setter-heavy loops on a {@link BenchmarkNode}, depending on what observes the node: nothing (where old values and
+ * notifications are not computed at all), a property change listener, or an undo manager
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NotificationBenchmark {
+
+	private static final int SETS = 1000;
+
+	@Param({ "none", "listener", "undo" })
+	public String observer;
+
+	private BenchmarkNode node;
+	private int counter;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws ModelDefinitionException {
+		PamelaModelFactory factory = BenchmarkModelBuilder.makeFactory();
+		EditingContextImpl editingContext = new EditingContextImpl();
+		factory.setEditingContext(editingContext);
+		node = factory.newInstance(BenchmarkNode.class);
+		switch (observer) {
+			case "listener":
+				node.getPropertyChangeSupport().addPropertyChangeListener(evt -> counter++);
+				break;
+			case "undo":
+				// Successive sets of a property are coalesced in a single edit of this recording
+				editingContext.createUndoManager().startRecording("setter loop");
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SETS)
+	public void setValues() {
+		for (int i = 0; i < SETS; i++) {
+			node.setValue(counter++);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SETS)
+	public void setNames() {
+		for (int i = 0; i < SETS; i++) {
+			node.setName((counter++ & 1) == 0 ? "even" : "odd");
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openflexo.pamela.factory.SerializationPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure XML serialization ({@link org.openflexo.pamela.xml.XMLSerializer}) and deserialization
+ * ({@link org.openflexo.pamela.xml.XMLSaxDeserializer}) of trees of {@link BenchmarkNode}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+
+	private PamelaModelFactory factory;
+	private BenchmarkNode root;
+	private byte[] serialized;
+
+	@Setup
+	public void setUp() throws Exception {
+		factory = BenchmarkModelBuilder.makeFactory();
+		root = BenchmarkModelBuilder.makeTree(factory, size);
+		serialized = serialize();
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		factory.serialize(root, baos, SerializationPolicy.PERMISSIVE, false);
+		return baos.toByteArray();
+	}
+
+	@Benchmark
+	public Object deserialize() throws Exception {
+		return factory.deserialize(new ByteArrayInputStream(serialized));
+	}
+
+}
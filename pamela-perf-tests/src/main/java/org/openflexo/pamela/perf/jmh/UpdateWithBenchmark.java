@@ -0,0 +1,94 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Pamela-core, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.pamela.perf.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openflexo.pamela.exceptions.ModelDefinitionException;
+import org.openflexo.pamela.factory.PamelaModelFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure CompareAndMergeUtils.updateWith() between two trees of {@link BenchmarkNode} differing by some values
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UpdateWithBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+
+	private PamelaModelFactory factory;
+	private BenchmarkNode root;
+	private BenchmarkNode updatedRoot;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws ModelDefinitionException {
+		factory = BenchmarkModelBuilder.makeFactory();
+		updatedRoot = BenchmarkModelBuilder.makeTree(factory, size);
+		// Change one value out of ten
+		int i = 0;
+		for (BenchmarkNode child : updatedRoot.getChildren()) {
+			if (i++ % 10 == 0) {
+				child.setValue(-child.getValue());
+			}
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() {
+		root = BenchmarkModelBuilder.makeTree(factory, size);
+	}
+
+	@Benchmark
+	public BenchmarkNode updateWith() {
+		root.updateWith(updatedRoot);
+		return root;
+	}
+
+}
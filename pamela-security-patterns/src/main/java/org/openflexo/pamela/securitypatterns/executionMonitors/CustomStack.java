@@ -3,6 +3,7 @@ package org.openflexo.pamela.securitypatterns.executionMonitors;
 import org.openflexo.pamela.PamelaMetaModel;
 import org.openflexo.pamela.exceptions.ModelExecutionException;
 import org.openflexo.pamela.factory.PamelaUtils;
+import org.openflexo.pamela.model.ModelEntity;
 import org.openflexo.pamela.patterns.ExecutionMonitor;
 
 import java.lang.reflect.Method;
@@ -79,6 +80,12 @@ public class CustomStack extends ExecutionMonitor {
         }
     }
 
+    @Override
+    public boolean isMonitoring(ModelEntity<?> entity, Method method) {
+        // Only instances of entities known by this meta-model are stacked
+        return this.pamelaMetaModel.getModelEntity(entity.getImplementedInterface()) != null;
+    }
+
     private boolean isMonitored(Object instance) {
         return !this.pamelaMetaModel.getUpperEntities(instance).isEmpty();
     }